@@ -13,6 +13,7 @@ import org.opentripplanner.ext.transmodelapi.support.GqlUtil;
 import org.opentripplanner.model.FeedScopedId;
 import org.opentripplanner.model.GenericLocation;
 import org.opentripplanner.model.TransitMode;
+import org.opentripplanner.routing.PlanResponseCache;
 import org.opentripplanner.routing.api.request.BannedStopSet;
 import org.opentripplanner.routing.api.request.RequestModes;
 import org.opentripplanner.routing.api.request.RoutingRequest;
@@ -52,7 +53,11 @@ public class TransmodelGraphQLPlanner {
 
             request = createRequest(environment);
 
-            RoutingResponse res = ctx.getRoutingService().route(request, router);
+            RoutingResponse res = ctx.getRoutingService().route(
+                    request,
+                    router,
+                    PlanResponseCache.Api.TRANSMODEL
+            );
 
             response.plan = res.getTripPlan();
             response.metadata = res.getMetadata();
@@ -0,0 +1,84 @@
+package org.opentripplanner.benchmark;
+
+import com.google.common.collect.Lists;
+import org.opentripplanner.ConstantsForTests;
+import org.opentripplanner.graph_builder.module.osm.OpenStreetMapModule;
+import org.opentripplanner.openstreetmap.BinaryOpenStreetMapProvider;
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitTuningParameters;
+import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerMapper;
+import org.opentripplanner.routing.graph.Graph;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+
+/**
+ * The graphs used by the benchmarks. The graphs are built from the small data sets in
+ * src/test/resources, the same way as in the unit tests. Each graph is built once per JVM, so
+ * the cost is paid in the JMH trial setup and not in the measured code.
+ */
+public class BenchmarkGraphs {
+
+    private static final String PORTLAND_CENTRAL_OSM =
+            "src/test/resources/portland-central-filtered.osm.pbf";
+
+    /** A weekday with regular service in the Caltrain feed. */
+    public static final LocalDate CALTRAIN_SERVICE_DATE = LocalDate.of(2019, 5, 7);
+
+    private static Graph caltrainGraph = null;
+
+    private static Graph portlandStreetGraph = null;
+
+    /** Utility class, do not instantiate. */
+    private BenchmarkGraphs() { }
+
+    /**
+     * The Caltrain GTFS feed, with the graph index and the Raptor transit layer created.
+     */
+    public static synchronized Graph caltrainGraph() {
+        if (caltrainGraph == null) {
+            Graph graph = ConstantsForTests.buildGraph(ConstantsForTests.CALTRAIN_GTFS);
+            if (graph == null) {
+                throw new IllegalStateException("Unable to build the Caltrain benchmark graph.");
+            }
+            graph.index();
+            graph.setTransitLayer(TransitLayerMapper.map(TransitTuningParameters.FOR_TEST, graph));
+            caltrainGraph = graph;
+        }
+        return caltrainGraph;
+    }
+
+    public static TransitLayer caltrainTransitLayer() {
+        return caltrainGraph().getTransitLayer();
+    }
+
+    /** 08:00 on {@link #CALTRAIN_SERVICE_DATE} in the Caltrain time zone. */
+    public static ZonedDateTime caltrainDepartureTime() {
+        ZoneId zoneId = caltrainTransitLayer().getTransitDataZoneId();
+        return ZonedDateTime.of(CALTRAIN_SERVICE_DATE, LocalTime.of(8, 0), zoneId);
+    }
+
+    /**
+     * The street network in central Portland, without any transit.
+     */
+    public static synchronized Graph portlandStreetGraph() {
+        if (portlandStreetGraph == null) {
+            Graph graph = new Graph();
+            BinaryOpenStreetMapProvider osmProvider = new BinaryOpenStreetMapProvider(
+                    new File(PORTLAND_CENTRAL_OSM),
+                    false
+            );
+            OpenStreetMapModule osmModule = new OpenStreetMapModule(
+                    Lists.newArrayList(osmProvider)
+            );
+            osmModule.skipVisibility = true;
+            osmModule.buildGraph(graph, new HashMap<>());
+            portlandStreetGraph = graph;
+        }
+        return portlandStreetGraph;
+    }
+}
@@ -0,0 +1,62 @@
+package org.opentripplanner.common.pqueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert a set of random keys into the {@link BinHeap} used by the street A* search, and extract
+ * them again in order. The heap is reused between invocations, like it is in a search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinHeapBenchmark {
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    private double[] keys;
+
+    private Integer[] elements;
+
+    private BinHeap<Integer> heap;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        keys = new double[size];
+        elements = new Integer[size];
+        for (int i = 0; i < size; ++i) {
+            keys[i] = random.nextDouble() * 10_000;
+            elements[i] = i;
+        }
+        heap = new BinHeap<>(size);
+    }
+
+    @Benchmark
+    public void insertAndExtractMin(Blackhole blackhole) {
+        heap.reset();
+        for (int i = 0; i < size; ++i) {
+            heap.insert(elements[i], keys[i]);
+        }
+        while (!heap.empty()) {
+            blackhole.consume(heap.extract_min());
+        }
+    }
+}
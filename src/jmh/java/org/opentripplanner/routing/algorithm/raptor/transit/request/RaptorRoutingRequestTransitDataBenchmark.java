@@ -0,0 +1,70 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.request;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.benchmark.BenchmarkGraphs;
+import org.opentripplanner.model.TransitMode;
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create the per request transit data used by Raptor, see
+ * {@link RaptorRoutingRequestTransitDataCreator}. The "uncached" benchmark clears the
+ * {@link TripPatternForDatesCache} first, and measures merging and indexing the trip patterns
+ * for the service date window. The "cached" benchmark measures the per request cost when the
+ * index for the date window is already created.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaptorRoutingRequestTransitDataBenchmark {
+
+    private TransitLayer transitLayer;
+
+    private Instant departureTime;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        transitLayer = BenchmarkGraphs.caltrainTransitLayer();
+        departureTime = BenchmarkGraphs.caltrainDepartureTime().toInstant();
+    }
+
+    @Benchmark
+    public RaptorRoutingRequestTransitData uncached() {
+        transitLayer.getTripPatternForDatesCache().clear();
+        return createTransitData();
+    }
+
+    @Benchmark
+    public RaptorRoutingRequestTransitData cached() {
+        return createTransitData();
+    }
+
+    private RaptorRoutingRequestTransitData createTransitData() {
+        return new RaptorRoutingRequestTransitData(
+                transitLayer,
+                departureTime,
+                1,
+                1,
+                EnumSet.allOf(TransitMode.class),
+                Collections.emptySet(),
+                1.33
+        );
+    }
+}
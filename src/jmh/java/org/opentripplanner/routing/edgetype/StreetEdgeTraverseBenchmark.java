@@ -0,0 +1,71 @@
+package org.opentripplanner.routing.edgetype;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opentripplanner.benchmark.BenchmarkGraphs;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traverse every street edge in the central Portland street network once, starting from a fresh
+ * state at the from-vertex of each edge. The result is dominated by the cost of
+ * {@link StreetEdge#traverse(State)}, which is called for almost every edge relaxation in the
+ * street A* search.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreetEdgeTraverseBenchmark {
+
+    @Param({ "WALK", "BICYCLE", "CAR" })
+    public TraverseMode mode;
+
+    private final List<StreetEdge> edges = new ArrayList<>();
+
+    private final List<State> states = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Graph graph = BenchmarkGraphs.portlandStreetGraph();
+
+        for (Edge edge : graph.getEdges()) {
+            if (edge instanceof StreetEdge) {
+                edges.add((StreetEdge) edge);
+            }
+        }
+        RoutingRequest request = new RoutingRequest();
+        request.setMode(mode);
+        request.setRoutingContext(graph, edges.get(0).getFromVertex(), edges.get(0).getToVertex());
+
+        for (StreetEdge edge : edges) {
+            states.add(new State(edge.getFromVertex(), request));
+        }
+    }
+
+    @Benchmark
+    public void traverse(Blackhole blackhole) {
+        for (int i = 0; i < edges.size(); ++i) {
+            blackhole.consume(edges.get(i).traverse(states.get(i)));
+        }
+    }
+}
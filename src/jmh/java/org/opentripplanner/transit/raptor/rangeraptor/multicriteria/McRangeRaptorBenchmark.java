@@ -0,0 +1,114 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.benchmark.BenchmarkGraphs;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.TransitMode;
+import org.opentripplanner.routing.algorithm.raptor.transit.AccessEgress;
+import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripSchedule;
+import org.opentripplanner.routing.algorithm.raptor.transit.mappers.DateMapper;
+import org.opentripplanner.routing.algorithm.raptor.transit.request.RaptorRoutingRequestTransitData;
+import org.opentripplanner.transit.raptor.RaptorService;
+import org.opentripplanner.transit.raptor.api.request.Optimization;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequestBuilder;
+import org.opentripplanner.transit.raptor.api.request.RaptorTuningParameters;
+import org.opentripplanner.transit.raptor.rangeraptor.configure.RaptorConfig;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run a multi-criteria Range Raptor search from San Francisco to San Jose on the Caltrain feed.
+ * This exercises the {@link McRangeRaptorWorkerState} round by round: transit, transfers and
+ * the pareto sets for each stop and the destination.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class McRangeRaptorBenchmark {
+
+    private static final int ACCESS_EGRESS_DURATION = 5 * 60;
+
+    private RaptorService<TripSchedule> service;
+
+    private RaptorRoutingRequestTransitData transitData;
+
+    private RaptorRequest<TripSchedule> request;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TransitLayer transitLayer = BenchmarkGraphs.caltrainTransitLayer();
+        ZonedDateTime departureTime = BenchmarkGraphs.caltrainDepartureTime();
+
+        service = new RaptorService<>(new RaptorConfig<>(new RaptorTuningParameters() {}));
+        transitData = new RaptorRoutingRequestTransitData(
+                transitLayer,
+                departureTime.toInstant(),
+                1,
+                1,
+                EnumSet.allOf(TransitMode.class),
+                Collections.emptySet(),
+                1.33
+        );
+
+        RaptorRequestBuilder<TripSchedule> builder = new RaptorRequestBuilder<>();
+        builder
+                .profile(RaptorProfile.MULTI_CRITERIA)
+                .enableOptimization(Optimization.PARETO_CHECK_AGAINST_DESTINATION)
+                .searchParams()
+                .earliestDepartureTime(
+                        DateMapper.secondsSinceStartOfTime(
+                                transitData.getStartOfTime(),
+                                departureTime.toInstant()
+                        )
+                )
+                .searchWindow(Duration.ofHours(1))
+                .addAccessStop(accessEgress(transitLayer, "San Francisco Caltrain"))
+                .addEgressStop(accessEgress(transitLayer, "San Jose Caltrain"))
+                .timetableEnabled(true);
+        request = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public int route() {
+        return service.route(request, transitData).paths().size();
+    }
+
+    private static AccessEgress accessEgress(TransitLayer transitLayer, String stopName) {
+        for (Stop stop : transitLayer.getStopIndex().stopsByIndex) {
+            if (stopName.equals(stop.getName())) {
+                return new AccessEgress(
+                        transitLayer.getIndexByStop(stop),
+                        ACCESS_EGRESS_DURATION,
+                        null
+                );
+            }
+        }
+        throw new IllegalArgumentException("Stop not found: " + stopName);
+    }
+}
@@ -0,0 +1,112 @@
+package org.opentripplanner.transit.raptor.rangeraptor.transit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.benchmark.BenchmarkGraphs;
+import org.opentripplanner.model.TransitMode;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripSchedule;
+import org.opentripplanner.routing.algorithm.raptor.transit.request.RaptorRoutingRequestTransitData;
+import org.opentripplanner.transit.raptor.api.request.RaptorTuningParameters;
+import org.opentripplanner.transit.raptor.api.transit.RaptorRoute;
+import org.opentripplanner.transit.raptor.util.IntIterators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search for the first trip to board and the last trip to alight at every stop of every Caltrain
+ * pattern, for a set of times throughout the service day. This is the innermost loop of the
+ * Raptor transit phase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TripScheduleSearchBenchmark {
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /** The transit data start one day before the search date, see the setup. */
+    private static final int START_OF_SERVICE_DAY = SECONDS_PER_DAY;
+
+    private static final int SEARCH_TIME_STEP = 15 * 60;
+
+    private final int binarySearchThreshold =
+            new RaptorTuningParameters() {}.scheduledTripBinarySearchThreshold();
+
+    private final List<RaptorRoute<TripSchedule>> routes = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RaptorRoutingRequestTransitData transitData = new RaptorRoutingRequestTransitData(
+                BenchmarkGraphs.caltrainTransitLayer(),
+                BenchmarkGraphs.caltrainDepartureTime().toInstant(),
+                1,
+                1,
+                EnumSet.allOf(TransitMode.class),
+                Collections.emptySet(),
+                1.33
+        );
+        Iterator<? extends RaptorRoute<TripSchedule>> it = transitData.routeIterator(
+                IntIterators.intIncIterator(0, transitData.numberOfStops())
+        );
+        while (it.hasNext()) {
+            routes.add(it.next());
+        }
+    }
+
+    @Benchmark
+    public int boardSearch() {
+        int found = 0;
+        for (RaptorRoute<TripSchedule> route : routes) {
+            TripScheduleBoardSearch<TripSchedule> search = new TripScheduleBoardSearch<>(
+                    binarySearchThreshold,
+                    route.timetable()
+            );
+            int nStops = route.pattern().numberOfStopsInPattern();
+            for (int t = 0; t < SECONDS_PER_DAY; t += SEARCH_TIME_STEP) {
+                for (int stopPos = 0; stopPos < nStops; ++stopPos) {
+                    if (search.search(START_OF_SERVICE_DAY + t, stopPos)) {
+                        found += search.getCandidateTripIndex();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int alightSearch() {
+        int found = 0;
+        for (RaptorRoute<TripSchedule> route : routes) {
+            TripScheduleAlightSearch<TripSchedule> search = new TripScheduleAlightSearch<>(
+                    binarySearchThreshold,
+                    route.timetable()
+            );
+            int nStops = route.pattern().numberOfStopsInPattern();
+            for (int t = 0; t < SECONDS_PER_DAY; t += SEARCH_TIME_STEP) {
+                for (int stopPos = 0; stopPos < nStops; ++stopPos) {
+                    if (search.search(START_OF_SERVICE_DAY + t, stopPos)) {
+                        found += search.getCandidateTripIndex();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+}
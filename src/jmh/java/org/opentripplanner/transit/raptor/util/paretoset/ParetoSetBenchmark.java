@@ -0,0 +1,63 @@
+package org.opentripplanner.transit.raptor.util.paretoset;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Add random vectors to a {@link ParetoSet}. The three criteria mimic the multi-criteria stop
+ * arrivals: arrival time, number of transfers and generalized cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParetoSetBenchmark {
+
+    private static final ParetoComparator<Vector> ARRIVAL_TRANSFERS_COST =
+            (l, r) -> l.v1 < r.v1 || l.v2 < r.v2 || l.v3 < r.v3;
+
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private Vector[] vectors;
+
+    private ParetoSet<Vector> set;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        vectors = new Vector[size];
+        for (int i = 0; i < size; ++i) {
+            vectors[i] = new Vector(
+                    "V" + i,
+                    random.nextInt(3600),
+                    random.nextInt(5),
+                    random.nextInt(10_000)
+            );
+        }
+        set = new ParetoSet<>(ARRIVAL_TRANSFERS_COST);
+    }
+
+    @Benchmark
+    public int add() {
+        set.clear();
+        for (Vector v : vectors) {
+            set.add(v);
+        }
+        return set.size();
+    }
+}
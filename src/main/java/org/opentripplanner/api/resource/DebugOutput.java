@@ -11,7 +11,8 @@ public class DebugOutput {
     public final long precalculationTime;
 
     /**
-     * Time taken in the direct street router in milliseconds.
+     * Time taken in the direct street router in milliseconds. The direct street router may run in
+     * parallel with the access and egress searches of the transit router.
      */
     public final long directStreetRouterTime;
 
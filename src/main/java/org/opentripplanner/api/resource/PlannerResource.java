@@ -8,6 +8,7 @@ import org.opentripplanner.api.mapping.TripPlanMapper;
 import org.opentripplanner.api.mapping.TripSearchMetadataMapper;
 import org.opentripplanner.api.model.error.PlannerError;
 import org.opentripplanner.model.plan.Itinerary;
+import org.opentripplanner.routing.PlanResponseCache;
 import org.opentripplanner.routing.RoutingService;
 import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.api.response.RoutingResponse;
@@ -67,7 +68,7 @@ public class PlannerResource extends RoutingResource {
 
             // Route
             RoutingService routingService = new RoutingService(router.graph);
-            res = routingService.route(request, router);
+            res = routingService.route(request, router, PlanResponseCache.Api.REST);
 
             // Map to API
             TripPlanMapper tripPlanMapper = new TripPlanMapper(request.locale);
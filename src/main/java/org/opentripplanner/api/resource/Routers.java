@@ -2,6 +2,8 @@ package org.opentripplanner.api.resource;
 
 import org.opentripplanner.api.model.ApiRouterInfo;
 import org.opentripplanner.api.model.ApiRouterList;
+import org.opentripplanner.routing.PlanResponseCache;
+import org.opentripplanner.routing.algorithm.raptor.router.street.AccessEgressCache;
 import org.opentripplanner.routing.error.GraphNotFoundException;
 import org.opentripplanner.standalone.server.OTPServer;
 import org.opentripplanner.standalone.server.Router;
@@ -13,6 +15,8 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Map;
 
 /**
  * This REST API endpoint returns some meta-info about a router. OTP2 does no longer support
@@ -57,6 +61,51 @@ public class Routers {
         return routerList;
     }
 
+    /**
+     * Return metrics for the access and egress street search cache: the number of cached searches
+     * and how many of the cacheable searches were found in the cache.
+     */
+    @GET
+    @Path("{ignoreRouterId}/accessEgressCache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAccessEgressCacheMetrics(@PathParam("ignoreRouterId") String ignore) {
+        AccessEgressCache cache = otpServer.getRouter().accessEgressCache();
+        if (cache == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("The access and egress cache is disabled.").build();
+        }
+        Map<String, Number> metrics = Map.of(
+                "size", cache.size(),
+                "hits", cache.hits(),
+                "misses", cache.misses(),
+                "evictions", cache.evictions(),
+                "hitRate", cache.hitRate()
+        );
+        return Response.status(Response.Status.OK).entity(metrics).build();
+    }
+
+    /**
+     * Return metrics for the trip planning response cache: the number of cached responses and how
+     * many of the cacheable requests were found in the cache.
+     */
+    @GET
+    @Path("{ignoreRouterId}/planCache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPlanCacheMetrics(@PathParam("ignoreRouterId") String ignore) {
+        PlanResponseCache cache = otpServer.getRouter().planResponseCache();
+        if (cache == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("The plan cache is disabled.").build();
+        }
+        Map<String, Number> metrics = Map.of(
+                "size", cache.size(),
+                "hits", cache.hits(),
+                "misses", cache.misses(),
+                "evictions", cache.evictions(),
+                "expirations", cache.expirations(),
+                "hitRate", cache.hitRate()
+        );
+        return Response.status(Response.Status.OK).entity(metrics).build();
+    }
+
     private ApiRouterInfo getRouterInfo() {
         try {
             Router router = otpServer.getRouter();
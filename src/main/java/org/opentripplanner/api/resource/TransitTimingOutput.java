@@ -12,10 +12,24 @@ public class TransitTimingOutput {
     public final long tripPatternFilterTime;
 
     /**
-     * Time taken for the access and egress routing in milliseconds.
+     * Time taken for the access and egress routing in milliseconds. This is the time the transit
+     * router waited for the access and egress searches, after the trip patterns were filtered.
      */
     public final long accessEgressTime;
 
+    /**
+     * Time taken by the access street search in milliseconds. The street searches may run in
+     * parallel, so this is measured in the thread doing the search.
+     */
+    public final long accessTime;
+
+    /**
+     * Time taken by the egress street search in milliseconds.
+     *
+     * @see #accessTime
+     */
+    public final long egressTime;
+
     /**
      * Time taken for the raptor search in milliseconds.
      */
@@ -29,11 +43,15 @@ public class TransitTimingOutput {
     public TransitTimingOutput(
         long tripPatternFilterTime,
         long accessEgressTime,
+        long accessTime,
+        long egressTime,
         long raptorSearchTime,
         long itineraryCreationTime
     ) {
         this.tripPatternFilterTime = tripPatternFilterTime;
         this.accessEgressTime = accessEgressTime;
+        this.accessTime = accessTime;
+        this.egressTime = egressTime;
         this.raptorSearchTime = raptorSearchTime;
         this.itineraryCreationTime = itineraryCreationTime;
     }
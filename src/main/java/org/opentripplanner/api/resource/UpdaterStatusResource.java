@@ -1,9 +1,11 @@
 package org.opentripplanner.api.resource;
 
+import org.opentripplanner.model.TimetableSnapshotProvider;
 import org.opentripplanner.standalone.server.OTPServer;
 import org.opentripplanner.standalone.server.Router;
 import org.opentripplanner.updater.GraphUpdater;
 import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.stoptime.TimetableSnapshotSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,6 +13,7 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import java.util.Map;
 
 /**
  * Report the status of the graph updaters via a web service.
@@ -46,6 +49,25 @@ public class UpdaterStatusResource {
         return Response.status(Response.Status.OK).entity(updaterManager.getUpdaterDescriptions()).build();
     }
 
+    /**
+     * Return metrics for the realtime timetable snapshot: how long the last commit took and the
+     * age of the snapshot used by new routing requests, both in milliseconds.
+     */
+    @GET
+    @Path("/timetableSnapshot")
+    public Response getTimetableSnapshotMetrics () {
+        TimetableSnapshotProvider provider = router.graph.getTimetableSnapshotProvider();
+        if (!(provider instanceof TimetableSnapshotSource)) {
+            return Response.status(Response.Status.NOT_FOUND).entity("No GTFS-RT timetable snapshot source.").build();
+        }
+        TimetableSnapshotSource source = (TimetableSnapshotSource) provider;
+        Map<String, Long> metrics = Map.of(
+                "lastCommitDurationMs", source.getLastCommitDurationMillis(),
+                "snapshotAgeMs", source.getSnapshotAgeMillis()
+        );
+        return Response.status(Response.Status.OK).entity(metrics).build();
+    }
+
     /** Return status for a specific updater. */
     @GET
     @Path("/{updaterId}")
@@ -8,6 +8,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Collect the data import issues. Issues can be added from several threads, for example when
+ * the input files are read in parallel.
+ */
 public class DataImportIssueStore {
 
   private static final Logger ISSUE_LOG = LoggerFactory.getLogger("DATA_IMPORT_ISSUES");
@@ -20,14 +24,14 @@ public class DataImportIssueStore {
     this.storeIssues = storeIssues;
   }
 
-  public void add(DataImportIssue issue) {
+  public synchronized void add(DataImportIssue issue) {
     ISSUE_LOG.debug("{} - {}", issue.getClass().getSimpleName(), issue.getMessage());
     if (storeIssues) {
       this.issues.add(issue);
     }
   }
 
-  void summarize() {
+  synchronized void summarize() {
     Map<String, Long> issueCounts = issues
         .stream()
         .map(Object::getClass)
@@ -43,7 +47,7 @@ public class DataImportIssueStore {
     );
   }
 
-  public List<DataImportIssue> getIssues() {
+  public synchronized List<DataImportIssue> getIssues() {
     return this.issues;
   }
 }
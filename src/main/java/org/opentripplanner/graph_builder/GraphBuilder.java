@@ -7,6 +7,7 @@ import org.opentripplanner.ext.transferanalyzer.DirectTransferAnalyzer;
 import org.opentripplanner.graph_builder.model.GtfsBundle;
 import org.opentripplanner.graph_builder.module.DirectTransferGenerator;
 import org.opentripplanner.graph_builder.module.GtfsModule;
+import org.opentripplanner.graph_builder.module.LandmarkGraphBuilderModule;
 import org.opentripplanner.graph_builder.module.PruneFloatingIslands;
 import org.opentripplanner.graph_builder.module.StreetLinkerModule;
 import org.opentripplanner.graph_builder.module.TransitToTaggedStopsModule;
@@ -111,7 +112,11 @@ public class GraphBuilder implements Runnable {
             List<BinaryOpenStreetMapProvider> osmProviders = Lists.newArrayList();
             for (DataSource osmFile : dataSources.get(OSM)) {
                 osmProviders.add(
-                        new BinaryOpenStreetMapProvider(osmFile, config.osmCacheDataInMem)
+                        new BinaryOpenStreetMapProvider(
+                                osmFile,
+                                config.osmCacheDataInMem,
+                                config.osmReaderThreads
+                        )
                 );
             }
             OpenStreetMapModule osmModule = new OpenStreetMapModule(osmProviders);
@@ -154,7 +159,11 @@ public class GraphBuilder implements Runnable {
                 gtfsBundle.maxInterlineDistance = config.maxInterlineDistance;
                 gtfsBundles.add(gtfsBundle);
             }
-            GtfsModule gtfsModule = new GtfsModule(gtfsBundles, config.getTransitServicePeriod());
+            GtfsModule gtfsModule = new GtfsModule(
+                    gtfsBundles,
+                    config.getTransitServicePeriod(),
+                    config.gtfsReaderThreads
+            );
             gtfsModule.setFareServiceFactory(config.fareServiceFactory);
             graphBuilder.addModule(gtfsModule);
         }
@@ -174,6 +183,7 @@ public class GraphBuilder implements Runnable {
         // which need to be handled even when there's no transit.
         StreetLinkerModule streetLinkerModule = new StreetLinkerModule();
         streetLinkerModule.setAddExtraEdgesToAreas(config.areaVisibility);
+        streetLinkerModule.setLinkingThreads(config.streetLinkingThreads);
         graphBuilder.addModule(streetLinkerModule);
         // Load elevation data and apply it to the streets.
         // We want to do run this module after loading the OSM street network but before finding transfers.
@@ -206,7 +216,7 @@ public class GraphBuilder implements Runnable {
             graphBuilder.addModule(
                 new ElevationModule(
                     factory,
-                    new File(dataSources.getCacheDirectory(), "cached_elevations.obj"),
+                    new File(dataSources.getCacheDirectory(), "cached_elevations.bin"),
                     config.readCachedElevations,
                     config.writeCachedElevations,
                     config.elevationUnitMultiplier,
@@ -220,7 +230,10 @@ public class GraphBuilder implements Runnable {
             // The stops can be linked to each other once they are already linked to the street network.
             if ( ! config.useTransfersTxt) {
                 // This module will use streets or straight line distance depending on whether OSM data is found in the graph.
-                graphBuilder.addModule(new DirectTransferGenerator(config.maxTransferDistance));
+                graphBuilder.addModule(new DirectTransferGenerator(
+                        config.maxTransferDistance,
+                        config.transferGeneratorThreads
+                ));
             }
             // Analyze routing between stops to generate report
             if (OTPFeature.TransferAnalyzer.isOn()) {
@@ -228,6 +241,10 @@ public class GraphBuilder implements Runnable {
             }
         }
 
+        if (hasOsm && config.landmarks > 0) {
+            graphBuilder.addModule(new LandmarkGraphBuilderModule(config.landmarks));
+        }
+
         if (config.dataImportReport) {
             graphBuilder.addModule(
                     new DataImportIssuesToHTML(
@@ -0,0 +1,22 @@
+package org.opentripplanner.graph_builder.issues;
+
+import org.opentripplanner.graph_builder.DataImportIssue;
+
+public class GtfsFeedNotLoaded implements DataImportIssue {
+
+    public static final String FMT = "The GTFS feed %s could not be loaded: %s";
+
+    final String feed;
+
+    final String cause;
+
+    public GtfsFeedNotLoaded(String feed, String cause) {
+        this.feed = feed;
+        this.cause = cause;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format(FMT, feed, cause);
+    }
+}
@@ -9,7 +9,6 @@ import org.locationtech.jts.index.SpatialIndex;
 import org.locationtech.jts.linearref.LinearLocation;
 import org.locationtech.jts.linearref.LocationIndexedLine;
 import org.opentripplanner.common.geometry.GeometryUtils;
-import org.opentripplanner.common.geometry.HashGridSpatialIndex;
 import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
 import org.opentripplanner.common.model.P2;
 import org.opentripplanner.graph_builder.DataImportIssue;
@@ -38,6 +37,7 @@ import org.opentripplanner.routing.edgetype.TransitEntranceLink;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.impl.EdgeSpatialIndex;
 import org.opentripplanner.routing.impl.StreetVertexIndex;
 import org.opentripplanner.routing.location.TemporaryStreetLocation;
 import org.opentripplanner.routing.vertextype.BikeParkVertex;
@@ -59,6 +59,11 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -98,7 +103,8 @@ public class SimpleStreetSplitter {
 
     private final Graph graph;
 
-    private final HashGridSpatialIndex<Edge> idx;
+    /** The edge index of the graph, shared with the other splitters and the street index. */
+    private final EdgeSpatialIndex idx;
 
     private final SpatialIndex transitStopIndex;
 
@@ -108,33 +114,28 @@ public class SimpleStreetSplitter {
 
     private Boolean addExtraEdgesToAreas = false;
 
+    /** The number of threads used to find the edges to link to, see {@link #setLinkingThreads(int)}. */
+    private int linkingThreads = 1;
+
+    /** The number of vertices linked to the edges found in parallel, without searching again. */
+    private int plannedLinks = 0;
+
     /**
      * Construct a new SimpleStreetSplitter.
      * NOTE: Only one SimpleStreetSplitter should be active on a graph at any given time.
      *
-     * @param hashGridSpatialIndex If not null this index is used instead of creating new one
      * @param transitStopIndex Index of all transitStops which is generated in {@link StreetVertexIndex}
      * @param destructiveSplitting If true splitting is permanent (Used when linking transit stops etc.) when false Splitting is only for duration of a request. Since they are made from temporary vertices and edges.
      */
-    public SimpleStreetSplitter(Graph graph, HashGridSpatialIndex<Edge> hashGridSpatialIndex,
-        SpatialIndex transitStopIndex, boolean destructiveSplitting, DataImportIssueStore issueStore
+    public SimpleStreetSplitter(Graph graph, SpatialIndex transitStopIndex,
+        boolean destructiveSplitting, DataImportIssueStore issueStore
     ) {
         this.issueStore = issueStore;
         this.graph = graph;
+        this.idx = graph.getEdgeSpatialIndex();
         this.transitStopIndex = transitStopIndex;
         this.destructiveSplitting = destructiveSplitting;
         this.edgeFactory = new DefaultStreetEdgeFactory();
-
-        //We build a spatial index if it isn't provided
-        if (hashGridSpatialIndex == null) {
-            // build a nice private spatial index, since we're adding and removing edges
-            idx = new HashGridSpatialIndex<>();
-            for (StreetEdge se : Iterables.filter(graph.getEdges(), StreetEdge.class)) {
-                idx.insert(se.getGeometry(), se);
-            }
-        } else {
-            idx = hashGridSpatialIndex;
-        }
     }
 
     /**
@@ -145,11 +146,11 @@ public class SimpleStreetSplitter {
 
      */
     public SimpleStreetSplitter(Graph graph, DataImportIssueStore issueStore) {
-        this(graph, null, null, true, issueStore);
+        this(graph, null, true, issueStore);
     }
 
     public static SimpleStreetSplitter createForTest(Graph graph) {
-        return new SimpleStreetSplitter(graph, null, null, true, new DataImportIssueStore(false));
+        return new SimpleStreetSplitter(graph, null, true, new DataImportIssueStore(false));
     }
 
     /** Link all relevant vertices to the street network */
@@ -182,17 +183,18 @@ public class SimpleStreetSplitter {
         ProgressTracker progress = ProgressTracker.track(actionName, 500, vertices.size());
         LOG.info(progress.startMessage());
 
-        for (T v : vertices) {
-            // Do not link vertices, which are already linked by TransitToTaggedStopsModule
-            boolean alreadyLinked = v.getOutgoing().stream().anyMatch(e -> e instanceof StreetTransitLink);
-            if (alreadyLinked) { continue; }
-
-            // Do not link stops connected by pathways
-            if (v instanceof TransitStopVertex && ((TransitStopVertex) v).hasPathways()) {
-                continue;
-            }
+        List<T> verticesToLink = vertices.stream()
+                .filter(SimpleStreetSplitter::needsLinking)
+                .collect(Collectors.toList());
 
-            if (!link(v)) {
+        LinkPlan[] plans = null;
+        if (linkingThreads > 1 && destructiveSplitting && verticesToLink.size() > 1) {
+            plans = planLinks(verticesToLink);
+        }
+        for (int i = 0; i < verticesToLink.size(); ++i) {
+            T v = verticesToLink.get(i);
+            boolean linked = plans == null ? link(v) : link(v, plans[i]);
+            if (!linked) {
                 issueStore.add(unlinkedIssueMapper.apply(v));
             }
             // Keep lambda! A method-ref would cause incorrect class and line number to be logged
@@ -201,6 +203,97 @@ public class SimpleStreetSplitter {
         LOG.info(progress.completeMessage());
     }
 
+    /**
+     * Link using several threads, see {@link #link(Class, Function)}. The results are the same
+     * as when linking with a single thread.
+     */
+    public void setLinkingThreads(int linkingThreads) {
+        this.linkingThreads = Math.max(1, linkingThreads);
+    }
+
+    private static boolean needsLinking(Vertex v) {
+        // Do not link vertices, which are already linked by TransitToTaggedStopsModule
+        boolean alreadyLinked = v.getOutgoing().stream().anyMatch(e -> e instanceof StreetTransitLink);
+        if (alreadyLinked) { return false; }
+
+        // Do not link stops connected by pathways
+        return !(v instanceof TransitStopVertex && ((TransitStopVertex) v).hasPathways());
+    }
+
+    /**
+     * Find the edges to link each vertex to, using {@link #linkingThreads} threads. This only
+     * reads the graph and the spatial index, the edges are split afterwards, one vertex at a
+     * time, in the order of the vertices.
+     */
+    private LinkPlan[] planLinks(List<? extends Vertex> vertices) {
+        LinkPlan[] plans = new LinkPlan[vertices.size()];
+        AtomicInteger next = new AtomicInteger(0);
+        int nWorkers = Math.min(linkingThreads, vertices.size());
+
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < vertices.size(); i = next.getAndIncrement()) {
+                plans[i] = planLink(vertices.get(i));
+            }
+        };
+
+        LOG.info("Finding the edges to link to using {} threads.", nWorkers);
+        ExecutorService executor = Executors.newFixedThreadPool(nWorkers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < nWorkers; ++i) {
+                futures.add(executor.submit(worker));
+            }
+            for (Future<?> it : futures) {
+                it.get();
+            }
+        }
+        catch (ExecutionException | InterruptedException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to link vertices: " + e.getMessage(), e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return plans;
+    }
+
+    /** Find the edges {@link #link(Vertex)} would link the vertex to, without splitting them. */
+    private LinkPlan planLink(Vertex vertex) {
+        LinkPlan plan = findCandidateEdges(vertex, TraverseMode.WALK, INITIAL_SEARCH_RADIUS_METERS);
+        if (plan.edges.isEmpty()) {
+            plan = findCandidateEdges(vertex, TraverseMode.WALK, MAX_SEARCH_RADIUS_METERS);
+        }
+        return plan;
+    }
+
+    /**
+     * Link the vertex to the edges found by {@link #planLink(Vertex)}. If one of these edges was
+     * split since, it is no longer in the graph and one of its parts may be closer, so the edges
+     * are searched again. Otherwise the same edges are found: the parts of the other edges split
+     * since are not closer to the vertex than the edges they replace, and the result is the same
+     * as with {@link #link(Vertex)}.
+     */
+    private boolean link(Vertex vertex, LinkPlan plan) {
+        for (StreetEdge edge : plan.edges) {
+            if (!edge.getToVertex().getIncoming().contains(edge)) {
+                return link(vertex);
+            }
+        }
+        ++plannedLinks;
+        if (plan.edges.isEmpty()) {
+            return false;
+        }
+        linkToCandidateEdges(vertex, plan, null);
+        return true;
+    }
+
+    /** The number of vertices linked to the edges found in parallel, for testing. */
+    int getPlannedLinks() {
+        return plannedLinks;
+    }
+
     /** Link this vertex into the graph to the closest walkable edge */
     public boolean link (Vertex vertex) {
         return link(vertex, TraverseMode.WALK, null);
@@ -231,67 +324,36 @@ public class SimpleStreetSplitter {
         }
     }
 
-    public boolean linkToStreetEdges (Vertex vertex, TraverseMode traverseMode, RoutingRequest options, int radiusMeters) {
+    /**
+     * The closest edges to a vertex, found by searching the spatial index in an envelope around
+     * the vertex.
+     */
+    private static class LinkPlan {
+        final Envelope envelope;
+        final double xscale;
+        /** The edges to link to, empty if no edge was found within the search radius. */
+        final List<StreetEdge> edges;
+        final double closestDistance;
+
+        LinkPlan(Envelope envelope, double xscale, List<StreetEdge> edges, double closestDistance) {
+            this.envelope = envelope;
+            this.xscale = xscale;
+            this.edges = edges;
+            this.closestDistance = closestDistance;
+        }
+    }
 
+    public boolean linkToStreetEdges (Vertex vertex, TraverseMode traverseMode, RoutingRequest options, int radiusMeters) {
+        LinkPlan plan = findCandidateEdges(vertex, traverseMode, radiusMeters);
+        if (!plan.edges.isEmpty()) {
+            linkToCandidateEdges(vertex, plan, options);
+            return true;
+        }
         final double radiusDeg = SphericalDistanceLibrary.metersToDegrees(radiusMeters);
-
-        Envelope env = new Envelope(vertex.getCoordinate());
-
-        // Perform a simple local equirectangular projection, so distances are expressed in degrees latitude.
-        final double xscale = Math.cos(vertex.getLat() * Math.PI / 180);
-
-        // Expand more in the longitude direction than the latitude direction to account for converging meridians.
-        env.expandBy(radiusDeg / xscale, radiusDeg);
-
         final double DUPLICATE_WAY_EPSILON_DEGREES = SphericalDistanceLibrary.metersToDegrees(DUPLICATE_WAY_EPSILON_METERS);
+        final double xscale = plan.xscale;
+        final Envelope env = plan.envelope;
 
-        final TraverseModeSet traverseModeSet = new TraverseModeSet(traverseMode);
-        if (traverseMode == TraverseMode.BICYCLE) {
-            traverseModeSet.setWalk(true);
-        }
-        // Scope block to avoid confusing edge-related local variables with stop-related variables below.
-        {
-            // Perform several transformations at once on the edges returned by the index.
-            // Only consider street edges traversable by the given mode and still present in the graph.
-            // Calculate a distance to each of those edges, and keep only the ones within the search radius.
-            List<DistanceTo<StreetEdge>> candidateEdges = idx.query(env).stream()
-                    .filter(StreetEdge.class::isInstance)
-                    .map(StreetEdge.class::cast)
-                    .filter(e -> e.canTraverse(traverseModeSet) && edgeReachableFromGraph(e))
-                    .map(e -> new DistanceTo<>(e, distance(vertex, e, xscale)))
-                    .filter(ead -> ead.distanceDegreesLat < radiusDeg)
-                    .collect(Collectors.toList());
-
-            // The following logic has gone through several different versions using different approaches.
-            // The core idea is to find all edges that are roughly the same distance from the given vertex, which will
-            // catch things like superimposed edges going in opposite directions.
-            // First, all edges within DUPLICATE_WAY_EPSILON_METERS of of the best distance were selected.
-            // More recently, the edges were sorted in order of increasing distance, and all edges in the list were selected
-            // up to the point where a distance increase of DUPLICATE_WAY_EPSILON_DEGREES from one edge to the next.
-            // This was in response to concerns about arbitrary cutoff distances: at any distance, it's always possible
-            // one half of a dual carriageway (or any other pair of edges in opposite directions) will be caught and the
-            // other half lost. It seems like this was based on some incorrect premises about floating point calculations
-            // being non-deterministic.
-            if (!candidateEdges.isEmpty()) {
-                // There is at least one appropriate edge within range.
-                double closestDistance = candidateEdges.stream()
-                        .mapToDouble(ce -> ce.distanceDegreesLat)
-                        .min().getAsDouble();
-
-                candidateEdges.stream()
-                        .filter(ce -> ce.distanceDegreesLat <= closestDistance + DUPLICATE_WAY_EPSILON_DEGREES)
-                        .forEach(ce -> link(vertex, ce.item, xscale, options));
-
-                // Warn if a linkage was made for a transit stop, but the linkage was suspiciously long.
-                if (vertex instanceof TransitStopVertex) {
-                    int distanceMeters = (int)SphericalDistanceLibrary.degreesLatitudeToMeters(closestDistance);
-                    if (distanceMeters > WARNING_DISTANCE_METERS) {
-                        issueStore.add(new StopLinkedTooFar((TransitStopVertex)vertex, distanceMeters));
-                    }
-                }
-                return true;
-            }
-        }
         if (radiusMeters >= MAX_SEARCH_RADIUS_METERS) {
             // There were no candidate edges within the max linking distance, fall back on finding transit stops.
             // We only link to stops if we are searching for origin/destination and for that we need transitStopIndex.
@@ -327,6 +389,76 @@ public class SimpleStreetSplitter {
         return false;
     }
 
+    private LinkPlan findCandidateEdges(Vertex vertex, TraverseMode traverseMode, int radiusMeters) {
+
+        final double radiusDeg = SphericalDistanceLibrary.metersToDegrees(radiusMeters);
+
+        Envelope env = new Envelope(vertex.getCoordinate());
+
+        // Perform a simple local equirectangular projection, so distances are expressed in degrees latitude.
+        final double xscale = Math.cos(vertex.getLat() * Math.PI / 180);
+
+        // Expand more in the longitude direction than the latitude direction to account for converging meridians.
+        env.expandBy(radiusDeg / xscale, radiusDeg);
+
+        final double DUPLICATE_WAY_EPSILON_DEGREES = SphericalDistanceLibrary.metersToDegrees(DUPLICATE_WAY_EPSILON_METERS);
+
+        final TraverseModeSet traverseModeSet = new TraverseModeSet(traverseMode);
+        if (traverseMode == TraverseMode.BICYCLE) {
+            traverseModeSet.setWalk(true);
+        }
+
+        // Perform several transformations at once on the edges returned by the index.
+        // Only consider street edges traversable by the given mode and still present in the graph.
+        // Calculate a distance to each of those edges, and keep only the ones within the search radius.
+        List<DistanceTo<StreetEdge>> candidateEdges = idx.query(env).stream()
+                .filter(StreetEdge.class::isInstance)
+                .map(StreetEdge.class::cast)
+                .filter(e -> e.canTraverse(traverseModeSet) && edgeReachableFromGraph(e))
+                .map(e -> new DistanceTo<>(e, distance(vertex, e, xscale)))
+                .filter(ead -> ead.distanceDegreesLat < radiusDeg)
+                .collect(Collectors.toList());
+
+        // The following logic has gone through several different versions using different approaches.
+        // The core idea is to find all edges that are roughly the same distance from the given vertex, which will
+        // catch things like superimposed edges going in opposite directions.
+        // First, all edges within DUPLICATE_WAY_EPSILON_METERS of of the best distance were selected.
+        // More recently, the edges were sorted in order of increasing distance, and all edges in the list were selected
+        // up to the point where a distance increase of DUPLICATE_WAY_EPSILON_DEGREES from one edge to the next.
+        // This was in response to concerns about arbitrary cutoff distances: at any distance, it's always possible
+        // one half of a dual carriageway (or any other pair of edges in opposite directions) will be caught and the
+        // other half lost. It seems like this was based on some incorrect premises about floating point calculations
+        // being non-deterministic.
+        if (candidateEdges.isEmpty()) {
+            return new LinkPlan(env, xscale, List.of(), Double.NaN);
+        }
+        // There is at least one appropriate edge within range.
+        double closestDistance = candidateEdges.stream()
+                .mapToDouble(ce -> ce.distanceDegreesLat)
+                .min().getAsDouble();
+
+        List<StreetEdge> closestEdges = candidateEdges.stream()
+                .filter(ce -> ce.distanceDegreesLat <= closestDistance + DUPLICATE_WAY_EPSILON_DEGREES)
+                .map(ce -> ce.item)
+                .collect(Collectors.toList());
+
+        return new LinkPlan(env, xscale, closestEdges, closestDistance);
+    }
+
+    private void linkToCandidateEdges(Vertex vertex, LinkPlan plan, RoutingRequest options) {
+        for (StreetEdge edge : plan.edges) {
+            link(vertex, edge, plan.xscale, options);
+        }
+
+        // Warn if a linkage was made for a transit stop, but the linkage was suspiciously long.
+        if (vertex instanceof TransitStopVertex) {
+            int distanceMeters = (int)SphericalDistanceLibrary.degreesLatitudeToMeters(plan.closestDistance);
+            if (distanceMeters > WARNING_DISTANCE_METERS) {
+                issueStore.add(new StopLinkedTooFar((TransitStopVertex)vertex, distanceMeters));
+            }
+        }
+    }
+
     /**
      * While in destructive splitting mode (during graph construction rather than handling routing requests), we remove
      * edges that have been split and may then re-split the resulting segments recursively, so parts of them are also
@@ -447,18 +579,12 @@ public class SimpleStreetSplitter {
         P2<StreetEdge> edges = edge.split(v, !temporarySplit);
 
         if (destructiveSplitting) {
-            // update indices of new edges
-            idx.insert(edges.first.getGeometry(), edges.first);
-            idx.insert(edges.second.getGeometry(), edges.second);
-
             // remove original edge from the graph
             edge.getToVertex().removeIncoming(edge);
             edge.getFromVertex().removeOutgoing(edge);
-            // remove original edges from the spatial index
-            // This iterates over the entire rectangular envelope of the edge rather than the segments making it up.
-            // It will be inefficient for very long edges, but creating a new remove method mirroring the more efficient
-            // insert logic is not trivial and would require additional testing of the spatial index.
-            idx.remove(edge.getGeometry().getEnvelopeInternal(), edge);
+            // replace the original edge by the new edges in the spatial index, in a single
+            // change, so concurrent readers see either of them
+            idx.replace(edge, edges.first, edges.second);
         }
 
         return v;
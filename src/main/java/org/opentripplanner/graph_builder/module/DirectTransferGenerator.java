@@ -14,9 +14,18 @@ import org.opentripplanner.util.ProgressTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@link org.opentripplanner.graph_builder.services.GraphBuilderModule} module that links up the stops of a transit
@@ -33,6 +42,8 @@ public class DirectTransferGenerator implements GraphBuilderModule {
 
     final double radiusMeters;
 
+    private final int nThreads;
+
     public List<String> provides() {
         return Arrays.asList("linking");
     }
@@ -42,7 +53,15 @@ public class DirectTransferGenerator implements GraphBuilderModule {
     }
 
     public DirectTransferGenerator (double radiusMeters) {
+        this(radiusMeters, 1);
+    }
+
+    /**
+     * @param nThreads the number of threads to use, each thread runs its own street searches.
+     */
+    public DirectTransferGenerator (double radiusMeters, int nThreads) {
         this.radiusMeters = radiusMeters;
+        this.nThreads = nThreads;
     }
 
     @Override
@@ -57,50 +76,120 @@ public class DirectTransferGenerator implements GraphBuilderModule {
         }
 
         /* The linker will use streets if they are available, or straight-line distance otherwise. */
-        NearbyStopFinder nearbyStopFinder = new NearbyStopFinder(graph, radiusMeters);
-        if (nearbyStopFinder.useStreets) {
+        if (graph.hasStreets) {
             LOG.info("Creating direct transfer edges between stops using the street network from OSM...");
         } else {
             LOG.info("Creating direct transfer edges between stops using straight line distance (not streets)...");
         }
 
-        Iterable<TransitStopVertex> stops = Iterables.filter(graph.getVertices(), TransitStopVertex.class);
+        // Sort the stops, so the transfers are added to the graph in the same order every time
+        List<TransitStopVertex> stops = new ArrayList<>();
+        Iterables.addAll(stops, Iterables.filter(graph.getVertices(), TransitStopVertex.class));
+        stops.sort(Comparator.comparing(it -> it.getStop().getId()));
 
         ProgressTracker progress = ProgressTracker.track(
-                "Create transfer edges", 1000, Iterables.size(stops)
+                "Create transfer edges", 1000, stops.size()
         );
+
+        Map<Stop, List<SimpleTransfer>> transfersByStop = findTransfers(graph, stops, progress);
+        LOG.info(progress.completeMessage());
+
         int nTransfersTotal = 0;
         int nLinkableStops = 0;
 
-        // This could be multi-threaded, in which case we'd need to be careful about the lifecycle of NearbyStopFinder instances.
         for (TransitStopVertex ts0 : stops) {
             Stop stop = ts0.getStop();
-            LOG.debug("Linking stop '{}' {}", stop, ts0);
-
-            /* Make transfers to each nearby stop that is the closest stop on some trip pattern. */
-            int n = 0;
-            for (StopAtDistance sd : nearbyStopFinder.findNearbyStopsConsideringPatterns(ts0)) {
-                /* Skip the origin stop, loop transfers are not needed. */
-                if (sd.stop == stop) continue;
-                graph.transfersByStop.put(
-                    stop,
-                    new SimpleTransfer(stop, sd.stop, sd.distance, sd.edges)
-                );
-                n += 1;
-            }
-            LOG.debug("Linked stop {} to {} nearby stops on other patterns.", stop, n);
-            if (n == 0) {
+            List<SimpleTransfer> transfers = transfersByStop.get(stop);
+            LOG.debug("Linked stop {} to {} nearby stops on other patterns.", stop, transfers.size());
+            if (transfers.isEmpty()) {
                 issueStore.add(new StopNotLinkedForTransfers(ts0));
             }
-            //Keep lambda! A method-ref would causes incorrect class and line number to be logged
-            progress.step(m -> LOG.info(m));
-            nTransfersTotal += n;
+            else {
+                ++nLinkableStops;
+            }
+            graph.transfersByStop.putAll(stop, transfers);
+            nTransfersTotal += transfers.size();
         }
-        LOG.info(progress.completeMessage());
         LOG.info("Done connecting stops to one another. Created a total of {} transfers from {} stops.", nTransfersTotal, nLinkableStops);
         graph.hasDirectTransfers = true;
     }
 
+    /**
+     * Find the transfers for all stops using {@code nThreads} threads. The {@link NearbyStopFinder}
+     * is not thread-safe, so each thread creates its own instance and takes the next stop from the
+     * shared list until all stops are processed. The transfers of each stop are sorted on distance
+     * and target stop id.
+     */
+    private Map<Stop, List<SimpleTransfer>> findTransfers(
+            Graph graph,
+            List<TransitStopVertex> stops,
+            ProgressTracker progress
+    ) {
+        Map<Stop, List<SimpleTransfer>> transfersByStop = new ConcurrentHashMap<>();
+        AtomicInteger nextStop = new AtomicInteger(0);
+        int nWorkers = Math.max(1, Math.min(nThreads, stops.size()));
+
+        Runnable worker = () -> {
+            NearbyStopFinder nearbyStopFinder = new NearbyStopFinder(graph, radiusMeters);
+            for (int i = nextStop.getAndIncrement(); i < stops.size(); i = nextStop.getAndIncrement()) {
+                TransitStopVertex ts0 = stops.get(i);
+                transfersByStop.put(ts0.getStop(), findTransfers(nearbyStopFinder, ts0));
+                //Keep lambda! A method-ref would causes incorrect class and line number to be logged
+                progress.step(m -> LOG.info(m));
+            }
+        };
+
+        if (nWorkers == 1) {
+            worker.run();
+            return transfersByStop;
+        }
+
+        LOG.info("Creating transfers using {} threads.", nWorkers);
+        ExecutorService executor = Executors.newFixedThreadPool(nWorkers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < nWorkers; ++i) {
+                futures.add(executor.submit(worker));
+            }
+            for (Future<?> it : futures) {
+                it.get();
+            }
+        }
+        catch (ExecutionException | InterruptedException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to create transfers: " + e.getMessage(), e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return transfersByStop;
+    }
+
+    /**
+     * Make transfers to each nearby stop that is the closest stop on some trip pattern.
+     */
+    private static List<SimpleTransfer> findTransfers(
+            NearbyStopFinder nearbyStopFinder,
+            TransitStopVertex ts0
+    ) {
+        Stop stop = ts0.getStop();
+        LOG.debug("Linking stop '{}' {}", stop, ts0);
+
+        List<SimpleTransfer> transfers = new ArrayList<>();
+        for (StopAtDistance sd : nearbyStopFinder.findNearbyStopsConsideringPatterns(ts0)) {
+            /* Skip the origin stop, loop transfers are not needed. */
+            if (sd.stop == stop) continue;
+            transfers.add(new SimpleTransfer(stop, sd.stop, sd.distance, sd.edges));
+        }
+        transfers.sort(
+                Comparator.comparingDouble(SimpleTransfer::getEffectiveWalkDistance)
+                        .thenComparing(it -> it.to.getId())
+        );
+        return transfers;
+    }
+
     @Override
     public void checkInputs() {
         // No inputs
@@ -17,6 +17,7 @@ import org.onebusaway.gtfs.serialization.GtfsReader;
 import org.onebusaway.gtfs.services.GenericMutableDao;
 import org.onebusaway.gtfs.services.GtfsMutableRelationalDao;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.issues.GtfsFeedNotLoaded;
 import org.opentripplanner.graph_builder.model.GtfsBundle;
 import org.opentripplanner.graph_builder.module.geometry.GeometryAndBlockProcessor;
 import org.opentripplanner.graph_builder.services.GraphBuilderModule;
@@ -39,13 +40,20 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.opentripplanner.gtfs.mapping.GTFSToOtpTransitServiceMapper.mapGtfsDaoToInternalTransitServiceBuilder;
 
@@ -55,8 +63,6 @@ public class GtfsModule implements GraphBuilderModule {
 
     private DataImportIssueStore issueStore;
 
-    private EntityHandler counter = new EntityCounter();
-
     private FareServiceFactory fareServiceFactory;
 
     /** will be applied to all bundles which do not have the cacheDirectory property set */
@@ -77,9 +83,24 @@ public class GtfsModule implements GraphBuilderModule {
 
     private List<GtfsBundle> gtfsBundles;
 
+    /** The number of feeds read and mapped in parallel. */
+    private final int nThreads;
+
     public GtfsModule(List<GtfsBundle> bundles, ServiceDateInterval transitPeriodLimit) {
+        this(bundles, transitPeriodLimit, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param nThreads the number of feeds read and mapped in parallel.
+     */
+    public GtfsModule(
+            List<GtfsBundle> bundles,
+            ServiceDateInterval transitPeriodLimit,
+            int nThreads
+    ) {
         this.gtfsBundles = bundles;
         this.transitPeriodLimit = transitPeriodLimit;
+        this.nThreads = Math.max(1, nThreads);
     }
 
     public List<String> provides() {
@@ -112,32 +133,41 @@ public class GtfsModule implements GraphBuilderModule {
         graph.clearTimeZone();
 
         CalendarServiceData calendarServiceData = new CalendarServiceData();
+        List<String> failedFeeds = new ArrayList<>();
 
+        // A feed without a feed_id is given the next number of a shared counter, so the feed ids
+        // are resolved here, in bundle order, before the feeds are read in parallel
+        List<GtfsFeedId> feedIds = new ArrayList<>();
+        for (GtfsBundle gtfsBundle : gtfsBundles) {
+            feedIds.add(gtfsBundle.getFeedId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
         try {
+            // The feeds are read and mapped in parallel, but added to the graph one at a time in
+            // bundle order, so the graph does not depend on the number of threads. Only a few
+            // feeds are read ahead, to limit the number of feeds kept in memory.
+            Deque<Future<OtpTransitServiceBuilder>> loading = new ArrayDeque<>();
+            CompletableFuture<Void> previousAgencies = CompletableFuture.completedFuture(null);
+            int next = 0;
+
             for (GtfsBundle gtfsBundle : gtfsBundles) {
-                // apply global defaults to individual GTFSBundles (if globals have been set)
-                if (cacheDirectory != null && gtfsBundle.cacheDirectory == null) {
-                    gtfsBundle.cacheDirectory = cacheDirectory;
+                while (loading.size() < nThreads && next < gtfsBundles.size()) {
+                    GtfsBundle bundle = gtfsBundles.get(next);
+                    GtfsFeedId feedId = feedIds.get(next++);
+                    CompletableFuture<Void> agencies = new CompletableFuture<>();
+                    loading.add(submitLoad(executor, bundle, feedId, previousAgencies, agencies));
+                    previousAgencies = agencies;
                 }
 
-                if (useCached != null && gtfsBundle.useCached == null) {
-                    gtfsBundle.useCached = useCached;
+                OtpTransitServiceBuilder builder = waitForFeed(loading.poll(), gtfsBundle);
+                if (builder == null) {
+                    failedFeeds.add(gtfsBundle.getFeedId().getId());
+                    continue;
                 }
 
-                OtpTransitServiceBuilder builder =  mapGtfsDaoToInternalTransitServiceBuilder(
-                        loadBundle(gtfsBundle),
-                        gtfsBundle.getFeedId().getId(),
-                        issueStore
-                );
-
-                builder.limitServiceDays(transitPeriodLimit);
-
                 calendarServiceData.add(builder.buildCalendarServiceData());
 
-                // NB! The calls below have side effects - the builder state is updated!
-
-                repairStopTimesForEachTrip(builder.getStopTimesSortedByTrip());
-
                 // NB! The calls below have side effects - the builder state is updated!
                 createTripPatterns(graph, builder, calendarServiceData.getServiceIds());
 
@@ -147,15 +177,18 @@ public class GtfsModule implements GraphBuilderModule {
 
                 createGeometryAndBlockProcessor(gtfsBundle, transitModel).run(graph, issueStore);
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
         finally {
+            executor.shutdownNow();
             // Note the close method of each bundle should NOT throw an exception, so this
             // code should be safe without the try/catch block.
             gtfsBundles.forEach(GtfsBundle::close);
         }
 
+        if (!failedFeeds.isEmpty()) {
+            throw new RuntimeException("Failed to load the GTFS feeds: " + failedFeeds);
+        }
+
         // We need to save the calendar service data so we can use it later
         graph.putService(
                 org.opentripplanner.model.calendar.CalendarServiceData.class,
@@ -171,6 +204,75 @@ public class GtfsModule implements GraphBuilderModule {
 
     /* Private Methods */
 
+    /**
+     * Read the bundle and map it to a transit service builder on the executor. Each feed may use
+     * its own agency ids only after the agency ids of the previous feeds are resolved, so the
+     * generated agency ids do not depend on the order the feeds are read in.
+     *
+     * @param feedId the feed id of the bundle, resolved before the feeds are loaded.
+     * @param previousAgencies completed when the agencies of the previous feed are resolved.
+     * @param agencies completed when the agencies of this feed are resolved.
+     */
+    private Future<OtpTransitServiceBuilder> submitLoad(
+            ExecutorService executor,
+            GtfsBundle gtfsBundle,
+            GtfsFeedId feedId,
+            CompletableFuture<Void> previousAgencies,
+            CompletableFuture<Void> agencies
+    ) {
+        // apply global defaults to individual GTFSBundles (if globals have been set)
+        if (cacheDirectory != null && gtfsBundle.cacheDirectory == null) {
+            gtfsBundle.cacheDirectory = cacheDirectory;
+        }
+
+        if (useCached != null && gtfsBundle.useCached == null) {
+            gtfsBundle.useCached = useCached;
+        }
+
+        return executor.submit(() -> {
+            try {
+                OtpTransitServiceBuilder builder = mapGtfsDaoToInternalTransitServiceBuilder(
+                        loadBundle(gtfsBundle, feedId, previousAgencies, agencies),
+                        feedId.getId(),
+                        issueStore
+                );
+
+                builder.limitServiceDays(transitPeriodLimit);
+
+                // NB! The calls below have side effects - the builder state is updated!
+                repairStopTimesForEachTrip(builder.getStopTimesSortedByTrip());
+                return builder;
+            }
+            finally {
+                // Let the next feed continue, even if this one failed
+                agencies.complete(null);
+            }
+        });
+    }
+
+    /**
+     * Wait for the feed to be loaded. If loading the feed failed, the failure is reported as an
+     * issue and {@code null} is returned.
+     */
+    private OtpTransitServiceBuilder waitForFeed(
+            Future<OtpTransitServiceBuilder> loading,
+            GtfsBundle gtfsBundle
+    ) {
+        try {
+            return loading.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            LOG.error("Failed to load GTFS feed {}", gtfsBundle, cause);
+            issueStore.add(new GtfsFeedNotLoaded(gtfsBundle.toString(), cause.toString()));
+            return null;
+        }
+    }
+
     /**
      * This method have side-effects, the {@code stopTimesByTrip} is updated.
      */
@@ -208,15 +310,17 @@ public class GtfsModule implements GraphBuilderModule {
         );
     }
 
-    private GtfsMutableRelationalDao loadBundle(GtfsBundle gtfsBundle)
-            throws IOException {
+    private GtfsMutableRelationalDao loadBundle(
+            GtfsBundle gtfsBundle,
+            GtfsFeedId gtfsFeedId,
+            CompletableFuture<Void> previousAgencies,
+            CompletableFuture<Void> agencies
+    ) throws IOException {
 
         StoreImpl store = new StoreImpl(new GtfsRelationalDaoImpl());
         store.open();
         LOG.info("reading {}", gtfsBundle.toString());
 
-        GtfsFeedId gtfsFeedId = gtfsBundle.getFeedId();
-
         GtfsReader reader = new GtfsReader();
         reader.setInputSource(gtfsBundle.getCsvInputSource());
         reader.setEntityStore(store);
@@ -224,7 +328,7 @@ public class GtfsModule implements GraphBuilderModule {
         reader.setDefaultAgencyId(gtfsFeedId.getId());
 
         if (LOG.isDebugEnabled())
-            reader.addEntityHandler(counter);
+            reader.addEntityHandler(new EntityCounter());
 
         if (gtfsBundle.getDefaultBikesAllowed())
             reader.addEntityHandler(new EntityBikeability(true));
@@ -235,8 +339,9 @@ public class GtfsModule implements GraphBuilderModule {
             store.flush();
             // NOTE that agencies are first in the list and read before all other entity types, so it is effective to
             // set the agencyId here. Each feed ("bundle") is loaded by a separate reader, so there is no risk of
-            // agency mappings accumulating.
+            // agency mappings accumulating. The feeds take turns, in bundle order, to resolve agency id conflicts.
             if (entityClass == Agency.class) {
+                previousAgencies.join();
                 for (Agency agency : reader.getAgencies()) {
                     String agencyId = agency.getId();
                     LOG.info("This Agency has the ID {}", agencyId);
@@ -256,6 +361,7 @@ public class GtfsModule implements GraphBuilderModule {
                     }
                     if (agencyId != null) agencyIdsSeen.add(gtfsFeedId.getId() + agencyId);
                 }
+                agencies.complete(null);
             }
         }
 
@@ -0,0 +1,58 @@
+package org.opentripplanner.graph_builder.module;
+
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.services.GraphBuilderModule;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.landmark.Landmarks;
+import org.opentripplanner.routing.graph.landmark.LandmarksBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+
+/**
+ * {@link GraphBuilderModule} that selects landmarks and computes the street distance tables
+ * used by the landmark (ALT) goal directed heuristic for street searches. The tables are
+ * stored in the graph as a {@link Landmarks} service.
+ * <p>
+ * The memory used is 16 bytes for each landmark and vertex, so this should run after all
+ * modules adding or removing street vertices.
+ */
+public class LandmarkGraphBuilderModule implements GraphBuilderModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LandmarkGraphBuilderModule.class);
+
+    private final int nLandmarks;
+
+    public LandmarkGraphBuilderModule(int nLandmarks) {
+        this.nLandmarks = nLandmarks;
+    }
+
+    @Override
+    public void buildGraph(
+            Graph graph,
+            HashMap<Class<?>, Object> extra,
+            DataImportIssueStore issueStore
+    ) {
+        LOG.info("Selecting {} landmarks and computing street distance tables...", nLandmarks);
+
+        Landmarks landmarks = new LandmarksBuilder(graph).build(nLandmarks);
+
+        if (landmarks.nLandmarks() == 0) {
+            LOG.warn("No landmarks found, the graph has no street vertices.");
+            return;
+        }
+        graph.putService(Landmarks.class, landmarks);
+
+        LOG.info(
+                "Landmark tables created: {} landmarks, memory used: {} MB",
+                landmarks.nLandmarks(),
+                landmarks.memoryUsageInBytes() / (1024 * 1024)
+        );
+    }
+
+    @Override
+    public void checkInputs() {
+        // No inputs
+    }
+}
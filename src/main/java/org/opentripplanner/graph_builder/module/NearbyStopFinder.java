@@ -143,7 +143,7 @@ public class NearbyStopFinder {
         } else {
             routingRequest.setRoutingContext(graph, null, originVertices);
         }
-        int walkTime = (int) (radiusMeters / new RoutingRequest().walkSpeed);
+        int walkTime = maxDurationSeconds(radiusMeters);
         routingRequest.worstTime = routingRequest.dateTime + (reverseDirection ? -walkTime : walkTime);
         routingRequest.disableRemainingWeightHeuristic = true;
         routingRequest.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
@@ -162,6 +162,7 @@ public class NearbyStopFinder {
                         StopAtDistance.stopAtDistanceForState(state));
                 }
             }
+            spt.release();
         }
         /* Add the origin vertices if needed. The SPT does not include the initial state. FIXME shouldn't it? */
         for (Vertex vertex : originVertices) {
@@ -182,12 +183,20 @@ public class NearbyStopFinder {
         return new ArrayList<>(stopsFound.values());
     }
 
+    /**
+     * The street searches are limited by the time it takes to walk the given distance with the
+     * default walk speed, paths found by the search never last longer than this.
+     */
+    public static int maxDurationSeconds(double radiusMeters) {
+        return (int) (radiusMeters / new RoutingRequest().walkSpeed);
+    }
+
     private ShortestPathTree getShortestPathTree(Set<Vertex> originVertices,
         boolean reverseDirection) {
         RoutingRequest routingRequest = new RoutingRequest(TraverseMode.WALK);
         routingRequest.setRoutingContext(graph, originVertices, null);
         routingRequest.arriveBy = reverseDirection;
-        int walkTime = (int) (radiusMeters / new RoutingRequest().walkSpeed);
+        int walkTime = maxDurationSeconds(radiusMeters);
         routingRequest.worstTime = routingRequest.dateTime + (reverseDirection ? -walkTime : walkTime);
         routingRequest.disableRemainingWeightHeuristic = true;
         routingRequest.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
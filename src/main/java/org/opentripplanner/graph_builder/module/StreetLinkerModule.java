@@ -31,6 +31,16 @@ public class StreetLinkerModule implements GraphBuilderModule {
 
     private Boolean addExtraEdgesToAreas = true;
 
+    private int linkingThreads = 1;
+
+    /**
+     * The number of threads used to find the edges to link each vertex to. The edges are split
+     * one vertex at a time, so the result does not depend on the number of threads.
+     */
+    public void setLinkingThreads(int linkingThreads) {
+        this.linkingThreads = linkingThreads;
+    }
+
     public List<String> provides() {
         return Arrays.asList("street to transit", "linking");
     }
@@ -51,6 +61,7 @@ public class StreetLinkerModule implements GraphBuilderModule {
             LOG.info("Linking transit stops, bike rental stations, bike parking areas, and park-and-rides to graph . . .");
             SimpleStreetSplitter linker = new SimpleStreetSplitter(graph, issueStore);
             linker.setAddExtraEdgesToAreas(this.addExtraEdgesToAreas);
+            linker.setLinkingThreads(this.linkingThreads);
             linker.link();
         }
         //Calculates convex hull of a graph which is shown in routerInfo API point
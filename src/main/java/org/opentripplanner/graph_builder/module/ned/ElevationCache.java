@@ -0,0 +1,299 @@
+package org.opentripplanner.graph_builder.module.ned;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.opentripplanner.common.geometry.PackedCoordinateSequence;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A file of elevation profiles calculated in a previous graph build, read by memory mapping the
+ * file. The profiles are looked up by a 64 bit hash of the coordinates of the street geometry,
+ * so the file does not contain the geometries, and the profiles are only decoded when they are
+ * found: reading the file does not load it in memory.
+ * <p>
+ * The file starts with a header: a magic number, the format version, the number of profiles and
+ * the position of the index. It is followed by the profiles, and then by the index: the hash of
+ * each geometry and the position of its profile, sorted by hash. A profile is its number of
+ * samples followed by the distance along the street and the elevation of each sample, rounded
+ * to the millimeter and stored as the difference with the previous sample in a variable length
+ * encoding.
+ * <p>
+ * A file can not be replaced while it is mapped on all platforms, and a mapped file is only
+ * released when the buffer is garbage collected. So a new cache is written next to the file, with
+ * the {@code .new} suffix, and replaces the file the next time it is read, before it is mapped.
+ * <p>
+ * The cache can be read by many threads at the same time.
+ */
+public class ElevationCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ElevationCache.class);
+
+    private static final String NEW_FILE_SUFFIX = ".new";
+
+    private static final int MAGIC = 0x4f545045; // "OTPE"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+
+    private static final int INDEX_ENTRY_SIZE = 8 + 8;
+
+    /** The values are stored in millimeters. */
+    private static final double PRECISION = 1000.0;
+
+    /**
+     * The mapped file. Only the absolute get methods are used, which do not change the buffer, so
+     * it can be shared by all threads.
+     */
+    private final ByteBuffer buffer;
+
+    private final int size;
+
+    private final int indexOffset;
+
+    private ElevationCache(ByteBuffer buffer, int size, int indexOffset) {
+        this.buffer = buffer;
+        this.size = size;
+        this.indexOffset = indexOffset;
+    }
+
+    /**
+     * Map the given file in memory. If a new cache was written since the file was last read, it
+     * replaces the file first. If the file can not be replaced, because it is still mapped by
+     * this process, the old file is read and the new cache replaces it the next time.
+     */
+    public static ElevationCache read(File file) throws IOException {
+        Path newFile = newFile(file);
+        if (Files.exists(newFile)) {
+            try {
+                Files.move(newFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (IOException e) {
+                LOG.warn("The elevation cache {} could not be replaced by the new cache, it is used next time: {}",
+                        file, e.getMessage());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("The file is too large to be mapped: " + file);
+            }
+            if (length < HEADER_SIZE) {
+                throw new IOException("Not an elevation cache file: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an elevation cache file: " + file);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported elevation cache version " + buffer.getInt(4) + ": " + file);
+            }
+            int size = buffer.getInt(8);
+            long indexOffset = buffer.getLong(12);
+            if (size < 0 || indexOffset < HEADER_SIZE || indexOffset + (long) size * INDEX_ENTRY_SIZE != length) {
+                throw new IOException("The elevation cache file is corrupted: " + file);
+            }
+            return new ElevationCache(buffer, size, (int) indexOffset);
+        }
+    }
+
+    /**
+     * Write the elevation profiles of the given streets. Streets with the same geometry are
+     * written once. The given file is not changed, as it may be mapped, the profiles are written
+     * to a new file which replaces it the next time it is read, see {@link #read(File)}. The new
+     * file is only created once it is complete.
+     */
+    public static void write(File file, Iterable<? extends StreetEdge> streets) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (StreetEdge street : streets) {
+            entries.add(new Entry(geometryHash(street.getGeometry()), street.getElevationProfile()));
+        }
+        entries.sort(Comparator.comparingLong(it -> it.key));
+
+        Path newFile = newFile(file);
+        Path tmp = newFile.resolveSibling(newFile.getFileName() + ".tmp");
+        try (
+            FileChannel channel = FileChannel.open(
+                    tmp,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING
+            );
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel))
+            )
+        ) {
+            // The header is written again once the number of profiles and the position of the
+            // index are known
+            out.write(new byte[HEADER_SIZE]);
+            long offset = HEADER_SIZE;
+            List<Entry> written = new ArrayList<>();
+            ByteArrayOutputStream profile = new ByteArrayOutputStream();
+            for (Entry entry : entries) {
+                if (!written.isEmpty() && written.get(written.size() - 1).key == entry.key) {
+                    continue;
+                }
+                profile.reset();
+                encode(entry.profile, profile);
+                profile.writeTo(out);
+                entry.offset = offset;
+                offset += profile.size();
+                written.add(entry);
+            }
+            for (Entry entry : written) {
+                out.writeLong(entry.key);
+                out.writeLong(entry.offset);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(written.size()).putLong(offset).flip();
+            channel.write(header, 0);
+        }
+        Files.move(tmp, newFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Return true if the given file or a new cache to replace it exists. */
+    public static boolean exists(File file) {
+        return file.exists() || Files.exists(newFile(file));
+    }
+
+    private static Path newFile(File file) {
+        return file.toPath().resolveSibling(file.getName() + NEW_FILE_SUFFIX);
+    }
+
+    /** Return the elevation profile of the given geometry, or null if it is not in the cache. */
+    public PackedCoordinateSequence get(Geometry geometry) {
+        long key = geometryHash(geometry);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = buffer.getLong(indexOffset + mid * INDEX_ENTRY_SIZE);
+            if (midKey < key) {
+                low = mid + 1;
+            }
+            else if (midKey > key) {
+                high = mid - 1;
+            }
+            else {
+                return decode((int) buffer.getLong(indexOffset + mid * INDEX_ENTRY_SIZE + 8));
+            }
+        }
+        return null;
+    }
+
+    /** The number of profiles in the cache. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A hash of the coordinates of the geometry, which is the same in each graph build for the
+     * same geometry.
+     */
+    static long geometryHash(Geometry geometry) {
+        Coordinate[] coordinates = geometry.getCoordinates();
+        long hash = mix(coordinates.length);
+        for (Coordinate c : coordinates) {
+            hash = mix(hash ^ Double.doubleToLongBits(c.x));
+            hash = mix(hash ^ Double.doubleToLongBits(c.y));
+        }
+        return hash;
+    }
+
+    /** The finalizer of the SplitMix64 generator, which spreads each input bit over the hash. */
+    private static long mix(long z) {
+        z += 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void encode(PackedCoordinateSequence profile, ByteArrayOutputStream out) {
+        int n = profile.size();
+        writeVarLong(out, n);
+        long previousX = 0;
+        long previousY = 0;
+        for (int i = 0; i < n; ++i) {
+            long x = Math.round(profile.getX(i) * PRECISION);
+            long y = Math.round(profile.getY(i) * PRECISION);
+            writeVarLong(out, zigZag(x - previousX));
+            writeVarLong(out, zigZag(y - previousY));
+            previousX = x;
+            previousY = y;
+        }
+    }
+
+    private PackedCoordinateSequence decode(int offset) {
+        int[] position = { offset };
+        int n = (int) readVarLong(position);
+        Coordinate[] coordinates = new Coordinate[n];
+        long x = 0;
+        long y = 0;
+        for (int i = 0; i < n; ++i) {
+            x += unZigZag(readVarLong(position));
+            y += unZigZag(readVarLong(position));
+            coordinates[i] = new Coordinate(x / PRECISION, y / PRECISION);
+        }
+        return new PackedCoordinateSequence.Double(coordinates);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /** Read a variable length value at the given position, and move the position after it. */
+    private long readVarLong(int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position[0]++);
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static class Entry {
+        private final long key;
+        private final PackedCoordinateSequence profile;
+        private long offset;
+
+        private Entry(long key, PackedCoordinateSequence profile) {
+            this.key = key;
+            this.profile = profile;
+        }
+    }
+}
@@ -23,18 +23,12 @@ import org.opentripplanner.routing.edgetype.StreetWithElevationEdge;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.graph.Vertex;
-import org.opentripplanner.util.PolylineEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -78,12 +72,13 @@ public class ElevationModule implements GraphBuilderModule {
     private DataImportIssueStore issueStore;
 
     /**
-     * A map of PackedCoordinateSequence values identified by Strings of encoded polylines.
+     * The elevation profiles calculated in a previous graph build, looked up by the geometry of
+     * the streets.
      *
-     * Note: Since this map has a key of only the encoded polylines, it is assumed that all other inputs are the same as
+     * Note: Since the profiles are only identified by the geometry, it is assumed that all other inputs are the same as
      * those that occurred in the graph build that produced this data.
      */
-    private HashMap<String, PackedCoordinateSequence> cachedElevations;
+    private ElevationCache cachedElevations;
 
     // Keep track of the proportion of elevation fetch operations that fail so we can issue warnings. AtomicInteger is
     // used to provide thread-safe updating capabilities.
@@ -177,10 +172,9 @@ public class ElevationModule implements GraphBuilderModule {
         if (readCachedElevations) {
             // try to load in the cached elevation data
             try {
-                ObjectInputStream in = new ObjectInputStream(new FileInputStream(cachedElevationsFile));
-                cachedElevations = (HashMap<String, PackedCoordinateSequence>) in.readObject();
-                log.info("Cached elevation data loaded into memory!");
-            } catch (IOException | ClassNotFoundException e) {
+                cachedElevations = ElevationCache.read(cachedElevationsFile);
+                log.info("Cached elevation data of {} streets mapped into memory!", cachedElevations.size());
+            } catch (IOException e) {
                 issueStore.add(new Graphwide(
                     String.format("Cached elevations file could not be read in due to error: %s!", e.getMessage())));
             }
@@ -189,22 +183,13 @@ public class ElevationModule implements GraphBuilderModule {
 
         // At first, set the totalElevationEdges to the total number of edges in the graph.
         totalElevationEdges = graph.countEdges();
-        List<StreetWithElevationEdge> streetsWithElevationEdges = new LinkedList<>();
-        for (Vertex gv : graph.getVertices()) {
-            for (Edge ee : gv.getOutgoing()) {
-                if (ee instanceof StreetWithElevationEdge) {
-                    if (multiThreadElevationCalculations) {
-                        // Multi-threaded execution requested, check and prepare a few things that are used only during
-                        // multi-threaded runs.
-                        if (examplarCoordinate == null) {
-                            // store the first coordinate of the first StreetEdge for later use in initializing coverage
-                            // instances
-                            examplarCoordinate = ee.getGeometry().getCoordinates()[0];
-                        }
-                    }
-                    streetsWithElevationEdges.add((StreetWithElevationEdge) ee);
-                }
-            }
+        List<StreetWithElevationEdge> streetsWithElevationEdges = new ArrayList<>(
+                graph.getEdgesOfType(StreetWithElevationEdge.class)
+        );
+        if (multiThreadElevationCalculations && examplarCoordinate == null && !streetsWithElevationEdges.isEmpty()) {
+            // Multi-threaded execution requested, store the first coordinate of the first StreetEdge for later use in
+            // initializing coverage instances
+            examplarCoordinate = streetsWithElevationEdges.get(0).getGeometry().getCoordinates()[0];
         }
         // update this value to the now-known amount of edges that are StreetWithElevation edges
         totalElevationEdges = streetsWithElevationEdges.size();
@@ -231,6 +216,9 @@ public class ElevationModule implements GraphBuilderModule {
                 "If it is unprojected, perhaps the axes are not in (longitude, latitude) order.");
         }
 
+        // The cached elevations are not used anymore, release the mapped file
+        cachedElevations = null;
+
         // Iterate again to find edges that had elevation calculated.
         LinkedList<StreetEdge> edgesWithCalculatedElevations = new LinkedList<>();
         for (StreetWithElevationEdge edgeWithElevation : streetsWithElevationEdges) {
@@ -241,16 +229,8 @@ public class ElevationModule implements GraphBuilderModule {
 
         if (writeCachedElevations) {
             // write information from edgesWithElevation to a new cache file for subsequent graph builds
-            HashMap<String, PackedCoordinateSequence> newCachedElevations = new HashMap<>();
-            for (StreetEdge streetEdge : edgesWithCalculatedElevations) {
-                newCachedElevations.put(PolylineEncoder.createEncodings(streetEdge.getGeometry()).getPoints(),
-                    streetEdge.getElevationProfile());
-            }
             try {
-                ObjectOutputStream out = new ObjectOutputStream(
-                    new BufferedOutputStream(new FileOutputStream(cachedElevationsFile)));
-                out.writeObject(newCachedElevations);
-                out.close();
+                ElevationCache.write(cachedElevationsFile, edgesWithCalculatedElevations);
             } catch (IOException e) {
                 log.error(e.getMessage());
                 issueStore.add(new Graphwide("Failed to write cached elevation file!"));
@@ -501,9 +481,7 @@ public class ElevationModule implements GraphBuilderModule {
         // first try to find a cached value if possible
         Geometry edgeGeometry = ee.getGeometry();
         if (cachedElevations != null) {
-            PackedCoordinateSequence coordinateSequence = cachedElevations.get(
-                PolylineEncoder.createEncodings(edgeGeometry).getPoints()
-            );
+            PackedCoordinateSequence coordinateSequence = cachedElevations.get(edgeGeometry);
             if (coordinateSequence != null) {
                 // found a cached value! Set the elevation profile with the pre-calculated data.
                 setEdgeElevationProfile(ee, coordinateSequence, graph);
@@ -702,7 +680,7 @@ public class ElevationModule implements GraphBuilderModule {
 
         // check for the existence of cached elevation data.
         if (readCachedElevations) {
-            if (Files.exists(cachedElevationsFile.toPath())) {
+            if (ElevationCache.exists(cachedElevationsFile)) {
                 log.info("Cached elevations file found!");
             } else {
                 log.warn("No cached elevations file found or read access not allowed! Unable to load in cached elevations. This could take a while...");
@@ -8,7 +8,6 @@ import java.util.Map;
 
 import gnu.trove.list.TLongList;
 import gnu.trove.list.array.TLongArrayList;
-import gnu.trove.map.TLongObjectMap;
 import org.opentripplanner.common.geometry.GeometryUtils;
 import org.opentripplanner.openstreetmap.model.OSMNode;
 import org.opentripplanner.openstreetmap.model.OSMWay;
@@ -37,7 +36,7 @@ class Area {
     private MultiPolygon jtsMultiPolygon;
 
     Area(OSMWithTags parent, List<OSMWay> outerRingWays, List<OSMWay> innerRingWays,
-         TLongObjectMap<OSMNode> _nodes) {
+         OSMNodeStore _nodes) {
         this.parent = parent;
         // ring assignment
         List<TLongList> innerRingNodes = constructRings(innerRingWays);
@@ -59,8 +59,8 @@ public class OSMDatabase {
 
     private DataImportIssueStore issueStore;
 
-    /* Map of all nodes used in ways/areas keyed by their OSM ID */
-    private TLongObjectMap<OSMNode> nodesById = new TLongObjectHashMap<>();
+    /* All nodes used in ways/areas keyed by their OSM ID */
+    private OSMNodeStore nodesById = new OSMNodeStore();
 
     /* Map of all bike-rental nodes, keyed by their OSM ID */
     private TLongObjectMap<OSMNode> bikeRentalNodes = new TLongObjectHashMap<>();
@@ -221,10 +221,10 @@ public class OSMDatabase {
                 .isStop()))
             return;
 
-        if (nodesById.containsKey(node.getId()))
+        if (nodesById.contains(node.getId()))
             return;
 
-        nodesById.put(node.getId(), node);
+        nodesById.put(node);
 
         if (nodesById.size() % 100000 == 0)
             LOG.debug("nodes=" + nodesById.size());
@@ -333,6 +333,7 @@ public class OSMDatabase {
      * After all relations, ways, and nodes are loaded, handle areas.
      */
     public void doneThirdPhaseNodes() {
+        nodesById.compact();
         processMultipolygonRelations();
         processSingleWayAreas();
     }
@@ -599,7 +600,7 @@ public class OSMDatabase {
         node.setId(virtualNodeId);
         virtualNodeId--;
         waysNodeIds.add(node.getId());
-        nodesById.put(node.getId(), node);
+        nodesById.put(node);
         return node;
     }
 
@@ -653,7 +654,7 @@ public class OSMDatabase {
             TLongIterator longIterator = way.getNodeRefs().iterator();
             while (longIterator.hasNext()) {
                 long nodeRef = longIterator.next();
-                if (!nodesById.containsKey(nodeRef)) continue AREA;
+                if (!nodesById.contains(nodeRef)) continue AREA;
             }
             try {
                 newArea(new Area(way, Arrays.asList(way), Collections.emptyList(), nodesById));
@@ -696,7 +697,7 @@ public class OSMDatabase {
                 TLongIterator wayNodeIterator = way.getNodeRefs().iterator();
                 while (wayNodeIterator.hasNext()) {
                     long nodeId = wayNodeIterator.next();
-                    if (nodesById.containsKey(nodeId)) {
+                    if (nodesById.contains(nodeId)) {
                         MapUtils.addToMapSet(areasForNode, nodeId, way);
                     } else {
                         // this area is missing some nodes, perhaps because it is on
@@ -953,7 +954,7 @@ public class OSMDatabase {
                     platformArea = relationsById.get(member.getRef());
                 else
                     issueStore.add(new TooManyAreasInRelation(relation.getId()));
-            } else if ("node".equals(member.getType()) && nodesById.containsKey(member.getRef())) {
+            } else if ("node".equals(member.getType()) && nodesById.contains(member.getRef())) {
                 platformsNodes.add(nodesById.get(member.getRef()));
             }
         }
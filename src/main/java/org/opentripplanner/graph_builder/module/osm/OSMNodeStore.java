@@ -0,0 +1,162 @@
+package org.opentripplanner.graph_builder.module.osm;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import org.opentripplanner.openstreetmap.model.OSMNode;
+
+import java.util.Arrays;
+
+/**
+ * A memory efficient store of OSM nodes, keyed by id. Most nodes have no tags, they are only
+ * used for the geometry of the ways. The coordinates of these nodes are kept in primitive
+ * arrays, and an {@link OSMNode} is created each time one of them is retrieved. Only the nodes
+ * with tags are kept as objects.
+ * <p>
+ * The nodes of a PBF file are sorted by id, so the untagged nodes are appended to arrays sorted
+ * by id, and looked up with a binary search. The few nodes added out of order, from a second
+ * OSM file or created while processing the data, are kept in a hash map until
+ * {@link #compact()} merges them into the sorted arrays.
+ * <p>
+ * Since the same node might be returned as different objects, nodes are compared by id, see
+ * {@link OSMNode#equals(Object)}.
+ */
+public class OSMNodeStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The ids and coordinates of the untagged nodes, sorted by id. */
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] lats = new double[INITIAL_CAPACITY];
+    private double[] lons = new double[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /** The untagged nodes added out of id order, with the index of their coordinates. */
+    private TLongIntMap outOfOrderIndex = newOutOfOrderIndex();
+    private TDoubleList outOfOrderLats = new TDoubleArrayList();
+    private TDoubleList outOfOrderLons = new TDoubleArrayList();
+
+    private final TLongObjectMap<OSMNode> taggedNodes = new TLongObjectHashMap<>();
+
+    /**
+     * Add a node to the store. If a node with the same id is already in the store, the first
+     * node is kept.
+     */
+    public void put(OSMNode node) {
+        long id = node.getId();
+        if (contains(id)) {
+            return;
+        }
+        if (node.getTags() != null && !node.getTags().isEmpty()) {
+            taggedNodes.put(id, node);
+        }
+        else if (size == 0 || id > ids[size - 1]) {
+            if (size == ids.length) {
+                grow(size + (size >> 1));
+            }
+            ids[size] = id;
+            lats[size] = node.lat;
+            lons[size] = node.lon;
+            size++;
+        }
+        else {
+            outOfOrderIndex.put(id, outOfOrderLats.size());
+            outOfOrderLats.add(node.lat);
+            outOfOrderLons.add(node.lon);
+        }
+    }
+
+    /** Return the node with the given id, or {@code null} if it is not in the store. */
+    public OSMNode get(long id) {
+        OSMNode node = taggedNodes.get(id);
+        if (node != null) {
+            return node;
+        }
+        int i = Arrays.binarySearch(ids, 0, size, id);
+        if (i >= 0) {
+            return createNode(id, lats[i], lons[i]);
+        }
+        i = outOfOrderIndex.get(id);
+        if (i >= 0) {
+            return createNode(id, outOfOrderLats.get(i), outOfOrderLons.get(i));
+        }
+        return null;
+    }
+
+    public boolean contains(long id) {
+        return taggedNodes.containsKey(id)
+                || Arrays.binarySearch(ids, 0, size, id) >= 0
+                || outOfOrderIndex.containsKey(id);
+    }
+
+    public int size() {
+        return size + outOfOrderIndex.size() + taggedNodes.size();
+    }
+
+    /**
+     * Merge the nodes added out of order into the sorted arrays, and release the unused capacity.
+     * Call this when all nodes are loaded.
+     */
+    public void compact() {
+        long[] extraIds = outOfOrderIndex.keys();
+        Arrays.sort(extraIds);
+
+        int n = size + extraIds.length;
+        long[] newIds = new long[n];
+        double[] newLats = new double[n];
+        double[] newLons = new double[n];
+
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < n; k++) {
+            if (j == extraIds.length || (i < size && ids[i] < extraIds[j])) {
+                newIds[k] = ids[i];
+                newLats[k] = lats[i];
+                newLons[k] = lons[i];
+                i++;
+            }
+            else {
+                int index = outOfOrderIndex.get(extraIds[j]);
+                newIds[k] = extraIds[j];
+                newLats[k] = outOfOrderLats.get(index);
+                newLons[k] = outOfOrderLons.get(index);
+                j++;
+            }
+        }
+        ids = newIds;
+        lats = newLats;
+        lons = newLons;
+        size = n;
+
+        outOfOrderIndex = newOutOfOrderIndex();
+        outOfOrderLats = new TDoubleArrayList();
+        outOfOrderLons = new TDoubleArrayList();
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        lats = Arrays.copyOf(lats, capacity);
+        lons = Arrays.copyOf(lons, capacity);
+    }
+
+    private static OSMNode createNode(long id, double lat, double lon) {
+        OSMNode node = new OSMNode();
+        node.setId(id);
+        node.lat = lat;
+        node.lon = lon;
+        return node;
+    }
+
+    private static TLongIntMap newOutOfOrderIndex() {
+        return new TLongIntHashMap(
+                Constants.DEFAULT_CAPACITY,
+                Constants.DEFAULT_LOAD_FACTOR,
+                Constants.DEFAULT_LONG_NO_ENTRY_VALUE,
+                -1
+        );
+    }
+}
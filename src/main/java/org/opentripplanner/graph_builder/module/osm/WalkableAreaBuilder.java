@@ -327,13 +327,18 @@ public class WalkableAreaBuilder {
             options.setRoutingContext(graph, vertex, null);
             options.rctx.remainingWeightHeuristic = new TrivialRemainingWeightHeuristic();
             ShortestPathTree spt = search.getShortestPathTree(options);
-            for (Vertex endVertex : startingVertices) {
-                GraphPath path = spt.getPath(endVertex, false);
-                if (path != null) {
-                    for (Edge edge : path.edges) {
-                        usedEdges.add(edge);
+            try {
+                for (Vertex endVertex : startingVertices) {
+                    GraphPath path = spt.getPath(endVertex, false);
+                    if (path != null) {
+                        for (Edge edge : path.edges) {
+                            usedEdges.add(edge);
+                        }
                     }
                 }
+            } finally {
+                // One search per starting vertex of every area, reuse the states array
+                spt.release();
             }
         }
         for (Edge edge : edges) {
@@ -1,22 +1,18 @@
 package org.opentripplanner.model;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.ImmutableSet;
 import org.opentripplanner.model.calendar.ServiceDate;
 import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerUpdater;
 import org.opentripplanner.routing.trippattern.TripTimes;
+import org.opentripplanner.util.PersistentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
@@ -35,6 +31,11 @@ import java.util.TreeSet;
  *
  * At this point, only one writing thread at a time is supported.
  *
+ * All the indexes are persistent (immutable) maps. The writable snapshot replaces the maps when
+ * it is updated, and a commit just shares the current maps with the read-only snapshot. So, the
+ * cost of a commit is proportional to the number of updated timetables, not to the number of
+ * timetables in the snapshot.
+ *
  *  TODO OTP2 - Move this to package: org.opentripplanner.model
  *            - after ass Entur NeTEx PRs are merged.
  */
@@ -97,11 +98,10 @@ public class TimetableSnapshot {
      * we have an updated Timetable. The keys include both TripPatterns from the scheduled GTFS, and TripPatterns added
      * by realtime messages and tracked by the TripPatternCache. Note that the keys will not include all scheduled
      * TripPatterns, only those for which we've got an update.
-     * We use a HashMap rather than a Map so we can clone it. If this turns out to be slow/spacious we can use an array
-     * with integer pattern indexes. The SortedSet members are copy-on-write.
-     * FIXME: this could be made into a flat hashtable with compound keys.
+     * The map is persistent, so it can be shared with committed snapshots without copying. The SortedSet members are
+     * copy-on-write.
      */
-    private HashMap<TripPattern, SortedSet<Timetable>> timetables = new HashMap();
+    private PersistentHashMap<TripPattern, SortedSet<Timetable>> timetables = PersistentHashMap.empty();
 
     /**
      * <p>
@@ -109,21 +109,18 @@ public class TimetableSnapshot {
      * service date as a result of a call to {@link #update(TripPattern, TripTimes, ServiceDate)}
      * with trip times of a trip that didn't exist yet in the trip pattern.
      * </p>
-     * <p>
-     * This is a HashMap and not a Map so the clone function is available.
-     * </p>
      * TODO clarify what it means to say "last" added trip pattern. There can be more than one? What happens to the older ones?
      */
-    private HashMap<TripIdAndServiceDate, TripPattern> lastAddedTripPattern = new HashMap<>();
+    private PersistentHashMap<TripIdAndServiceDate, TripPattern> lastAddedTripPattern = PersistentHashMap.empty();
 
     /**
      * This maps contains all of the new or updated TripPatterns added by realtime data indexed on
      * stop. This has to be kept in order for them to be included in the stop times api call on a
-     * specific stop.
+     * specific stop. The pattern sets are immutable, and replaced when a pattern is added.
      *
      * TODO Find a generic way to keep all realtime indexes.
      */
-    private Multimap<Stop, TripPattern> patternsForStop = ArrayListMultimap.create();
+    private PersistentHashMap<Stop, Set<TripPattern>> patternsForStop = PersistentHashMap.empty();
     
     /**
      * Boolean value indicating that timetable snapshot is read only if true. Once it is true, it shouldn't
@@ -213,7 +210,7 @@ public class TimetableSnapshot {
             if(old.serviceDate != null)
                 sortedTimetables.remove(old);
             sortedTimetables.add(tt);
-            timetables.put(pattern, sortedTimetables);
+            timetables = timetables.plus(pattern, sortedTimetables);
             dirtyTimetables.add(tt);
             dirty = true;
         }
@@ -227,7 +224,7 @@ public class TimetableSnapshot {
             // Remember this pattern for the added trip id and service date
             FeedScopedId tripId = updatedTripTimes.trip.getId();
             TripIdAndServiceDate tripIdAndServiceDate = new TripIdAndServiceDate(tripId, serviceDate);
-            lastAddedTripPattern.put(tripIdAndServiceDate, pattern);
+            lastAddedTripPattern = lastAddedTripPattern.plus(tripIdAndServiceDate, pattern);
         } else {
             // Set updated trip times of trip
             tt.setTripTimes(tripIndex, updatedTripTimes);
@@ -242,8 +239,8 @@ public class TimetableSnapshot {
     }
 
     /**
-     * This produces a small delay of typically around 50ms, which is almost entirely due to
-     * the indexing step. Cloning the map is much faster (2ms).
+     * This produces a small delay, which is almost entirely due to the indexing step. The maps are
+     * persistent and shared with the returned snapshot, so they are not copied.
      * It is perhaps better to index timetables as they are changed to avoid experiencing all
      * this lag at once, but we want to avoid re-indexing when receiving multiple updates for
      * the same timetable in rapid succession. This compromise is expressed by the
@@ -255,7 +252,6 @@ public class TimetableSnapshot {
         return commit(null, false);
     }
 
-    @SuppressWarnings("unchecked")
     public TimetableSnapshot commit(TransitLayerUpdater transitLayerUpdater, boolean force) {
         if (readOnly) {
             throw new ConcurrentModificationException("This TimetableSnapshot is read-only.");
@@ -266,9 +262,9 @@ public class TimetableSnapshot {
         for (Timetable tt : dirtyTimetables) {
             tt.finish(); // summarize, index, etc. the new timetables
         }
-        ret.timetables = (HashMap<TripPattern, SortedSet<Timetable>>) this.timetables.clone();
-        ret.lastAddedTripPattern = (HashMap<TripIdAndServiceDate, TripPattern>)
-                this.lastAddedTripPattern.clone();
+        ret.timetables = this.timetables;
+        ret.lastAddedTripPattern = this.lastAddedTripPattern;
+        ret.patternsForStop = this.patternsForStop;
 
         if (transitLayerUpdater != null) {
             transitLayerUpdater.update(dirtyTimetables);
@@ -277,8 +273,6 @@ public class TimetableSnapshot {
         this.dirtyTimetables.clear();
         this.dirty = false;
 
-        ret.setPatternsForStop(HashMultimap.create(this.patternsForStop));
-
         ret.readOnly = true; // mark the snapshot as henceforth immutable
         return ret;
     }
@@ -309,7 +303,15 @@ public class TimetableSnapshot {
      * @return true if the timetable changed as a result of the call
      */
     protected boolean clearTimetable(String feedId) {
-        return timetables.keySet().removeIf(tripPattern -> feedId.equals(tripPattern.getFeedId()));
+        var result = timetables;
+        for (TripPattern tripPattern : timetables.keySet()) {
+            if (feedId.equals(tripPattern.getFeedId())) {
+                result = result.minus(tripPattern);
+            }
+        }
+        boolean modified = result != timetables;
+        timetables = result;
+        return modified;
     }
 
     /**
@@ -319,10 +321,15 @@ public class TimetableSnapshot {
      * @return true if the lastAddedTripPattern changed as a result of the call
      */
     protected boolean clearLastAddedTripPattern(String feedId) {
-        return lastAddedTripPattern.keySet().removeIf(
-            lastAddedTripPattern ->
-                feedId.equals(lastAddedTripPattern.getTripId().getFeedId())
-        );
+        var result = lastAddedTripPattern;
+        for (TripIdAndServiceDate it : lastAddedTripPattern.keySet()) {
+            if (feedId.equals(it.getTripId().getFeedId())) {
+                result = result.minus(it);
+            }
+        }
+        boolean modified = result != lastAddedTripPattern;
+        lastAddedTripPattern = result;
+        return modified;
     }
 
     /**
@@ -334,35 +341,37 @@ public class TimetableSnapshot {
         }
 
         boolean modified = false;
-        for (Iterator<TripPattern> it = timetables.keySet().iterator(); it.hasNext();){
-            TripPattern pattern = it.next();
-            SortedSet<Timetable> sortedTimetables = timetables.get(pattern);
+        var keptTimetables = timetables;
+        for (var e : timetables.entrySet()) {
             SortedSet<Timetable> toKeepTimetables =
                     new TreeSet<Timetable>(new SortedTimetableComparator());
-            for(Timetable timetable : sortedTimetables) {
+            for(Timetable timetable : e.getValue()) {
                 if(serviceDate.compareTo(timetable.serviceDate) < 0) {
                     toKeepTimetables.add(timetable);
-                } else {
-                    modified = true;
                 }
             }
 
+            if(toKeepTimetables.size() == e.getValue().size()) {
+                continue;
+            }
+            modified = true;
             if(toKeepTimetables.isEmpty()) {
-                it.remove();
+                keptTimetables = keptTimetables.minus(e.getKey());
             } else {
-                timetables.put(pattern, toKeepTimetables);
+                keptTimetables = keptTimetables.plus(e.getKey(), toKeepTimetables);
             }
         }
-        
+        timetables = keptTimetables;
+
         // Also remove last added trip pattern for days that are purged
-        for (Iterator<Entry<TripIdAndServiceDate, TripPattern>> iterator = lastAddedTripPattern
-                .entrySet().iterator(); iterator.hasNext();) {
-            TripIdAndServiceDate tripIdAndServiceDate = iterator.next().getKey();
+        var keptLastAddedTripPattern = lastAddedTripPattern;
+        for (TripIdAndServiceDate tripIdAndServiceDate : lastAddedTripPattern.keySet()) {
             if (serviceDate.compareTo(tripIdAndServiceDate.getServiceDate()) >= 0) {
-                iterator.remove();
+                keptLastAddedTripPattern = keptLastAddedTripPattern.minus(tripIdAndServiceDate);
                 modified = true;
             }
         }
+        lastAddedTripPattern = keptLastAddedTripPattern;
 
         return modified;
     }
@@ -388,15 +397,17 @@ public class TimetableSnapshot {
 
     private void addPatternToIndex(TripPattern tripPattern) {
         for (Stop stop: tripPattern.getStops()) {
-            patternsForStop.put(stop, tripPattern);
+            Set<TripPattern> patterns = patternsForStop.getOrDefault(stop, Set.of());
+            if (!patterns.contains(tripPattern)) {
+                patternsForStop = patternsForStop.plus(
+                        stop,
+                        ImmutableSet.<TripPattern>builder().addAll(patterns).add(tripPattern).build()
+                );
+            }
         }
     }
 
     public Collection<TripPattern> getPatternsForStop(Stop stop) {
-        return patternsForStop.get(stop);
-    }
-
-    public void setPatternsForStop(Multimap<Stop, TripPattern> patternsForStop) {
-        this.patternsForStop = patternsForStop;
+        return patternsForStop.getOrDefault(stop, Set.of());
     }
 }
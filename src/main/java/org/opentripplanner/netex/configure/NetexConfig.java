@@ -66,7 +66,12 @@ public class NetexConfig {
 
     /** public to enable testing */
     private NetexBundle netexBundle(CompositeDataSource source) {
-        return new NetexBundle(buildParams.netex.netexFeedId, source, hierarchy(source));
+        return new NetexBundle(
+                buildParams.netex.netexFeedId,
+                source,
+                hierarchy(source),
+                buildParams.netex.parserThreads
+        );
     }
 
     private NetexDataSourceHierarchy hierarchy(CompositeDataSource source){
@@ -16,10 +16,15 @@ import org.slf4j.LoggerFactory;
 import javax.xml.bind.JAXBException;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.LinkedList;
-
-import static java.util.Collections.singletonList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * Loads/reads a NeTEx bundle of a data source(zip file/directory/cloud storage) and maps it into
@@ -30,6 +35,10 @@ import static java.util.Collections.singletonList;
  *{@link NetexConfig#sharedFilePattern} and here
  * {@link NetexDataSourceHierarchy}.
  * <p>
+ * The XML files of each level in the hierarchy are parsed in parallel, but the parsed documents
+ * are added to the index and mapped in the same order as the files are listed, so the result
+ * does not depend on the number of threads.
+ * <p>
  * This class is also responsible for logging progress and exception handling.
  */
 public class NetexBundle implements Closeable {
@@ -49,16 +58,22 @@ public class NetexBundle implements Closeable {
 
     private final String netexFeedId;
 
+    private final int parserThreads;
+
+    /** parses the XML files, set while the bundle is loaded. */
+    private ExecutorService parserExecutor;
+
 
     public NetexBundle(
             String netexFeedId,
             CompositeDataSource source,
-            NetexDataSourceHierarchy hierarchy
-
+            NetexDataSourceHierarchy hierarchy,
+            int parserThreads
     ) {
         this.netexFeedId = netexFeedId;
         this.source = source;
         this.hierarchy = hierarchy;
+        this.parserThreads = Math.max(1, parserThreads);
     }
 
     /** load the bundle, map it to the OTP transit model and return */
@@ -76,7 +91,14 @@ public class NetexBundle implements Closeable {
         otpMapper = new NetexMapper(transitBuilder, netexFeedId, deduplicator, issueStore);
 
         // Load data
-        loadZipFileEntries();
+        parserExecutor = Executors.newFixedThreadPool(parserThreads);
+        try {
+            loadZipFileEntries();
+        }
+        finally {
+            parserExecutor.shutdownNow();
+            parserExecutor = null;
+        }
 
         return transitBuilder;
     }
@@ -109,12 +131,13 @@ public class NetexBundle implements Closeable {
                         group.sharedEntries()
                 );
 
-                for (DataSource entry : group.independentEntries()) {
+                // Load each independent file in group
+                parseFiles("group file", group.independentEntries(), doc ->
                     newNetexImportDataScope(() -> {
-                        // Load each independent file in group
-                        loadFilesThenMapToOtpTransitModel("group file", singletonList(entry));
-                    });
-                }
+                        NetexDocumentParser.parseAndPopulateIndex(index(), doc);
+                        otpMapper.mapNetexToOtp(index().readOnlyView());
+                    })
+                );
             });
         }
     }
@@ -136,10 +159,12 @@ public class NetexBundle implements Closeable {
      * the order entries are read is not enforced in any way.
      */
     private void loadFilesThenMapToOtpTransitModel(String fileDescription, Iterable<DataSource> entries) {
-        for (DataSource entry : entries) {
-            // Load entry and store it in the index
-            loadSingeFileEntry(fileDescription, entry);
-        }
+        // Load entries and store them in the index
+        parseFiles(
+                fileDescription,
+                entries,
+                doc -> NetexDocumentParser.parseAndPopulateIndex(index(), doc)
+        );
         // map current NeTEx objects into the OTP Transit Model
         otpMapper.mapNetexToOtp(index().readOnlyView());
     }
@@ -148,17 +173,47 @@ public class NetexBundle implements Closeable {
         return netexIndex.peekFirst();
     }
 
-    /** Load a single entry and store it in the index for later */
-    private void loadSingeFileEntry(String fileDescription, DataSource entry) {
+    /**
+     * Parse the XML files in parallel, and pass the parsed documents to the given task in the
+     * order of the entries. The task is run on the calling thread. The number of documents
+     * parsed ahead of the task is limited, to bound the memory used.
+     */
+    private void parseFiles(
+            String fileDescription,
+            Iterable<DataSource> entries,
+            Consumer<PublicationDeliveryStructure> task
+    ) {
+        Deque<Future<PublicationDeliveryStructure>> parsing = new ArrayDeque<>();
         try {
-            LOG.info("reading entity {}: {}", fileDescription, entry.name());
-
-            PublicationDeliveryStructure doc = xmlParser.parseXmlDoc(entry.asInputStream());
-            NetexDocumentParser.parseAndPopulateIndex(index(), doc);
-
-        } catch (JAXBException e) {
+            for (DataSource entry : entries) {
+                parsing.add(parserExecutor.submit(() -> parseFile(fileDescription, entry)));
+                if (parsing.size() > 2 * parserThreads) {
+                    task.accept(parsing.poll().get());
+                }
+            }
+            while (!parsing.isEmpty()) {
+                task.accept(parsing.poll().get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e.getMessage(), e);
         }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        }
+        finally {
+            parsing.forEach(it -> it.cancel(true));
+        }
+    }
+
+    /** Parse a single entry */
+    private PublicationDeliveryStructure parseFile(String fileDescription, DataSource entry)
+            throws IOException, JAXBException {
+        LOG.info("reading entity {}: {}", fileDescription, entry.name());
+        try (InputStream input = entry.asInputStream()) {
+            return xmlParser.parseXmlDoc(input);
+        }
     }
 
     @Override
@@ -8,13 +8,22 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import java.io.InputStream;
 
-/** Simple wrapper to perform typesafe xml parsing and simple error handling. */
+/**
+ * Simple wrapper to perform typesafe xml parsing and simple error handling.
+ * <p>
+ * This class is thread-safe. The JAXB context is shared, but an unmarshaller is not thread-safe,
+ * so each thread parsing documents gets its own.
+ */
 class NetexXmlParser {
-    /** used to parse the XML. */
-    private final Unmarshaller unmarshaller;
+    /** used to create the unmarshallers. */
+    private final JAXBContext context;
+
+    /** used to parse the XML, one for each thread. */
+    private final ThreadLocal<Unmarshaller> unmarshaller;
 
     NetexXmlParser() {
-        this.unmarshaller = createUnmarshaller();
+        this.context = createContext();
+        this.unmarshaller = ThreadLocal.withInitial(this::createUnmarshaller);
     }
 
     /**
@@ -24,17 +33,24 @@ class NetexXmlParser {
         JAXBElement<PublicationDeliveryStructure> root;
 
         //noinspection unchecked
-        root = (JAXBElement<PublicationDeliveryStructure>) unmarshaller.unmarshal(stream);
+        root = (JAXBElement<PublicationDeliveryStructure>) unmarshaller.get().unmarshal(stream);
 
         return root.getValue();
     }
 
     /** factory method for unmarshaller */
-    private static Unmarshaller createUnmarshaller() {
+    private Unmarshaller createUnmarshaller() {
+        try {
+            return context.createUnmarshaller();
+        } catch (JAXBException e) {
+            // This is a programming error - not expected!
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static JAXBContext createContext() {
         try {
-            return JAXBContext
-                    .newInstance(PublicationDeliveryStructure.class)
-                    .createUnmarshaller();
+            return JAXBContext.newInstance(PublicationDeliveryStructure.class);
         } catch (JAXBException e) {
             // This is a programming error - not expected!
             // We abort early and also allow for this to happen in the constructor;
@@ -1,23 +1,55 @@
 package org.opentripplanner.openstreetmap;
 
-import com.esotericsoftware.kryo.io.Input;
-import java.io.InputStream;
+import de.topobyte.osm4j.pbf.protobuf.Fileformat;
+import org.apache.commons.io.IOUtils;
 import org.opentripplanner.datastore.DataSource;
 import org.opentripplanner.datastore.FileType;
 import org.opentripplanner.datastore.file.FileDataSource;
 import org.opentripplanner.graph_builder.module.osm.OSMDatabase;
+import org.opentripplanner.openstreetmap.PbfBlockDecoder.DecodedBlock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
- * Parser for the OpenStreetMap PBF format. Parses files in three passes:
- * First the relations, then the ways, then the nodes are also loaded.
+ * Parser for the OpenStreetMap PBF format. The entities are added to the {@link OSMDatabase} in
+ * three phases: first the relations, then the ways, then the nodes.
+ * <p>
+ * The first phase reads the whole file, and builds an index of the data blocks and the entity
+ * types in each of them. The following phases only read the blocks containing ways or nodes.
+ * The blocks are decompressed and decoded in parallel, and the entities are added to the
+ * database in file order on the calling thread, so the result does not depend on the number of
+ * threads.
  */
 public class BinaryOpenStreetMapProvider {
 
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryOpenStreetMapProvider.class);
+
+    /** The number of blocks decoded ahead of the block added to the database, per thread. */
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 4;
+
+    /** Blob headers larger than this are not valid according to the format specification. */
+    private static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+
     private final DataSource source;
     private final boolean cacheDataImMem;
+    private final int nThreads;
     private byte[] cachedBytes = null;
 
 
@@ -27,33 +59,34 @@ public class BinaryOpenStreetMapProvider {
     }
 
     public BinaryOpenStreetMapProvider(DataSource source, boolean cacheDataImMem) {
+        this(source, cacheDataImMem, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param nThreads the number of threads used to decompress and decode the blocks of the file.
+     */
+    public BinaryOpenStreetMapProvider(DataSource source, boolean cacheDataImMem, int nThreads) {
         this.source = source;
         this.cacheDataImMem = cacheDataImMem;
+        this.nThreads = Math.max(1, nThreads);
     }
 
     public void readOSM(OSMDatabase osmdb) {
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
         try {
-            BinaryOpenStreetMapParser parser = new BinaryOpenStreetMapParser(osmdb);
-
-            InputStream input = source.asInputStream();
-            parser.setParseNodes(false);
-            parser.setParseWays(false);
-            parser.process(input);
+            List<Block> blocks = readPhase(OsmParserPhase.Relations, null, osmdb, executor);
             osmdb.doneFirstPhaseRelations();
 
-            input = source.asInputStream();
-            parser.setParseRelations(false);
-            parser.setParseWays(true);
-            parser.process(input);
+            readPhase(OsmParserPhase.Ways, blocks, osmdb, executor);
             osmdb.doneSecondPhaseWays();
 
-            input = source.asInputStream();
-            parser.setParseNodes(true);
-            parser.setParseWays(false);
-            parser.process(input);
+            readPhase(OsmParserPhase.Nodes, blocks, osmdb, executor);
             osmdb.doneThirdPhaseNodes();
         } catch (Exception ex) {
             throw new IllegalStateException("error loading OSM from source " + source, ex);
+        } finally {
+            executor.shutdownNow();
+            cachedBytes = null;
         }
     }
 
@@ -66,4 +99,191 @@ public class BinaryOpenStreetMapProvider {
             throw new RuntimeException("Can't read OSM source: " + source);
         }
     }
+
+    /**
+     * Read the entities of one phase and add them to the database.
+     *
+     * @param index the data blocks of the file, or {@code null} to read all blocks.
+     * @return the data blocks of the file, with the entity types found in each block.
+     */
+    private List<Block> readPhase(
+            OsmParserPhase phase,
+            List<Block> index,
+            OSMDatabase osmdb,
+            ExecutorService executor
+    ) throws IOException, InterruptedException, ExecutionException {
+        List<Block> blocks = new ArrayList<>();
+        Deque<Future<DecodedBlock>> decoding = new ArrayDeque<>();
+        int maxInFlight = BLOCKS_IN_FLIGHT_PER_THREAD * nThreads;
+
+        try (PbfInput input = new PbfInput(openStream())) {
+            if (index == null) {
+                Block block;
+                while ((block = input.nextDataBlock()) != null) {
+                    blocks.add(block);
+                    submit(block, input.readBlob(block), phase, decoding, executor);
+                    addToDatabase(phase, decoding, maxInFlight - 1, osmdb);
+                }
+            }
+            else {
+                for (Block block : index) {
+                    if (block.content.contains(phase)) {
+                        submit(block, input.readBlobAt(block), phase, decoding, executor);
+                        addToDatabase(phase, decoding, maxInFlight - 1, osmdb);
+                    }
+                }
+            }
+            addToDatabase(phase, decoding, 0, osmdb);
+        }
+
+        if (index == null) {
+            LOG.info(
+                    "OSM source {} has {} data blocks, {} with ways and {} with nodes.",
+                    source.name(),
+                    blocks.size(),
+                    count(blocks, OsmParserPhase.Ways),
+                    count(blocks, OsmParserPhase.Nodes)
+            );
+            return blocks;
+        }
+        return index;
+    }
+
+    private static void submit(
+            Block block,
+            byte[] blob,
+            OsmParserPhase phase,
+            Deque<Future<DecodedBlock>> decoding,
+            ExecutorService executor
+    ) {
+        decoding.add(executor.submit(() -> {
+            DecodedBlock decoded = PbfBlockDecoder.decode(blob, phase);
+            // Only the entity types are kept in the index, not the entities
+            if (block.content == null) {
+                block.content = decoded.content;
+            }
+            return decoded;
+        }));
+    }
+
+    private static long count(List<Block> blocks, OsmParserPhase content) {
+        return blocks.stream().filter(it -> it.content.contains(content)).count();
+    }
+
+    /**
+     * Wait for the oldest blocks being decoded and add their entities to the database, until no
+     * more than {@code maxInFlight} blocks are left.
+     */
+    private static void addToDatabase(
+            OsmParserPhase phase,
+            Deque<Future<DecodedBlock>> decoding,
+            int maxInFlight,
+            OSMDatabase osmdb
+    ) throws InterruptedException, ExecutionException {
+        while (decoding.size() > maxInFlight) {
+            DecodedBlock block = decoding.poll().get();
+            switch (phase) {
+                case Relations:
+                    block.relations.forEach(osmdb::addRelation);
+                    break;
+                case Ways:
+                    block.ways.forEach(osmdb::addWay);
+                    break;
+                case Nodes:
+                    block.nodes.forEach(osmdb::addNode);
+                    break;
+            }
+        }
+    }
+
+    private InputStream openStream() throws IOException {
+        if (!cacheDataImMem) {
+            return source.asInputStream();
+        }
+        if (cachedBytes == null) {
+            cachedBytes = source.asBytes();
+        }
+        return new ByteArrayInputStream(cachedBytes);
+    }
+
+    /** A data block of the file. */
+    private static class Block {
+
+        /** The position and size of the blob in the file. */
+        private final long offset;
+        private final int size;
+
+        /** The entity types in the block, set when the block is decoded in the first phase. */
+        private volatile Set<OsmParserPhase> content;
+
+        private Block(long offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Read the blobs of a PBF file. Each blob is preceded by the size of its header, and a header
+     * with the blob type and size.
+     */
+    private static class PbfInput implements AutoCloseable {
+
+        private final DataInputStream input;
+        private long position = 0;
+
+        private PbfInput(InputStream input) {
+            this.input = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        }
+
+        /** Skip to the next data block, and return it. Return {@code null} at the end of the file. */
+        private Block nextDataBlock() throws IOException {
+            while (true) {
+                int headerSize;
+                try {
+                    headerSize = input.readInt();
+                }
+                catch (EOFException e) {
+                    return null;
+                }
+                if (headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) {
+                    throw new IOException("Invalid PBF blob header size: " + headerSize);
+                }
+                byte[] header = new byte[headerSize];
+                input.readFully(header);
+                position += 4 + headerSize;
+
+                Fileformat.BlobHeader blobHeader = Fileformat.BlobHeader.parseFrom(header);
+                Block block = new Block(position, blobHeader.getDatasize());
+                if ("OSMData".equals(blobHeader.getType())) {
+                    return block;
+                }
+                // Skip the OSMHeader block and unknown block types
+                skipTo(block.offset + block.size);
+            }
+        }
+
+        /** Read the blob of the block, the input must be positioned at the start of the blob. */
+        private byte[] readBlob(Block block) throws IOException {
+            byte[] blob = new byte[block.size];
+            input.readFully(blob);
+            position += block.size;
+            return blob;
+        }
+
+        /** Skip forward to the block, and read its blob. */
+        private byte[] readBlobAt(Block block) throws IOException {
+            skipTo(block.offset);
+            return readBlob(block);
+        }
+
+        private void skipTo(long offset) throws IOException {
+            IOUtils.skipFully(input, offset - position);
+            position = offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
 }
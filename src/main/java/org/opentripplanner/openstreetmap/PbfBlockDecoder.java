@@ -0,0 +1,234 @@
+package org.opentripplanner.openstreetmap;
+
+import de.topobyte.osm4j.pbf.protobuf.Fileformat;
+import de.topobyte.osm4j.pbf.protobuf.Osmformat;
+import org.opentripplanner.openstreetmap.model.OSMNode;
+import org.opentripplanner.openstreetmap.model.OSMRelation;
+import org.opentripplanner.openstreetmap.model.OSMRelationMember;
+import org.opentripplanner.openstreetmap.model.OSMWay;
+import org.opentripplanner.openstreetmap.model.OSMWithTags;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompress and decode one data block of an OSM PBF file. The blocks are independent of each
+ * other, so they can be decoded in parallel. Only the entities of the requested phase are
+ * created, the other entity types are just registered as present in the block.
+ * <p>
+ * See https://wiki.openstreetmap.org/wiki/PBF_Format for a description of the format.
+ */
+class PbfBlockDecoder {
+
+    /** The decoded entities of one block, in the order they appear in the block. */
+    static class DecodedBlock {
+
+        /** The entity types found in the block. */
+        final Set<OsmParserPhase> content = EnumSet.noneOf(OsmParserPhase.class);
+
+        final List<OSMNode> nodes = new ArrayList<>();
+        final List<OSMWay> ways = new ArrayList<>();
+        final List<OSMRelation> relations = new ArrayList<>();
+    }
+
+    private final Osmformat.PrimitiveBlock block;
+    private final OsmParserPhase phase;
+    private final DecodedBlock result = new DecodedBlock();
+    private String[] strings;
+
+    private PbfBlockDecoder(Osmformat.PrimitiveBlock block, OsmParserPhase phase) {
+        this.block = block;
+        this.phase = phase;
+    }
+
+    /**
+     * Decode a {@code OSMData} blob.
+     *
+     * @param blob the serialized blob, as read from the file after the blob header.
+     * @param phase the entity type to create.
+     */
+    static DecodedBlock decode(byte[] blob, OsmParserPhase phase) throws IOException {
+        Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.parseFrom(
+                uncompress(Fileformat.Blob.parseFrom(blob))
+        );
+        return new PbfBlockDecoder(block, phase).decode();
+    }
+
+    private DecodedBlock decode() {
+        for (Osmformat.PrimitiveGroup group : block.getPrimitivegroupList()) {
+            if (group.getNodesCount() > 0 || group.hasDense()) {
+                result.content.add(OsmParserPhase.Nodes);
+                if (phase == OsmParserPhase.Nodes) {
+                    decodeNodes(group.getNodesList());
+                    if (group.hasDense()) {
+                        decodeDenseNodes(group.getDense());
+                    }
+                }
+            }
+            if (group.getWaysCount() > 0) {
+                result.content.add(OsmParserPhase.Ways);
+                if (phase == OsmParserPhase.Ways) {
+                    decodeWays(group.getWaysList());
+                }
+            }
+            if (group.getRelationsCount() > 0) {
+                result.content.add(OsmParserPhase.Relations);
+                if (phase == OsmParserPhase.Relations) {
+                    decodeRelations(group.getRelationsList());
+                }
+            }
+        }
+        return result;
+    }
+
+    private void decodeNodes(List<Osmformat.Node> nodes) {
+        for (Osmformat.Node it : nodes) {
+            OSMNode node = new OSMNode();
+            node.setId(it.getId());
+            node.lat = latitude(it.getLat());
+            node.lon = longitude(it.getLon());
+            for (int i = 0; i < it.getKeysCount(); i++) {
+                node.addTag(string(it.getKeys(i)), string(it.getVals(i)));
+            }
+            result.nodes.add(node);
+        }
+    }
+
+    private void decodeDenseNodes(Osmformat.DenseNodes dense) {
+        // Ids and coordinates are delta coded, the tags of all nodes are in one list, with the
+        // tags of each node ending with a 0.
+        long id = 0;
+        long lat = 0;
+        long lon = 0;
+        int keyValue = 0;
+        boolean hasTags = dense.getKeysValsCount() > 0;
+
+        for (int i = 0; i < dense.getIdCount(); i++) {
+            id += dense.getId(i);
+            lat += dense.getLat(i);
+            lon += dense.getLon(i);
+
+            OSMNode node = new OSMNode();
+            node.setId(id);
+            node.lat = latitude(lat);
+            node.lon = longitude(lon);
+            if (hasTags) {
+                while (dense.getKeysVals(keyValue) != 0) {
+                    node.addTag(
+                            string(dense.getKeysVals(keyValue)),
+                            string(dense.getKeysVals(keyValue + 1))
+                    );
+                    keyValue += 2;
+                }
+                keyValue++;
+            }
+            result.nodes.add(node);
+        }
+    }
+
+    private void decodeWays(List<Osmformat.Way> ways) {
+        for (Osmformat.Way it : ways) {
+            OSMWay way = new OSMWay();
+            way.setId(it.getId());
+            addTags(way, it.getKeysList(), it.getValsList());
+
+            long ref = 0;
+            for (int i = 0; i < it.getRefsCount(); i++) {
+                ref += it.getRefs(i);
+                way.addNodeRef(ref);
+            }
+            result.ways.add(way);
+        }
+    }
+
+    private void decodeRelations(List<Osmformat.Relation> relations) {
+        for (Osmformat.Relation it : relations) {
+            OSMRelation relation = new OSMRelation();
+            relation.setId(it.getId());
+            addTags(relation, it.getKeysList(), it.getValsList());
+
+            long ref = 0;
+            for (int i = 0; i < it.getMemidsCount(); i++) {
+                ref += it.getMemids(i);
+                OSMRelationMember member = new OSMRelationMember();
+                member.setType(memberType(it.getTypes(i)));
+                member.setRole(string(it.getRolesSid(i)));
+                member.setRef(ref);
+                relation.addMember(member);
+            }
+            result.relations.add(relation);
+        }
+    }
+
+    private void addTags(OSMWithTags entity, List<Integer> keys, List<Integer> values) {
+        for (int i = 0; i < keys.size(); i++) {
+            entity.addTag(string(keys.get(i)), string(values.get(i)));
+        }
+    }
+
+    private double latitude(long lat) {
+        return 1e-9 * (block.getLatOffset() + (long) block.getGranularity() * lat);
+    }
+
+    private double longitude(long lon) {
+        return 1e-9 * (block.getLonOffset() + (long) block.getGranularity() * lon);
+    }
+
+    /**
+     * The strings of the block are decoded the first time they are needed. The same tag keys and
+     * values are found in every block, so the strings are interned to keep a single copy.
+     */
+    private String string(int index) {
+        if (strings == null) {
+            Osmformat.StringTable table = block.getStringtable();
+            strings = new String[table.getSCount()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = table.getS(i).toStringUtf8().intern();
+            }
+        }
+        return strings[index];
+    }
+
+    private static String memberType(Osmformat.Relation.MemberType type) {
+        switch (type) {
+            case NODE:
+                return "node";
+            case WAY:
+                return "way";
+            case RELATION:
+                return "relation";
+            default:
+                throw new IllegalArgumentException("Unknown relation member type: " + type);
+        }
+    }
+
+    private static byte[] uncompress(Fileformat.Blob blob) throws IOException {
+        if (blob.hasRaw()) {
+            return blob.getRaw().toByteArray();
+        }
+        if (!blob.hasZlibData()) {
+            throw new IOException("Unsupported PBF blob compression, only zlib is supported.");
+        }
+        byte[] data = new byte[blob.getRawSize()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(blob.getZlibData().toByteArray());
+            inflater.inflate(data);
+            if (!inflater.finished()) {
+                throw new IOException("PBF blob is larger than its declared size.");
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException("Corrupt zlib data in PBF blob.", e);
+        }
+        finally {
+            inflater.end();
+        }
+        return data;
+    }
+}
@@ -9,6 +9,23 @@ public class OSMNode extends OSMWithTags {
         return "osm node " + id;
     }
 
+    /**
+     * Nodes are equal if they have the same id. The nodes without tags are not kept as objects
+     * in the {@link org.opentripplanner.graph_builder.module.osm.OSMNodeStore}, a new object is
+     * created each time such a node is retrieved.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+        if (o == null || getClass() != o.getClass()) { return false; }
+        return id == ((OSMNode) o).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
     /**
      * Returns the capacity of this node if defined, or 0.
      * 
@@ -0,0 +1,410 @@
+package org.opentripplanner.routing;
+
+import org.opentripplanner.model.GenericLocation;
+import org.opentripplanner.routing.api.request.RequestModes;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.api.response.RoutingResponse;
+import org.opentripplanner.routing.framework.DebugAggregator;
+import org.opentripplanner.routing.graph.Graph;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A bounded least-recently-used cache of trip planning responses. Front-ends often send the same
+ * plan request several times within a few seconds: page reloads, retries and several widgets
+ * asking for the same origin and destination.
+ * <p>
+ * An entry is keyed by all the parameters of the {@link RoutingRequest}, with the coordinates
+ * rounded to {@link #COORDINATE_DECIMALS} decimals and the search time rounded down to a time
+ * bucket. A request in the same time bucket gets the response of the first request, so the
+ * bucket should be short compared to the search window. Entries expire after a time-to-live.
+ * <p>
+ * All entries are dropped when the streets, the realtime transit data or the transit alerts
+ * change, see {@link Graph#getStreetVersion()} and {@link Graph#getRealtimeVersion()}, so a
+ * response computed before a realtime update is never returned after it. Requests using bike
+ * rental or parking are not cached, because they depend on realtime station data.
+ * <p>
+ * The cache is shared by all requests of a router and is thread-safe.
+ */
+public class PlanResponseCache {
+
+    /** The APIs using the cache, the cache can be disabled for each of them. */
+    public enum Api { REST, LEGACY_GRAPHQL, TRANSMODEL }
+
+    /** The number of decimals the coordinates are rounded to, about 1 meter. */
+    public static final int COORDINATE_DECIMALS = 5;
+
+    private static final double COORDINATE_SCALE = Math.pow(10, COORDINATE_DECIMALS);
+
+    /** The fields of each request parameter class, used to create the keys. */
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private final Graph graph;
+    private final int maxSize;
+    private final long timeToLiveMillis;
+    private final int timeBucketSeconds;
+    private final Set<Api> disabledApis;
+    private final LongSupplier clock;
+    private final Map<Key, Entry> entries;
+
+    private long streetVersion;
+    private long realtimeVersion;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+
+    /**
+     * @param maxSize the maximum number of responses kept in the cache.
+     * @param timeToLiveSeconds the number of seconds a response is kept in the cache.
+     * @param timeBucketSeconds requests with a search time in the same bucket of this many
+     *                          seconds share the cached response.
+     * @param disabledApis the APIs not using the cache.
+     */
+    public PlanResponseCache(
+            Graph graph,
+            int maxSize,
+            int timeToLiveSeconds,
+            int timeBucketSeconds,
+            Set<Api> disabledApis
+    ) {
+        this(
+                graph,
+                maxSize,
+                timeToLiveSeconds,
+                timeBucketSeconds,
+                disabledApis,
+                System::currentTimeMillis
+        );
+    }
+
+    PlanResponseCache(
+            Graph graph,
+            int maxSize,
+            int timeToLiveSeconds,
+            int timeBucketSeconds,
+            Set<Api> disabledApis,
+            LongSupplier clock
+    ) {
+        this.graph = graph;
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeToLiveSeconds * 1000L;
+        this.timeBucketSeconds = Math.max(1, timeBucketSeconds);
+        this.disabledApis = Set.copyOf(disabledApis);
+        this.clock = clock;
+        this.streetVersion = graph.getStreetVersion();
+        this.realtimeVersion = graph.getRealtimeVersion();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > PlanResponseCache.this.maxSize) {
+                    ++evictions;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the cached response for the request, or route the request and cache the response.
+     * The routing runs outside the cache lock, so two identical requests at the same time might
+     * both be routed. The key is created before routing, since routing changes the request.
+     */
+    public RoutingResponse getOrRoute(
+            RoutingRequest request,
+            Api api,
+            Supplier<RoutingResponse> routing
+    ) {
+        if (disabledApis.contains(api) || !isCacheable(request)) {
+            return routing.get();
+        }
+        Key key = new Key(request, timeBucketSeconds);
+        long streets = graph.getStreetVersion();
+        long realtime = graph.getRealtimeVersion();
+
+        synchronized (this) {
+            if (streets != streetVersion || realtime != realtimeVersion) {
+                entries.clear();
+                streetVersion = streets;
+                realtimeVersion = realtime;
+            }
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.createdMillis < timeToLiveMillis) {
+                    ++hits;
+                    return cachedResponse(entry.response);
+                }
+                entries.remove(key);
+                ++expirations;
+            }
+            ++misses;
+        }
+
+        RoutingResponse response = routing.get();
+        long createdMillis = clock.getAsLong();
+
+        synchronized (this) {
+            // Do not cache responses from before the streets or the realtime data changed
+            if (streetVersion == streets
+                    && realtimeVersion == realtime
+                    && graph.getStreetVersion() == streets
+                    && graph.getRealtimeVersion() == realtime
+            ) {
+                entries.put(key, new Entry(response, createdMillis));
+            }
+        }
+        return response;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long expirations() {
+        return expirations;
+    }
+
+    /** The fraction of the cacheable requests found in the cache, 0 if none are done. */
+    public synchronized double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "PlanResponseCache{size: %d/%d, hits: %d, misses: %d, evictions: %d, expirations: %d}",
+                entries.size(), maxSize, hits, misses, evictions, expirations
+        );
+    }
+
+    /**
+     * The bike rental and parking flags of the request are only set on the street search
+     * requests derived from it, so the modes of the request are checked.
+     */
+    private static boolean isCacheable(RoutingRequest request) {
+        RequestModes modes = request.modes;
+        if (modes == null) {
+            return true;
+        }
+        return !(
+            usesRealtimeStations(modes.accessMode)
+            || usesRealtimeStations(modes.egressMode)
+            || usesRealtimeStations(modes.directMode)
+        );
+    }
+
+    private static boolean usesRealtimeStations(StreetMode mode) {
+        if (mode == null) {
+            return false;
+        }
+        switch (mode) {
+            case BIKE_RENTAL:
+            case BIKE_TO_PARK:
+            case CAR_TO_PARK:
+            case CAR_RENTAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * The timings of the cached response belong to the request that created it, so a cached
+     * response gets its own timings, with no time spent routing.
+     */
+    private static RoutingResponse cachedResponse(RoutingResponse response) {
+        DebugAggregator debugAggregator = new DebugAggregator();
+        debugAggregator.startedCalculating();
+        debugAggregator.finishedFromCache();
+        return new RoutingResponse(
+                response.getTripPlan(),
+                response.getMetadata(),
+                response.getRoutingErrors(),
+                debugAggregator
+        );
+    }
+
+    private static final class Entry {
+        private final RoutingResponse response;
+        private final long createdMillis;
+
+        private Entry(RoutingResponse response, long createdMillis) {
+            this.response = response;
+            this.createdMillis = createdMillis;
+        }
+    }
+
+    /**
+     * The canonical form of a request. All the fields of the request and of the objects it
+     * refers to are part of the key, so new request parameters are included without changing
+     * this class. In the request and in nested requests, like the {@code bikeWalkingOptions}, the
+     * routing context set while routing is left out, and the search time is replaced by its time
+     * bucket.
+     */
+    static final class Key {
+        private final Object value;
+        private final int hashCode;
+
+        Key(RoutingRequest request, int timeBucketSeconds) {
+            this.value = canonical(request, timeBucketSeconds, new IdentityHashMap<>());
+            this.hashCode = value.hashCode();
+        }
+
+        /**
+         * Return a value with equals and hashCode based on the content of the given object. Java
+         * library types are used as they are, collections are copied, and other objects are
+         * replaced by a list of their class and field values. A library type without value
+         * equality only makes the request miss the cache. An object already seen, like the
+         * {@code bikeWalkingOptions} referring to the request itself, is replaced by the order
+         * it was first seen in.
+         */
+        private static Object canonical(
+                Object o,
+                int timeBucketSeconds,
+                Map<Object, Integer> visited
+        ) {
+            if (o == null) {
+                return null;
+            }
+            if (o instanceof GenericLocation) {
+                GenericLocation location = (GenericLocation) o;
+                return Arrays.asList(
+                        location.label,
+                        location.stopId,
+                        round(location.lat),
+                        round(location.lng)
+                );
+            }
+            if (o instanceof Set) {
+                Set<Object> result = new HashSet<>();
+                for (Object it : (Set<?>) o) {
+                    result.add(canonical(it, timeBucketSeconds, visited));
+                }
+                return result;
+            }
+            if (o instanceof Collection) {
+                List<Object> result = new ArrayList<>();
+                for (Object it : (Collection<?>) o) {
+                    result.add(canonical(it, timeBucketSeconds, visited));
+                }
+                return result;
+            }
+            if (o instanceof Map) {
+                Map<Object, Object> result = new HashMap<>();
+                for (Map.Entry<?, ?> it : ((Map<?, ?>) o).entrySet()) {
+                    result.put(
+                            canonical(it.getKey(), timeBucketSeconds, visited),
+                            canonical(it.getValue(), timeBucketSeconds, visited)
+                    );
+                }
+                return result;
+            }
+            if (o.getClass().isArray()) {
+                List<Object> result = new ArrayList<>();
+                for (int i = 0; i < Array.getLength(o); i++) {
+                    result.add(canonical(Array.get(o, i), timeBucketSeconds, visited));
+                }
+                return result;
+            }
+            if (o instanceof Enum || isLibraryType(o.getClass())) {
+                return o;
+            }
+            Integer seen = visited.get(o);
+            if (seen != null) {
+                return List.of("visited", seen);
+            }
+            visited.put(o, visited.size());
+
+            List<Object> result = new ArrayList<>();
+            result.add(o.getClass());
+            for (Field field : fields(o.getClass())) {
+                if (o instanceof RoutingRequest && field.getName().equals("rctx")) {
+                    continue;
+                }
+                if (o instanceof RoutingRequest && field.getName().equals("dateTime")) {
+                    result.add(Math.floorDiv(((RoutingRequest) o).dateTime, timeBucketSeconds));
+                    continue;
+                }
+                result.add(canonical(get(field, o), timeBucketSeconds, visited));
+            }
+            return result;
+        }
+
+        private static boolean isLibraryType(Class<?> type) {
+            String name = type.getName();
+            return name.startsWith("java.") || name.startsWith("javax.")
+                    || name.startsWith("jdk.") || name.startsWith("sun.");
+        }
+
+        private static Long round(Double coordinate) {
+            return coordinate == null ? null : Math.round(coordinate * COORDINATE_SCALE);
+        }
+
+        private static List<Field> fields(Class<?> type) {
+            return FIELDS.computeIfAbsent(type, it -> {
+                List<Field> result = new ArrayList<>();
+                for (Class<?> c = it; c != null && c != Object.class; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                            field.setAccessible(true);
+                            result.add(field);
+                        }
+                    }
+                }
+                return result;
+            });
+        }
+
+        private static Object get(Field field, Object o) {
+            try {
+                return field.get(o);
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+            if (o == null || getClass() != o.getClass()) { return false; }
+            Key key = (Key) o;
+            return hashCode == key.hashCode && value.equals(key.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
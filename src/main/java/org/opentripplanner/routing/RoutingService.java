@@ -48,10 +48,25 @@ public class RoutingService {
         this.graphFinder = GraphFinder.getInstance(graph);
     }
 
+    /**
+     * Route the request, or return the cached response of an identical request if the plan
+     * response cache is enabled for the given api, see {@link PlanResponseCache}.
+     */
     // TODO We should probably not have the Router as a parameter here
-    public RoutingResponse route(RoutingRequest request, Router router) {
-        RoutingWorker worker = new RoutingWorker(router.raptorConfig, request);
-        return worker.route(router);
+    public RoutingResponse route(
+            RoutingRequest request,
+            Router router,
+            PlanResponseCache.Api api
+    ) {
+        PlanResponseCache cache = router.planResponseCache();
+        if (cache == null) {
+            return new RoutingWorker(router.raptorConfig, request).route(router);
+        }
+        return cache.getOrRoute(
+                request,
+                api,
+                () -> new RoutingWorker(router.raptorConfig, request).route(router)
+        );
     }
 
     /**
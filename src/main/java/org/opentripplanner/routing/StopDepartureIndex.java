@@ -0,0 +1,215 @@
+package org.opentripplanner.routing;
+
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.Timetable;
+import org.opentripplanner.model.TripPattern;
+import org.opentripplanner.model.calendar.ServiceDate;
+import org.opentripplanner.routing.core.ServiceDay;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The departures from each stop for each service date and pattern, sorted by departure time. This
+ * is used by the {@link StopTimesHelper} to find the next departures from a stop with a binary
+ * search, instead of looping over all trips passing the stop.
+ * <p>
+ * The departures are computed the first time a stop is queried for a service date, and the
+ * least recently used stops and dates are dropped when the index is full. The departures of a
+ * pattern are computed from a {@link Timetable}. A realtime update of a pattern creates a new
+ * timetable in the next {@link org.opentripplanner.model.TimetableSnapshot}, so the departures
+ * are recomputed for the updated patterns only, when the stop is queried with the new timetable.
+ * <p>
+ * This class is thread-safe.
+ */
+public class StopDepartureIndex {
+
+  public static final int DEFAULT_MAX_SIZE = 10_000;
+
+  private final int maxSize;
+
+  /** Departures by pattern, for each stop and service date. */
+  private final Map<StopAndDate, Map<TripPattern, PatternDepartures>> departures;
+
+  public StopDepartureIndex() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param maxSize the maximum number of stop and service date combinations kept in the index.
+   */
+  public StopDepartureIndex(int maxSize) {
+    this.maxSize = maxSize;
+    this.departures = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<StopAndDate, Map<TripPattern, PatternDepartures>> eldest
+      ) {
+        return size() > StopDepartureIndex.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * Return the departures of the pattern from the stop on the given service date, using the
+   * trips in the given timetable running on the service day.
+   */
+  public PatternDepartures departures(
+      Stop stop,
+      TripPattern pattern,
+      Timetable timetable,
+      ServiceDay serviceDay
+  ) {
+    Map<TripPattern, PatternDepartures> departuresByPattern = departuresByPattern(
+        new StopAndDate(stop, serviceDay.getServiceDate())
+    );
+    PatternDepartures result = departuresByPattern.get(pattern);
+    if (result == null || result.timetable != timetable) {
+      result = new PatternDepartures(stop, pattern, timetable, serviceDay);
+      departuresByPattern.put(pattern, result);
+    }
+    return result;
+  }
+
+  /** The number of stop and service date combinations in the index. */
+  public synchronized int size() {
+    return departures.size();
+  }
+
+  private synchronized Map<TripPattern, PatternDepartures> departuresByPattern(StopAndDate key) {
+    return departures.computeIfAbsent(key, it -> new ConcurrentHashMap<>());
+  }
+
+  /**
+   * The departures of a pattern from a stop on a service date. If the pattern visits the stop
+   * more than once, there is one list of departures for each visit.
+   */
+  public static final class PatternDepartures {
+
+    private final Timetable timetable;
+
+    /** The positions of the stop in the pattern. */
+    private final int[] stopPositions;
+
+    /** The sorted departure times, in seconds since midnight, for each stop position. */
+    private final int[][] departureTimes;
+
+    /** The trips departing at the times in {@link #departureTimes}. */
+    private final TripTimes[][] tripTimes;
+
+    private PatternDepartures(
+        Stop stop,
+        TripPattern pattern,
+        Timetable timetable,
+        ServiceDay serviceDay
+    ) {
+      this.timetable = timetable;
+
+      Stop[] stops = pattern.stopPattern.stops;
+      this.stopPositions = new int[stops.length];
+      int n = 0;
+      for (int i = 0; i < stops.length; ++i) {
+        if (stops[i] == stop) {
+          stopPositions[n++] = i;
+        }
+      }
+      this.departureTimes = new int[n][];
+      this.tripTimes = new TripTimes[n][];
+
+      List<TripTimes> trips = timetable.tripTimes;
+      for (int p = 0; p < n; ++p) {
+        int stopPos = stopPositions[p];
+
+        // Sort the departure time and trip index packed in a long, ties keep the timetable order
+        long[] departures = new long[trips.size()];
+        int size = 0;
+        for (int i = 0; i < trips.size(); ++i) {
+          TripTimes t = trips.get(i);
+          int departureTime = t.getDepartureTime(stopPos);
+          if (departureTime != -1 && serviceDay.serviceRunning(t.serviceCode)) {
+            departures[size++] = ((long) departureTime << 32) | i;
+          }
+        }
+        Arrays.sort(departures, 0, size);
+
+        departureTimes[p] = new int[size];
+        tripTimes[p] = new TripTimes[size];
+        for (int i = 0; i < size; ++i) {
+          departureTimes[p][i] = (int) (departures[i] >> 32);
+          tripTimes[p][i] = trips.get((int) departures[i]);
+        }
+      }
+    }
+
+    /** The number of times the pattern visits the stop. */
+    public int nStopPositions() {
+      return departureTimes.length;
+    }
+
+    /** The position in the pattern of the given visit to the stop. */
+    public int stopPosition(int visit) {
+      return stopPositions[visit];
+    }
+
+    /** The number of departures for the given visit to the stop. */
+    public int size(int visit) {
+      return departureTimes[visit].length;
+    }
+
+    public int departureTime(int visit, int index) {
+      return departureTimes[visit][index];
+    }
+
+    public TripTimes tripTimes(int visit, int index) {
+      return tripTimes[visit][index];
+    }
+
+    /**
+     * Return the index of the first departure at or after the given time for the given visit to
+     * the stop, or {@link #size(int)} if there are none.
+     */
+    public int firstDepartureAtOrAfter(int visit, int secondsSinceMidnight) {
+      int[] times = departureTimes[visit];
+      int low = 0;
+      int high = times.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (times[mid] < secondsSinceMidnight) {
+          low = mid + 1;
+        }
+        else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+  private static final class StopAndDate {
+    private final Stop stop;
+    private final ServiceDate serviceDate;
+
+    private StopAndDate(Stop stop, ServiceDate serviceDate) {
+      this.stop = stop;
+      this.serviceDate = serviceDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) { return true; }
+      if (o == null || getClass() != o.getClass()) { return false; }
+      StopAndDate that = (StopAndDate) o;
+      return stop == that.stop && serviceDate.equals(that.serviceDate);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(stop, serviceDate);
+    }
+  }
+}
@@ -9,6 +9,7 @@ import org.opentripplanner.model.TimetableSnapshot;
 import org.opentripplanner.model.TripPattern;
 import org.opentripplanner.model.TripTimeShort;
 import org.opentripplanner.model.calendar.ServiceDate;
+import org.opentripplanner.routing.StopDepartureIndex.PatternDepartures;
 import org.opentripplanner.routing.core.ServiceDay;
 import org.opentripplanner.routing.trippattern.FrequencyEntry;
 import org.opentripplanner.routing.trippattern.TripTimes;
@@ -178,13 +179,14 @@ public class StopTimesHelper {
   ) {
 
     // The bounded priority Q is used to keep a sorted short list of trip times. We can not
-    // relay on the trip times to be in order because of real-time updates. This code can
-    // probably be optimized, and the trip search in the Raptor search does almost the same
-    // thing. This is no part of a routing request, but is a used frequently in some
-    // operation like Entur for "departure boards" (apps, widgets, screens on platforms, and
-    // hotel lobbies). Setting the numberOfDepartures and timeRange to a big number for a
-    // transit hub could result in a DOS attack, but there are probably other more effective
-    // ways to do it.
+    // relay on the trip times to be in order because of real-time updates, so the departures
+    // are looked up in the sorted StopDepartureIndex. Only the first numberOfDepartures
+    // departures at or after the start time of each service date and visit to the stop can be
+    // among the next departures, and the queue merges these lists. This is no part of a routing
+    // request, but is a used frequently in some operation like Entur for "departure boards"
+    // (apps, widgets, screens on platforms, and hotel lobbies). Setting the numberOfDepartures
+    // and timeRange to a big number for a transit hub could result in a DOS attack, but there
+    // are probably other more effective ways to do it.
     //
     // The {@link MinMaxPriorityQueue} is marked beta, but we do not have a god alternative.
     MinMaxPriorityQueue<TripTimeShort> pq = MinMaxPriorityQueue
@@ -192,6 +194,8 @@ public class StopTimesHelper {
             .maximumSize(numberOfDepartures)
             .create();
 
+    StopDepartureIndex departureIndex = routingService.getStopDepartureIndex();
+
     // Loop through all possible days
     for (ServiceDate serviceDate : serviceDates) {
       ServiceDay sd = new ServiceDay(routingService.getServiceCodes(), serviceDate, routingService.getCalendarService(), pattern.route.getAgency().getId());
@@ -205,41 +209,39 @@ public class StopTimesHelper {
       if (!tt.temporallyViable(sd, startTime, timeRange, true)) continue;
 
       int secondsSinceMidnight = sd.secondsSinceMidnight(startTime);
-      int sidx = 0;
-      for (Stop currStop : pattern.stopPattern.stops) {
-        if (currStop == stop) {
-          if (omitNonPickups && pattern.stopPattern.pickups[sidx] == StopPattern.PICKDROP_NONE) continue;
-          for (TripTimes t : tt.tripTimes) {
-            if (!sd.serviceRunning(t.serviceCode)) continue;
-            if (t.getDepartureTime(sidx) != -1 &&
-                    t.getDepartureTime(sidx) >= secondsSinceMidnight) {
-              pq.add(new TripTimeShort(t, sidx, stop, sd));
-            }
-          }
+      PatternDepartures departures = departureIndex.departures(stop, pattern, tt, sd);
+
+      for (int visit = 0; visit < departures.nStopPositions(); ++visit) {
+        int sidx = departures.stopPosition(visit);
+        if (omitNonPickups && pattern.stopPattern.pickups[sidx] == StopPattern.PICKDROP_NONE) continue;
 
-          // TODO: This needs to be adapted after #1647 is merged
-          for (FrequencyEntry freq : tt.frequencyEntries) {
-            if (!sd.serviceRunning(freq.tripTimes.serviceCode)) continue;
-            int departureTime = freq.nextDepartureTime(sidx, secondsSinceMidnight);
-            if (departureTime == -1) continue;
-            int lastDeparture = freq.endTime + freq.tripTimes.getArrivalTime(sidx) -
-                    freq.tripTimes.getDepartureTime(0);
-            int i = 0;
-            while (departureTime <= lastDeparture && i < numberOfDepartures) {
-              pq.add(
-                      new TripTimeShort(
-                              freq.materialize(sidx, departureTime, true),
-                              sidx,
-                              stop,
-                              sd
-                      )
-              );
-              departureTime += freq.headway;
-              i++;
-            }
+        int first = departures.firstDepartureAtOrAfter(visit, secondsSinceMidnight);
+        int end = Math.min(departures.size(visit), first + numberOfDepartures);
+        for (int i = first; i < end; ++i) {
+          pq.add(new TripTimeShort(departures.tripTimes(visit, i), sidx, stop, sd));
+        }
+
+        // TODO: This needs to be adapted after #1647 is merged
+        for (FrequencyEntry freq : tt.frequencyEntries) {
+          if (!sd.serviceRunning(freq.tripTimes.serviceCode)) continue;
+          int departureTime = freq.nextDepartureTime(sidx, secondsSinceMidnight);
+          if (departureTime == -1) continue;
+          int lastDeparture = freq.endTime + freq.tripTimes.getArrivalTime(sidx) -
+                  freq.tripTimes.getDepartureTime(0);
+          int i = 0;
+          while (departureTime <= lastDeparture && i < numberOfDepartures) {
+            pq.add(
+                    new TripTimeShort(
+                            freq.materialize(sidx, departureTime, true),
+                            sidx,
+                            stop,
+                            sd
+                    )
+            );
+            departureTime += freq.headway;
+            i++;
           }
         }
-        sidx++;
       }
     }
     return pq;
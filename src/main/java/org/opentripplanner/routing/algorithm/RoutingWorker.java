@@ -9,9 +9,11 @@ import org.opentripplanner.routing.algorithm.filterchain.ItineraryFilterChainBui
 import org.opentripplanner.routing.algorithm.mapping.RaptorPathToItineraryMapper;
 import org.opentripplanner.routing.algorithm.mapping.RoutingRequestToFilterChainParametersMapper;
 import org.opentripplanner.routing.algorithm.mapping.TripPlanMapper;
+import org.opentripplanner.routing.algorithm.raptor.router.street.AccessEgressCache;
 import org.opentripplanner.routing.algorithm.raptor.router.street.AccessEgressRouter;
 import org.opentripplanner.routing.algorithm.raptor.router.street.DirectStreetRouter;
 import org.opentripplanner.routing.algorithm.raptor.transit.AccessEgress;
+import org.opentripplanner.routing.algorithm.raptor.transit.StopIndexForRaptor;
 import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
 import org.opentripplanner.routing.algorithm.raptor.transit.TripSchedule;
 import org.opentripplanner.routing.algorithm.raptor.transit.mappers.RaptorRequestMapper;
@@ -31,6 +33,7 @@ import org.opentripplanner.transit.raptor.api.path.Path;
 import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
 import org.opentripplanner.transit.raptor.api.response.RaptorResponse;
 import org.opentripplanner.transit.raptor.rangeraptor.configure.RaptorConfig;
+import org.opentripplanner.util.OtpAppException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +42,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Does a complete transit search, including access and egress legs.
@@ -76,6 +84,15 @@ public class RoutingWorker {
     private int searchWindowUsedInSeconds = NOT_SET;
     private Itinerary firstRemovedItinerary = null;
 
+    /**
+     * The thread pool used to run the direct, access and egress street searches in parallel, or
+     * {@code null} if the street searches run one after the other in the request thread.
+     */
+    private ExecutorService streetRoutingThreadPool;
+    private Future<List<Itinerary>> directStreetSearch;
+    private List<Itinerary> directStreetItineraries = null;
+    private final List<RoutingError> directStreetRoutingErrors = new ArrayList<>();
+
     public RoutingWorker(RaptorConfig<TripSchedule> config, RoutingRequest request) {
         this.debugAggregator.startedCalculating();
         this.raptorService = new RaptorService<>(config);
@@ -88,22 +105,40 @@ public class RoutingWorker {
         this.debugAggregator.finishedPrecalculating();
         request.from = router.findClosest(request.from);
         request.to = router.findClosest(request.to);
+
+        // The routing context is shared by the street searches, so it must be created before
+        // any of them are started
+        boolean routingContextCreated = createRoutingContext(router, routingErrors);
+        int directStreetRoutingErrorsIndex = routingErrors.size();
+
         // Direct street routing
-        try {
-            itineraries.addAll(DirectStreetRouter.route(router, request));
-        } catch (RoutingValidationException e) {
-            routingErrors.addAll(e.getRoutingErrors());
+        this.streetRoutingThreadPool = router.streetRoutingThreadPool();
+        this.directStreetSearch = routingContextCreated
+            ? submitStreetSearch(() -> routeDirectStreet(router))
+            : CompletableFuture.completedFuture(Collections.emptyList());
+
+        if (streetRoutingThreadPool == null) {
+            // The street searches run one after the other, so the limits from the direct street
+            // search can be applied before the access and egress searches start
+            waitForDirectStreetSearch();
         }
 
-        this.debugAggregator.finishedDirectStreetRouter();
-
         // Transit routing
+        this.debugAggregator.startedTransitRouter();
         try {
             itineraries.addAll(routeTransit(router));
         } catch (RoutingValidationException e) {
             routingErrors.addAll(e.getRoutingErrors());
+        } catch (RuntimeException e) {
+            // Do not leave the direct street search running for a request that failed
+            directStreetSearch.cancel(true);
+            throw e;
         }
 
+        // The direct street itineraries and errors are listed before the transit results
+        itineraries.addAll(0, waitForDirectStreetSearch());
+        routingErrors.addAll(directStreetRoutingErrorsIndex, directStreetRoutingErrors);
+
         this.debugAggregator.finishedTransitRouter();
 
         // Filter itineraries
@@ -121,6 +156,105 @@ public class RoutingWorker {
         );
     }
 
+    private boolean createRoutingContext(Router router, List<RoutingError> routingErrors) {
+        try {
+            request.setRoutingContext(router.graph);
+            return true;
+        } catch (RoutingValidationException e) {
+            routingErrors.addAll(e.getRoutingErrors());
+            return false;
+        }
+    }
+
+    /**
+     * This is run by the street routing thread pool, if it exists. The routing errors are kept
+     * and added to the response when the search is complete.
+     */
+    private List<Itinerary> routeDirectStreet(Router router) {
+        long startTime = System.currentTimeMillis();
+        try {
+            return DirectStreetRouter.route(router, request);
+        } catch (RoutingValidationException e) {
+            directStreetRoutingErrors.addAll(e.getRoutingErrors());
+            return Collections.emptyList();
+        } finally {
+            this.debugAggregator.finishedDirectStreetRouter(startTime);
+        }
+    }
+
+    /**
+     * Wait for the direct street search to complete and limit the non-transit distance of the
+     * request to the best direct street itinerary. This must be done before the transit
+     * itineraries are created.
+     */
+    private List<Itinerary> waitForDirectStreetSearch() {
+        if (directStreetItineraries == null) {
+            directStreetItineraries = waitForStreetSearch(directStreetSearch);
+            DirectStreetRouter.limitNonTransitDistance(request, directStreetItineraries);
+        }
+        return directStreetItineraries;
+    }
+
+    private Collection<AccessEgress> routeAccessEgress(
+        boolean egress,
+        int distanceMeters,
+        StopIndexForRaptor stopIndex,
+        AccessEgressCache cache
+    ) {
+        long startTime = System.currentTimeMillis();
+        Collection<AccessEgress> result = AccessEgressRouter.streetSearch(
+            request,
+            egress,
+            distanceMeters,
+            stopIndex,
+            cache
+        );
+        if (egress) {
+            this.debugAggregator.finishedEgressSearch(startTime);
+        }
+        else {
+            this.debugAggregator.finishedAccessSearch(startTime);
+        }
+        return result;
+    }
+
+    /**
+     * Run the given street search in the street routing thread pool, or in this thread if no
+     * thread pool exists.
+     */
+    private <T> Future<T> submitStreetSearch(Callable<T> streetSearch) {
+        if (streetRoutingThreadPool != null) {
+            return streetRoutingThreadPool.submit(streetSearch);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            result.complete(streetSearch.call());
+        }
+        catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private <T> T waitForStreetSearch(Future<T> streetSearch) {
+        try {
+            return streetSearch.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            LOG.error(e.getMessage() + ". Request: " + request, e);
+            throw new OtpAppException("Street search failed. Details: " + e.getMessage());
+        }
+        catch (InterruptedException e) {
+            // Keep the interrupt, so the request thread can see that it should stop
+            Thread.currentThread().interrupt();
+            streetSearch.cancel(true);
+            throw new OtpAppException("Street search interrupted. Request: " + request);
+        }
+    }
+
     private Collection<Itinerary> routeTransit(Router router) {
         request.setRoutingContext(router.graph);
         if (request.modes.transitModes.isEmpty()) { return Collections.emptyList(); }
@@ -135,6 +269,35 @@ public class RoutingWorker {
             ? router.graph.getTransitLayer()
             : router.graph.getRealtimeTransitLayer();
 
+        // Start the access and egress searches, they run in parallel with the pattern filtering
+        // if a street routing thread pool exists
+        final int accessEgressDistance = maxTransferDistance(request.maxWalkDistance);
+        final StopIndexForRaptor stopIndex = transitLayer.getStopIndex();
+        Future<Collection<AccessEgress>> accessSearch = submitStreetSearch(
+            () -> routeAccessEgress(false, accessEgressDistance, stopIndex, router.accessEgressCache())
+        );
+        Future<Collection<AccessEgress>> egressSearch = submitStreetSearch(
+            () -> routeAccessEgress(true, accessEgressDistance, stopIndex, router.accessEgressCache())
+        );
+
+        try {
+            return routeTransit(router, transitLayer, accessEgressDistance, accessSearch, egressSearch);
+        }
+        finally {
+            // Does nothing if the searches are done, they are only running if the transit search
+            // failed before waiting for them
+            accessSearch.cancel(true);
+            egressSearch.cancel(true);
+        }
+    }
+
+    private Collection<Itinerary> routeTransit(
+        Router router,
+        TransitLayer transitLayer,
+        int accessEgressDistance,
+        Future<Collection<AccessEgress>> accessSearch,
+        Future<Collection<AccessEgress>> egressSearch
+    ) {
         RaptorRoutingRequestTransitData requestTransitDataProvider;
         requestTransitDataProvider = new RaptorRoutingRequestTransitData(
                 transitLayer,
@@ -148,8 +311,18 @@ public class RoutingWorker {
 
         this.debugAggregator.finishedPatternFiltering();
 
-        Collection<AccessEgress> accessTransfers = AccessEgressRouter.streetSearch(request, false, maxTransferDistance(request.maxWalkDistance), transitLayer.getStopIndex());
-        Collection<AccessEgress> egressTransfers = AccessEgressRouter.streetSearch(request, true, maxTransferDistance(request.maxWalkDistance), transitLayer.getStopIndex());
+        Collection<AccessEgress> accessTransfers = waitForStreetSearch(accessSearch);
+        Collection<AccessEgress> egressTransfers = waitForStreetSearch(egressSearch);
+
+        // If the direct street search ran in parallel with the access and egress searches, they
+        // are done with the walk distance limit from before the direct street search. Remove the
+        // results not allowed by the limit from the direct street search.
+        waitForDirectStreetSearch();
+        int maxAccessEgressDistance = maxTransferDistance(request.maxWalkDistance);
+        if (maxAccessEgressDistance < accessEgressDistance) {
+            accessTransfers = AccessEgressRouter.filterByMaxDistance(accessTransfers, maxAccessEgressDistance);
+            egressTransfers = AccessEgressRouter.filterByMaxDistance(egressTransfers, maxAccessEgressDistance);
+        }
 
         if(!verifyEgressAccess(accessTransfers, egressTransfers)){
             return Collections.emptyList();
@@ -117,7 +117,7 @@ public class AStar {
         // The queue is self-resizing, so we initialize it to have size = O(sqrt(|V|)) << |V|.
         // For reference, a random, undirected search on a uniform 2d grid will examine roughly sqrt(|V|) vertices
         // before reaching its target.
-        int initialSize = runState.rctx.graph.getVertices().size();
+        int initialSize = runState.rctx.graph.countVertices();
         initialSize = (int) Math.ceil(2 * (Math.sqrt((double) initialSize + 1)));
         runState.pq = new BinHeap<>(initialSize);
         runState.nVisited = 0;
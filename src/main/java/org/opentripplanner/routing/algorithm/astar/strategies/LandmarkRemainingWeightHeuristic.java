@@ -0,0 +1,166 @@
+package org.opentripplanner.routing.algorithm.astar.strategies;
+
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.graph.landmark.LandmarkMode;
+import org.opentripplanner.routing.graph.landmark.Landmarks;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A goal directed heuristic using pre-computed {@link Landmarks} and the triangle inequality
+ * (A*, landmarks, triangle inequality - ALT). For a landmark L, a vertex v and the target t:
+ * <pre>
+ *     d(v,t) >= d(L,t) - d(L,v)
+ *     d(v,t) >= d(v,L) - d(t,L)
+ * </pre>
+ * The estimate is the largest of these bounds for all landmarks, and never less than the
+ * {@link EuclideanRemainingWeightHeuristic} estimate.
+ * <p>
+ * The target is usually a temporary vertex, not in the tables. Every path to the target passes
+ * through one of the graph vertices next to it (the "entries"), so the bounds are computed
+ * using the entries closest to and farthest from each landmark. The Euclidean heuristic is
+ * used for searches with modes without tables, and for vertices not in the tables.
+ */
+public class LandmarkRemainingWeightHeuristic implements RemainingWeightHeuristic {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Landmarks landmarks;
+
+    private final EuclideanRemainingWeightHeuristic euclidean = new EuclideanRemainingWeightHeuristic();
+
+    /** The tables for the request mode, {@code null} if only the Euclidean heuristic is used. */
+    private LandmarkMode mode;
+
+    /** The bound in table units is multiplied with this factor to get the weight. */
+    private double weightPerCost;
+
+    /** The table rows for the landmarks, in the search direction. */
+    private float[][] fromLandmark;
+    private float[][] toLandmark;
+
+    /**
+     * For each landmark, the lowest cost from the landmark to the target entries, and the
+     * highest cost from the target entries to the landmark. In a reverse search the
+     * tables are swapped.
+     */
+    private float[] minFromLandmarkToTarget;
+    private float[] maxFromTargetToLandmark;
+
+    public LandmarkRemainingWeightHeuristic(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    @Override
+    public void initialize(RoutingRequest options, long abortTime) {
+        euclidean.initialize(options, abortTime);
+        mode = LandmarkMode.forModes(options.streetSubRequestModes);
+
+        if (mode == null) { return; }
+
+        weightPerCost = mode == LandmarkMode.CAR ? 1.0 : 1.0 / options.getStreetSpeedUpperBound();
+
+        // In a reverse search the remaining path goes from the target to the vertex, swapping the
+        // tables turns the bounds for d(t,v) into the same formulas as for d(v,t).
+        int n = landmarks.nLandmarks();
+        fromLandmark = new float[n][];
+        toLandmark = new float[n][];
+        for (int l = 0; l < n; ++l) {
+            float[] from = landmarks.fromLandmarkRow(mode, l);
+            float[] to = landmarks.toLandmarkRow(mode, l);
+            fromLandmark[l] = options.arriveBy ? to : from;
+            toLandmark[l] = options.arriveBy ? from : to;
+        }
+
+        int[] entries = findTargetEntries(options.rctx.toVertices, !options.arriveBy);
+        if (entries.length == 0) {
+            mode = null;
+            return;
+        }
+
+        minFromLandmarkToTarget = new float[n];
+        maxFromTargetToLandmark = new float[n];
+        for (int l = 0; l < n; ++l) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = 0;
+            for (int it : entries) {
+                min = Math.min(min, fromLandmark[l][it]);
+                max = Math.max(max, toLandmark[l][it]);
+            }
+            minFromLandmarkToTarget[l] = min;
+            maxFromTargetToLandmark[l] = max;
+        }
+    }
+
+    @Override
+    public double estimateRemainingWeight(State s) {
+        double estimate = euclidean.estimateRemainingWeight(s);
+
+        if (mode == null) { return estimate; }
+
+        int v = landmarks.position(s.getVertex());
+
+        if (v < 0) { return estimate; }
+
+        float bound = 0;
+        for (int l = 0; l < fromLandmark.length; ++l) {
+            // Infinite costs are skipped, the network might have changed after the tables were built
+            float a = minFromLandmarkToTarget[l] - fromLandmark[l][v];
+            if (a > bound && a != Float.POSITIVE_INFINITY) {
+                bound = a;
+            }
+            float b = toLandmark[l][v] - maxFromTargetToLandmark[l];
+            if (b > bound && b != Float.POSITIVE_INFINITY) {
+                bound = b;
+            }
+        }
+        return Math.max(estimate, bound * weightPerCost);
+    }
+
+    @Override
+    public void reset() {}
+
+    @Override
+    public void doSomeWork() {}
+
+
+    /* private methods */
+
+    /**
+     * Find the table positions of the graph vertices every path to the targets must pass
+     * through. A target in the tables is its own entry, for temporary targets the temporary
+     * edges are followed backwards (forwards in a reverse search) until a vertex in the tables
+     * is found.
+     */
+    private int[] findTargetEntries(Collection<Vertex> targets, boolean forward) {
+        Set<Vertex> visited = new HashSet<>();
+        Deque<Vertex> queue = new ArrayDeque<>(targets);
+        int[] entries = new int[0];
+
+        while (!queue.isEmpty()) {
+            Vertex v = queue.poll();
+            if (!visited.add(v)) { continue; }
+
+            int pos = landmarks.position(v);
+            if (pos >= 0) {
+                entries = Arrays.copyOf(entries, entries.length + 1);
+                entries[entries.length - 1] = pos;
+                continue;
+            }
+            for (Edge e : forward ? v.getIncoming() : v.getOutgoing()) {
+                if (mode.cost(e) >= 0) {
+                    queue.add(forward ? e.getFromVertex() : e.getToVertex());
+                }
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,460 @@
+package org.opentripplanner.routing.algorithm.raptor.router.street;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.edgetype.TemporaryEdge;
+import org.opentripplanner.routing.edgetype.TemporaryPartialStreetEdge;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.graphfinder.StopAtDistance;
+import org.opentripplanner.routing.vertextype.TemporaryVertex;
+
+/**
+ * A bounded least-recently-used cache of access and egress street search results. Many requests
+ * start or end at the same few places (stations, airports, city centres, map apps polling the
+ * same position), and requests from nearby places are linked to the same point of the same
+ * streets, so the same street search is run over and over again.
+ * <p>
+ * Only walk and bicycle searches are cached, the results of the other modes depend on the time
+ * of the search and on real-time bike rental and parking data. A mode with time-limited turn
+ * restrictions in the graph is not cached either.
+ * <p>
+ * An entry is keyed by the search origin, the direction, the mode, the distance limit and the
+ * request parameters used by the street search. A temporary origin created for a request is
+ * identified by where it is linked to the streets: the permanent vertices it is linked to, and
+ * the edges it splits with the split points. Its own coordinate and name are not part of the key.
+ * An entry does not keep the states of the search, they reference the request which created
+ * the entry and its temporary edges. It keeps the edges of each path, with the temporary link
+ * edges of the origin replaced by their key, see {@link #linkEdgeKey(Edge, Vertex)}. On a hit the
+ * paths are traversed again with the new request, from its origin and along its own link edges,
+ * so a cache hit gives the same itineraries as a new search. A path which can not be traversed
+ * again with the same weight makes the hit a miss. All entries are dropped when the streets of
+ * the graph change, see {@link Graph#getStreetVersion()}.
+ * <p>
+ * The cache is shared by all requests of a router and is thread-safe.
+ */
+public class AccessEgressCache {
+
+    private final Graph graph;
+    private final int maxSize;
+    private final Set<StreetMode> cachedModes = EnumSet.noneOf(StreetMode.class);
+    private final Map<Key, Entry> entries;
+
+    private long streetVersion;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public AccessEgressCache(Graph graph, int maxSize) {
+        this.graph = graph;
+        this.maxSize = maxSize;
+        this.streetVersion = graph.getStreetVersion();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > AccessEgressCache.this.maxSize) {
+                    ++evictions;
+                    return true;
+                }
+                return false;
+            }
+        };
+        if (!graph.hasTimeLimitedTurnRestrictions(TraverseMode.WALK)) {
+            cachedModes.add(StreetMode.WALK);
+        }
+        if (!graph.hasTimeLimitedTurnRestrictions(TraverseMode.BICYCLE)) {
+            cachedModes.add(StreetMode.BIKE);
+        }
+    }
+
+    /**
+     * Return the cached stops for the search, or run the street search and cache the result. The
+     * street search runs outside the cache lock, so two requests for the same key at the same
+     * time might both search.
+     */
+    public List<StopAtDistance> getOrSearch(
+        RoutingRequest streetRequest,
+        Set<Vertex> origin,
+        boolean egress,
+        StreetMode mode,
+        int distanceMeters,
+        Supplier<List<StopAtDistance>> streetSearch
+    ) {
+        if (!cachedModes.contains(mode)) {
+            return streetSearch.get();
+        }
+        Key key = new Key(streetRequest, origin, egress, mode, distanceMeters);
+        long version = graph.getStreetVersion();
+
+        Entry entry;
+        synchronized (this) {
+            if (version != streetVersion) {
+                entries.clear();
+                streetVersion = version;
+            }
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            List<StopAtDistance> result = rebuild(entry.paths, streetRequest, origin, egress);
+            if (result != null) {
+                synchronized (this) {
+                    ++hits;
+                }
+                return result;
+            }
+        }
+        synchronized (this) {
+            ++misses;
+        }
+
+        List<StopAtDistance> result = streetSearch.get();
+        List<CachedPath> paths = cachedPaths(result);
+        if (paths == null) {
+            return result;
+        }
+
+        synchronized (this) {
+            // Do not cache results from before the streets changed
+            if (version == streetVersion) {
+                entries.put(key, new Entry(paths));
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /** The fraction of the cacheable searches found in the cache, 0 if none are done. */
+    public synchronized double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "AccessEgressCache{size: %d/%d, hits: %d, misses: %d, evictions: %d, modes: %s}",
+            entries.size(), maxSize, hits, misses, evictions, cachedModes
+        );
+    }
+
+    /**
+     * The paths of the stops found by a search, or null if a path uses a temporary edge which is
+     * not a link edge of its origin. Such a path can not be traversed again by another request.
+     */
+    private static List<CachedPath> cachedPaths(List<StopAtDistance> stops) {
+        List<CachedPath> result = new ArrayList<>(stops.size());
+        Map<Vertex, Set<Object>> linkEdgeKeysByOrigin = new HashMap<>();
+        for (StopAtDistance stop : stops) {
+            List<Edge> edges = new ArrayList<>();
+            State root = stop.state;
+            while (root.getBackState() != null) {
+                edges.add(root.getBackEdge());
+                root = root.getBackState();
+            }
+            Collections.reverse(edges);
+
+            Vertex origin = root.getVertex();
+            Set<Object> linkEdgeKeys = linkEdgeKeysByOrigin.computeIfAbsent(
+                origin,
+                v -> linkEdges(v).stream().map(e -> linkEdgeKey(e, v)).collect(Collectors.toSet())
+            );
+            List<Object> path = new ArrayList<>(edges.size());
+            for (Edge edge : edges) {
+                if (edge instanceof TemporaryEdge) {
+                    Object edgeKey = linkEdgeKey(edge, origin);
+                    if (!linkEdgeKeys.contains(edgeKey)) {
+                        return null;
+                    }
+                    path.add(edgeKey);
+                }
+                else {
+                    path.add(edge);
+                }
+            }
+            result.add(new CachedPath(stop, Key.vertexKey(origin), path));
+        }
+        return result;
+    }
+
+    /**
+     * Traverse the cached paths again with the given street request, from the given origin, which
+     * is linked to the same points of the same streets as the origin of the cached paths. The
+     * link edge keys are replaced by the link edges of the new origin. Return null if a link edge
+     * or the origin can not be found, or if a path can not be traversed again with the same
+     * weight.
+     */
+    private List<StopAtDistance> rebuild(
+        List<CachedPath> paths,
+        RoutingRequest streetRequest,
+        Set<Vertex> origin,
+        boolean egress
+    ) {
+        Map<Object, Vertex> originByKey = new HashMap<>();
+        Map<Object, Edge> linkEdgesByKey = new HashMap<>();
+        for (Vertex v : origin) {
+            originByKey.put(Key.vertexKey(v), v);
+            for (Edge e : linkEdges(v)) {
+                linkEdgesByKey.put(linkEdgeKey(e, v), e);
+            }
+        }
+        // Set up the request as the street search does, see NearbyStopFinder
+        streetRequest.arriveBy = egress;
+        if (egress) {
+            streetRequest.setRoutingContext(graph, null, origin);
+        }
+        else {
+            streetRequest.setRoutingContext(graph, origin, null);
+        }
+
+        List<StopAtDistance> result = new ArrayList<>(paths.size());
+        for (CachedPath path : paths) {
+            Vertex root = originByKey.get(path.originKey);
+            if (root == null) {
+                return null;
+            }
+            State state = new State(root, streetRequest);
+            for (Object step : path.edges) {
+                Edge edge = step instanceof Edge ? (Edge) step : linkEdgesByKey.get(step);
+                if (edge == null) {
+                    return null;
+                }
+                state = edge.traverse(state);
+                if (state == null) {
+                    return null;
+                }
+            }
+            if (state.getWeight() != path.weight) {
+                return null;
+            }
+            result.add(
+                path.edges.isEmpty()
+                    ? new StopAtDistance(path.stop, path.distance, List.of(), path.geometry, state)
+                    : StopAtDistance.stopAtDistanceForState(state)
+            );
+        }
+        return result;
+    }
+
+    /**
+     * The temporary edges linking a temporary origin to the streets: its own edges and the edges
+     * of the temporary vertices they lead to.
+     */
+    private static List<Edge> linkEdges(Vertex origin) {
+        List<Edge> result = new ArrayList<>();
+        if (!(origin instanceof TemporaryVertex)) {
+            return result;
+        }
+        for (Edge e : linkEdgesOf(origin)) {
+            result.add(e);
+            Vertex target = otherEnd(e, origin);
+            if (target instanceof TemporaryVertex) {
+                result.addAll(linkEdgesOf(target));
+            }
+        }
+        return result;
+    }
+
+    private static List<Edge> linkEdgesOf(Vertex v) {
+        List<Edge> result = new ArrayList<>();
+        for (Edge e : v.getOutgoing()) {
+            if (e instanceof TemporaryEdge) { result.add(e); }
+        }
+        for (Edge e : v.getIncoming()) {
+            if (e instanceof TemporaryEdge) { result.add(e); }
+        }
+        return result;
+    }
+
+    private static Vertex otherEnd(Edge e, Vertex v) {
+        return e.getFromVertex() == v ? e.getToVertex() : e.getFromVertex();
+    }
+
+    /**
+     * A link edge is identified by its type, the edge it is a part of, and its ends. The origin is
+     * the same end for all requests, the other temporary vertices are identified by their position
+     * and the edges they split, as the two edges of a two-way street are split at the same point.
+     */
+    private static Object linkEdgeKey(Edge e, Vertex origin) {
+        return Arrays.asList(
+            e.getClass(),
+            e instanceof TemporaryPartialStreetEdge
+                ? ((TemporaryPartialStreetEdge) e).getParentEdge()
+                : null,
+            endKey(e.getFromVertex(), origin),
+            endKey(e.getToVertex(), origin)
+        );
+    }
+
+    private static Object endKey(Vertex v, Vertex origin) {
+        if (v == origin) {
+            return "origin";
+        }
+        return Key.splitKey(v);
+    }
+
+    /**
+     * The position of a temporary vertex, rounded to about a centimeter. Origins on both sides of
+     * a street are projected to the same split point, up to the rounding of the projection.
+     */
+    private static Object pointKey(Vertex v) {
+        return Arrays.asList(Math.round(v.getLon() * 1e7), Math.round(v.getLat() * 1e7));
+    }
+
+    private static final class Entry {
+        private final List<CachedPath> paths;
+
+        private Entry(List<CachedPath> paths) {
+            this.paths = paths;
+        }
+    }
+
+    /**
+     * The path to a stop, without its states. The origin is identified by its key, see
+     * {@link Key#vertexKey(Vertex)}, and the path is a list of edges and of link edge keys.
+     */
+    private static final class CachedPath {
+        private final Stop stop;
+        private final double distance;
+        private final LineString geometry;
+        private final Object originKey;
+        private final List<Object> edges;
+        private final double weight;
+
+        private CachedPath(StopAtDistance stop, Object originKey, List<Object> edges) {
+            this.stop = stop.stop;
+            this.distance = stop.distance;
+            this.geometry = stop.geometry;
+            this.originKey = originKey;
+            this.edges = edges;
+            this.weight = stop.state.getWeight();
+        }
+    }
+
+    /**
+     * The street search parameters. Temporary origin vertices are created for each request, they
+     * are identified by where they are linked to the streets, see {@link #vertexKey(Vertex)}. The
+     * street request is cloned from the main request, so only the parameters used by walk and
+     * bicycle street searches are part of the key.
+     */
+    private static final class Key {
+        private final Set<Object> origin;
+        private final boolean egress;
+        private final StreetMode mode;
+        private final int distanceMeters;
+        private final List<Object> parameters;
+        private final int hashCode;
+
+        private Key(
+            RoutingRequest rr,
+            Set<Vertex> origin,
+            boolean egress,
+            StreetMode mode,
+            int distanceMeters
+        ) {
+            this.origin = origin.stream().map(Key::vertexKey).collect(Collectors.toSet());
+            this.egress = egress;
+            this.mode = mode;
+            this.distanceMeters = distanceMeters;
+            this.parameters = Arrays.asList(
+                rr.walkSpeed,
+                rr.bikeSpeed,
+                rr.walkReluctance,
+                rr.stairsReluctance,
+                rr.turnReluctance,
+                rr.elevatorBoardTime,
+                rr.elevatorBoardCost,
+                rr.elevatorHopTime,
+                rr.elevatorHopCost,
+                rr.bikeSwitchTime,
+                rr.bikeSwitchCost,
+                rr.wheelchairAccessible,
+                rr.maxWheelchairSlope,
+                rr.optimize,
+                rr.bikeTriangleTimeFactor,
+                rr.bikeTriangleSlopeFactor,
+                rr.bikeTriangleSafetyFactor,
+                rr.driveOnRight
+            );
+            this.hashCode = Objects.hash(this.origin, egress, mode, distanceMeters, parameters);
+        }
+
+        /**
+         * A temporary vertex is identified by its direction and the places it is linked to: the
+         * permanent vertices, and for each temporary split vertex, the edges it splits and the
+         * split point, which gives the split fraction of these edges.
+         */
+        private static Object vertexKey(Vertex v) {
+            if (!(v instanceof TemporaryVertex)) {
+                return v;
+            }
+            Set<Object> links = new HashSet<>();
+            for (Edge e : linkEdgesOf(v)) {
+                links.add(splitKey(otherEnd(e, v)));
+            }
+            return Arrays.asList(((TemporaryVertex) v).isEndVertex(), links);
+        }
+
+        private static Object splitKey(Vertex v) {
+            if (!(v instanceof TemporaryVertex)) {
+                return v;
+            }
+            Set<Edge> splitEdges = new HashSet<>();
+            for (Edge e : linkEdgesOf(v)) {
+                if (e instanceof TemporaryPartialStreetEdge) {
+                    splitEdges.add(((TemporaryPartialStreetEdge) e).getParentEdge());
+                }
+            }
+            return Arrays.asList(pointKey(v), splitEdges);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+            if (o == null || getClass() != o.getClass()) { return false; }
+            Key key = (Key) o;
+            return egress == key.egress
+                && distanceMeters == key.distanceMeters
+                && mode == key.mode
+                && origin.equals(key.origin)
+                && parameters.equals(key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -4,10 +4,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.opentripplanner.graph_builder.module.NearbyStopFinder;
 import org.opentripplanner.routing.algorithm.raptor.transit.AccessEgress;
 import org.opentripplanner.routing.algorithm.raptor.transit.StopIndexForRaptor;
 import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
 import org.opentripplanner.routing.graph.Vertex;
 import org.opentripplanner.routing.graphfinder.StopAtDistance;
 import org.slf4j.Logger;
@@ -27,13 +30,15 @@ public class AccessEgressRouter {
      * @param fromTarget whether to route from or towards the point provided in the routing request
      *                   (access or egress)
      * @param distanceMeters the maximum street distance to search for access/egress stops
+     * @param cache the cache of street search results, or {@code null} if caching is disabled
      * @return Transfer objects by access/egress stop
      */
     public static Collection<AccessEgress> streetSearch (
         RoutingRequest rr,
         boolean fromTarget,
         int distanceMeters,
-        StopIndexForRaptor stopIndex
+        StopIndexForRaptor stopIndex,
+        AccessEgressCache cache
     ) {
         // TODO OTP2 This has to be done because we have not separated the main RoutingRequest from
         //      the subrequest for street searches. From/to vertices are already set based on the main
@@ -42,20 +47,31 @@ public class AccessEgressRouter {
         //      main request.
         Set<Vertex> vertices = fromTarget ^ rr.arriveBy ? rr.rctx.toVertices : rr.rctx.fromVertices;
 
-        RoutingRequest nonTransitRoutingRequest = rr.getStreetSearchRequest(
-            fromTarget ? rr.modes.egressMode : rr.modes.accessMode
-        );
+        StreetMode streetMode = fromTarget ? rr.modes.egressMode : rr.modes.accessMode;
+        RoutingRequest nonTransitRoutingRequest = rr.getStreetSearchRequest(streetMode);
 
-        NearbyStopFinder nearbyStopFinder = new NearbyStopFinder(rr.rctx.graph, distanceMeters, true);
-        // We set removeTempEdges to false because this is a sub-request - the temporary edges for the origin and
-        // target vertex will be cleaned up at the end of the super-request, and we don't want that to happen twice.
-        List<StopAtDistance> stopAtDistanceList =
-                nearbyStopFinder.findNearbyStopsViaStreets(
-                    vertices,
-                    fromTarget,
-                    false,
-                    nonTransitRoutingRequest
-                );
+        Supplier<List<StopAtDistance>> search = () -> {
+            NearbyStopFinder nearbyStopFinder = new NearbyStopFinder(rr.rctx.graph, distanceMeters, true);
+            // We set removeTempEdges to false because this is a sub-request - the temporary edges for the origin and
+            // target vertex will be cleaned up at the end of the super-request, and we don't want that to happen twice.
+            return nearbyStopFinder.findNearbyStopsViaStreets(
+                vertices,
+                fromTarget,
+                false,
+                nonTransitRoutingRequest
+            );
+        };
+
+        List<StopAtDistance> stopAtDistanceList = cache == null
+            ? search.get()
+            : cache.getOrSearch(
+                nonTransitRoutingRequest,
+                vertices,
+                fromTarget,
+                streetMode,
+                distanceMeters,
+                search
+            );
 
         Collection<AccessEgress> result = new ArrayList<>();
         for (StopAtDistance stopAtDistance : stopAtDistanceList) {
@@ -72,4 +88,20 @@ public class AccessEgressRouter {
 
         return result;
     }
+
+    /**
+     * Remove the access/egress paths that would not be found by a street search limited to the
+     * given distance. This is used when the street search is started before the final distance
+     * limit is known.
+     */
+    public static Collection<AccessEgress> filterByMaxDistance(
+        Collection<AccessEgress> accessEgress,
+        int distanceMeters
+    ) {
+        int maxDurationSeconds = NearbyStopFinder.maxDurationSeconds(distanceMeters);
+        return accessEgress
+            .stream()
+            .filter(it -> it.durationInSeconds() <= maxDurationSeconds)
+            .collect(Collectors.toList());
+    }
 }
@@ -44,11 +44,6 @@ public class DirectStreetRouter {
       // Convert the internal GraphPaths to itineraries
       List<Itinerary> response = GraphPathToItineraryMapper.mapItineraries(paths, request);
       ItinerariesHelper.decorateItinerariesWithRequestData(response, request);
-      if(!response.isEmpty()){
-        request.setMaxWalkDistance(populateMinTransitWalk(response));
-        request.maxTransferWalkDistance = populateMinTransitWalk(response);
-        request.setMaxPreTransitTime(populateMinTransitTime(response));
-      }
       return response;
     }
     catch (PathNotFoundException e) {
@@ -56,6 +51,22 @@ public class DirectStreetRouter {
     }
   }
 
+  /**
+   * Limit the walk distance and pre-transit time of the request to the best direct street
+   * itinerary, there is no point in walking further than this to get to transit.
+   * <p>
+   * This is not done by {@link #route(Router, RoutingRequest)}, since the direct street search
+   * may run in parallel with other searches reading the request. The caller must apply the
+   * limits after the search is complete.
+   */
+  public static void limitNonTransitDistance(RoutingRequest request, List<Itinerary> directItineraries) {
+    if(!directItineraries.isEmpty()){
+      request.setMaxWalkDistance(populateMinTransitWalk(directItineraries));
+      request.maxTransferWalkDistance = populateMinTransitWalk(directItineraries);
+      request.setMaxPreTransitTime(populateMinTransitTime(directItineraries));
+    }
+  }
+
   private static boolean streetDistanceIsReasonable(RoutingRequest request) {
     // TODO This currently only calculates the distances between the first fromVertex
     //      and the first toVertex
@@ -1,22 +1,35 @@
 package org.opentripplanner.routing.algorithm.raptor.transit;
 
 import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.TripPattern;
+import org.opentripplanner.routing.algorithm.raptor.transit.request.TripPatternForDatesCache;
+import org.opentripplanner.util.PersistentHashMap;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class TransitLayer {
 
   /**
-   * Transit data required for routing
+   * Used to give each transit layer a unique version, a new layer always get a higher version
+   * than the ones created before it.
    */
-  private final HashMap<LocalDate, List<TripPatternForDate>> tripPatternsForDate;
+  private static final AtomicLong VERSION_COUNTER = new AtomicLong();
+
+  /**
+   * Transit data required for routing, indexed on date and the original trip pattern. The maps
+   * are immutable, an updated transit layer shares all the dates and patterns not changed with
+   * the layer it is created from.
+   */
+  private final PersistentHashMap<LocalDate, PersistentHashMap<TripPattern, TripPatternForDate>>
+      tripPatternsForDate;
+
+  private final long version = VERSION_COUNTER.incrementAndGet();
 
   /**
    * Index of outer list is from stop index, inner list index has no specific meaning. To stop index
@@ -32,9 +45,14 @@ public class TransitLayer {
   private final ZoneId transitDataZoneId;
 
   /**
-   * Makes a shallow copy of the TransitLayer, except for the tripPatternsForDate, where a shallow
-   * copy of the HashMap is made. This is sufficient, as the TransitLayerUpdater will replace
-   * entire keys and their values in the map.
+   * Trip patterns merged and indexed for each search date window. This is derived from the
+   * {@link #tripPatternsForDate}, so it is NOT shared with copies of this transit layer.
+   */
+  private final TripPatternForDatesCache tripPatternForDatesCache = new TripPatternForDatesCache();
+
+  /**
+   * Makes a shallow copy of the TransitLayer with a new version. The trip patterns are immutable
+   * and shared. The copy starts with an empty {@link TripPatternForDatesCache}.
    */
   public TransitLayer(TransitLayer transitLayer) {
     this(
@@ -51,12 +69,50 @@ public class TransitLayer {
       StopIndexForRaptor stopIndex,
       ZoneId transitDataZoneId
   ) {
-    this.tripPatternsForDate = new HashMap<>(tripPatternsForDate);
+    this(
+        indexByPattern(tripPatternsForDate),
+        transferByStopIndex,
+        stopIndex,
+        transitDataZoneId
+    );
+  }
+
+  private TransitLayer(
+      PersistentHashMap<LocalDate, PersistentHashMap<TripPattern, TripPatternForDate>> tripPatternsForDate,
+      List<List<Transfer>> transferByStopIndex,
+      StopIndexForRaptor stopIndex,
+      ZoneId transitDataZoneId
+  ) {
+    this.tripPatternsForDate = tripPatternsForDate;
     this.transferByStopIndex = transferByStopIndex;
     this.stopIndex = stopIndex;
     this.transitDataZoneId = transitDataZoneId;
   }
 
+  /**
+   * Create a new transit layer where the given trip patterns replace the existing ones for the
+   * same date and original {@link TripPattern}. Patterns not in this layer are added, but dates
+   * not in this layer are ignored. This layer is not changed, and the new layer shares all
+   * unchanged dates and patterns with it, so the cost is proportional to the number of updated
+   * patterns, not to the size of the layer.
+   */
+  public TransitLayer withUpdatedTripPatterns(
+      Map<LocalDate, ? extends Collection<TripPatternForDate>> updatedTripPatternsForDate
+  ) {
+    var result = tripPatternsForDate;
+
+    for (var e : updatedTripPatternsForDate.entrySet()) {
+      var patternsForDate = result.get(e.getKey());
+      if (patternsForDate == null) { continue; }
+
+      for (TripPatternForDate it : e.getValue()) {
+        patternsForDate = patternsForDate.plus(it.getTripPattern().getPattern(), it);
+      }
+      result = result.plus(e.getKey(), patternsForDate);
+    }
+    return new TransitLayer(result, transferByStopIndex, stopIndex, transitDataZoneId);
+  }
+
   public int getIndexByStop(Stop stop) {
     return stopIndex.indexByStop.get(stop);
   }
@@ -70,7 +126,18 @@ public class TransitLayer {
   }
 
   public Collection<TripPatternForDate> getTripPatternsForDate(LocalDate date) {
-    return tripPatternsForDate.getOrDefault(date, Collections.emptyList());
+    var patternsForDate = tripPatternsForDate.get(date);
+    return patternsForDate == null ? Collections.emptyList() : patternsForDate.values();
+  }
+
+  /**
+   * The version of this transit layer. Each transit layer instance, including updated copies,
+   * has a unique version, and a layer always has a higher version than the layers it is created
+   * from. Since a layer never changes after it is created, caches derived from the transit data
+   * can use the version as part of the key.
+   */
+  public long getVersion() {
+    return version;
   }
 
   /**
@@ -88,23 +155,26 @@ public class TransitLayer {
     return stopIndex.stopsByIndex.size();
   }
 
-  public List<TripPatternForDate> getTripPatternsForDateCopy(LocalDate date) {
-    List<TripPatternForDate> tripPatternForDate = tripPatternsForDate.get(date);
-    return tripPatternForDate != null ? new ArrayList<>(tripPatternsForDate.get(date)) : null;
+  public TripPatternForDatesCache getTripPatternForDatesCache() {
+    return tripPatternForDatesCache;
   }
 
   public List<List<Transfer>> getTransferByStopIndex() {
     return this.transferByStopIndex;
   }
 
-  /**
-   * Replaces all the TripPatternForDates for a single date. This is an atomic operation according
-   * to the HashMap implementation.
-   */
-  public void replaceTripPatternsForDate(
-      LocalDate date,
-      List<TripPatternForDate> tripPatternForDates
-  ) {
-    this.tripPatternsForDate.replace(date, tripPatternForDates);
+  private static PersistentHashMap<LocalDate, PersistentHashMap<TripPattern, TripPatternForDate>>
+  indexByPattern(Map<LocalDate, List<TripPatternForDate>> tripPatternsForDate) {
+    PersistentHashMap<LocalDate, PersistentHashMap<TripPattern, TripPatternForDate>> result =
+        PersistentHashMap.empty();
+
+    for (var e : tripPatternsForDate.entrySet()) {
+      PersistentHashMap<TripPattern, TripPatternForDate> patternsForDate = PersistentHashMap.empty();
+      for (TripPatternForDate it : e.getValue()) {
+        patternsForDate = patternsForDate.plus(it.getTripPattern().getPattern(), it);
+      }
+      result = result.plus(e.getKey(), patternsForDate);
+    }
+    return result;
   }
 }
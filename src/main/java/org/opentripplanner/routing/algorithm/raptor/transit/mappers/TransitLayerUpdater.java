@@ -14,7 +14,6 @@ import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,11 +23,13 @@ import java.util.stream.Collectors;
 import static org.opentripplanner.routing.algorithm.raptor.transit.mappers.TripPatternMapper.mapOldTripPatternToRaptorTripPattern;
 
 /**
- * Update the TransitLayer from a set of TimeTables. A shallow copy is made of the TransitLayer
- * (this also includes a shallow copy of the TripPatternsForDate map). TripPatterns are matched on
- * id and replaced by their updated versions. The realtime TransitLayer is then switched out
- * with the updated copy in an atomic operation. This ensures that any TransitLayer that is
- * referenced from the Graph is never changed.
+ * Update the TransitLayer from a set of TimeTables. A new version of the TransitLayer is created,
+ * where the TripPatterns are matched on id and replaced by their updated versions. The new layer
+ * shares all unchanged trip patterns with the old one, so the cost of an update is proportional
+ * to the number of updated patterns. The realtime TransitLayer is then switched out with the
+ * updated version in an atomic operation. This ensures that any TransitLayer that is referenced
+ * from the Graph is never changed. The trip pattern cache of the replaced TransitLayer is cleared
+ * when the new one is published, the new TransitLayer starts with an empty cache.
  */
 public class TransitLayerUpdater {
 
@@ -38,13 +39,6 @@ public class TransitLayerUpdater {
 
   private final Map<ServiceDate, TIntSet> serviceCodesRunningForDate;
 
-  /**
-   * Cache the TripPatternForDates indexed on the original TripPatterns in order to avoid
-   * this expensive operation being done each time the update method is called.
-   */
-  private final Map<LocalDate, Map<org.opentripplanner.model.TripPattern, TripPatternForDate>>
-                tripPatternForDateMapCache = new HashMap<>();
-
   public TransitLayerUpdater(
       Graph graph,
       Map<ServiceDate, TIntSet> serviceCodesRunningForDate
@@ -56,16 +50,14 @@ public class TransitLayerUpdater {
   public void update(Set<Timetable> updatedTimetables) {
     if (!graph.hasRealtimeTransitLayer()) { return; }
 
-    // Make a shallow copy of the realtime transit layer. Only the objects that are copied will be
-    // changed during this update process.
-    TransitLayer realtimeTransitLayer = new TransitLayer(graph.getRealtimeTransitLayer());
+    TransitLayer oldRealtimeTransitLayer = graph.getRealtimeTransitLayer();
 
     double startTime = System.currentTimeMillis();
 
     // Map TripPatterns for this update to Raptor TripPatterns
     final Map<org.opentripplanner.model.TripPattern, TripPatternWithRaptorStopIndexes>
         newTripPatternForOld = mapOldTripPatternToRaptorTripPattern(
-        realtimeTransitLayer.getStopIndex(),
+        oldRealtimeTransitLayer.getStopIndex(),
             updatedTimetables.stream().map(t -> t.pattern).collect(Collectors.toSet()
         )
     );
@@ -82,45 +74,39 @@ public class TransitLayerUpdater {
         t -> ServiceCalendarMapper.localDateFromServiceDate(t.serviceDate)
     );
 
-    for (LocalDate date : timetablesByDate.keySet()) {
-      Collection<Timetable> timetablesForDate = timetablesByDate.get(date);
-
-      List<TripPatternForDate> patternsForDate =
-          realtimeTransitLayer.getTripPatternsForDateCopy(date);
+    Map<LocalDate, List<TripPatternForDate>> updatedPatternsByDate = new HashMap<>();
 
-      if (patternsForDate == null) {
-        continue;
-      }
-
-      Map<org.opentripplanner.model.TripPattern, TripPatternForDate> patternsForDateMap =
-          tripPatternForDateMapCache.computeIfAbsent(date, p -> patternsForDate
-          .stream()
-          .collect(Collectors.toMap(t -> t.getTripPattern().getPattern(), t -> t)));
+    for (LocalDate date : timetablesByDate.keySet()) {
+      List<TripPatternForDate> patternsForDate = new ArrayList<>();
 
-      for (Timetable timetable : timetablesForDate) {
+      for (Timetable timetable : timetablesByDate.get(date)) {
         TripPatternForDate tripPatternForDate = tripPatternForDateMapper.map(
             timetable,
             timetable.serviceDate
         );
         if (tripPatternForDate != null) {
-          patternsForDateMap.put(timetable.pattern, tripPatternForDate);
+          patternsForDate.add(tripPatternForDate);
         }
       }
+      updatedPatternsByDate.put(date, patternsForDate);
+    }
 
-      realtimeTransitLayer.replaceTripPatternsForDate(
-          date,
-          new ArrayList<>(patternsForDateMap.values())
-      );
-
-      // Switch out the reference with the updated realtimeTransitLayer. This is synchronized to
-      // guarantee that the reference is set after all the fields have been updated.
-      graph.setRealtimeTransitLayer(realtimeTransitLayer);
+    // Create the new version of the realtime transit layer, the old one is not changed
+    TransitLayer realtimeTransitLayer = oldRealtimeTransitLayer.withUpdatedTripPatterns(
+        updatedPatternsByDate
+    );
 
-      LOG.debug(
-          "UPDATING {} tripPatterns took {} ms",
-          updatedTimetables.size(),
-          System.currentTimeMillis() - startTime
-      );
-    }
+    // Switch out the reference with the updated realtimeTransitLayer. This is synchronized to
+    // guarantee that the reference is set after all the fields have been updated. The new layer
+    // must not be changed after this, since requests may cache data derived from it.
+    graph.setRealtimeTransitLayer(realtimeTransitLayer);
+    oldRealtimeTransitLayer.getTripPatternForDatesCache().clear();
+
+    LOG.debug(
+        "UPDATING {} tripPatterns to transit layer version {} took {} ms",
+        updatedTimetables.size(),
+        realtimeTransitLayer.getVersion(),
+        System.currentTimeMillis() - startTime
+    );
   }
 }
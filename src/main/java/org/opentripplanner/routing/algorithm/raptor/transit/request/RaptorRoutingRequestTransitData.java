@@ -11,25 +11,33 @@ import org.opentripplanner.transit.raptor.api.transit.RaptorTransitDataProvider;
 
 import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 
 /**
  * This is the data provider for the Range Raptor search engine. It uses data from the TransitLayer,
- * but filters it by dates and modes per request. Transfers durations are pre-calculated per request
- * based on walk speed.
+ * but filters it by dates and modes per request. The trip patterns for the date window are
+ * merged and indexed once per transit layer and cached, see {@link TripPatternForDatesCache},
+ * the filtering on modes and banned routes is applied as a mask on top of this index. Transfers
+ * durations are pre-calculated per request based on walk speed.
  */
 public class RaptorRoutingRequestTransitData implements RaptorTransitDataProvider<TripSchedule> {
 
   private final TransitLayer transitLayer;
 
   /**
-   * Active trip patterns by stop index
+   * All trip patterns in the search date window, indexed by stop index
    */
-  private final List<List<TripPatternForDates>> activeTripPatternsPerStop;
+  private final TripPatternForDatesIndex tripPatternIndex;
+
+  /**
+   * The trip patterns in the {@link #tripPatternIndex} allowed for this request
+   */
+  private final BitSet activeTripPatterns;
 
   /**
    * Transfers by stop index
@@ -58,9 +66,12 @@ public class RaptorRoutingRequestTransitData implements RaptorTransitDataProvide
 
     this.transitLayer = transitLayer;
     this.startOfTime = creator.getSearchStartTime();
-    this.activeTripPatternsPerStop = creator.createTripPatternsPerStop(
+    this.tripPatternIndex = creator.getTripPatternForDatesIndex(
         additionalPastSearchDays,
-        additionalFutureSearchDays,
+        additionalFutureSearchDays
+    );
+    this.activeTripPatterns = RaptorRoutingRequestTransitDataCreator.createActiveTripPatternMask(
+        tripPatternIndex,
         transitModes,
         bannedRoutes
     );
@@ -80,11 +91,14 @@ public class RaptorRoutingRequestTransitData implements RaptorTransitDataProvide
    */
   @Override
   public Iterator<? extends RaptorRoute<TripSchedule>> routeIterator(IntIterator stops) {
-    Set<RaptorRoute<TripSchedule>> activeTripPatternsForGivenStops = new HashSet<>();
+    BitSet activeTripPatternsForGivenStops = new BitSet(tripPatternIndex.numberOfPatterns());
     while (stops.hasNext()) {
-      activeTripPatternsForGivenStops.addAll(activeTripPatternsPerStop.get(stops.next()));
+      for (int patternIndex : tripPatternIndex.patternIndexesForStop(stops.next())) {
+        activeTripPatternsForGivenStops.set(patternIndex);
+      }
     }
-    return activeTripPatternsForGivenStops.iterator();
+    activeTripPatternsForGivenStops.and(activeTripPatterns);
+    return new PatternIterator(activeTripPatternsForGivenStops);
   }
 
   @Override
@@ -100,4 +114,30 @@ public class RaptorRoutingRequestTransitData implements RaptorTransitDataProvide
   public ZonedDateTime getStartOfTime() {
     return startOfTime;
   }
+
+  /**
+   * Iterate over the trip patterns in the index for the given set of pattern indexes.
+   */
+  private class PatternIterator implements Iterator<TripPatternForDates> {
+    private final BitSet patternIndexes;
+    private int next;
+
+    private PatternIterator(BitSet patternIndexes) {
+      this.patternIndexes = patternIndexes;
+      this.next = patternIndexes.nextSetBit(0);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public TripPatternForDates next() {
+      if (next < 0) { throw new NoSuchElementException(); }
+      TripPatternForDates pattern = tripPatternIndex.getPattern(next);
+      next = patternIndexes.nextSetBit(next + 1);
+      return pattern;
+    }
+  }
 }
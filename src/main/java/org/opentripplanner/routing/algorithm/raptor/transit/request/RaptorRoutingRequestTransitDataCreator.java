@@ -12,11 +12,11 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -48,42 +48,68 @@ class RaptorRoutingRequestTransitDataCreator {
     return searchStartTime;
   }
 
-  List<List<TripPatternForDates>> createTripPatternsPerStop(
+  /**
+   * Get the index of all trip patterns active in the date window from the cache in the transit
+   * layer, the index is created if it does not exist.
+   */
+  TripPatternForDatesIndex getTripPatternForDatesIndex(
       int additionalPastSearchDays,
-      int additionalFutureSearchDays,
+      int additionalFutureSearchDays
+  ) {
+    return transitLayer.getTripPatternForDatesCache().get(
+        departureDate,
+        additionalPastSearchDays,
+        additionalFutureSearchDays,
+        () -> createTripPatternForDatesIndex(additionalPastSearchDays, additionalFutureSearchDays)
+    );
+  }
+
+  /**
+   * Create a mask over the given index with the patterns allowed for the request set.
+   */
+  static BitSet createActiveTripPatternMask(
+      TripPatternForDatesIndex index,
       Set<TransitMode> transitModes,
       Set<FeedScopedId> bannedRoutes
   ) {
+    BitSet activeTripPatterns = new BitSet(index.numberOfPatterns());
+
+    for (int i = 0; i < index.numberOfPatterns(); ++i) {
+      TripPatternWithRaptorStopIndexes p = index.getPattern(i).getTripPattern();
+      if (
+          transitModes.contains(p.getTransitMode()) &&
+          !bannedRoutes.contains(p.getPattern().route.getId())
+      ) {
+        activeTripPatterns.set(i);
+      }
+    }
+    return activeTripPatterns;
+  }
 
+  private TripPatternForDatesIndex createTripPatternForDatesIndex(
+      int additionalPastSearchDays,
+      int additionalFutureSearchDays
+  ) {
     List<Map<FeedScopedId, TripPatternForDate>> tripPatternForDates = getTripPatternsForDateRange(
         additionalPastSearchDays,
-        additionalFutureSearchDays,
-        transitModes,
-        bannedRoutes
+        additionalFutureSearchDays
     );
 
     List<TripPatternForDates> tripPatternForDateList = merge(searchStartTime, tripPatternForDates);
 
-    return createTripPatternsPerStop(tripPatternForDateList, transitLayer.getStopCount());
+    return new TripPatternForDatesIndex(tripPatternForDateList, transitLayer.getStopCount());
   }
 
   private List<Map<FeedScopedId, TripPatternForDate>> getTripPatternsForDateRange(
       int additionalPastSearchDays,
-      int additionalFutureSearchDays,
-      Set<TransitMode> transitModes,
-      Set<FeedScopedId> bannedRoutes
+      int additionalFutureSearchDays
   ) {
     List<Map<FeedScopedId, TripPatternForDate>> tripPatternForDates = new ArrayList<>();
 
     // This filters trips by the search date as well as additional dates before and after
     for (int d = -additionalPastSearchDays; d <= additionalFutureSearchDays; ++d) {
       tripPatternForDates.add(
-        filterActiveTripPatterns(
-          transitLayer,
-          departureDate.plusDays(d),
-          transitModes,
-          bannedRoutes
-        )
+        tripPatternsForDate(transitLayer, departureDate.plusDays(d))
       );
     }
 
@@ -128,35 +154,13 @@ class RaptorRoutingRequestTransitDataCreator {
     return combinedList;
   }
 
-  private static List<List<TripPatternForDates>> createTripPatternsPerStop(
-      List<TripPatternForDates> tripPatternsForDate, int numberOfStops
-  ) {
-    List<List<TripPatternForDates>> result = Stream
-        .generate(ArrayList<TripPatternForDates>::new)
-        .limit(numberOfStops)
-        .collect(Collectors.toList());
-
-    for (TripPatternForDates tripPatternForDateList : tripPatternsForDate) {
-      for (int i : tripPatternForDateList.getTripPattern().getStopIndexes()) {
-        result.get(i).add(tripPatternForDateList);
-      }
-    }
-    return result;
-  }
-
-  private static Map<FeedScopedId, TripPatternForDate> filterActiveTripPatterns(
+  private static Map<FeedScopedId, TripPatternForDate> tripPatternsForDate(
       TransitLayer transitLayer,
-      LocalDate date,
-      Set<TransitMode> transitModes,
-      Set<FeedScopedId> bannedRoutes
+      LocalDate date
   ) {
-
     return transitLayer
         .getTripPatternsForDate(date)
         .stream()
-        .filter(p -> transitModes.contains(p.getTripPattern().getTransitMode()))
-        .filter(p -> !bannedRoutes.contains(p.getTripPattern()
-            .getPattern().route.getId()))
         .collect(toMap(p -> p.getTripPattern().getId(), p -> p));
   }
 
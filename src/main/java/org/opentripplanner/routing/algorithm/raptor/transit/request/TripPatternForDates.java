@@ -3,6 +3,7 @@ package org.opentripplanner.routing.algorithm.raptor.transit.request;
 import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternForDate;
 import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternWithRaptorStopIndexes;
 import org.opentripplanner.routing.algorithm.raptor.transit.TripSchedule;
+import org.opentripplanner.routing.trippattern.TripTimes;
 import org.opentripplanner.transit.raptor.api.transit.RaptorRoute;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTimeTable;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripPattern;
@@ -13,6 +14,10 @@ import java.util.List;
 /**
  * A collection of all the TripSchedules active on a range of consecutive days. The outer list of tripSchedulesByDay
  * refers to days in order.
+ * <p>
+ * The departure and arrival times of all trips are also kept in flat primitive arrays with the day offsets
+ * applied, so the Raptor trip search can scan the times without creating a {@link TripScheduleWithOffset} for
+ * each trip visited. A trip schedule is only created for the trip found, see {@link #getTripSchedule(int)}.
  */
 public class TripPatternForDates implements RaptorRoute<TripSchedule>,
         RaptorTimeTable<TripSchedule>, RaptorTripPattern {
@@ -25,6 +30,12 @@ public class TripPatternForDates implements RaptorRoute<TripSchedule>,
 
     private final int numberOfTripSchedules;
 
+    /**
+     * The departure and arrival times for all trips with the day offsets applied. This is created the first
+     * time it is used, see {@link #times()}.
+     */
+    private TripTimesArrays times = null;
+
     TripPatternForDates(TripPatternWithRaptorStopIndexes tripPattern, List<TripPatternForDate> tripPatternForDates, List<Integer> offsets) {
         this.tripPattern = tripPattern;
         this.tripPatternForDates = tripPatternForDates.toArray(new TripPatternForDate[]{});
@@ -88,7 +99,68 @@ public class TripPatternForDates implements RaptorRoute<TripSchedule>,
         throw new IndexOutOfBoundsException("Index out of bound: " + index);
     }
 
+    @Override public int departureTime(int tripIndex, int stopPositionInPattern) {
+        return times().departureTimes[stopPositionInPattern * numberOfTripSchedules + tripIndex];
+    }
+
+    @Override public int arrivalTime(int tripIndex, int stopPositionInPattern) {
+        return times().arrivalTimes[stopPositionInPattern * numberOfTripSchedules + tripIndex];
+    }
+
     @Override public int numberOfTripSchedules() {
         return numberOfTripSchedules;
     }
+
+    /**
+     * Instances of this class are shared between requests (see {@link TripPatternForDatesCache}), and
+     * may be accessed by several threads at the same time. The times are created without locking; if two
+     * threads create them at the same time one of the copies is thrown away. This is safe because all
+     * fields in {@link TripTimesArrays} are final.
+     */
+    private TripTimesArrays times() {
+        TripTimesArrays t = times;
+        if (t == null) {
+            t = new TripTimesArrays(tripPatternForDates, offsets, numberOfStopsInPattern(), numberOfTripSchedules);
+            times = t;
+        }
+        return t;
+    }
+
+    /**
+     * The times are stored stop by stop: the time for a given trip and stop position is found at index
+     * {@code stopPositionInPattern * numberOfTripSchedules + tripIndex}. The trip search visit many trips
+     * for the same stop position, so the times it scans are stored next to each other. The trips are in
+     * the same order as in {@link #getTripSchedule(int)}: the days in order and within each day ordered
+     * by the departure time at the first stop.
+     */
+    private static class TripTimesArrays {
+        private final int[] departureTimes;
+        private final int[] arrivalTimes;
+
+        private TripTimesArrays(
+            TripPatternForDate[] tripPatternForDates,
+            int[] offsets,
+            int numberOfStops,
+            int numberOfTrips
+        ) {
+            this.departureTimes = new int[numberOfStops * numberOfTrips];
+            this.arrivalTimes = new int[numberOfStops * numberOfTrips];
+
+            int tripIndex = 0;
+            for (int d = 0; d < tripPatternForDates.length; d++) {
+                TripPatternForDate tripPatternForDate = tripPatternForDates[d];
+                int offset = offsets[d];
+
+                for (int i = 0; i < tripPatternForDate.numberOfTripSchedules(); i++, tripIndex++) {
+                    TripTimes tripTimes = tripPatternForDate.getTripTimes(i);
+
+                    for (int stopPos = 0; stopPos < numberOfStops; stopPos++) {
+                        int index = stopPos * numberOfTrips + tripIndex;
+                        departureTimes[index] = tripTimes.getDepartureTime(stopPos) + offset;
+                        arrivalTimes[index] = tripTimes.getArrivalTime(stopPos) + offset;
+                    }
+                }
+            }
+        }
+    }
 }
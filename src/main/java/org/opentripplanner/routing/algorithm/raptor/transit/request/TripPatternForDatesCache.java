@@ -0,0 +1,94 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.request;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache the {@link TripPatternForDatesIndex} for each service date window used by the requests,
+ * so the trip patterns for the window only need to be merged and indexed once, not once per
+ * request.
+ * <p>
+ * One cache instance is owned by each TransitLayer, so the transit layer is implicitly part of
+ * the cache key. When the TransitLayerUpdater creates and publishes a new realtime transit layer,
+ * the new layer starts with an empty cache and the cache of the replaced layer is cleared.
+ * <p>
+ * The number of date windows cached is bounded; if the limit is reached, the cache is cleared
+ * before the new window is added. Normally only a few windows around "today" are in use, so
+ * this should rarely happen.
+ * <p>
+ * This class is thread-safe.
+ */
+public class TripPatternForDatesCache {
+
+  private static final int MAX_NUMBER_OF_CACHED_DATE_WINDOWS = 10;
+
+  private final Map<DateWindow, TripPatternForDatesIndex> cache = new ConcurrentHashMap<>();
+
+  TripPatternForDatesIndex get(
+      LocalDate departureDate,
+      int additionalPastSearchDays,
+      int additionalFutureSearchDays,
+      Supplier<TripPatternForDatesIndex> createIndex
+  ) {
+    DateWindow key = new DateWindow(
+        departureDate,
+        additionalPastSearchDays,
+        additionalFutureSearchDays
+    );
+    TripPatternForDatesIndex index = cache.get(key);
+
+    if (index == null) {
+      if (cache.size() >= MAX_NUMBER_OF_CACHED_DATE_WINDOWS) {
+        cache.clear();
+      }
+      index = cache.computeIfAbsent(key, k -> createIndex.get());
+    }
+    return index;
+  }
+
+  /**
+   * Remove all cached date windows. Call this when the transit layer owning the cache is
+   * replaced, to release the memory as soon as possible.
+   */
+  public void clear() {
+    cache.clear();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  private static class DateWindow {
+    private final LocalDate departureDate;
+    private final int additionalPastSearchDays;
+    private final int additionalFutureSearchDays;
+
+    private DateWindow(
+        LocalDate departureDate,
+        int additionalPastSearchDays,
+        int additionalFutureSearchDays
+    ) {
+      this.departureDate = departureDate;
+      this.additionalPastSearchDays = additionalPastSearchDays;
+      this.additionalFutureSearchDays = additionalFutureSearchDays;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) { return true; }
+      if (o == null || getClass() != o.getClass()) { return false; }
+      DateWindow that = (DateWindow) o;
+      return additionalPastSearchDays == that.additionalPastSearchDays
+          && additionalFutureSearchDays == that.additionalFutureSearchDays
+          && departureDate.equals(that.departureDate);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(departureDate, additionalPastSearchDays, additionalFutureSearchDays);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.request;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * All {@link TripPatternForDates} active in a service date window, with the patterns visiting
+ * each stop indexed by stop index. The index is NOT filtered by request parameters like modes or
+ * banned routes; this is done by applying a cheap mask on top of it (see
+ * {@link RaptorRoutingRequestTransitData}). This allows the index to be created once and shared
+ * between all requests searching the same date window, see {@link TripPatternForDatesCache}.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+class TripPatternForDatesIndex {
+
+  /**
+   * All patterns in the date window, the position in the list is the pattern index used by
+   * {@link #patternIndexesForStop(int)}.
+   */
+  private final List<TripPatternForDates> patterns;
+
+  /**
+   * The index of all patterns visiting a stop, the outer array index is the stop index. Each
+   * pattern is only included once for each stop, even if it visits the stop more than once.
+   */
+  private final int[][] patternIndexesByStop;
+
+  TripPatternForDatesIndex(List<TripPatternForDates> patterns, int numberOfStops) {
+    this.patterns = List.copyOf(patterns);
+    this.patternIndexesByStop = createPatternIndexesByStop(this.patterns, numberOfStops);
+  }
+
+  int numberOfPatterns() {
+    return patterns.size();
+  }
+
+  TripPatternForDates getPattern(int patternIndex) {
+    return patterns.get(patternIndex);
+  }
+
+  int[] patternIndexesForStop(int stopIndex) {
+    return patternIndexesByStop[stopIndex];
+  }
+
+  private static int[][] createPatternIndexesByStop(
+      List<TripPatternForDates> patterns, int numberOfStops
+  ) {
+    TIntList[] patternIndexesByStop = new TIntList[numberOfStops];
+    BitSet visitedStops = new BitSet(numberOfStops);
+
+    for (int p = 0; p < patterns.size(); ++p) {
+      visitedStops.clear();
+      for (int stopIndex : patterns.get(p).getTripPattern().getStopIndexes()) {
+        if (visitedStops.get(stopIndex)) { continue; }
+        visitedStops.set(stopIndex);
+
+        if (patternIndexesByStop[stopIndex] == null) {
+          patternIndexesByStop[stopIndex] = new TIntArrayList();
+        }
+        patternIndexesByStop[stopIndex].add(p);
+      }
+    }
+
+    int[][] result = new int[numberOfStops][];
+    for (int s = 0; s < numberOfStops; ++s) {
+      result[s] = patternIndexesByStop[s] == null ? new int[0] : patternIndexesByStop[s].toArray();
+    }
+    return result;
+  }
+}
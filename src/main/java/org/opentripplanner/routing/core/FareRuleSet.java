@@ -37,6 +37,10 @@ public class FareRuleSet implements Serializable {
     public void addContains(String containsId) {
         contains.add(containsId);
     }
+
+    public Set<String> getContains() {
+        return contains;
+    }
     
     public void addRoute(FeedScopedId route) {
         routes.add(route);
@@ -10,6 +10,7 @@ import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.api.response.InputField;
 import org.opentripplanner.routing.api.response.RoutingError;
 import org.opentripplanner.routing.api.response.RoutingErrorCode;
+import org.opentripplanner.routing.edgetype.StreetCostProfile;
 import org.opentripplanner.routing.edgetype.StreetEdge;
 import org.opentripplanner.routing.edgetype.TemporaryFreeEdge;
 import org.opentripplanner.routing.edgetype.TemporaryPartialStreetEdge;
@@ -68,6 +69,14 @@ public class RoutingContext implements Cloneable {
     /** Indicates that a maximum slope constraint was specified but was removed during routing to produce a result. */
     public boolean slopeRestrictionRemoved = false;
 
+    /**
+     * The street cost profiles compiled for this search, two for each traverse mode: one for the
+     * request of this context and one for the last other request used, like the bike walking
+     * options.
+     */
+    private final StreetCostProfile[] streetCostProfiles =
+            new StreetCostProfile[2 * TraverseMode.values().length];
+
     /* CONSTRUCTORS */
 
     /**
@@ -292,6 +301,20 @@ public class RoutingContext implements Cloneable {
         }
     }
 
+    /**
+     * Return the street cost profile of the given request and mode, compiled the first time it
+     * is used in this context. A profile is compiled again if it was compiled for another request.
+     */
+    public StreetCostProfile getStreetCostProfile(RoutingRequest options, TraverseMode mode) {
+        int i = 2 * mode.ordinal() + (options == opt ? 0 : 1);
+        StreetCostProfile profile = streetCostProfiles[i];
+        if (profile == null || !profile.isCompiledFor(options, mode)) {
+            profile = StreetCostProfile.compile(options, mode);
+            streetCostProfiles[i] = profile;
+        }
+        return profile;
+    }
+
     /**
      * Tear down this routing context, removing any temporary edges from
      * the "permanent" graph objects. This enables all temporary objects
@@ -0,0 +1,121 @@
+package org.opentripplanner.routing.edgetype;
+
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.RoutingContext;
+import org.opentripplanner.routing.core.TraverseMode;
+
+/**
+ * The street parameters of a request for one traverse mode, compiled once for the search: the
+ * speed, the function used to compute the weight of a street and its factors, and the
+ * reluctances. {@link StreetEdge#traverse} reads them from here instead of branching on the
+ * request for every street it traverses.
+ * <p>
+ * The profiles are kept by the {@link RoutingContext}, see {@link #of(RoutingContext,
+ * RoutingRequest, TraverseMode)}, so the request must not be changed while it is searched.
+ */
+public final class StreetCostProfile {
+
+    /** How the weight of a street is computed from its distances and safety. */
+    enum WeightFunction {
+        /** The effective walk distance, used to walk, walk a bike and drive. */
+        DISTANCE,
+        /** The effective bike distance, whatever the mode. */
+        WHEELCHAIR,
+        BIKE_SAFE,
+        BIKE_GREENWAYS,
+        BIKE_FLAT,
+        BIKE_QUICK,
+        BIKE_TRIANGLE,
+        /** The flat distance, for the other optimize types. */
+        BIKE_DISTANCE
+    }
+
+    final RoutingRequest options;
+
+    final TraverseMode mode;
+
+    /** The speed of all streets, not used when driving, the speed depends on the street. */
+    final double speed;
+
+    final WeightFunction weightFunction;
+
+    final double walkReluctance;
+
+    final double stairsReluctance;
+
+    final double bikeTriangleTimeFactor;
+
+    final double bikeTriangleSlopeFactor;
+
+    final double bikeTriangleSafetyFactor;
+
+    private StreetCostProfile(RoutingRequest options, TraverseMode mode) {
+        this.options = options;
+        this.mode = mode;
+        this.speed = mode.isDriving() ? Double.NaN : options.getSpeed(mode);
+        this.weightFunction = weightFunction(options, mode);
+        this.walkReluctance = options.walkReluctance;
+        this.stairsReluctance = options.stairsReluctance;
+        this.bikeTriangleTimeFactor = options.bikeTriangleTimeFactor;
+        this.bikeTriangleSlopeFactor = options.bikeTriangleSlopeFactor;
+        this.bikeTriangleSafetyFactor = options.bikeTriangleSafetyFactor;
+    }
+
+    /** Compile the street parameters of the request for the given mode. */
+    public static StreetCostProfile compile(RoutingRequest options, TraverseMode mode) {
+        return new StreetCostProfile(options, mode);
+    }
+
+    /**
+     * Return the profile of the request for the given mode, compiled the first time it is used
+     * in the routing context. The request can be the request of the context or another request
+     * used in the same search, like its {@code bikeWalkingOptions}. Without a routing context
+     * the profile is compiled on each call.
+     */
+    public static StreetCostProfile of(RoutingContext rctx, RoutingRequest options, TraverseMode mode) {
+        if (rctx == null) {
+            return compile(options, mode);
+        }
+        return rctx.getStreetCostProfile(options, mode);
+    }
+
+    /** Return true if the speed depends on the street, see {@link StreetEdge#calculateSpeed}. */
+    boolean isDriving() {
+        return mode.isDriving();
+    }
+
+    /** Return true if this profile was compiled for the given request and mode. */
+    public boolean isCompiledFor(RoutingRequest options, TraverseMode mode) {
+        return this.options == options && this.mode == mode;
+    }
+
+    private static WeightFunction weightFunction(RoutingRequest options, TraverseMode mode) {
+        if (options.wheelchairAccessible) {
+            return WeightFunction.WHEELCHAIR;
+        }
+        if (mode != TraverseMode.BICYCLE) {
+            return WeightFunction.DISTANCE;
+        }
+        switch (options.optimize) {
+        case SAFE:
+            return WeightFunction.BIKE_SAFE;
+        case GREENWAYS:
+            return WeightFunction.BIKE_GREENWAYS;
+        case FLAT:
+            return WeightFunction.BIKE_FLAT;
+        case QUICK:
+            return WeightFunction.BIKE_QUICK;
+        case TRIANGLE:
+            return WeightFunction.BIKE_TRIANGLE;
+        default:
+            return WeightFunction.BIKE_DISTANCE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StreetCostProfile{mode: " + mode + ", speed: " + speed + ", weight: "
+                + weightFunction + ", walkReluctance: " + walkReluctance + ", stairsReluctance: "
+                + stairsReluctance + "}";
+    }
+}
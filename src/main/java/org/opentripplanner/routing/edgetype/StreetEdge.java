@@ -19,6 +19,7 @@ import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.core.TraverseModeSet;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.StreetGeometryFile;
 import org.opentripplanner.routing.vertextype.BarrierVertex;
 import org.opentripplanner.routing.vertextype.IntersectionVertex;
 import org.opentripplanner.routing.vertextype.OsmVertex;
@@ -91,6 +92,14 @@ public class StreetEdge extends Edge implements Cloneable {
     protected float bicycleSafetyFactor;
 
     private byte[] compactGeometry;
+
+    /**
+     * If set, the geometry is read from this file at {@link #geometryIndex} and
+     * {@link #compactGeometry} is {@code null}. See {@link StreetGeometryFile}.
+     */
+    private transient StreetGeometryFile geometryFile;
+
+    private transient int geometryIndex;
     
     private I18NString name;
 
@@ -348,77 +357,65 @@ public class StreetEdge extends Edge implements Cloneable {
             return null;
         }
 
+        // The street parameters of the request are compiled once for the search
+        StreetCostProfile costs = StreetCostProfile.of(s0.getContext(), options, traverseMode);
+
         // Automobiles have variable speeds depending on the edge type
-        double speed = calculateSpeed(options, traverseMode, s0.getTimeInMillis());
-        
+        double speed = costs.isDriving() ? calculateCarSpeed(options) : costs.speed;
+
         double time = getEffectiveWalkDistance() / speed;
         double weight;
-        // TODO(flamholz): factor out this bike, wheelchair and walking specific logic to somewhere central.
-        if (options.wheelchairAccessible) {
+        switch (costs.weightFunction) {
+        case WHEELCHAIR:
             weight = getEffectiveBikeDistance() / speed;
-        } else if (traverseMode.equals(TraverseMode.BICYCLE)) {
+            break;
+        case BIKE_SAFE:
             time = getEffectiveBikeDistance() / speed;
-            switch (options.optimize) {
-            case SAFE:
-                weight = bicycleSafetyFactor * getDistanceMeters() / speed;
-                break;
-            case GREENWAYS:
-                weight = bicycleSafetyFactor * getDistanceMeters() / speed;
-                if (bicycleSafetyFactor <= GREENWAY_SAFETY_FACTOR) {
-                    // greenways are treated as even safer than they really are
-                    weight *= 0.66;
-                }
-                break;
-            case FLAT:
-                /* see notes in StreetVertex on speed overhead */
-                weight = getDistanceMeters() / speed + getEffectiveBikeWorkCost();
-                break;
-            case QUICK:
-                weight = getEffectiveBikeDistance() / speed;
-                break;
-            case TRIANGLE:
-                double quick = getEffectiveBikeDistance();
-                double safety = bicycleSafetyFactor * getDistanceMeters();
-                // TODO This computation is not coherent with the one for FLAT
-                double slope = getEffectiveBikeWorkCost();
-                weight = quick * options.bikeTriangleTimeFactor + slope
-                        * options.bikeTriangleSlopeFactor + safety
-                        * options.bikeTriangleSafetyFactor;
-                weight /= speed;
-                break;
-            default:
-                weight = getDistanceMeters() / speed;
-            }
-        } else {
-            if (walkingBike) {
-                // take slopes into account when walking bikes
-                time = getEffectiveBikeDistance() / speed;
+            weight = bicycleSafetyFactor * getDistanceMeters() / speed;
+            break;
+        case BIKE_GREENWAYS:
+            time = getEffectiveBikeDistance() / speed;
+            weight = bicycleSafetyFactor * getDistanceMeters() / speed;
+            if (bicycleSafetyFactor <= GREENWAY_SAFETY_FACTOR) {
+                // greenways are treated as even safer than they really are
+                weight *= 0.66;
             }
+            break;
+        case BIKE_FLAT:
+            time = getEffectiveBikeDistance() / speed;
+            /* see notes in StreetVertex on speed overhead */
+            weight = getDistanceMeters() / speed + getEffectiveBikeWorkCost();
+            break;
+        case BIKE_QUICK:
+            time = getEffectiveBikeDistance() / speed;
+            weight = time;
+            break;
+        case BIKE_TRIANGLE:
+            time = getEffectiveBikeDistance() / speed;
+            double quick = getEffectiveBikeDistance();
+            double safety = bicycleSafetyFactor * getDistanceMeters();
+            // TODO This computation is not coherent with the one for FLAT
+            double slope = getEffectiveBikeWorkCost();
+            weight = quick * costs.bikeTriangleTimeFactor + slope
+                    * costs.bikeTriangleSlopeFactor + safety
+                    * costs.bikeTriangleSafetyFactor;
+            weight /= speed;
+            break;
+        case BIKE_DISTANCE:
+            time = getEffectiveBikeDistance() / speed;
+            weight = getDistanceMeters() / speed;
+            break;
+        default:
+            // Slopes are taken into account when walking, and when walking a bike, by the
+            // effective walk distance.
+            // FIXME: this causes steep stairs to be avoided. see #1297.
+            // The cost is the time, as in the current model it actually is the same (this can be
+            // checked for maxSlope == 0)
             weight = time;
-            if (traverseMode.equals(TraverseMode.WALK)) {
-                // take slopes into account when walking
-                // FIXME: this causes steep stairs to be avoided. see #1297.
-                double distance = getEffectiveWalkDistance();
-                weight = distance / speed;
-                time = weight; //treat cost as time, as in the current model it actually is the same (this can be checked for maxSlope == 0)
-                /*
-                // debug code
-                if(weight > 100){
-                    double timeflat = length_mm / speed;
-
-
-                    System.out.format("line length: %.1f m, slope: %.3f ---> distance: %.1f , weight: %.1f , time (flat):  %.1f %n", getDistance(), getMaxSlope(), distance, weight, timeflat);
-                }
-                */
-            }
         }
 
-        if (isStairs()) {
-            weight *= options.stairsReluctance;
-        } else {
-            // TODO: this is being applied even when biking or driving.
-            weight *= options.walkReluctance;
-        }
+        // TODO: the walk reluctance is being applied even when biking or driving.
+        weight *= isStairs() ? costs.stairsReluctance : costs.walkReluctance;
 
         StateEditor s1 = s0.edit(this);
         s1.setBackMode(traverseMode);
@@ -660,10 +657,35 @@ public class StreetEdge extends Edge implements Cloneable {
 	}
 
 	public LineString getGeometry() {
-		return CompactLineString.uncompactLineString(fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), compactGeometry, isBack());
+		return CompactLineString.uncompactLineString(fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), getPackedGeometry(), isBack());
+	}
+
+	/** The geometry in the {@link CompactLineString} encoding, read from the geometry file if mapped. */
+	public byte[] getPackedGeometry() {
+		StreetGeometryFile file = geometryFile;
+		return file == null ? compactGeometry : file.get(geometryIndex);
+	}
+
+	/**
+	 * Read the geometry of this edge from the given file from now on, and drop the copy kept by
+	 * the edge.
+	 */
+	public void mapGeometry(StreetGeometryFile file, int index) {
+		this.geometryIndex = index;
+		this.geometryFile = file;
+		this.compactGeometry = null;
+	}
+
+	/** Keep the geometry in the edge again, if it is read from a geometry file. */
+	public void unmapGeometry() {
+		if (geometryFile != null) {
+			compactGeometry = geometryFile.get(geometryIndex);
+			geometryFile = null;
+		}
 	}
 
 	private void setGeometry(LineString geometry) {
+		this.geometryFile = null;
 		this.compactGeometry = CompactLineString.compactLineString(fromv.getLon(), fromv.getLat(), tov.getLon(), tov.getLat(), isBack() ? (LineString)geometry.reverse() : geometry, isBack());
 	}
 
@@ -8,14 +8,18 @@ import org.slf4j.LoggerFactory;
 /**
  * Keeps account of timing information within the different parts of the routing process, and is
  * responsible of logging that information.
+ * <p>
+ * The direct, access and egress street searches may run in parallel with the rest of the routing,
+ * so they are timed separately in the thread doing the search. The other timings are taken in the
+ * request thread.
  */
 public class DebugAggregator {
   private static final Logger LOG = LoggerFactory.getLogger(DebugAggregator.class);
 
   private long startedCalculating;
   private long finishedPrecalculating;
-  private long finishedDirectStreetRouter;
 
+  private long startedTransitRouter;
   private long finishedPatternFiltering;
   private long finishedAccessEgress;
   private long finishedRaptorSearch;
@@ -28,6 +32,8 @@ public class DebugAggregator {
   private long directStreetRouterTime;
   private long tripPatternFilterTime;
   private long accessEgressTime;
+  private long accessTime;
+  private long egressTime;
   private long raptorSearchTime;
   private long itineraryCreationTime;
   private long transitRouterTime;
@@ -43,7 +49,7 @@ public class DebugAggregator {
   }
 
   /**
-   * Record the time when the worker initialization is done, and the direct street router starts.
+   * Record the time when the worker initialization is done, and the street searches starts.
    */
   public void finishedPrecalculating() {
     finishedPrecalculating = System.currentTimeMillis();
@@ -51,24 +57,44 @@ public class DebugAggregator {
     LOG.debug("Routing initialization took {} ms", directStreetRouterTime);
   }
 
-  /** Record the time when we finished the direct street router search. */
-  public void finishedDirectStreetRouter() {
-    finishedDirectStreetRouter = System.currentTimeMillis();
-    directStreetRouterTime = finishedDirectStreetRouter - finishedPrecalculating;
+  /**
+   * Record the time when we finished the direct street router search, started at the given time.
+   */
+  public void finishedDirectStreetRouter(long startTime) {
+    directStreetRouterTime = System.currentTimeMillis() - startTime;
     LOG.debug("Direct street routing took {} ms", directStreetRouterTime);
   }
 
+  /** Record the time when we finished the access street search, started at the given time. */
+  public void finishedAccessSearch(long startTime) {
+    accessTime = System.currentTimeMillis() - startTime;
+    LOG.debug("Access routing took {} ms", accessTime);
+  }
+
+  /** Record the time when we finished the egress street search, started at the given time. */
+  public void finishedEgressSearch(long startTime) {
+    egressTime = System.currentTimeMillis() - startTime;
+    LOG.debug("Egress routing took {} ms", egressTime);
+  }
+
+  /** Record the time when the transit router starts. */
+  public void startedTransitRouter() {
+    startedTransitRouter = System.currentTimeMillis();
+  }
+
   /**
    * Record the time when we are finished with the creation of the raptor data models.
    */
   public void finishedPatternFiltering() {
     finishedPatternFiltering = System.currentTimeMillis();
-    tripPatternFilterTime = finishedPatternFiltering - finishedDirectStreetRouter;
+    tripPatternFilterTime = finishedPatternFiltering - startedTransitRouter;
     LOG.debug("Filtering tripPatterns took {} ms", tripPatternFilterTime);
   }
 
   /**
-   * Record the time when we are finished with the access and egress routing.
+   * Record the time when we are finished with the access and egress routing. If the access and
+   * egress searches run in parallel, this is the time spent waiting for them after the pattern
+   * filtering is done.
    */
   public void finishedAccessEgress() {
     finishedAccessEgress = System.currentTimeMillis();
@@ -96,7 +122,7 @@ public class DebugAggregator {
   /** Record the time when we finished the tranist router search */
   public void finishedTransitRouter() {
     finishedTransitRouter = System.currentTimeMillis();
-    transitRouterTime = finishedTransitRouter - finishedDirectStreetRouter;
+    transitRouterTime = finishedTransitRouter - startedTransitRouter;
     LOG.debug("Transit routing took total {} ms", transitRouterTime);
   }
 
@@ -107,6 +133,17 @@ public class DebugAggregator {
     LOG.debug("Filtering took {} ms", transitRouterTime);
   }
 
+  /**
+   * Record that the response was found in a cache, right after {@link #startedCalculating()}. All
+   * the routing steps are then recorded as done at this time.
+   */
+  public void finishedFromCache() {
+    finishedPrecalculating = startedTransitRouter = finishedTransitRouter = finishedFiltering =
+        System.currentTimeMillis();
+    precalculationTime = finishedPrecalculating - startedCalculating;
+    LOG.debug("Found the response in the cache in {} ms", precalculationTime);
+  }
+
   /** Record the time when we finished converting the internal model to API classes */
   public DebugOutput finishedRendering() {
     finishedRendering = System.currentTimeMillis();
@@ -129,6 +166,8 @@ public class DebugAggregator {
         new TransitTimingOutput(
             tripPatternFilterTime,
             accessEgressTime,
+            accessTime,
+            egressTime,
             raptorSearchTime,
             itineraryCreationTime
         )
@@ -24,6 +24,9 @@ public abstract class Edge implements Serializable {
 
     protected Vertex tov;
 
+    /** The position of the edge in the {@link EdgeRegistry} of the graph. */
+    transient int registryIndex = -1;
+
     protected Edge(Vertex v1, Vertex v2) {
         if (v1 == null || v2 == null) {
             String err = String.format("%s constructed with null vertex : %s %s", this.getClass(),
@@ -0,0 +1,179 @@
+package org.opentripplanner.routing.graph;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The edges of a graph, kept in one dense array for each edge class. Each edge knows its position
+ * in the array of its class, so edges are added and removed in constant time. The edges of a
+ * given type are returned as a view on the arrays of the matching classes, without copying them.
+ * <p>
+ * The graph adds an edge when it is added to the outgoing edges of one of its vertices, and
+ * removes it when it is removed from them, see {@link Vertex#addOutgoing(Edge)}. Temporary edges
+ * created for a request are not registered.
+ * <p>
+ * The changes are synchronized, but the views are not: a view must not be iterated while the
+ * graph is changed, the iterator throws a {@link ConcurrentModificationException} if it is.
+ */
+class EdgeRegistry {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<Class<?>, EdgeArray> arraysByClass = new LinkedHashMap<>();
+
+    private int size = 0;
+
+    /** Incremented each time an edge is added or removed, to detect changes while iterating. */
+    private volatile int modCount = 0;
+
+    synchronized void add(Edge edge) {
+        EdgeArray array = arraysByClass.computeIfAbsent(edge.getClass(), it -> new EdgeArray());
+        if (array.contains(edge)) {
+            return;
+        }
+        array.add(edge);
+        ++size;
+        ++modCount;
+    }
+
+    synchronized void remove(Edge edge) {
+        EdgeArray array = arraysByClass.get(edge.getClass());
+        if (array == null || !array.contains(edge)) {
+            return;
+        }
+        array.remove(edge);
+        --size;
+        ++modCount;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /** Return a view on the registered edges which are instances of the given type. */
+    <T extends Edge> Collection<T> view(Class<T> type) {
+        return new View<>(type);
+    }
+
+    private synchronized List<EdgeArray> arraysOf(Class<?> type) {
+        List<EdgeArray> result = new ArrayList<>();
+        for (Map.Entry<Class<?>, EdgeArray> it : arraysByClass.entrySet()) {
+            if (type.isAssignableFrom(it.getKey())) {
+                result.add(it.getValue());
+            }
+        }
+        return result;
+    }
+
+    /** The edges of one class. */
+    private static class EdgeArray {
+        private Edge[] edges = new Edge[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private boolean contains(Edge edge) {
+            int i = edge.registryIndex;
+            return i >= 0 && i < size && edges[i] == edge;
+        }
+
+        private void add(Edge edge) {
+            if (size == edges.length) {
+                edges = Arrays.copyOf(edges, size + (size >> 1));
+            }
+            edge.registryIndex = size;
+            edges[size++] = edge;
+        }
+
+        /** Move the last edge to the position of the removed edge. */
+        private void remove(Edge edge) {
+            int i = edge.registryIndex;
+            Edge last = edges[--size];
+            edges[i] = last;
+            last.registryIndex = i;
+            edges[size] = null;
+            edge.registryIndex = -1;
+        }
+    }
+
+    private class View<T extends Edge> extends AbstractCollection<T> {
+
+        private final Class<T> type;
+
+        private View(Class<T> type) {
+            this.type = type;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new ViewIterator<>(arraysOf(type), modCount);
+        }
+
+        @Override
+        public int size() {
+            int result = 0;
+            for (EdgeArray array : arraysOf(type)) {
+                result += array.size;
+            }
+            return result;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!type.isInstance(o)) {
+                return false;
+            }
+            EdgeArray array;
+            synchronized (EdgeRegistry.this) {
+                array = arraysByClass.get(o.getClass());
+            }
+            return array != null && array.contains((Edge) o);
+        }
+    }
+
+    private class ViewIterator<T extends Edge> implements Iterator<T> {
+
+        private final List<EdgeArray> arrays;
+        private final int expectedModCount;
+        private int arrayIndex = 0;
+        private int edgeIndex = 0;
+
+        private ViewIterator(List<EdgeArray> arrays, int expectedModCount) {
+            this.arrays = arrays;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            checkForChanges();
+            while (arrayIndex < arrays.size() && edgeIndex >= arrays.get(arrayIndex).size) {
+                ++arrayIndex;
+                edgeIndex = 0;
+            }
+            return arrayIndex < arrays.size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (T) arrays.get(arrayIndex).edges[edgeIndex++];
+        }
+
+        private void checkForChanges() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException(
+                        "The graph edges were changed while iterating over them."
+                );
+            }
+        }
+    }
+}
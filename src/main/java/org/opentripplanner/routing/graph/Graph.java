@@ -4,8 +4,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -49,9 +49,13 @@ import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
 import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerUpdater;
 import org.opentripplanner.routing.bike_rental.BikeRentalStationService;
 import org.opentripplanner.routing.core.TransferTable;
+import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.edgetype.EdgeWithCleanup;
 import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.TemporaryEdge;
+import org.opentripplanner.routing.graph.landmark.Landmarks;
 import org.opentripplanner.routing.impl.DelegatingTransitAlertServiceImpl;
+import org.opentripplanner.routing.impl.EdgeSpatialIndex;
 import org.opentripplanner.routing.impl.StreetVertexIndex;
 import org.opentripplanner.routing.services.TransitAlertService;
 import org.opentripplanner.routing.services.notes.StreetNotesService;
@@ -125,10 +129,31 @@ public class Graph implements Serializable {
     /* Ideally we could just get rid of vertex labels, but they're used in tests and graph building. */
     private Map<String, Vertex> vertices = new ConcurrentHashMap<>();
 
+    /** The edges of the graph, see {@link #getEdges()}. */
+    private transient EdgeRegistry edgeRegistry = new EdgeRegistry();
+
+    /** The index assigned to the next vertex added to the graph, see {@link Vertex#getIndex()}. */
+    private int vertexIndexSize = 0;
+
+    /**
+     * Incremented each time vertices or edges are added to or removed from the street network, or
+     * the street notes change, see {@link #getStreetVersion()}.
+     */
+    private long streetVersion = 0;
+
+    /**
+     * Incremented each time the realtime transit data or the transit alerts change, see
+     * {@link #getRealtimeVersion()}.
+     */
+    private transient long realtimeVersion = 0;
+
     private transient CalendarService calendarService;
 
     public transient StreetVertexIndex streetIndex;
 
+    /** The spatial index of the edges, see {@link #getEdgeSpatialIndex()}. */
+    private transient EdgeSpatialIndex edgeSpatialIndex;
+
     public transient GraphIndex index;
 
     public final transient Deduplicator deduplicator = new Deduplicator();
@@ -231,8 +256,11 @@ public class Graph implements Serializable {
     /** Interlining relationships between trips. */
     public final BiMap<Trip,Trip> interlinedTrips = HashBiMap.create();
 
-    /** Pre-generated transfers between all stops. */
-    public final Multimap<Stop, SimpleTransfer> transfersByStop = HashMultimap.create();
+    /**
+     * Pre-generated transfers between all stops. The transfers of each stop are kept in the order
+     * they are added, so the transit layer gets them in the same order on every build.
+     */
+    public final Multimap<Stop, SimpleTransfer> transfersByStop = LinkedHashMultimap.create();
 
     /** The distance between elevation samples used in CompactElevationProfile. */
     private double distanceBetweenElevationSamples;
@@ -270,6 +298,11 @@ public class Graph implements Serializable {
         return timetableSnapshotProvider == null ? null : timetableSnapshotProvider.getTimetableSnapshot();
     }
 
+    /** The provider of realtime timetable snapshots, or null if no realtime updaters are set up. */
+    public TimetableSnapshotProvider getTimetableSnapshotProvider() {
+        return timetableSnapshotProvider;
+    }
+
     /**
      * TODO OTP2 - This should be replaced by proper dependency injection
      */
@@ -302,6 +335,14 @@ public class Graph implements Serializable {
      */
     public void addVertex(Vertex v) {
         Vertex old = vertices.put(v.getLabel(), v);
+        if (old != v) {
+            v.setIndex(nextVertexIndex());
+            attach(v);
+            if (old != null) {
+                detach(old);
+            }
+            streetsModified();
+        }
         if (old != null) {
             if (old == v)
                 LOG.error("repeatedly added the same vertex: {}", v);
@@ -310,12 +351,91 @@ public class Graph implements Serializable {
         }
     }
 
+    /**
+     * All vertex indexes are less than this number, see {@link Vertex#getIndex()}. Use it to size
+     * arrays indexed by vertex index. Vertices added to the graph after the array is created get
+     * an index outside the array, so the user must handle that case.
+     */
+    public synchronized int getVertexIndexSize() {
+        return vertexIndexSize;
+    }
+
+    private synchronized int nextVertexIndex() {
+        return vertexIndexSize++;
+    }
+
+    /**
+     * The version of the street network. Caches of street search results compare it with the
+     * version when the result was cached to detect stale entries. Temporary vertices and edges
+     * created for a request do not change the version.
+     */
+    public synchronized long getStreetVersion() {
+        return streetVersion;
+    }
+
+    /**
+     * Signal that the street network or the street notes have changed. This is done by the graph
+     * when vertices and edges are added or removed, graph updaters changing the streets in other
+     * ways must call this.
+     */
+    public synchronized void streetsModified() {
+        ++streetVersion;
+    }
+
+    /**
+     * The version of the realtime data used by the transit searches: the realtime transit layer
+     * and the transit alerts. Caches of search results compare it with the version when the
+     * result was cached to detect stale entries.
+     */
+    public synchronized long getRealtimeVersion() {
+        return realtimeVersion;
+    }
+
+    /**
+     * Signal that the realtime transit data or the transit alerts have changed. This is done by
+     * the graph when a new transit layer is set, and by the alert services.
+     */
+    public synchronized void realtimeDataModified() {
+        ++realtimeVersion;
+    }
+
+    /**
+     * The spatial index of all edges with a geometry, shared by the street index, the linking
+     * done by the graph builder and the graph updaters. It is created the first time it is used,
+     * and created again when the graph is indexed. Edges split by a linker are replaced in the
+     * index, so the split is seen by all users of the index.
+     */
+    public synchronized EdgeSpatialIndex getEdgeSpatialIndex() {
+        if (edgeSpatialIndex == null) {
+            edgeSpatialIndex = new EdgeSpatialIndex(this);
+        }
+        return edgeSpatialIndex;
+    }
+
+    private synchronized void rebuildEdgeSpatialIndex() {
+        edgeSpatialIndex = new EdgeSpatialIndex(this);
+    }
+
+    /**
+     * Assign a new dense index to all vertices, removing the holes left by vertices removed from
+     * the graph. This must not be done while searches are running, because they may keep state
+     * in arrays indexed by the old vertex indexes.
+     */
+    private synchronized void compactVertexIndexes() {
+        int index = 0;
+        for (Vertex v : getVertices()) {
+            v.setIndex(index++);
+        }
+        vertexIndexSize = index;
+    }
+
     /**
      * Removes an edge from the graph. This method is not thread-safe.
      * @param e The edge to be removed
      */
     public void removeEdge(Edge e) {
         if (e != null) {
+            streetsModified();
             turnRestrictions.remove(e);
             streetNotesService.removeStaticNotes(e);
 
@@ -357,14 +477,63 @@ public class Graph implements Serializable {
     }
 
     /**
-     * Return all the edges in the graph. Derived from vertices on demand.
+     * Return all the edges in the graph, except the temporary edges created for a request. This
+     * is a view on the edges of the graph, not a copy: it must not be iterated while the graph is
+     * changed, copy it first to change the graph while iterating.
      */
     public Collection<Edge> getEdges() {
-        Set<Edge> edges = new HashSet<>();
-        for (Vertex v : this.getVertices()) {
-            edges.addAll(v.getOutgoing());
+        return edgeRegistry.view(Edge.class);
+    }
+
+    /**
+     * Return the edges of the graph which are instances of the given type, like
+     * {@link #getEdges()}.
+     */
+    public <T extends Edge> Collection<T> getEdgesOfType(Class<T> type) {
+        return edgeRegistry.view(type);
+    }
+
+    /** Register the edge added to the outgoing edges of one of the vertices of the graph. */
+    void edgeAdded(Edge edge) {
+        if (!(edge instanceof TemporaryEdge)) {
+            edgeRegistry.add(edge);
+            streetsModified();
+        }
+    }
+
+    /** Remove the edge removed from the outgoing edges of one of the vertices of the graph. */
+    void edgeRemoved(Edge edge) {
+        if (!(edge instanceof TemporaryEdge)) {
+            edgeRegistry.remove(edge);
+            streetsModified();
+        }
+    }
+
+    /** Register the outgoing edges of a vertex added to the graph. */
+    private void attach(Vertex v) {
+        v.setGraph(this);
+        for (Edge e : v.getOutgoing()) {
+            edgeAdded(e);
+        }
+    }
+
+    /** Remove the outgoing edges of a vertex removed from the graph. */
+    private void detach(Vertex v) {
+        v.setGraph(null);
+        for (Edge e : v.getOutgoing()) {
+            edgeRemoved(e);
+        }
+    }
+
+    /**
+     * Register the edges of all vertices again. The edge lists of the vertices are not
+     * serialized, this must be done when they are recreated after loading the graph.
+     */
+    void reconstructEdgeRegistry() {
+        edgeRegistry = new EdgeRegistry();
+        for (Vertex v : getVertices()) {
+            attach(v);
         }
-        return edges;
     }
 
     /**
@@ -419,12 +588,20 @@ public class Graph implements Serializable {
     }
 
     /**
-     * Return only the StreetEdges in the graph.
-     * @return
+     * Return true if some of the turn restrictions for the given mode are only in force at certain
+     * times. The result of a street search with the mode then depends on the time of the search.
+     */
+    public boolean hasTimeLimitedTurnRestrictions(TraverseMode mode) {
+        return turnRestrictions.values().stream()
+                .flatMap(List::stream)
+                .anyMatch(it -> it.time != null && it.modes.contains(mode));
+    }
+
+    /**
+     * Return only the StreetEdges in the graph. This is a view, like {@link #getEdges()}.
      */
     public Collection<StreetEdge> getStreetEdges() {
-        Collection<Edge> allEdges = this.getEdges();
-        return Lists.newArrayList(Iterables.filter(allEdges, StreetEdge.class));
+        return getEdgesOfType(StreetEdge.class);
     }
 
     public TransitLayer getTransitLayer() {
@@ -435,6 +612,7 @@ public class Graph implements Serializable {
         TransitLayer transitLayer
     ) {
         this.transitLayer = transitLayer;
+        realtimeDataModified();
     }
 
     public TransitLayer getRealtimeTransitLayer() {
@@ -449,6 +627,7 @@ public class Graph implements Serializable {
         TransitLayer realtimeTransitLayer
     ) {
         this.realtimeTransitLayer.publish(realtimeTransitLayer);
+        realtimeDataModified();
     }
 
     public boolean containsVertex(Vertex v) {
@@ -484,7 +663,11 @@ public class Graph implements Serializable {
     }
 
     public void remove(Vertex vertex) {
-        vertices.remove(vertex.getLabel());
+        Vertex removed = vertices.remove(vertex.getLabel());
+        if (removed != null) {
+            detach(removed);
+        }
+        streetsModified();
     }
 
     public void removeVertexAndEdges(Vertex vertex) {
@@ -574,11 +757,7 @@ public class Graph implements Serializable {
      * @return number of outgoing edges in the graph
      */
     public int countEdges() {
-        int ne = 0;
-        for (Vertex v : getVertices()) {
-            ne += v.getDegreeOut();
-        }
-        return ne;
+        return edgeRegistry.size();
     }
 
     private void readObject(ObjectInputStream inputStream) throws ClassNotFoundException, IOException {
@@ -606,6 +785,12 @@ public class Graph implements Serializable {
      */
     public void index () {
         LOG.info("Index graph...");
+        compactVertexIndexes();
+        Landmarks landmarks = getService(Landmarks.class);
+        if (landmarks != null) {
+            landmarks.index();
+        }
+        rebuildEdgeSpatialIndex();
         streetIndex = new StreetVertexIndex(this);
         LOG.debug("Rebuilding edge and vertex indices.");
         for (TripPattern tp : tripPatternForId.values()) {
@@ -23,6 +23,7 @@ import org.opentripplanner.model.Trip;
 import org.opentripplanner.model.TripPattern;
 import org.opentripplanner.model.calendar.CalendarService;
 import org.opentripplanner.model.calendar.ServiceDate;
+import org.opentripplanner.routing.StopDepartureIndex;
 import org.opentripplanner.routing.vertextype.TransitStopVertex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +53,7 @@ public class GraphIndex {
     private final Map<Station, MultiModalStation> multiModalStationForStations = Maps.newHashMap();
     private final HashGridSpatialIndex<TransitStopVertex> stopSpatialIndex = new HashGridSpatialIndex<>();
     private final Map<ServiceDate, TIntSet> serviceCodesRunningForDate = new HashMap<>();
+    private final StopDepartureIndex stopDepartureIndex = new StopDepartureIndex();
 
     public GraphIndex(Graph graph) {
         LOG.info("GraphIndex init...");
@@ -139,6 +141,11 @@ public class GraphIndex {
         }
     }
 
+    /** The sorted departures from each stop, computed when the stop is queried. */
+    public StopDepartureIndex getStopDepartureIndex() {
+        return stopDepartureIndex;
+    }
+
     public Agency getAgencyForId(FeedScopedId id) {
         return agencyForId.get(id);
     }
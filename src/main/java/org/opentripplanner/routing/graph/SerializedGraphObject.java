@@ -11,16 +11,20 @@ import com.esotericsoftware.kryo.serializers.JavaSerializer;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.LinkedHashMultimap;
 import de.javakaffee.kryoserializers.UnmodifiableCollectionsSerializer;
 import de.javakaffee.kryoserializers.guava.HashMultimapSerializer;
+import de.javakaffee.kryoserializers.guava.LinkedHashMultimapSerializer;
 import gnu.trove.impl.hash.TPrimitiveHash;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntIntHashMap;
 import org.objenesis.strategy.SerializingInstantiatorStrategy;
 import org.opentripplanner.datastore.DataSource;
+import org.opentripplanner.datastore.file.FileDataSource;
 import org.opentripplanner.kryo.BuildConfigSerializer;
 import org.opentripplanner.kryo.HashBiMapSerializer;
 import org.opentripplanner.kryo.RouterConfigSerializer;
+import org.opentripplanner.routing.edgetype.StreetEdge;
 import org.opentripplanner.standalone.config.BuildConfig;
 import org.opentripplanner.standalone.config.RouterConfig;
 import org.opentripplanner.util.OtpAppException;
@@ -37,23 +41,32 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 
 /**
  * This is the class that get serialized/deserialized into/from the file <em>graph.obj</em>.
  * <p>
- * The Graph object does not contain a collection of edges. The set of edges is generated on demand
- * from the vertices. However, when serializing, we intentionally do not serialize the vertices'
+ * The collection of edges kept by the Graph object is not serialized, it is rebuilt from the
+ * vertices. However, when serializing, we intentionally do not serialize the vertices'
  * edge lists to prevent excessive recursion. So we need to save the edges along with the graph. We
  * used to make two serialization calls, one for the graph and one for the edges. But we need the
  * serializer to know that vertices referenced by the edges are the same vertices stored in the
  * graph itself. The easiest way to do this is to make only one serialization call, serializing a
  * single object that contains both the graph and the edge collection.
+ * <p>
+ * If {@link BuildConfig#mapStreetGeometries} is set and the graph is saved to a local file, the
+ * street edge geometries are saved in a {@link StreetGeometryFile} next to it instead, and that
+ * file is mapped into memory when the graph is loaded.
  */
 public class SerializedGraphObject implements Serializable {
     private static final Logger LOG = LoggerFactory.getLogger(SerializedGraphObject.class);
 
+    private static final String STREET_GEOMETRY_FILE_SUFFIX = ".geometry";
+
     public final Graph graph;
 
     private final Collection<Edge> edges;
@@ -64,9 +77,15 @@ public class SerializedGraphObject implements Serializable {
     /** Embed a router configuration inside the graph, for starting up with a single file. */
     public final RouterConfig routerConfig;
 
+    /**
+     * The id of the {@link StreetGeometryFile} saved with the graph, or 0 if the street geometries
+     * are saved in the graph itself.
+     */
+    private long streetGeometryFileId = 0;
+
     public SerializedGraphObject(Graph graph, BuildConfig buildConfig, RouterConfig routerConfig) {
         this.graph = graph;
-        this.edges = graph.getEdges();
+        this.edges = new ArrayList<>(graph.getEdges());
         this.buildConfig = buildConfig;
         this.routerConfig = routerConfig;
     }
@@ -85,7 +104,17 @@ public class SerializedGraphObject implements Serializable {
     }
 
     public static SerializedGraphObject load(DataSource source) {
-        return load(source.asInputStream(), source.path());
+        SerializedGraphObject serObj = load(source.asInputStream(), source.path());
+        if (serObj != null && serObj.streetGeometryFileId != 0) {
+            if (!(source instanceof FileDataSource)) {
+                throw new OtpAppException(
+                        "The street geometries of the graph are saved in a separate file, which "
+                        + "can only be read next to a local graph file. Graph: " + source.path()
+                );
+            }
+            serObj.loadStreetGeometries(new File(source.path()));
+        }
+        return serObj;
     }
 
     public static Graph load(File file) {
@@ -94,7 +123,13 @@ public class SerializedGraphObject implements Serializable {
                     new FileInputStream(file),
                     file.getAbsolutePath()
             );
-            return serObj == null ? null : serObj.graph;
+            if (serObj == null) {
+                return null;
+            }
+            if (serObj.streetGeometryFileId != 0) {
+                serObj.loadStreetGeometries(file);
+            }
+            return serObj.graph;
         } catch (FileNotFoundException e) {
             LOG.error("Graph file not found: " + file, e);
             throw new OtpAppException(e.getMessage());
@@ -116,6 +151,7 @@ public class SerializedGraphObject implements Serializable {
             fromVertex.addOutgoing(e);
             toVertex.addIncoming(e);
         }
+        graph.reconstructEdgeRegistry();
     }
 
     /**
@@ -123,7 +159,11 @@ public class SerializedGraphObject implements Serializable {
      */
     public void save(@Nullable DataSource target) {
         if (target != null) {
-            save(target.asOutputStream(), target.name(), target.size());
+            File geometryFile = null;
+            if (target instanceof FileDataSource && isMapStreetGeometries()) {
+                geometryFile = streetGeometryFile(new File(target.path()));
+            }
+            save(target.asOutputStream(), target.name(), target.size(), geometryFile);
         } else {
             LOG.info("Not saving graph to disk, as requested.");
         }
@@ -135,7 +175,8 @@ public class SerializedGraphObject implements Serializable {
      */
     public void saveToFile(File file) throws IOException {
         try {
-            save(new FileOutputStream(file), file.getName(), file.length());
+            File geometryFile = isMapStreetGeometries() ? streetGeometryFile(file) : null;
+            save(new FileOutputStream(file), file.getName(), file.length(), geometryFile);
         } catch (Exception e) {
             // remove half-written file
             file.deleteOnExit();
@@ -175,6 +216,7 @@ public class SerializedGraphObject implements Serializable {
         // init method that creates the two internal maps. So we have to subclass the generic Map serializer.
         kryo.register(HashBiMap.class, new HashBiMapSerializer());
         kryo.register(HashMultimap.class, new HashMultimapSerializer());
+        kryo.register(LinkedHashMultimap.class, new LinkedHashMultimapSerializer());
 
         // Add serializers for "immutable" config classes
         kryo.register(RouterConfig.class, new RouterConfigSerializer());
@@ -227,7 +269,13 @@ public class SerializedGraphObject implements Serializable {
         }
     }
 
-    private void save(OutputStream outputStream, String graphName, long size) {
+    private void save(
+            OutputStream outputStream,
+            String graphName,
+            long size,
+            @Nullable File geometryFile
+    ) {
+        saveStreetGeometries(geometryFile);
         LOG.info("Writing graph " + graphName + " ...");
         outputStream = wrapOutputStreamWithProgressTracker(outputStream, size);
         Kryo kryo = makeKryo();
@@ -239,6 +287,87 @@ public class SerializedGraphObject implements Serializable {
         // ((InstanceCountingClassResolver) kryo.getClassResolver()).summarize();
     }
 
+    private boolean isMapStreetGeometries() {
+        return buildConfig != null && buildConfig.mapStreetGeometries;
+    }
+
+    private List<StreetEdge> streetEdges() {
+        List<StreetEdge> result = new ArrayList<>();
+        for (Edge e : edges) {
+            if (e instanceof StreetEdge) {
+                result.add((StreetEdge) e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write the street geometries to the given file and read them from there from now on, so
+     * they are left out of the serialized graph. If the file is {@code null} the geometries are
+     * serialized with the graph. The geometries of a loaded graph may be mapped from the file of
+     * an earlier save, they are read back into the edges first.
+     */
+    private void saveStreetGeometries(@Nullable File geometryFile) {
+        List<StreetEdge> streetEdges = streetEdges();
+        for (StreetEdge e : streetEdges) {
+            e.unmapGeometry();
+        }
+        streetGeometryFileId = 0;
+        if (geometryFile == null) {
+            return;
+        }
+        LOG.info("Writing street geometries " + geometryFile.getName() + " ...");
+        List<byte[]> geometries = new ArrayList<>(streetEdges.size());
+        for (StreetEdge e : streetEdges) {
+            geometries.add(e.getPackedGeometry());
+        }
+        long id = new Random().nextLong();
+        if (id == 0) {
+            id = 1;
+        }
+        try {
+            StreetGeometryFile.write(geometryFile, id, geometries);
+            mapStreetGeometries(StreetGeometryFile.map(geometryFile, id, streetEdges.size()));
+        }
+        catch (IOException e) {
+            throw new RuntimeException(
+                    "Failed to write street geometries " + geometryFile + ": " + e.getLocalizedMessage(),
+                    e
+            );
+        }
+        streetGeometryFileId = id;
+        LOG.info("Street geometries written: {}", geometryFile.getName());
+    }
+
+    private static File streetGeometryFile(File graphFile) {
+        return new File(graphFile.getPath() + STREET_GEOMETRY_FILE_SUFFIX);
+    }
+
+    private void loadStreetGeometries(File graphFile) {
+        File geometryFile = streetGeometryFile(graphFile);
+        try {
+            mapStreetGeometries(
+                    StreetGeometryFile.map(geometryFile, streetGeometryFileId, streetEdges().size())
+            );
+            LOG.info("Street geometries mapped from '{}'", geometryFile.getPath());
+        }
+        catch (IOException e) {
+            LOG.error("Exception while mapping street geometries: {}", e.getLocalizedMessage(), e);
+            throw new OtpAppException(
+                    "Unable to load graph. The street geometries could not be read from "
+                    + geometryFile + ", it must be saved together with the graph: "
+                    + e.getLocalizedMessage()
+            );
+        }
+    }
+
+    private void mapStreetGeometries(StreetGeometryFile file) {
+        int index = 0;
+        for (StreetEdge e : streetEdges()) {
+            e.mapGeometry(file, index++);
+        }
+    }
+
     @SuppressWarnings("Convert2MethodRef")
     private static OutputStream wrapOutputStreamWithProgressTracker(OutputStream outputStream, long size) {
         return ProgressTracker.track(
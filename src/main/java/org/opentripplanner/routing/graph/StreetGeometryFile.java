@@ -0,0 +1,156 @@
+package org.opentripplanner.routing.graph;
+
+import org.opentripplanner.common.geometry.CompactLineString;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * A file holding the packed street edge geometries ({@link CompactLineString} encoding) of a
+ * graph, saved next to the <em>graph.obj</em> file. The geometries are the largest part of a
+ * street graph, and they are only needed to build the itineraries, not by the street search.
+ * <p>
+ * The file is opened with {@link FileChannel#map} and the geometries are read from the mapped
+ * pages when they are asked for. Loading a graph does not deserialize them, they are not kept in
+ * the heap, and routers on the same host share the pages through the page cache.
+ * <p>
+ * The format is a header followed by two columns, all big-endian:
+ * <pre>
+ * int    MAGIC
+ * int    VERSION
+ * long   id of the graph this file belongs to
+ * int    number of geometries (n)
+ * int[]  n + 1 offsets into the data column
+ * byte[] the packed geometries, one after the other
+ * </pre>
+ * A {@code null} geometry is stored with length 0, and is read back as
+ * {@link CompactLineString#STRAIGHT_LINE_PACKED}; both decode to a straight line.
+ */
+public class StreetGeometryFile {
+
+    /** "OTPG" */
+    private static final int MAGIC = 0x4F545047;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    private final ByteBuffer buffer;
+
+    private final int size;
+
+    private final int dataStart;
+
+    private StreetGeometryFile(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+        this.dataStart = HEADER_SIZE + 4 * (size + 1);
+    }
+
+    /**
+     * Write the given packed geometries to the file, in the given order. The {@code id} is
+     * checked when the file is mapped, so a graph is never read with the geometries of another.
+     */
+    public static void write(File file, long id, List<byte[]> geometries) throws IOException {
+        long dataSize = 0;
+        for (byte[] geometry : geometries) {
+            dataSize += geometry == null ? 0 : geometry.length;
+        }
+        if (HEADER_SIZE + 4L * (geometries.size() + 1) + dataSize > Integer.MAX_VALUE) {
+            throw new IOException(
+                "The street geometries do not fit in a single mapped file: " + file
+            );
+        }
+        try (
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16)
+            )
+        ) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(id);
+            out.writeInt(geometries.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] geometry : geometries) {
+                offset += geometry == null ? 0 : geometry.length;
+                out.writeInt(offset);
+            }
+            for (byte[] geometry : geometries) {
+                if (geometry != null) {
+                    out.write(geometry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Map the file read-only. The file must have been written with the same {@code id} and
+     * hold {@code expectedSize} geometries.
+     */
+    public static StreetGeometryFile map(File file, long id, int expectedSize) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a street geometry file: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a street geometry file: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(
+                "Unsupported street geometry file version " + buffer.getInt(4) + ": " + file
+            );
+        }
+        if (buffer.getLong(8) != id) {
+            throw new IOException("The street geometry file does not belong to the graph: " + file);
+        }
+        int size = buffer.getInt(16);
+        if (size != expectedSize) {
+            throw new IOException(
+                "The street geometry file holds " + size + " geometries, the graph has "
+                    + expectedSize + ": " + file
+            );
+        }
+        StreetGeometryFile geometryFile = new StreetGeometryFile(buffer, size);
+        if (geometryFile.dataStart + geometryFile.offset(size) != buffer.capacity()) {
+            throw new IOException("The street geometry file is truncated: " + file);
+        }
+        return geometryFile;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Read the packed geometry at the given index. This is safe to call from several threads.
+     */
+    public byte[] get(int index) {
+        int start = offset(index);
+        int length = offset(index + 1) - start;
+        if (length == 0) {
+            return CompactLineString.STRAIGHT_LINE_PACKED;
+        }
+        byte[] geometry = new byte[length];
+        // Use a view with its own position, the mapped buffer is shared by all the threads
+        ByteBuffer view = buffer.duplicate();
+        view.position(dataStart + start);
+        view.get(geometry);
+        return geometry;
+    }
+
+    private int offset(int index) {
+        return buffer.getInt(HEADER_SIZE + 4 * index);
+    }
+}
@@ -30,6 +30,9 @@ public abstract class Vertex implements Serializable, Cloneable {
 
     private static final Logger LOG = LoggerFactory.getLogger(Vertex.class);
 
+    /** The index of a vertex not added to a graph, like the temporary vertices of a request. */
+    public static final int NO_INDEX = -1;
+
     /**
      * Short debugging name. This is a graph mathematical term as in
      * https://en.wikipedia.org/wiki/Graph_labeling
@@ -43,10 +46,22 @@ public abstract class Vertex implements Serializable, Cloneable {
 
     private final double y;
 
+    /**
+     * A dense integer index assigned by the graph when the vertex is added to it, see
+     * {@link #getIndex()}.
+     */
+    private int index = NO_INDEX;
+
     private transient Edge[] incoming = new Edge[0];
 
     private transient Edge[] outgoing = new Edge[0];
 
+    /**
+     * The graph the vertex was added to, which registers the outgoing edges of the vertex. This is
+     * {@code null} for temporary vertices.
+     */
+    private transient Graph graph;
+
     /* CONSTRUCTORS */
 
     protected Vertex(Graph g, String label, double x, double y) {
@@ -80,6 +95,11 @@ public abstract class Vertex implements Serializable, Cloneable {
     }
 
     public void initEdgeLists() {
+        if (graph != null) {
+            for (Edge e : outgoing) {
+                graph.edgeRemoved(e);
+            }
+        }
         this.outgoing = new Edge[0];
         this.incoming = new Edge[0];
     }
@@ -131,7 +151,11 @@ public abstract class Vertex implements Serializable, Cloneable {
 
     public void addOutgoing(Edge edge) {
         synchronized (this) {
+            int n = outgoing.length;
             outgoing = addEdge(outgoing, edge);
+            if (graph != null && outgoing.length > n) {
+                graph.edgeAdded(edge);
+            }
         }
     }
 
@@ -140,6 +164,9 @@ public abstract class Vertex implements Serializable, Cloneable {
         synchronized (this) {
             int n = outgoing.length;
             outgoing = removeEdge(outgoing, edge);
+            if (graph != null && outgoing.length < n) {
+                graph.edgeRemoved(edge);
+            }
             return (outgoing.length < n);
         }
     }
@@ -228,6 +255,30 @@ public abstract class Vertex implements Serializable, Cloneable {
         return label;
     }
 
+    /**
+     * A small integer, unique among the vertices in the graph, which can be used to store data
+     * for each vertex in arrays instead of hash maps. The indexes are assigned when the vertex is
+     * added to the graph, and are made dense (no holes left by removed vertices) when the graph is
+     * indexed after loading, see {@link Graph#index()}. All indexes are less than
+     * {@link Graph#getVertexIndexSize()}, but vertices added after the array is created may have
+     * a larger index.
+     * <p>
+     * Temporary vertices, which are not part of the graph, return {@link #NO_INDEX}.
+     */
+    public final int getIndex() {
+        return index;
+    }
+
+    /** Only the graph should assign vertex indexes. */
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    /** Only the graph should attach its vertices, {@code null} detaches the vertex. */
+    void setGraph(Graph graph) {
+        this.graph = graph;
+    }
+
     public Coordinate getCoordinate() {
         return new Coordinate(getX(), getY());
     }
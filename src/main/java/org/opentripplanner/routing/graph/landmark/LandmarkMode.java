@@ -0,0 +1,58 @@
+package org.opentripplanner.routing.graph.landmark;
+
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.graph.Edge;
+
+/**
+ * The street modes with separate landmark distance tables. The cost of an edge is a lower bound
+ * of the cost of traversing it with the given mode, and every edge the mode may traverse must
+ * have a cost, or the tables are not lower bounds.
+ */
+public enum LandmarkMode {
+    /** Driving, the cost is the travel time in seconds at the maximum car speed of each edge. */
+    CAR,
+    /**
+     * Walking and cycling, the cost is the distance in meters. Divide by the maximum street speed
+     * of the request to get a lower bound of the weight.
+     */
+    WALK_AND_BICYCLE;
+
+    /**
+     * Return the mode with tables valid for a search with the given modes, or {@code null} if
+     * no tables are valid. Searches combining car with walking or cycling are not supported.
+     */
+    public static LandmarkMode forModes(TraverseModeSet modes) {
+        if (modes.getCar()) {
+            return modes.getWalk() || modes.getBicycle() ? null : CAR;
+        }
+        return modes.getWalk() || modes.getBicycle() ? WALK_AND_BICYCLE : null;
+    }
+
+    /**
+     * The cost of traversing the edge, or a negative number if the mode can not traverse it.
+     * Edges that are not street edges, like links to transit stops, have no cost.
+     */
+    public double cost(Edge edge) {
+        if (!(edge instanceof StreetEdge)) {
+            return 0;
+        }
+        StreetEdge e = (StreetEdge) edge;
+        switch (this) {
+            case CAR:
+                if (!e.getPermission().allows(TraverseMode.CAR) || e.getCarSpeed() <= 0) {
+                    return -1;
+                }
+                return e.getDistanceMeters() / e.getCarSpeed();
+            case WALK_AND_BICYCLE:
+                if (!e.getPermission().allows(TraverseMode.WALK)
+                        && !e.getPermission().allows(TraverseMode.BICYCLE)) {
+                    return -1;
+                }
+                return e.getDistanceMeters();
+            default:
+                throw new IllegalStateException("Unknown mode: " + this);
+        }
+    }
+}
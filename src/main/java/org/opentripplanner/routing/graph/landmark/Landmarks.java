@@ -0,0 +1,120 @@
+package org.opentripplanner.routing.graph.landmark;
+
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Pre-computed shortest path costs from and to a small set of landmark vertices, for every
+ * vertex in the graph and each {@link LandmarkMode}. The tables are used by the
+ * {@link org.opentripplanner.routing.algorithm.astar.strategies.LandmarkRemainingWeightHeuristic}
+ * to compute lower bounds of the remaining weight using the triangle inequality (ALT).
+ * <p>
+ * The tables are indexed by the position of the vertex in the {@link #vertices} array, not by
+ * the vertex index, because the vertex indexes are reassigned when the graph is indexed. Call
+ * {@link #index()} after the vertex indexes change. Vertices added to the graph after the tables
+ * were built are not in the tables.
+ * <p>
+ * Unreachable vertices have an infinite cost. The instance is immutable after it is built, and
+ * can be used by many searches at the same time.
+ */
+public class Landmarks implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Vertex[] vertices;
+
+    private final Vertex[] landmarks;
+
+    /** The cost from each landmark to each vertex: [mode][landmark][vertex position]. */
+    private final float[][][] fromLandmark;
+
+    /** The cost from each vertex to each landmark: [mode][landmark][vertex position]. */
+    private final float[][][] toLandmark;
+
+    /** The position in the tables by vertex index, or -1 if the vertex is not in the tables. */
+    private transient int[] positionByVertexIndex;
+
+    Landmarks(
+            Vertex[] vertices,
+            Vertex[] landmarks,
+            float[][][] fromLandmark,
+            float[][][] toLandmark
+    ) {
+        this.vertices = vertices;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+        index();
+    }
+
+    /** Rebuild the lookup from vertex index to table position. */
+    public synchronized void index() {
+        int size = 0;
+        for (Vertex v : vertices) {
+            size = Math.max(size, v.getIndex() + 1);
+        }
+        int[] positions = new int[size];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < vertices.length; ++i) {
+            if (vertices[i].getIndex() != Vertex.NO_INDEX) {
+                positions[vertices[i].getIndex()] = i;
+            }
+        }
+        this.positionByVertexIndex = positions;
+    }
+
+    public int nLandmarks() {
+        return landmarks.length;
+    }
+
+    public Vertex landmark(int landmark) {
+        return landmarks[landmark];
+    }
+
+    /**
+     * The position of the given vertex in the tables, or -1 if the vertex is not in the tables,
+     * like the temporary vertices of a request.
+     */
+    public int position(Vertex v) {
+        int index = v.getIndex();
+        int[] positions = positionByVertexIndex;
+        if (index < 0 || index >= positions.length) {
+            return -1;
+        }
+        int pos = positions[index];
+        return pos >= 0 && vertices[pos] == v ? pos : -1;
+    }
+
+    /** The cost from the landmark to the vertex at the given table position. */
+    public float fromLandmark(LandmarkMode mode, int landmark, int position) {
+        return fromLandmark[mode.ordinal()][landmark][position];
+    }
+
+    /** The cost from the vertex at the given table position to the landmark. */
+    public float toLandmark(LandmarkMode mode, int landmark, int position) {
+        return toLandmark[mode.ordinal()][landmark][position];
+    }
+
+    /** The table row for the given mode and landmark, used by the heuristic in the inner loop. */
+    public float[] fromLandmarkRow(LandmarkMode mode, int landmark) {
+        return fromLandmark[mode.ordinal()][landmark];
+    }
+
+    /** The table row for the given mode and landmark, used by the heuristic in the inner loop. */
+    public float[] toLandmarkRow(LandmarkMode mode, int landmark) {
+        return toLandmark[mode.ordinal()][landmark];
+    }
+
+    /** An estimate of the memory used by the tables and the vertex lookup. */
+    public long memoryUsageInBytes() {
+        long tables = 2L * LandmarkMode.values().length * landmarks.length * vertices.length * 4;
+        return tables + vertices.length * (4L + 8L);
+    }
+
+    @Override
+    public String toString() {
+        return "Landmarks{landmarks: " + landmarks.length + ", vertices: " + vertices.length + "}";
+    }
+}
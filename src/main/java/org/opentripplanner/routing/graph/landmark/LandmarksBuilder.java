@@ -0,0 +1,253 @@
+package org.opentripplanner.routing.graph.landmark;
+
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Select landmarks and compute the {@link Landmarks} tables for a graph.
+ * <p>
+ * The landmarks are selected with the "farthest" strategy: the first landmark is the street
+ * vertex farthest away from the center of the graph, and each following landmark is the street
+ * vertex farthest away (by walking distance) from the closest of the landmarks already
+ * selected. This spreads the landmarks along the edge of the network, where they give the best
+ * bounds.
+ * <p>
+ * One shortest path tree is computed from and one to each landmark, for each
+ * {@link LandmarkMode}.
+ */
+public class LandmarksBuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LandmarksBuilder.class);
+
+    private final Vertex[] vertices;
+
+    /** The position of each vertex in {@link #vertices} by vertex index. */
+    private final int[] positionByVertexIndex;
+
+    public LandmarksBuilder(Graph graph) {
+        Collection<Vertex> all = graph.getVertices();
+        this.vertices = all.stream()
+                .sorted(Comparator.comparingInt(Vertex::getIndex))
+                .toArray(Vertex[]::new);
+        this.positionByVertexIndex = new int[graph.getVertexIndexSize()];
+        Arrays.fill(positionByVertexIndex, -1);
+        for (int i = 0; i < vertices.length; ++i) {
+            positionByVertexIndex[vertices[i].getIndex()] = i;
+        }
+    }
+
+    /**
+     * Select up to {@code nLandmarks} landmarks and compute the tables. Fewer landmarks are
+     * selected if the graph is too small.
+     */
+    public Landmarks build(int nLandmarks) {
+        int nModes = LandmarkMode.values().length;
+        List<Vertex> landmarks = new ArrayList<>();
+        List<float[][]> from = new ArrayList<>();
+        List<float[][]> to = new ArrayList<>();
+
+        int next = firstLandmark();
+
+        while (next >= 0 && landmarks.size() < nLandmarks) {
+            float[][] fromL = new float[nModes][];
+            float[][] toL = new float[nModes][];
+            for (LandmarkMode mode : LandmarkMode.values()) {
+                fromL[mode.ordinal()] = shortestPathCosts(next, mode, true);
+                toL[mode.ordinal()] = shortestPathCosts(next, mode, false);
+            }
+            landmarks.add(vertices[next]);
+            from.add(fromL);
+            to.add(toL);
+            LOG.info("Landmark {} of {}: {}", landmarks.size(), nLandmarks, vertices[next]);
+
+            next = farthestFromLandmarks(from);
+        }
+
+        // Transpose to [mode][landmark][vertex], the heuristic loops over the landmarks of one mode
+        float[][][] fromLandmark = new float[nModes][landmarks.size()][];
+        float[][][] toLandmark = new float[nModes][landmarks.size()][];
+        for (int m = 0; m < nModes; ++m) {
+            for (int l = 0; l < landmarks.size(); ++l) {
+                fromLandmark[m][l] = from.get(l)[m];
+                toLandmark[m][l] = to.get(l)[m];
+            }
+        }
+        return new Landmarks(
+                vertices,
+                landmarks.toArray(new Vertex[0]),
+                fromLandmark,
+                toLandmark
+        );
+    }
+
+
+    /* private methods */
+
+    /** The street vertex farthest away from the average coordinate of all street vertices. */
+    private int firstLandmark() {
+        double lat = 0, lon = 0;
+        int n = 0;
+        for (Vertex v : vertices) {
+            if (v instanceof StreetVertex) {
+                lat += v.getLat();
+                lon += v.getLon();
+                ++n;
+            }
+        }
+        if (n == 0) {
+            return -1;
+        }
+        lat /= n;
+        lon /= n;
+
+        int best = -1;
+        double bestDistance = -1;
+        for (int i = 0; i < vertices.length; ++i) {
+            Vertex v = vertices[i];
+            if (v instanceof StreetVertex) {
+                double d = SphericalDistanceLibrary.fastDistance(lat, lon, v.getLat(), v.getLon());
+                if (d > bestDistance) {
+                    best = i;
+                    bestDistance = d;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The street vertex with the longest walking distance to the closest landmark, among the
+     * vertices reachable from all landmarks. Return -1 if no vertex is farther than 0 meters.
+     */
+    private int farthestFromLandmarks(List<float[][]> fromLandmarks) {
+        int mode = LandmarkMode.WALK_AND_BICYCLE.ordinal();
+        int best = -1;
+        float bestDistance = 0;
+
+        for (int i = 0; i < vertices.length; ++i) {
+            if (!(vertices[i] instanceof StreetVertex)) { continue; }
+
+            float min = Float.POSITIVE_INFINITY;
+            for (float[][] it : fromLandmarks) {
+                min = Math.min(min, it[mode][i]);
+            }
+            if (min != Float.POSITIVE_INFINITY && min > bestDistance) {
+                best = i;
+                bestDistance = min;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Dijkstra search from (or to if not {@code forward}) the vertex at the given position.
+     * Return the cost for each vertex position, unreachable vertices get an infinite cost.
+     */
+    private float[] shortestPathCosts(int source, LandmarkMode mode, boolean forward) {
+        float[] costs = new float[vertices.length];
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        costs[source] = 0;
+
+        IntFloatHeap queue = new IntFloatHeap();
+        queue.insert(source, 0);
+
+        while (!queue.isEmpty()) {
+            float cost = queue.minKey();
+            int v = queue.extractMin();
+
+            // Skip entries left in the queue after the vertex got a lower cost
+            if (cost > costs[v]) { continue; }
+
+            Collection<Edge> edges = forward
+                    ? vertices[v].getOutgoing()
+                    : vertices[v].getIncoming();
+
+            for (Edge e : edges) {
+                double edgeCost = mode.cost(e);
+                if (edgeCost < 0) { continue; }
+
+                Vertex other = forward ? e.getToVertex() : e.getFromVertex();
+                int u = position(other);
+                if (u < 0) { continue; }
+
+                float newCost = (float) (cost + edgeCost);
+                if (newCost < costs[u]) {
+                    costs[u] = newCost;
+                    queue.insert(u, newCost);
+                }
+            }
+        }
+        return costs;
+    }
+
+    private int position(Vertex v) {
+        int index = v.getIndex();
+        if (index < 0 || index >= positionByVertexIndex.length) {
+            return -1;
+        }
+        return positionByVertexIndex[index];
+    }
+
+    /** A binary min-heap of int elements with float keys. Duplicates are allowed. */
+    private static final class IntFloatHeap {
+        private int[] elements = new int[1024];
+        private float[] keys = new float[1024];
+        private int size = 0;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float minKey() {
+            return keys[0];
+        }
+
+        void insert(int element, float key) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (keys[parent] <= key) { break; }
+                elements[i] = elements[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            elements[i] = element;
+            keys[i] = key;
+        }
+
+        int extractMin() {
+            int min = elements[0];
+            --size;
+            int element = elements[size];
+            float key = keys[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) { break; }
+                if (child + 1 < size && keys[child + 1] < keys[child]) { ++child; }
+                if (key <= keys[child]) { break; }
+                elements[i] = elements[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            elements[i] = element;
+            keys[i] = key;
+            return min;
+        }
+    }
+}
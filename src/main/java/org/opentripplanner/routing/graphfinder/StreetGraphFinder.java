@@ -12,6 +12,7 @@ import org.opentripplanner.routing.api.request.RoutingRequest;
 import org.opentripplanner.routing.core.TraverseMode;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.routing.spt.ShortestPathTree;
 
 import java.util.Comparator;
 import java.util.List;
@@ -77,7 +78,10 @@ public class StreetGraphFinder implements GraphFinder {
     AStar astar = new AStar();
     rr.setNumItineraries(1);
     astar.setTraverseVisitor(visitor);
-    astar.getShortestPathTree(rr, 1, terminationStrategy); // timeout in seconds
+    ShortestPathTree spt = astar.getShortestPathTree(rr, 1, terminationStrategy); // timeout in seconds
+    if (spt != null) {
+      spt.release();
+    }
     // Destroy the routing context, to clean up the temporary edges & vertices
     rr.rctx.destroy();
   }
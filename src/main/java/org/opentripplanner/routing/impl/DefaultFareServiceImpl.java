@@ -24,7 +24,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** Holds information for doing the graph search on fares */
 class FareSearch {
@@ -78,15 +80,33 @@ public class DefaultFareServiceImpl implements FareService {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultFareServiceImpl.class);
 
+    /** The maximum number of ride sequence fares kept in {@link #fareCache}. */
+    private static final int FARE_CACHE_MAX_SIZE = 50_000;
+
     /** For each fare type (regular, student, etc...) the collection of rules that apply. */
     protected Map<FareType, Collection<FareRuleSet>> fareRulesPerType;
 
+    /**
+     * The index of the rules of each fare type, built the first time a fare is calculated. The
+     * index is not serialized with the graph, it is built again after loading.
+     */
+    private transient volatile List<FareRuleSetIndex> fareRuleIndexes;
+
+    /**
+     * The best fare of each ride sequence, keyed by the values the fare depends on. The rides of
+     * the itineraries of a request, and of similar requests, share many ride sequences. The
+     * cache is cleared when it is full.
+     */
+    private transient volatile Map<RideSequenceKey, FareAndId> fareCache;
+
     public DefaultFareServiceImpl() {
         fareRulesPerType = new HashMap<>();
     }
 
     public void addFareRules(FareType fareType, Collection<FareRuleSet> fareRules) {
         fareRulesPerType.put(fareType, new ArrayList<>(fareRules));
+        fareRuleIndexes = null;
+        fareCache = null;
     }
 
     @Override
@@ -257,11 +277,46 @@ public class DefaultFareServiceImpl implements FareService {
             transfersUsed += 1;
         }
 
-        FareAttribute bestAttribute = null;
-        float bestFare = Float.POSITIVE_INFINITY;
         long tripTime = lastRideStartTime - startTime;
         long journeyTime = lastRideEndTime - startTime;
 
+        FareRuleSetIndex index = fareRuleIndex(fareRules);
+        if (index == null) {
+            return getBestFareAndId(
+                    fareType, rides, fareRules, feedId, startZone, endZone, zones, routes, trips,
+                    transfersUsed, tripTime, journeyTime
+            );
+        }
+
+        RideSequenceKey key = new RideSequenceKey(
+                fareType, fareRules, feedId, startZone, endZone, zones, routes, trips,
+                transfersUsed, tripTime, journeyTime
+        );
+        Map<RideSequenceKey, FareAndId> cache = fareCache();
+        FareAndId result = cache.get(key);
+        if (result == null) {
+            List<FareRuleSet> candidates = index.candidates(
+                    feedId, startZone, endZone, zones, firstRide.route, firstRide.trip
+            );
+            result = getBestFareAndId(
+                    fareType, rides, candidates, feedId, startZone, endZone, zones, routes, trips,
+                    transfersUsed, tripTime, journeyTime
+            );
+            if (cache.size() >= FARE_CACHE_MAX_SIZE) {
+                cache.clear();
+            }
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    private FareAndId getBestFareAndId(FareType fareType, List<Ride> rides,
+            Collection<FareRuleSet> fareRules, String feedId, String startZone, String endZone,
+            Set<String> zones, Set<FeedScopedId> routes, Set<FeedScopedId> trips,
+            int transfersUsed, long tripTime, long journeyTime) {
+        FareAttribute bestAttribute = null;
+        float bestFare = Float.POSITIVE_INFINITY;
+
         // find the best fare that matches this set of rides
         for (FareRuleSet ruleSet : fareRules) {
             FareAttribute attribute = ruleSet.getFareAttribute();
@@ -299,6 +354,36 @@ public class DefaultFareServiceImpl implements FareService {
         return new FareAndId(bestFare, bestAttribute == null ? null : bestAttribute.getId());
     }
 
+    /**
+     * Return the index of the given rules, or {@code null} if they are not the rules of one of
+     * the fare types of this service.
+     */
+    private FareRuleSetIndex fareRuleIndex(Collection<FareRuleSet> fareRules) {
+        List<FareRuleSetIndex> indexes = fareRuleIndexes;
+        if (indexes == null) {
+            indexes = new ArrayList<>();
+            for (Collection<FareRuleSet> it : fareRulesPerType.values()) {
+                indexes.add(new FareRuleSetIndex(it));
+            }
+            fareRuleIndexes = indexes;
+        }
+        for (FareRuleSetIndex it : indexes) {
+            if (it.isIndexOf(fareRules)) {
+                return it;
+            }
+        }
+        return null;
+    }
+
+    private Map<RideSequenceKey, FareAndId> fareCache() {
+        Map<RideSequenceKey, FareAndId> cache = fareCache;
+        if (cache == null) {
+            cache = new ConcurrentHashMap<>();
+            fareCache = cache;
+        }
+        return cache;
+    }
+
     private float getFarePrice(FareAttribute fare, FareType type) {
         if (StandardFareType.senior.equals(type)) {
             if (fare.getSeniorPrice() >= 0) {
@@ -312,4 +397,67 @@ public class DefaultFareServiceImpl implements FareService {
         }
         return fare.getPrice();
     }
+
+    /**
+     * The values the best fare of a ride sequence depends on. The rules are compared by identity,
+     * they are the rules of one fare type of this service.
+     */
+    private static final class RideSequenceKey {
+        private final FareType fareType;
+        private final Collection<FareRuleSet> fareRules;
+        private final String feedId;
+        private final String startZone;
+        private final String endZone;
+        private final Set<String> zones;
+        private final Set<FeedScopedId> routes;
+        private final Set<FeedScopedId> trips;
+        private final int transfersUsed;
+        private final long tripTime;
+        private final long journeyTime;
+        private final int hashCode;
+
+        private RideSequenceKey(FareType fareType, Collection<FareRuleSet> fareRules,
+                String feedId, String startZone, String endZone, Set<String> zones,
+                Set<FeedScopedId> routes, Set<FeedScopedId> trips, int transfersUsed,
+                long tripTime, long journeyTime) {
+            this.fareType = fareType;
+            this.fareRules = fareRules;
+            this.feedId = feedId;
+            this.startZone = startZone;
+            this.endZone = endZone;
+            this.zones = zones;
+            this.routes = routes;
+            this.trips = trips;
+            this.transfersUsed = transfersUsed;
+            this.tripTime = tripTime;
+            this.journeyTime = journeyTime;
+            this.hashCode = Objects.hash(
+                    fareType, System.identityHashCode(fareRules), feedId, startZone, endZone,
+                    zones, routes, trips, transfersUsed, tripTime, journeyTime
+            );
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+            if (o == null || getClass() != o.getClass()) { return false; }
+            RideSequenceKey that = (RideSequenceKey) o;
+            return fareRules == that.fareRules
+                    && transfersUsed == that.transfersUsed
+                    && tripTime == that.tripTime
+                    && journeyTime == that.journeyTime
+                    && fareType.equals(that.fareType)
+                    && feedId.equals(that.feedId)
+                    && Objects.equals(startZone, that.startZone)
+                    && Objects.equals(endZone, that.endZone)
+                    && zones.equals(that.zones)
+                    && routes.equals(that.routes)
+                    && trips.equals(that.trips);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
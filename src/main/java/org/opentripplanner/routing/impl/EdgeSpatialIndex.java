@@ -0,0 +1,123 @@
+package org.opentripplanner.routing.impl;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.HashGridSpatialIndex;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A spatial index of all the edges of the graph with a geometry. There is one index for each
+ * graph, see {@link Graph#getEdgeSpatialIndex()}, shared by the {@link StreetVertexIndex}, the
+ * linking of the request origin and destination and the linking done by the graph builder and
+ * the realtime updaters.
+ * <p>
+ * The index can be read by many threads while one thread changes it. Each change is published
+ * as a whole, and increments the {@link #getVersion()}: when an edge is split, the readers
+ * see either the original edge or the two new edges, and a split made by one updater is seen
+ * by all the other users of the index.
+ */
+public class EdgeSpatialIndex {
+
+    private final HashGridSpatialIndex<Edge> index = new HashGridSpatialIndex<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long version = 0;
+
+    /** Create an index of all edges of the graph with a geometry. */
+    public EdgeSpatialIndex(Graph graph) {
+        /*
+         * Transit edges are added too. Some GTFS do not have shape data, so long straight lines
+         * between 2 faraway stations might wreck performance on a hash grid spatial index.
+         * If this is a problem, the hash grid rasterizing could split long segments.
+         */
+        for (Edge e : graph.getEdges()) {
+            LineString geometry = e.getGeometry();
+            if (geometry != null) {
+                index.insert(geometry, e);
+            }
+        }
+    }
+
+    /**
+     * Return the edges in the bins touching the envelope. This might include edges outside the
+     * envelope, the caller must filter them out.
+     */
+    public List<Edge> query(Envelope envelope) {
+        lock.readLock().lock();
+        try {
+            return index.query(envelope);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void insert(Edge edge) {
+        lock.writeLock().lock();
+        try {
+            index.insert(edge.getGeometry(), edge);
+            ++version;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(Edge edge) {
+        lock.writeLock().lock();
+        try {
+            ++version;
+            return index.remove(edge.getGeometry().getEnvelopeInternal(), edge);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Replace an edge split in two by the two new edges, in a single change. */
+    public void replace(Edge original, Edge first, Edge second) {
+        lock.writeLock().lock();
+        try {
+            index.insert(first.getGeometry(), first);
+            index.insert(second.getGeometry(), second);
+            // This iterates over the entire rectangular envelope of the edge rather than the
+            // segments making it up. It will be inefficient for very long edges.
+            index.remove(original.getGeometry().getEnvelopeInternal(), original);
+            ++version;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The number of changes made to the index since it was created. Compare two versions to
+     * find out if the index has changed.
+     */
+    public long getVersion() {
+        lock.readLock().lock();
+        try {
+            return version;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "EdgeSpatialIndex{version: " + version + ", " + index + "}";
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+}
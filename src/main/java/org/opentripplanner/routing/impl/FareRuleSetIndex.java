@@ -0,0 +1,139 @@
+package org.opentripplanner.routing.impl;
+
+import org.opentripplanner.common.model.P2;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.routing.core.FareRuleSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of a collection of fare rules, used to find the rules that might match a ride
+ * sequence without checking every rule. Each rule is put in one bucket, chosen by the first of
+ * its restrictions found in this order: origin/destination zones, contained zones, routes and
+ * trips. Rules without restrictions are candidates for all ride sequences.
+ * <p>
+ * A rule can only match if the ride sequence is found in its bucket, so the candidates returned
+ * must still be checked with {@link FareRuleSet#matches}. The candidates are returned in the
+ * order of the indexed collection, so ties between rules with the same price are resolved as
+ * when scanning all rules.
+ */
+class FareRuleSetIndex {
+
+    private final Collection<FareRuleSet> fareRules;
+
+    private final Map<String, FeedRules> rulesByFeedId = new HashMap<>();
+
+    FareRuleSetIndex(Collection<FareRuleSet> fareRules) {
+        this.fareRules = fareRules;
+        int position = 0;
+        for (FareRuleSet it : fareRules) {
+            String feedId = it.getFareAttribute().getId().getFeedId();
+            rulesByFeedId.computeIfAbsent(feedId, k -> new FeedRules()).add(new Entry(position++, it));
+        }
+    }
+
+    /** Return {@code true} if this is the index of the given collection of rules. */
+    boolean isIndexOf(Collection<FareRuleSet> rules) {
+        return fareRules == rules;
+    }
+
+    /**
+     * Return the rules of the given feed that might match a ride sequence, in the order of the
+     * indexed collection.
+     */
+    List<FareRuleSet> candidates(
+            String feedId,
+            String startZone,
+            String endZone,
+            Set<String> zonesVisited,
+            FeedScopedId firstRoute,
+            FeedScopedId firstTrip
+    ) {
+        FeedRules rules = rulesByFeedId.get(feedId);
+        if (rules == null) {
+            return List.of();
+        }
+        List<Entry> entries = new ArrayList<>(rules.unrestricted);
+        addAll(entries, rules.byOriginDestination.get(new P2<>(startZone, endZone)));
+        addAll(entries, rules.byOriginDestination.get(new P2<>(startZone, null)));
+        addAll(entries, rules.byOriginDestination.get(new P2<>(null, startZone)));
+        addAll(entries, rules.byContains.get(zonesVisited));
+        addAll(entries, rules.byRoute.get(firstRoute));
+        addAll(entries, rules.byTrip.get(firstTrip));
+
+        entries.sort(Comparator.comparingInt(it -> it.position));
+
+        List<FareRuleSet> result = new ArrayList<>(entries.size());
+        int lastPosition = -1;
+        for (Entry it : entries) {
+            // A rule with more than one origin/destination pair might be found more than once
+            if (it.position != lastPosition) {
+                result.add(it.rule);
+                lastPosition = it.position;
+            }
+        }
+        return result;
+    }
+
+    private static void addAll(List<Entry> result, List<Entry> entries) {
+        if (entries != null) {
+            result.addAll(entries);
+        }
+    }
+
+    private static final class Entry {
+        private final int position;
+        private final FareRuleSet rule;
+
+        private Entry(int position, FareRuleSet rule) {
+            this.position = position;
+            this.rule = rule;
+        }
+    }
+
+    /** The rules of one feed, by the restriction used to look them up. */
+    private static final class FeedRules {
+        private final Map<P2<String>, List<Entry>> byOriginDestination = new HashMap<>();
+        private final Map<Set<String>, List<Entry>> byContains = new HashMap<>();
+        private final Map<FeedScopedId, List<Entry>> byRoute = new HashMap<>();
+        private final Map<FeedScopedId, List<Entry>> byTrip = new HashMap<>();
+        private final List<Entry> unrestricted = new ArrayList<>();
+
+        private void add(Entry entry) {
+            FareRuleSet rule = entry.rule;
+            if (!rule.getOriginDestinations().isEmpty()) {
+                for (P2<String> od : rule.getOriginDestinations()) {
+                    put(byOriginDestination, od, entry);
+                }
+            }
+            else if (!rule.getContains().isEmpty()) {
+                put(byContains, new HashSet<>(rule.getContains()), entry);
+            }
+            else if (!rule.getRoutes().isEmpty()) {
+                // Look up by the first route, all routes of a match are in the rule
+                for (FeedScopedId route : rule.getRoutes()) {
+                    put(byRoute, route, entry);
+                }
+            }
+            else if (!rule.getTrips().isEmpty()) {
+                for (FeedScopedId trip : rule.getTrips()) {
+                    put(byTrip, trip, entry);
+                }
+            }
+            else {
+                unrestricted.add(entry);
+            }
+        }
+
+        private static <K> void put(Map<K, List<Entry>> map, K key, Entry entry) {
+            map.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.opentripplanner.api.resource.DebugOutput;
 import org.opentripplanner.model.GenericLocation;
 import org.opentripplanner.routing.algorithm.astar.AStar;
 import org.opentripplanner.routing.algorithm.astar.strategies.EuclideanRemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.astar.strategies.LandmarkRemainingWeightHeuristic;
 import org.opentripplanner.routing.algorithm.astar.strategies.RemainingWeightHeuristic;
 import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
 import org.opentripplanner.routing.api.request.RoutingRequest;
@@ -15,8 +16,10 @@ import org.opentripplanner.routing.error.PathNotFoundException;
 import org.opentripplanner.routing.error.RoutingValidationException;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.graph.landmark.Landmarks;
 import org.opentripplanner.routing.spt.DominanceFunction;
 import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.spt.ShortestPathTree;
 import org.opentripplanner.standalone.server.Router;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -90,8 +93,11 @@ public class GraphPathFinder {
 
         // Choose an appropriate heuristic for goal direction.
         RemainingWeightHeuristic heuristic;
+        Landmarks landmarks = router.graph.getService(Landmarks.class);
         if (options.disableRemainingWeightHeuristic || options.oneToMany) {
             heuristic = new TrivialRemainingWeightHeuristic();
+        } else if (landmarks != null) {
+            heuristic = new LandmarkRemainingWeightHeuristic(landmarks);
         } else {
             heuristic = new EuclideanRemainingWeightHeuristic();
         }
@@ -120,7 +126,7 @@ public class GraphPathFinder {
             return null;
         }
         // Don't dig through the SPT object, just ask the A star algorithm for the states that reached the target.
-        aStar.getShortestPathTree(options, timeout);
+        ShortestPathTree spt = aStar.getShortestPathTree(options, timeout);
 
         List<GraphPath> paths = aStar.getPathsToTarget().stream()
                 .filter(path -> {
@@ -133,6 +139,10 @@ public class GraphPathFinder {
                 })
                 .collect(Collectors.toList());
 
+        if (spt != null) {
+            spt.release();
+        }
+
         LOG.debug("we have {} paths", paths.size());
         LOG.debug("END SEARCH ({} msec)", System.currentTimeMillis() - searchBeginTime);
         Collections.sort(paths, options.getPathComparator(options.arriveBy));
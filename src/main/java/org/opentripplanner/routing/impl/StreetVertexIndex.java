@@ -53,9 +53,10 @@ public class StreetVertexIndex {
     private Graph graph;
 
     /**
-     * Contains only instances of {@link StreetEdge}
+     * The edge index shared with the other users of the graph, see
+     * {@link Graph#getEdgeSpatialIndex()}.
      */
-    private SpatialIndex edgeTree;
+    private final EdgeSpatialIndex edgeTree;
     private SpatialIndex transitStopTree;
     private SpatialIndex verticesTree;
 
@@ -70,37 +71,24 @@ public class StreetVertexIndex {
 
     public StreetVertexIndex(Graph graph, boolean hashGrid) {
         this.graph = graph;
+        this.edgeTree = graph.getEdgeSpatialIndex();
         if (hashGrid) {
-            edgeTree = new HashGridSpatialIndex<>();
             transitStopTree = new HashGridSpatialIndex<>();
             verticesTree = new HashGridSpatialIndex<>();
         } else {
-            edgeTree = new STRtree();
             transitStopTree = new STRtree();
             verticesTree = new STRtree();
         }
         postSetup();
         if (!hashGrid) {
-            ((STRtree) edgeTree).build();
             ((STRtree) transitStopTree).build();
-            simpleStreetSplitter = new SimpleStreetSplitter(
-                    this.graph,
-                    null,
-                    null,
-                    false,
-                    new DataImportIssueStore(
-                            false)
-            );
-        } else {
-            simpleStreetSplitter = new SimpleStreetSplitter(
-                    this.graph,
-                    (HashGridSpatialIndex<Edge>) edgeTree,
-                    transitStopTree,
-                    false,
-                    new DataImportIssueStore(false)
-            );
         }
-
+        simpleStreetSplitter = new SimpleStreetSplitter(
+                this.graph,
+                transitStopTree,
+                false,
+                new DataImportIssueStore(false)
+        );
     }
 
     /**
@@ -196,30 +184,8 @@ public class StreetVertexIndex {
         return GeometryUtils.splitGeometryAtPoint(geometry, nearestPoint);
     }
 
-    @SuppressWarnings("rawtypes")
     private void postSetup() {
-        for (Vertex gv : graph.getVertices()) {
-            Vertex v = gv;
-            /*
-             * We add all edges with geometry, skipping transit, filtering them out after. We do not
-             * index transit edges as we do not need them and some GTFS do not have shape data, so
-             * long straight lines between 2 faraway stations will wreck performance on a hash grid
-             * spatial index.
-             *
-             * If one need to store transit edges in the index, we could improve the hash grid
-             * rasterizing splitting long segments.
-             */
-            for (Edge e : gv.getOutgoing()) {
-                LineString geometry = e.getGeometry();
-                if (geometry == null) {
-                    continue;
-                }
-                Envelope env = geometry.getEnvelopeInternal();
-                if (edgeTree instanceof HashGridSpatialIndex)
-                    ((HashGridSpatialIndex)edgeTree).insert(geometry, e);
-                else
-                    edgeTree.insert(env, e);
-            }
+        for (Vertex v : graph.getVertices()) {
             if (v instanceof TransitStopVertex) {
                 Envelope env = new Envelope(v.getCoordinate());
                 transitStopTree.insert(env, v);
@@ -110,5 +110,6 @@ public class TransitAlertServiceImpl implements TransitAlertService {
         }
 
         this.alerts = newAlerts;
+        graph.realtimeDataModified();
     }
 }
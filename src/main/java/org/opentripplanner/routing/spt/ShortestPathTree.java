@@ -2,12 +2,15 @@ package org.opentripplanner.routing.spt;
 
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
+import gnu.trove.list.array.TIntArrayList;
 import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.RoutingContext;
 import org.opentripplanner.routing.core.State;
 import org.opentripplanner.routing.graph.Vertex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.ref.SoftReference;
 import java.util.*;
 
 /**
@@ -22,6 +25,13 @@ import java.util.*;
  * Note that turn restrictions make all searches multi-state; however turn restrictions do not apply when walking.
  * The turn restriction handling is done in the base dominance function implementation, and applies to all subclasses.
  * It essentially splits each vertex into N vertices depending on the incoming edge being taken.
+ *
+ * The states are stored in an array indexed by the vertex index (see {@link Vertex#getIndex()}),
+ * not in a map, to avoid hashing on every relaxed edge. Each element is either a single State, which
+ * is the normal case for single-state searches like walking without turn restrictions, or a list of
+ * co-dominant states. The array is as long as the number of vertices in the graph, so it is taken
+ * from a thread-local pool and cleared and returned to the pool by {@link #release()}. Temporary
+ * vertices, and vertices added to the graph after the array was created, are kept in a map.
  */
 public class ShortestPathTree {
 
@@ -31,12 +41,31 @@ public class ShortestPathTree {
 
     public final DominanceFunction dominanceFunction;
 
-    private Map<Vertex, List<State>> stateSets;
+    /**
+     * Each thread keeps the array from the last released tree, so it can be reused by the next
+     * search on the same thread. It is soft referenced, so it does not prevent the memory from
+     * being reclaimed if a thread is idle and memory is low.
+     */
+    private static final ThreadLocal<SoftReference<Object[]>> STATES_ARRAY_POOL = new ThreadLocal<>();
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * The states at each graph vertex, indexed by vertex index. Each element is null, a State or a
+     * list of co-dominant states.
+     */
+    private Object[] statesByVertexIndex;
+
+    /** The indexes of all non-null elements in {@link #statesByVertexIndex}. */
+    private final TIntArrayList usedVertexIndexes = new TIntArrayList();
+
+    /** The states at vertices without an index in {@link #statesByVertexIndex}. */
+    private final Map<Vertex, Object> statesAtOtherVertices = new IdentityHashMap<>();
 
     public ShortestPathTree (RoutingRequest options, DominanceFunction dominanceFunction) {
         this.options = options;
         this.dominanceFunction = dominanceFunction;
-        stateSets = new IdentityHashMap<Vertex, List<State>>();
+        this.statesByVertexIndex = acquireStatesArray(vertexIndexSize(options));
     }
 
     /** @return a list of GraphPaths, sometimes empty but never null. */
@@ -82,18 +111,18 @@ public class ShortestPathTree {
         Multiset<Integer> histogram = HashMultiset.create();
         int statesCount = 0;
         int maxSize = 0;
-        for (Map.Entry<Vertex, List<State>> kv : stateSets.entrySet()) {
-            List<State> states = kv.getValue();
-            int size = states.size();
+        int vertexCount = getVertexCount();
+        for (Vertex vertex : getVertices()) {
+            int size = getStates(vertex).size();
             histogram.add(size);
             statesCount += size;
             if (size > maxSize) {
                 maxSize = size;
             }
         }
-        LOG.info("SPT: vertices: " + stateSets.size() + " states: total: "
+        LOG.info("SPT: vertices: " + vertexCount + " states: total: "
                 + statesCount + " per vertex max: " + maxSize + " avg: "
-                + (statesCount * 1.0 / stateSets.size()));
+                + (statesCount * 1.0 / vertexCount));
         List<Integer> nStates = new ArrayList<Integer>(histogram.elementSet());
         Collections.sort(nStates);
         for (Integer nState : nStates) {
@@ -102,7 +131,12 @@ public class ShortestPathTree {
     }
 
     public Set<Vertex> getVertices() {
-        return stateSets.keySet();
+        Set<Vertex> vertices = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < usedVertexIndexes.size(); ++i) {
+            vertices.add(firstState(statesByVertexIndex[usedVertexIndexes.getQuick(i)]).getVertex());
+        }
+        vertices.addAll(statesAtOtherVertices.keySet());
+        return vertices;
     }
 
     /**
@@ -117,19 +151,34 @@ public class ShortestPathTree {
      */
     public boolean add(State newState) {
         Vertex vertex = newState.getVertex();
-        List<State> states = stateSets.get(vertex);
+        Object states = getStateSet(vertex);
 
         // if the vertex has no states, add one and return
         if (states == null) {
-            states = new ArrayList<>();
-            stateSets.put(vertex, states);
-            states.add(newState);
+            setStateSet(vertex, newState);
+            return true;
+        }
+
+        // the common case for single-state searches, avoid creating a list
+        if (states instanceof State) {
+            State oldState = (State) states;
+            if (dominanceFunction.betterOrEqualAndComparable(oldState, newState))
+                return false;
+            if (dominanceFunction.betterOrEqualAndComparable(newState, oldState)) {
+                setStateSet(vertex, newState);
+            } else {
+                List<State> stateList = new ArrayList<>(2);
+                stateList.add(oldState);
+                stateList.add(newState);
+                setStateSet(vertex, stateList);
+            }
             return true;
         }
 
         // if the vertex has any states that dominate the new state, don't add the state
         // if the new state dominates any old states, remove them
-        Iterator<State> it = states.iterator();
+        List<State> stateList = asStateList(states);
+        Iterator<State> it = stateList.iterator();
         while (it.hasNext()) {
             State oldState = it.next();
             // order is important, because in the case of a tie
@@ -141,7 +190,7 @@ public class ShortestPathTree {
         }
 
         // any states remaining are co-dominant with the new state
-        states.add(newState);
+        stateList.add(newState);
         return true;
     }
 
@@ -152,12 +201,16 @@ public class ShortestPathTree {
      * @return a 'best' state at that vertex
      */
     public State getState(Vertex dest) {
-        Collection<State> states = stateSets.get(dest);
+        Object states = getStateSet(dest);
         if (states == null)
             return null;
+        if (states instanceof State) {
+            State s = (State) states;
+            return s.isFinal() ? s : null;
+        }
         State ret = null;
         // TODO are we only checking path parser acceptance when we fetch states via this specific method?
-        for (State s : states) {
+        for (State s : asStateList(states)) {
             if ((ret == null || s.weight < ret.weight) && s.isFinal()) {
                 ret = s;
             }
@@ -172,15 +225,21 @@ public class ShortestPathTree {
      * criteria.
      *
      * @param dest the vertex of interest
-     * @return a collection of 'interesting' states at that vertex
+     * @return a collection of 'interesting' states at that vertex, or null if the vertex is not
+     *         reached. The list must not be modified.
      */
     public List<State> getStates(Vertex dest) {
-        return stateSets.get(dest);
+        Object states = getStateSet(dest);
+        if (states == null)
+            return null;
+        if (states instanceof State)
+            return Collections.singletonList((State) states);
+        return asStateList(states);
     }
 
     /** @return number of vertices referenced in this SPT */
     public int getVertexCount() {
-        return stateSets.keySet().size();
+        return usedVertexIndexes.size() + statesAtOtherVertices.size();
     }
 
     /**
@@ -207,27 +266,119 @@ public class ShortestPathTree {
      * @return - whether this state is still considered worth visiting.
      */
     public boolean visit(State state) {
-        boolean ret = false;
-        for (State s : stateSets.get(state.getVertex())) {
+        Object states = getStateSet(state.getVertex());
+        if (states == null) {
+            return false;
+        }
+        if (states instanceof State) {
+            return states == state;
+        }
+        for (State s : asStateList(states)) {
             if (s == state) {
-                ret = true;
-                break;
+                return true;
             }
         }
-        return ret;
+        return false;
     }
 
     /** @return every state in this tree */
     public Collection<State> getAllStates() {
         ArrayList<State> allStates = new ArrayList<State>();
-        for (List<State> stateSet : stateSets.values()) {
-            allStates.addAll(stateSet);
+        for (int i = 0; i < usedVertexIndexes.size(); ++i) {
+            addStates(allStates, statesByVertexIndex[usedVertexIndexes.getQuick(i)]);
+        }
+        for (Object states : statesAtOtherVertices.values()) {
+            addStates(allStates, states);
         }
         return allStates;
     }
 
+    /**
+     * Clear the tree and return the memory used to a thread-local pool, so it can be reused by the
+     * next search. Calling this is optional, but it makes street searches much cheaper in large
+     * graphs. The tree is empty after this call, but the states already retrieved from it, and
+     * paths created from them, remain valid.
+     */
+    public void release() {
+        Object[] array = statesByVertexIndex;
+        if (array == EMPTY) {
+            return;
+        }
+        for (int i = 0; i < usedVertexIndexes.size(); ++i) {
+            array[usedVertexIndexes.getQuick(i)] = null;
+        }
+        usedVertexIndexes.resetQuick();
+        statesAtOtherVertices.clear();
+        statesByVertexIndex = EMPTY;
+
+        SoftReference<Object[]> pooled = STATES_ARRAY_POOL.get();
+        Object[] pooledArray = pooled == null ? null : pooled.get();
+        if (pooledArray == null || pooledArray.length < array.length) {
+            STATES_ARRAY_POOL.set(new SoftReference<>(array));
+        }
+    }
+
     public String toString() {
-        return "ShortestPathTree(" + this.stateSets.size() + " vertices)";
+        return "ShortestPathTree(" + getVertexCount() + " vertices)";
+    }
+
+    /** @return null, a single State or a list of states. */
+    private Object getStateSet(Vertex vertex) {
+        int index = vertex.getIndex();
+        if (index >= 0 && index < statesByVertexIndex.length) {
+            return statesByVertexIndex[index];
+        }
+        return statesAtOtherVertices.get(vertex);
+    }
+
+    private void setStateSet(Vertex vertex, Object states) {
+        int index = vertex.getIndex();
+        if (index >= 0 && index < statesByVertexIndex.length) {
+            if (statesByVertexIndex[index] == null) {
+                usedVertexIndexes.add(index);
+            }
+            statesByVertexIndex[index] = states;
+        } else {
+            statesAtOtherVertices.put(vertex, states);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<State> asStateList(Object states) {
+        return (List<State>) states;
     }
 
-}
\ No newline at end of file
+    private static State firstState(Object states) {
+        return states instanceof State ? (State) states : asStateList(states).get(0);
+    }
+
+    private static void addStates(List<State> target, Object states) {
+        if (states instanceof State) {
+            target.add((State) states);
+        } else {
+            target.addAll(asStateList(states));
+        }
+    }
+
+    private static int vertexIndexSize(RoutingRequest options) {
+        RoutingContext rctx = options == null ? null : options.rctx;
+        return rctx == null || rctx.graph == null ? 0 : rctx.graph.getVertexIndexSize();
+    }
+
+    /**
+     * Take the array from the thread-local pool if it is large enough, otherwise create a new one.
+     * The pooled array is always cleared when it is released.
+     */
+    private static Object[] acquireStatesArray(int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        SoftReference<Object[]> pooled = STATES_ARRAY_POOL.get();
+        Object[] array = pooled == null ? null : pooled.get();
+        if (array != null && array.length >= size) {
+            STATES_ARRAY_POOL.remove();
+            return array;
+        }
+        return new Object[size];
+    }
+}
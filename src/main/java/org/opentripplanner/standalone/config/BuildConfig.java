@@ -75,12 +75,28 @@ public class BuildConfig {
      */
     public final boolean stationTransfers;
 
+    /**
+     * The number of threads used to find the streets to link the stops, entrances, bike rental
+     * stations and bike parks to. The streets are split one vertex at a time in a fixed order, so
+     * the result does not depend on the number of threads. The default is the number of available
+     * processors.
+     */
+    public final int streetLinkingThreads;
+
     /**
      * Minutes necessary to reach stops served by trips on routes of route_type=1 (subway) from the street.
      * Perhaps this should be a runtime router parameter rather than a graph build parameter.
      */
     public final double subwayAccessTime;
 
+    /**
+     * The number of GTFS feeds read and mapped in parallel. The feeds are still added to the
+     * graph one at a time, in the order they are found. Each feed being read is kept in memory,
+     * so lower this if the graph build runs out of memory. The default is the number of
+     * available processors.
+     */
+    public final int gtfsReaderThreads;
+
     /**
      * Include street input files (OSM/PBF).
      */
@@ -106,6 +122,13 @@ public class BuildConfig {
      */
     public final boolean matchBusRoutesToStreets;
 
+    /**
+     * Save the street edge geometries in a file next to the graph file, and map that file into
+     * memory when the graph is loaded instead of reading the geometries into the heap. See
+     * {@link org.opentripplanner.routing.graph.StreetGeometryFile}.
+     */
+    public final boolean mapStreetGeometries;
+
     /**
      * Download US NED elevation data and apply it to the graph.
      */
@@ -138,7 +161,8 @@ public class BuildConfig {
 
     /**
      * When loading OSM data, the input is streamed 3 times - one phase for processing RELATIONS,
-     * one for WAYS and last one for NODES. Instead of reading the data source 3 times it might be
+     * one for WAYS and last one for NODES. The last two phases skip the blocks without ways or
+     * nodes, but still read the source. Instead of reading the data source 3 times it might be
      * faster to cache the entire osm file im memory. The trade off is of cause that OTP might use
      * more memory while loading osm data. You can use this parameter to choose what is best for
      * your deployment depending on your infrastructure. Set the parameter to {@code true} to cache
@@ -147,6 +171,13 @@ public class BuildConfig {
      */
     public final boolean osmCacheDataInMem;
 
+    /**
+     * The number of threads used to decompress and decode the blocks of the OSM PBF files. The
+     * entities are still added to the OSM database in file order. The default is the number of
+     * available processors.
+     */
+    public final int osmReaderThreads;
+
     /**
      * Whether bike rental stations should be loaded from OSM, rather than periodically dynamically pulled from APIs.
      */
@@ -162,6 +193,14 @@ public class BuildConfig {
      */
     public boolean staticBikeParkAndRide;
 
+    /**
+     * The number of landmarks to select for the landmark (ALT) goal directed heuristic used by
+     * street searches. The street distance from and to each landmark is stored in the graph for
+     * each vertex, using 16 bytes per vertex and landmark. If 0, no landmarks are created and the
+     * straight line distance heuristic is used.
+     */
+    public final int landmarks;
+
     /**
      * Maximal distance between stops in meters that will connect consecutive trips that are made with same vehicle
      */
@@ -196,6 +235,12 @@ public class BuildConfig {
      */
     public final double maxTransferDistance;
 
+    /**
+     * The number of threads used to create the direct transfers between stops. Each thread runs
+     * its own street searches. The default is the number of available processors.
+     */
+    public final int transferGeneratorThreads;
+
     /**
      * This will add extra edges when linking a stop to a platform, to prevent detours along the platform edge.
      */
@@ -313,15 +358,19 @@ public class BuildConfig {
         embedRouterConfig = c.asBoolean("embedRouterConfig", true);
         extraEdgesStopPlatformLink = c.asBoolean("extraEdgesStopPlatformLink", false);
         fetchElevationUS = c.asBoolean("fetchElevationUS", false);
+        gtfsReaderThreads = c.asInt("gtfsReaderThreads", Runtime.getRuntime().availableProcessors());
         includeEllipsoidToGeoidDifference = c.asBoolean("includeEllipsoidToGeoidDifference", false);
         pruningThresholdIslandWithStops = c.asInt("islandWithStopsMaxSize", 5);
         pruningThresholdIslandWithoutStops = c.asInt("islandWithoutStopsMaxSize", 40);
+        landmarks = c.asInt("landmarks", 0);
         matchBusRoutesToStreets = c.asBoolean("matchBusRoutesToStreets", false);
+        mapStreetGeometries = c.asBoolean("mapStreetGeometries", false);
         maxDataImportIssuesPerFile = c.asInt("maxDataImportIssuesPerFile", 1000);
         maxInterlineDistance = c.asInt("maxInterlineDistance", 200);
         maxTransferDistance = c.asDouble("maxTransferDistance", 2000d);
         multiThreadElevationCalculations = c.asBoolean("multiThreadElevationCalculations", false);
         osmCacheDataInMem = c.asBoolean("osmCacheDataInMem", false);
+        osmReaderThreads = c.asInt("osmReaderThreads", Runtime.getRuntime().availableProcessors());
         osmWayPropertySet = WayPropertySetSource.fromConfig(c.asText("osmWayPropertySet", "default"));
         parentStopLinking = c.asBoolean("parentStopLinking", false);
         platformEntriesLinking = c.asBoolean("platformEntriesLinking", false);
@@ -330,8 +379,16 @@ public class BuildConfig {
         staticBikeRental = c.asBoolean("staticBikeRental", false);
         staticParkAndRide = c.asBoolean("staticParkAndRide", true);
         stationTransfers = c.asBoolean("stationTransfers", false);
+        streetLinkingThreads = c.asInt(
+            "streetLinkingThreads",
+            Runtime.getRuntime().availableProcessors()
+        );
         streets = c.asBoolean("streets", true);
         subwayAccessTime = c.asDouble("subwayAccessTime", DEFAULT_SUBWAY_ACCESS_TIME_MINUTES);
+        transferGeneratorThreads = c.asInt(
+            "transferGeneratorThreads",
+            Runtime.getRuntime().availableProcessors()
+        );
         transit = c.asBoolean("transit", true);
         transitServiceStart = c.asDateOrRelativePeriod("transitServiceStart", "-P1Y");
         transitServiceEnd = c.asDateOrRelativePeriod( "transitServiceEnd", "P3Y");
@@ -82,11 +82,21 @@ public class NetexConfig {
      */
     public final Pattern groupFilePattern;
 
+    /**
+     * The number of threads used to parse the XML files. The files of each level (shared files,
+     * shared group files and group files) are parsed in parallel, but added to the import in the
+     * order they are listed.
+     * <p>
+     * Default value is the number of available processors.
+     */
+    public final int parserThreads;
+
     NetexConfig(NodeAdapter config) {
         ignoreFilePattern = config.asPattern("ignoreFilePattern", IGNORE_FILE_PATTERN);
         sharedFilePattern = config.asPattern("sharedFilePattern", SHARED_FILE_PATTERN);
         sharedGroupFilePattern = config.asPattern("sharedGroupFilePattern", SHARED_GROUP_FILE_PATTERN);
         groupFilePattern = config.asPattern("groupFilePattern", GROUP_FILE_PATTERN);
         netexFeedId = config.asText("netexFeedId", NETEX_FEED_ID);
+        parserThreads = config.asInt("parserThreads", Runtime.getRuntime().availableProcessors());
     }
 }
@@ -0,0 +1,40 @@
+package org.opentripplanner.standalone.config;
+
+import org.opentripplanner.routing.PlanResponseCache;
+
+import java.util.Set;
+
+/**
+ * The configuration of the {@link PlanResponseCache}, the cache of trip planning responses.
+ */
+public class PlanCacheConfig {
+
+    /**
+     * The maximum number of responses kept in the cache, the least recently used responses are
+     * dropped first. The default value is 0 - zero, nothing is cached.
+     */
+    public final int maxSize;
+
+    /**
+     * The number of seconds a response is kept in the cache. The default is 60 seconds.
+     */
+    public final int timeToLiveSeconds;
+
+    /**
+     * Requests with a search time in the same bucket of this many seconds get the same cached
+     * response. The default is 60 seconds.
+     */
+    public final int timeBucketSeconds;
+
+    /**
+     * The APIs not using the cache. The default is an empty set, all APIs use the cache.
+     */
+    public final Set<PlanResponseCache.Api> disabledApis;
+
+    PlanCacheConfig(NodeAdapter c) {
+        this.maxSize = c.asInt("maxSize", 0);
+        this.timeToLiveSeconds = c.asInt("timeToLive", 60);
+        this.timeBucketSeconds = c.asInt("timeBucket", 60);
+        this.disabledApis = c.asEnumSet("disabledApis", PlanResponseCache.Api.class);
+    }
+}
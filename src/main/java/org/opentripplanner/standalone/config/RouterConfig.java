@@ -32,6 +32,9 @@ public class RouterConfig implements Serializable {
     private final String requestLogFile;
     private final boolean transmodelApiHideFeedId;
     private final double streetRoutingTimeoutSeconds;
+    private final int streetRoutingThreadPoolSize;
+    private final int accessEgressCacheSize;
+    private final PlanCacheConfig planCacheConfig;
     private final RoutingRequest routingRequestDefaults;
     private final TransitRoutingConfig transitConfig;
     private final UpdaterConfig updaterParameters;
@@ -45,6 +48,9 @@ public class RouterConfig implements Serializable {
         this.streetRoutingTimeoutSeconds = adapter.asDouble(
                 "streetRoutingTimeout", DEFAULT_STREET_ROUTING_TIMEOUT
         );
+        this.streetRoutingThreadPoolSize = adapter.asInt("streetRoutingThreadPoolSize", 0);
+        this.accessEgressCacheSize = adapter.asInt("accessEgressCacheSize", 0);
+        this.planCacheConfig = new PlanCacheConfig(adapter.path("planCache"));
         this.transitConfig = new TransitRoutingConfig(adapter.path("transit"));
         this.routingRequestDefaults = mapRoutingRequest(adapter.path("routingDefaults"));
         this.updaterParameters = new UpdaterConfig(adapter.path("updaters"));
@@ -68,6 +74,33 @@ public class RouterConfig implements Serializable {
         return streetRoutingTimeoutSeconds;
     }
 
+    /**
+     * The direct street search and the access and egress street searches are independent, and can
+     * run in parallel. This is the total number of threads available for street searches across
+     * all requests. The default value is 0 - zero. If 0, no extra threads are started and the
+     * street searches are done one after the other in the request thread.
+     */
+    public int streetRoutingThreadPoolSize() {
+        return streetRoutingThreadPoolSize;
+    }
+
+    /**
+     * The maximum number of access and egress street search results kept in the cache, the least
+     * recently used results are dropped first. The default value is 0 - zero, no results are
+     * cached. See {@link org.opentripplanner.routing.algorithm.raptor.router.street.AccessEgressCache}.
+     */
+    public int accessEgressCacheSize() {
+        return accessEgressCacheSize;
+    }
+
+    /**
+     * The configuration of the trip planning response cache, see
+     * {@link org.opentripplanner.routing.PlanResponseCache}.
+     */
+    public PlanCacheConfig planCacheConfig() {
+        return planCacheConfig;
+    }
+
     public boolean transmodelApiHideFeedId() { return transmodelApiHideFeedId; }
 
     public RoutingRequest routingRequestDefaults() {
@@ -20,6 +20,8 @@ public final class TransitRoutingConfig
     private final int scheduledTripBinarySearchThreshold;
     private final int iterationDepartureStepInSeconds;
     private final int searchThreadPoolSize;
+    private final int searchWindowPartitions;
+    private final boolean useStopArrivalArena;
     private final Map<TransferPriority, Integer> stopTransferCost;
     private final DynamicSearchWindowCoefficients dynamicSearchWindowCoefficients;
 
@@ -42,6 +44,14 @@ public final class TransitRoutingConfig
             "searchThreadPoolSize",
             dft.searchThreadPoolSize()
         );
+        this.searchWindowPartitions = c.asInt(
+            "searchWindowPartitions",
+            dft.searchWindowPartitions()
+        );
+        this.useStopArrivalArena = c.asBoolean(
+            "useStopArrivalArena",
+            dft.useStopArrivalArena()
+        );
         // Dynamic Search Window
         this.dynamicSearchWindowCoefficients = new DynamicSearchWindowConfig(
             c.path("dynamicSearchWindow")
@@ -73,6 +83,16 @@ public final class TransitRoutingConfig
         return searchThreadPoolSize;
     }
 
+    @Override
+    public int searchWindowPartitions() {
+        return searchWindowPartitions;
+    }
+
+    @Override
+    public boolean useStopArrivalArena() {
+        return useStopArrivalArena;
+    }
+
     @Override
     public DynamicSearchWindowCoefficients dynamicSearchWindowCoefficients() {
         return dynamicSearchWindowCoefficients;
@@ -7,11 +7,15 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.ConsoleAppender;
 import ch.qos.logback.core.FileAppender;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import org.opentripplanner.inspector.TileRendererManager;
 import org.opentripplanner.model.GenericLocation;
+import org.opentripplanner.routing.PlanResponseCache;
 import org.opentripplanner.routing.algorithm.astar.AStar;
 import org.opentripplanner.routing.algorithm.astar.strategies.TrivialRemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.raptor.router.street.AccessEgressCache;
 import org.opentripplanner.routing.algorithm.raptor.transit.TransitLayer;
 import org.opentripplanner.routing.algorithm.raptor.transit.TripSchedule;
 import org.opentripplanner.routing.algorithm.raptor.transit.mappers.TransitLayerMapper;
@@ -25,6 +29,7 @@ import org.opentripplanner.routing.location.TemporaryStreetLocation;
 import org.opentripplanner.routing.spt.DominanceFunction;
 import org.opentripplanner.routing.spt.ShortestPathTree;
 import org.opentripplanner.routing.vertextype.OsmVertex;
+import org.opentripplanner.standalone.config.PlanCacheConfig;
 import org.opentripplanner.standalone.config.RouterConfig;
 import org.opentripplanner.transit.raptor.rangeraptor.configure.RaptorConfig;
 import org.opentripplanner.updater.GraphUpdaterConfigurator;
@@ -45,6 +50,18 @@ public class Router {
     public final RouterConfig routerConfig;
     public final RaptorConfig<TripSchedule> raptorConfig;
 
+    /**
+     * Thread pool used to run the street searches of a request in parallel, {@code null} if the
+     * street searches should run in the request thread.
+     */
+    private final ExecutorService streetRoutingThreadPool;
+
+    /** The cache of access and egress street searches, {@code null} if caching is disabled. */
+    private final AccessEgressCache accessEgressCache;
+
+    /** The cache of trip planning responses, {@code null} if caching is disabled. */
+    private final PlanResponseCache planResponseCache;
+
     /**
      *  Separate logger for incoming requests. This should be handled with a Logback logger
      *  rather than something simple like a PrintStream because requests come in multi-threaded.
@@ -70,6 +87,22 @@ public class Router {
         this.graph = graph;
         this.routerConfig = routerConfig;
         this.raptorConfig = new RaptorConfig<>(routerConfig.raptorTuningParameters());
+        this.streetRoutingThreadPool = routerConfig.streetRoutingThreadPoolSize() > 0
+            ? Executors.newFixedThreadPool(routerConfig.streetRoutingThreadPoolSize())
+            : null;
+        this.accessEgressCache = routerConfig.accessEgressCacheSize() > 0
+            ? new AccessEgressCache(graph, routerConfig.accessEgressCacheSize())
+            : null;
+        PlanCacheConfig planCache = routerConfig.planCacheConfig();
+        this.planResponseCache = planCache.maxSize > 0
+            ? new PlanResponseCache(
+                graph,
+                planCache.maxSize,
+                planCache.timeToLiveSeconds,
+                planCache.timeBucketSeconds,
+                planCache.disabledApis
+            )
+            : null;
     }
 
     /*
@@ -126,6 +159,9 @@ public class Router {
     /** Shut down this router when evicted or (auto-)reloaded. Stop any real-time updater threads. */
     public void shutdown() {
         GraphUpdaterConfigurator.shutdownGraph(this.graph);
+        if (streetRoutingThreadPool != null) {
+            streetRoutingThreadPool.shutdown();
+        }
     }
 
     /**
@@ -167,6 +203,29 @@ public class Router {
         return logger;
     }
 
+    /**
+     * @return the thread pool for street searches, or {@code null} if the street searches should
+     *         run in the request thread.
+     */
+    public ExecutorService streetRoutingThreadPool() {
+        return streetRoutingThreadPool;
+    }
+
+    /**
+     * @return the cache of access and egress street search results, or {@code null} if caching is
+     *         disabled.
+     */
+    public AccessEgressCache accessEgressCache() {
+        return accessEgressCache;
+    }
+
+    /**
+     * @return the cache of trip planning responses, or {@code null} if caching is disabled.
+     */
+    public PlanResponseCache planResponseCache() {
+        return planResponseCache;
+    }
+
     public double streetRoutingTimeoutSeconds() {
         return  routerConfig.streetRoutingTimeoutSeconds();
     }
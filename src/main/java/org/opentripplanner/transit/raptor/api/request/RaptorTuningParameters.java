@@ -59,6 +59,34 @@ public interface RaptorTuningParameters {
         return 0;
     }
 
+    /**
+     * Split the departure-time search window of a multi-criteria range raptor search into N
+     * sub-windows and search them in parallel using the {@link #searchThreadPoolSize()} thread
+     * pool. The result paths from each sub-window are merged into one pareto set. This reduce
+     * the response time for long search windows, at the cost of some extra work in total.
+     * <p/>
+     * Each sub-window is at least 2 iterations long, if the search window is too short it is
+     * split in fewer parts. This has no effect unless the {@link #searchThreadPoolSize()} is set
+     * and the request allow the search to run in parallel.
+     * <p/>
+     * The default value is 0 - zero. If 0 or 1, the search window is not split.
+     */
+    default int searchWindowPartitions() {
+        return 0;
+    }
+
+    /**
+     * Store the multi-criteria stop arrivals in primitive arrays (an arena) instead of creating
+     * one object for each arrival. Rejected stop arrivals are reused, and the arrays are recycled
+     * between searches done by the same thread. This reduce the pressure on the garbage
+     * collector for searches creating millions of stop arrivals.
+     * <p/>
+     * The default value is {@code false}.
+     */
+    default boolean useStopArrivalArena() {
+        return false;
+    }
+
 
     /**
      * Coefficients used to calculate raptor-search-window parameters dynamically  from heuristics.
@@ -20,6 +20,30 @@ public interface RaptorTimeTable<T extends RaptorTripSchedule> {
      */
     T getTripSchedule(int index);
 
+    /**
+     * Get the departure time for the trip with the given index at the given stop position.
+     * This is the same as {@code getTripSchedule(tripIndex).departure(stopPositionInPattern)},
+     * and it is used by the trip search to scan the time-table without creating a trip
+     * schedule for each trip visited. The trip schedule is only fetched for the trip found.
+     * <p/>
+     * This method needs to be FAST - implementations should override the default
+     * implementation and avoid creating new objects.
+     *
+     * @param tripIndex the trip schedule index in pattern starting at 0.
+     */
+    default int departureTime(int tripIndex, int stopPositionInPattern) {
+        return getTripSchedule(tripIndex).departure(stopPositionInPattern);
+    }
+
+    /**
+     * Get the arrival time for the trip with the given index at the given stop position.
+     *
+     * @see #departureTime(int, int)
+     */
+    default int arrivalTime(int tripIndex, int stopPositionInPattern) {
+        return getTripSchedule(tripIndex).arrival(stopPositionInPattern);
+    }
+
     /**
      * Number of trips in time-table.
      */
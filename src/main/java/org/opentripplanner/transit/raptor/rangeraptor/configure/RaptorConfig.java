@@ -9,7 +9,10 @@ import org.opentripplanner.transit.raptor.api.view.Worker;
 import org.opentripplanner.transit.raptor.rangeraptor.RangeRaptorWorker;
 import org.opentripplanner.transit.raptor.rangeraptor.RoutingStrategy;
 import org.opentripplanner.transit.raptor.rangeraptor.WorkerState;
+import org.opentripplanner.transit.raptor.rangeraptor.debug.WorkerPerformanceTimers;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.configure.McRangeRaptorConfig;
+import org.opentripplanner.transit.raptor.rangeraptor.path.DestinationArrivalPaths;
+import org.opentripplanner.transit.raptor.rangeraptor.path.configure.PathConfig;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.configure.StdRangeRaptorConfig;
 import org.opentripplanner.transit.raptor.rangeraptor.standard.heuristics.HeuristicSearch;
 import org.opentripplanner.transit.raptor.service.RaptorSearchWindowCalculator;
@@ -55,6 +58,36 @@ public class RaptorConfig<T extends RaptorTripSchedule> {
         return new McRangeRaptorConfig<>(context).createWorker(heuristics, (s, w) -> createWorker(context, s, w));
     }
 
+    /**
+     * Create a multi-criteria worker for one partition of the search window. Each partition get
+     * its own performance timers, so the workers can run in parallel.
+     */
+    public Worker<T> createMcPartitionWorker(
+            RaptorTransitDataProvider<T> transitData,
+            RaptorRequest<T> request,
+            Heuristics heuristics,
+            int partition
+    ) {
+        final SearchContext<T> context = new SearchContext<>(
+                request, tuningParameters, transitData, timers.get(request, partition)
+        );
+        return new McRangeRaptorConfig<>(context).createWorker(heuristics, (s, w) -> createWorker(context, s, w));
+    }
+
+    /**
+     * Create an empty set of paths to merge the results of several workers into.
+     */
+    public DestinationArrivalPaths<T> createMcDestinationArrivalPaths(
+            RaptorTransitDataProvider<T> transitData,
+            RaptorRequest<T> request
+    ) {
+        return new PathConfig<>(context(transitData, request)).createDestArrivalPaths(true);
+    }
+
+    public WorkerPerformanceTimers timers(RaptorRequest<T> request) {
+        return timers.get(request);
+    }
+
     public HeuristicSearch<T> createHeuristicSearch(
             RaptorTransitDataProvider<T> transitData,
             RaptorRequest<T> request
@@ -78,6 +111,14 @@ public class RaptorConfig<T extends RaptorTripSchedule> {
         }
     }
 
+    public int searchWindowPartitions() {
+        return tuningParameters.searchWindowPartitions();
+    }
+
+    public int iterationDepartureStepInSeconds() {
+        return tuningParameters.iterationDepartureStepInSeconds();
+    }
+
     public RaptorSearchWindowCalculator searchWindowCalculator() {
         return new RaptorSearchWindowCalculator(tuningParameters.dynamicSearchWindowCoefficients());
     }
@@ -7,11 +7,15 @@ public class WorkerPerformanceTimers {
     private final AvgTimer timerRoute;
     private final AvgTimer timerByMinuteScheduleSearch;
     private final AvgTimer timerByMinuteTransfers;
+    private final AvgTimer timerRouteInParallel;
+    private final AvgTimer timerMergePaths;
 
     public WorkerPerformanceTimers(String namePrefix) {
         timerRoute = AvgTimer.timerMilliSec(namePrefix + ":route");
         timerByMinuteScheduleSearch = AvgTimer.timerMicroSec(namePrefix + ":runRaptorForMinute Transit");
         timerByMinuteTransfers = AvgTimer.timerMicroSec(namePrefix + ":runRaptorForMinute Transfers");
+        timerRouteInParallel = AvgTimer.timerMilliSec(namePrefix + ":route in parallel");
+        timerMergePaths = AvgTimer.timerMicroSec(namePrefix + ":merge paths");
     }
 
     public AvgTimer timerRoute() {
@@ -25,4 +29,14 @@ public class WorkerPerformanceTimers {
     public AvgTimer timerByMinuteTransfers() {
         return timerByMinuteTransfers;
     }
+
+    /** The total time of a search where the search window is split and routed in parallel. */
+    public AvgTimer timerRouteInParallel() {
+        return timerRouteInParallel;
+    }
+
+    /** The time spent merging the paths from each search window partition. */
+    public AvgTimer timerMergePaths() {
+        return timerMergePaths;
+    }
 }
@@ -3,7 +3,6 @@ package org.opentripplanner.transit.raptor.rangeraptor.multicriteria;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTransfer;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
 import org.opentripplanner.transit.raptor.api.view.ArrivalView;
-import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arrivals.TransitStopArrival;
 import org.opentripplanner.transit.raptor.rangeraptor.path.DestinationArrivalPaths;
 import org.opentripplanner.transit.raptor.api.transit.CostCalculator;
 import org.opentripplanner.transit.raptor.util.paretoset.ParetoSetEventListener;
@@ -23,7 +22,7 @@ public class CalculateTransferToDestination<T extends RaptorTripSchedule>
     private final DestinationArrivalPaths<T> destinationArrivals;
     private final CostCalculator<T> costCalculator;
 
-    CalculateTransferToDestination(
+    public CalculateTransferToDestination(
             List<RaptorTransfer> egressLegs,
             DestinationArrivalPaths<T> destinationArrivals,
             CostCalculator<T> costCalculator
@@ -42,11 +41,10 @@ public class CalculateTransferToDestination<T extends RaptorTripSchedule>
      */
     @Override
     public void notifyElementAccepted(ArrivalView<T> newElement) {
-        if(newElement instanceof TransitStopArrival) {
-            TransitStopArrival<T> transitStopArrival = (TransitStopArrival<T>) newElement;
+        if(newElement.arrivedByTransit()) {
             for (RaptorTransfer egressLeg : egressLegs) {
                 destinationArrivals.add(
-                    transitStopArrival,
+                    newElement,
                     egressLeg,
                     costCalculator.walkCost(egressLeg.durationInSeconds())
                 );
@@ -0,0 +1,236 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena;
+
+import org.opentripplanner.transit.raptor.api.path.Path;
+import org.opentripplanner.transit.raptor.api.transit.CostCalculator;
+import org.opentripplanner.transit.raptor.api.transit.IntIterator;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTransfer;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.rangeraptor.WorkerLifeCycle;
+import org.opentripplanner.transit.raptor.rangeraptor.WorkerState;
+import org.opentripplanner.transit.raptor.rangeraptor.debug.DebugHandlerFactory;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.heuristic.HeuristicsProvider;
+import org.opentripplanner.transit.raptor.rangeraptor.path.DestinationArrivalPaths;
+import org.opentripplanner.transit.raptor.rangeraptor.transit.TransitCalculator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+
+/**
+ * The arena version of the {@link org.opentripplanner.transit.raptor.rangeraptor.multicriteria.McRangeRaptorWorkerState}.
+ * All stop arrivals are kept in a {@link StopArrivalArena}, and candidate arrivals rejected by
+ * the heuristics or the stop pareto sets are returned to the arena at once. Arrivals dropped
+ * from a stop pareto set are returned by the set, when no other arrival references them.
+ * <p/>
+ * The arena is opened in the first iteration and closed when the paths are extracted, so the
+ * arena arrays are taken from the thread running the search.
+ *
+ * @param <T> The TripSchedule type defined by the user of the raptor API.
+ */
+public final class ArenaMcRangeRaptorWorkerState<T extends RaptorTripSchedule> implements WorkerState<T> {
+
+    private final StopArrivalArena<T> arena;
+    private final ArenaStops<T> stops;
+    private final DestinationArrivalPaths<T> paths;
+    private final HeuristicsProvider<T> heuristics;
+    private final CostCalculator<T> costCalculator;
+    private final TransitCalculator transitCalculator;
+    private final StopArrivalArena<T>.Cursor costCalculatorCursor;
+
+    private int[] arrivalsCache = new int[256];
+    private int arrivalsCacheSize = 0;
+
+    public ArenaMcRangeRaptorWorkerState(
+            int nStops,
+            Collection<RaptorTransfer> egressLegs,
+            DestinationArrivalPaths<T> paths,
+            HeuristicsProvider<T> heuristics,
+            CostCalculator<T> costCalculator,
+            TransitCalculator transitCalculator,
+            DebugHandlerFactory<T> debugHandlerFactory,
+            WorkerLifeCycle lifeCycle
+    ) {
+        this.arena = new StopArrivalArena<>();
+        this.stops = new ArenaStops<>(
+                nStops, arena, egressLegs, paths, costCalculator, debugHandlerFactory
+        );
+        this.paths = paths;
+        this.heuristics = heuristics;
+        this.costCalculator = costCalculator;
+        this.transitCalculator = transitCalculator;
+        this.costCalculatorCursor = arena.cursor();
+
+        // Attach to the RR life cycle
+        lifeCycle.onSetupIteration((ignore) -> setupIteration());
+        lifeCycle.onTransitsForRoundComplete(this::transitsForRoundComplete);
+        lifeCycle.onTransfersForRoundComplete(this::transfersForRoundComplete);
+    }
+
+    // The below methods are ordered after the sequence they naturally appear in the algorithm,
+    // also private life-cycle callbacks are listed here (not in the private method section).
+
+    // This method is private, but is part of Worker life cycle
+    private void setupIteration() {
+        if(!arena.isOpen()) {
+            arena.open();
+        }
+        arrivalsCacheSize = 0;
+        // clear all touched stops to avoid constant rexploration
+        stops.clearTouchedStopsAndSetStopMarkers();
+    }
+
+    @Override
+    public void setInitialTimeForIteration(RaptorTransfer accessLeg, int departureTime) {
+        addStopArrival(
+                arena.addAccess(
+                        departureTime,
+                        costCalculator.walkCost(accessLeg.durationInSeconds()),
+                        accessLeg
+                )
+        );
+    }
+
+    @Override
+    public boolean isNewRoundAvailable() {
+        return stops.updateExist();
+    }
+
+    @Override
+    public IntIterator stopsTouchedPreviousRound() {
+        return stops.stopsTouchedIterator();
+    }
+
+    @Override
+    public IntIterator stopsTouchedByTransitCurrentRound() {
+        return stops.stopsTouchedIterator();
+    }
+
+    StopArrivalArena<T> arena() {
+        return arena;
+    }
+
+    /**
+     * Return the arrivals at the given stop, the arrivals added in the previous round start at
+     * the set {@link StopArrivalIndexParetoSet#marker()}. Return {@code null} if the stop is not
+     * reached.
+     */
+    StopArrivalIndexParetoSet<T> stopArrivals(int stop) {
+        return stops.arrivals(stop);
+    }
+
+    /**
+     * Set the time at a transit stop iff it is optimal.
+     */
+    void transitToStop(
+            final ArenaPatternRide<T> ride,
+            final int alightStop,
+            final int alightTime,
+            final int alightSlack
+    ) {
+        final int stopArrivalTime = alightTime + alightSlack;
+
+        if (exceedsTimeLimit(stopArrivalTime)) { return; }
+
+        // Calculate wait time before and after the transit leg
+        final int waitTime = ride.boardWaitTime + alightSlack;
+
+        final int costTransitLeg = costCalculator.transitArrivalCost(
+            costCalculatorCursor.moveTo(ride.prevArrival),
+            waitTime,
+            alightTime - ride.boardTime,
+            alightStop,
+            ride.trip
+        );
+        cacheArrival(
+                arena.addTransit(ride.prevArrival, alightStop, stopArrivalTime, costTransitLeg, ride.trip)
+        );
+    }
+
+    /**
+     * Set the time at a transit stops iff it is optimal.
+     */
+    @Override
+    public void transferToStops(int fromStop, Iterator<? extends RaptorTransfer> transfers) {
+        StopArrivalIndexParetoSet<T> fromArrivals = stops.arrivals(fromStop);
+
+        if(fromArrivals == null) { return; }
+
+        while (transfers.hasNext()) {
+            transferToStop(fromArrivals, transfers.next());
+        }
+    }
+
+    // This method is private, but is part of Worker life cycle
+    private void transitsForRoundComplete() {
+        stops.clearTouchedStopsAndSetStopMarkers();
+        commitCachedArrivals();
+    }
+
+    // This method is private, but is part of Worker life cycle
+    private void transfersForRoundComplete() {
+        commitCachedArrivals();
+    }
+
+    @Override
+    public Collection<Path<T>> extractPaths() {
+        // The paths are mapped when the destination arrivals are added, the arena is not needed
+        arena.close();
+        return paths.listPaths();
+    }
+
+    @Override
+    public boolean isDestinationReachedInCurrentRound() {
+        return paths.isReachedCurrentRound();
+    }
+
+
+    /* private methods */
+
+
+    private void transferToStop(StopArrivalIndexParetoSet<T> fromArrivals, RaptorTransfer transfer) {
+        final int transferTimeInSeconds = transfer.durationInSeconds();
+        final int toStop = transfer.stop();
+
+        for (int i = fromArrivals.marker(); i < fromArrivals.size(); ++i) {
+            int it = fromArrivals.get(i);
+            int arrivalTime = arena.arrivalTime(it) + transferTimeInSeconds;
+
+            if (!exceedsTimeLimit(arrivalTime)) {
+                int cost = costCalculator.walkCost(transferTimeInSeconds);
+                cacheArrival(arena.addTransfer(it, toStop, arrivalTime, cost));
+            }
+        }
+    }
+
+    private void cacheArrival(int arrival) {
+        if (arrivalsCacheSize == arrivalsCache.length) {
+            arrivalsCache = Arrays.copyOf(arrivalsCache, arrivalsCacheSize * 2);
+        }
+        arrivalsCache[arrivalsCacheSize++] = arrival;
+    }
+
+    private void commitCachedArrivals() {
+        for (int i = 0; i < arrivalsCacheSize; ++i) {
+            addStopArrival(arrivalsCache[i]);
+        }
+        arrivalsCacheSize = 0;
+    }
+
+    /**
+     * Add the arrival to the stop pareto set, a rejected arrival is not referenced by any
+     * other arrival or set, so it is returned to the arena. The cached arrivals reference their
+     * previous arrivals, so these are not freed if they are dropped from their set before the
+     * cached arrivals are added.
+     */
+    private void addStopArrival(int arrival) {
+        if (heuristics.rejectDestinationArrivalBasedOnHeuristic(arena, arrival)
+                || !stops.addStopArrival(arrival)) {
+            arena.free(arrival);
+        }
+    }
+
+    private boolean exceedsTimeLimit(int time) {
+        return transitCalculator.exceedsTimeLimit(time);
+    }
+}
@@ -0,0 +1,142 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena;
+
+import org.opentripplanner.transit.raptor.api.transit.CostCalculator;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTransfer;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripPattern;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.rangeraptor.RoutingStrategy;
+import org.opentripplanner.transit.raptor.rangeraptor.SlackProvider;
+import org.opentripplanner.transit.raptor.rangeraptor.transit.TransitCalculator;
+import org.opentripplanner.transit.raptor.rangeraptor.transit.TripScheduleSearch;
+import org.opentripplanner.transit.raptor.util.paretoset.ParetoSet;
+
+
+/**
+ * The arena version of the {@link org.opentripplanner.transit.raptor.rangeraptor.multicriteria.McTransitWorker},
+ * see {@link ArenaMcRangeRaptorWorkerState}.
+ *
+ * @param <T> The TripSchedule type defined by the user of the raptor API.
+ */
+public final class ArenaMcTransitWorker<T extends RaptorTripSchedule> implements RoutingStrategy<T> {
+
+    private final ArenaMcRangeRaptorWorkerState<T> state;
+    private final StopArrivalArena<T> arena;
+    private final StopArrivalArena<T>.Cursor costCalculatorCursor;
+    private final TransitCalculator calculator;
+    private final CostCalculator<T> costCalculator;
+    private final SlackProvider slackProvider;
+    private final ParetoSet<ArenaPatternRide<T>> patternRides = new ParetoSet<>(
+            ArenaPatternRide.paretoComparatorRelativeCost()
+    );
+
+    private RaptorTripPattern pattern;
+    private TripScheduleSearch<T> tripSearch;
+
+    public ArenaMcTransitWorker(
+        ArenaMcRangeRaptorWorkerState<T> state,
+        SlackProvider slackProvider,
+        TransitCalculator calculator,
+        CostCalculator<T> costCalculator
+    ) {
+        this.state = state;
+        this.arena = state.arena();
+        this.costCalculatorCursor = arena.cursor();
+        this.slackProvider = slackProvider;
+        this.calculator = calculator;
+        this.costCalculator = costCalculator;
+    }
+
+    @Override
+    public void prepareForTransitWith(RaptorTripPattern pattern, TripScheduleSearch<T> tripSearch) {
+        this.pattern = pattern;
+        this.tripSearch = tripSearch;
+        this.patternRides.clear();
+        slackProvider.setCurrentPattern(pattern);
+    }
+
+    @Override
+    public void routeTransitAtStop(int stopPos) {
+        final int stopIndex = pattern.stopIndex(stopPos);
+
+        // Alight at boardStopPos
+        if (pattern.alightingPossibleAt(stopPos)) {
+            for (ArenaPatternRide<T> ride : patternRides) {
+                state.transitToStop(
+                    ride,
+                    stopIndex,
+                    ride.trip.arrival(stopPos),
+                    slackProvider.alightSlack()
+                );
+            }
+        }
+
+        // If it is not possible to board the pattern at this stop, then return
+        if(!pattern.boardingPossibleAt(stopPos)) {
+            return;
+        }
+
+        StopArrivalIndexParetoSet<T> arrivals = state.stopArrivals(stopIndex);
+
+        if(arrivals == null) {
+            return;
+        }
+
+        // For each arrival at the current stop
+        for (int i = arrivals.marker(); i < arrivals.size(); ++i) {
+            int prevArrival = arrivals.get(i);
+
+            int earliestBoardTime = calculator.plusDuration(
+                arena.arrivalTime(prevArrival),
+                slackProvider.boardSlack()
+            );
+
+            boolean found = tripSearch.search(earliestBoardTime, stopPos);
+
+            if (found) {
+                final T trip = tripSearch.getCandidateTrip();
+                final int boardTime = trip.departure(stopPos);
+
+                if(arena.arrivedByAccessLeg(prevArrival)) {
+                    prevArrival = arena.timeShiftAccess(
+                        prevArrival,
+                        boardTime - slackProvider.boardSlack()
+                    );
+                }
+
+                final int boardWaitTime = boardTime - arena.arrivalTime(prevArrival);
+
+                final int relativeBoardCost = costCalculator.onTripRidingCost(
+                    costCalculatorCursor.moveTo(prevArrival),
+                    boardWaitTime,
+                    boardTime,
+                    trip
+                );
+
+                patternRides.add(
+                    new ArenaPatternRide<>(
+                        prevArrival,
+                        stopIndex,
+                        stopPos,
+                        boardTime,
+                        boardWaitTime,
+                        relativeBoardCost,
+                        trip,
+                        tripSearch.getCandidateTripIndex()
+                    )
+                );
+            }
+        }
+    }
+
+    @Override
+    public void setInitialTimeForIteration(RaptorTransfer it, int iterationDepartureTime) {
+        // Earliest possible departure time from the origin, or latest possible arrival time at the
+        // destination if searching backwards, using this AccessEgress.
+        int departureTime = calculator.departureTime(it, iterationDepartureTime);
+
+        // This access is not available after the iteration departure time
+        if (departureTime == -1) { return; }
+
+        state.setInitialTimeForIteration(it, departureTime);
+    }
+}
@@ -0,0 +1,50 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena;
+
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.util.paretoset.ParetoComparator;
+
+
+/**
+ * The arena version of the {@link org.opentripplanner.transit.raptor.rangeraptor.multicriteria.PatternRide},
+ * the previous arrival is an index in the {@link StopArrivalArena}. See the {@code PatternRide}
+ * for a description of the pareto vector.
+ *
+ * @param <T> The TripSchedule type defined by the user of the raptor API.
+ */
+final class ArenaPatternRide<T extends RaptorTripSchedule> {
+    final int prevArrival;
+    final int boardStopIndex;
+    final int boardPos;
+    final int boardTime;
+    final int boardWaitTime;
+    final T trip;
+
+    // Pareto vector
+    private final int relativeCost;
+    private final int tripId;
+
+    ArenaPatternRide(
+        int prevArrival,
+        int boardStopIndex,
+        int boardPos,
+        int boardTime,
+        int boardWaitTime,
+        int relativeCost,
+        T trip,
+        int tripId
+    ) {
+        this.prevArrival = prevArrival;
+        this.boardStopIndex = boardStopIndex;
+        this.boardPos = boardPos;
+        this.boardTime = boardTime;
+        this.boardWaitTime = boardWaitTime;
+        this.tripId = tripId;
+        this.trip = trip;
+        this.relativeCost = relativeCost;
+    }
+
+    static <T extends RaptorTripSchedule>
+    ParetoComparator<ArenaPatternRide<T>> paretoComparatorRelativeCost() {
+        return (l, r) -> l.tripId != r.tripId || l.relativeCost < r.relativeCost;
+    }
+}
@@ -0,0 +1,118 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena;
+
+
+import org.opentripplanner.transit.raptor.api.transit.CostCalculator;
+import org.opentripplanner.transit.raptor.api.transit.IntIterator;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTransfer;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.api.view.ArrivalView;
+import org.opentripplanner.transit.raptor.rangeraptor.debug.DebugHandlerFactory;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.CalculateTransferToDestination;
+import org.opentripplanner.transit.raptor.rangeraptor.path.DestinationArrivalPaths;
+import org.opentripplanner.transit.raptor.util.BitSetIterator;
+import org.opentripplanner.transit.raptor.util.paretoset.ParetoSetEventListener;
+import org.opentripplanner.transit.raptor.util.paretoset.ParetoSetEventListenerComposite;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+
+/**
+ * The arena version of the {@link org.opentripplanner.transit.raptor.rangeraptor.multicriteria.Stops},
+ * keeping one pareto set of arrival indexes for each stop. It also keep track of stops visited
+ * since "last mark".
+ *
+ * @param <T> The TripSchedule type defined by the user of the raptor API.
+ */
+final class ArenaStops<T extends RaptorTripSchedule> {
+    private final StopArrivalArena<T> arena;
+    private final StopArrivalIndexParetoSet<T>[] stops;
+    private final BitSet touchedStops;
+    private final DebugHandlerFactory<T> debugHandlerFactory;
+
+    ArenaStops(
+            int nStops,
+            StopArrivalArena<T> arena,
+            Collection<RaptorTransfer> egressLegs,
+            DestinationArrivalPaths<T> paths,
+            CostCalculator<T> costCalculator,
+            DebugHandlerFactory<T> debugHandlerFactory
+    ) {
+        //noinspection unchecked
+        this.stops = (StopArrivalIndexParetoSet<T>[]) new StopArrivalIndexParetoSet[nStops];
+        this.arena = arena;
+        this.touchedStops = new BitSet(nStops);
+        this.debugHandlerFactory = debugHandlerFactory;
+
+        Map<Integer, List<RaptorTransfer>> groupedEgressLegs = egressLegs
+            .stream()
+            .collect(Collectors.groupingBy(RaptorTransfer::stop));
+
+        for (Map.Entry<Integer, List<RaptorTransfer>> it : groupedEgressLegs.entrySet()) {
+            int stop = it.getKey();
+            ParetoSetEventListener<ArrivalView<T>> listener = new CalculateTransferToDestination<>(
+                    it.getValue(), paths, costCalculator
+            );
+            ParetoSetEventListener<ArrivalView<T>> debugListener =
+                    debugHandlerFactory.paretoSetStopArrivalListener(stop);
+
+            if(debugListener != null) {
+                listener = new ParetoSetEventListenerComposite<>(debugListener, listener);
+            }
+            stops[stop] = new StopArrivalIndexParetoSet<>(arena, listener);
+        }
+    }
+
+    boolean updateExist() {
+        return !touchedStops.isEmpty();
+    }
+
+    IntIterator stopsTouchedIterator() {
+        return new BitSetIterator(touchedStops);
+    }
+
+    /**
+     * Add the arrival to the pareto set of its stop. Return {@code false} if the arrival is
+     * rejected, then the arrival is not referenced by the set.
+     */
+    boolean addStopArrival(int arrival) {
+        int stop = arena.stop(arrival);
+        boolean added = findOrCreateSet(stop).add(arrival);
+        if (added) {
+            touchedStops.set(stop);
+        }
+        return added;
+    }
+
+    /**
+     * Return the pareto set for the given stop, or {@code null} if the stop is not reached. Use
+     * {@link StopArrivalIndexParetoSet#marker()} to find the arrivals added in the last round.
+     */
+    StopArrivalIndexParetoSet<T> arrivals(int stop) {
+        return stops[stop];
+    }
+
+    void clearTouchedStopsAndSetStopMarkers() {
+        IntIterator it = stopsTouchedIterator();
+        while (it.hasNext()) {
+            stops[it.next()].markAtEndOfSet();
+        }
+        touchedStops.clear();
+    }
+
+
+    /* private methods */
+
+    private StopArrivalIndexParetoSet<T> findOrCreateSet(final int stop) {
+        if(stops[stop] == null) {
+            stops[stop] = new StopArrivalIndexParetoSet<>(
+                    arena,
+                    debugHandlerFactory.paretoSetStopArrivalListener(stop)
+            );
+        }
+        return stops[stop];
+    }
+}
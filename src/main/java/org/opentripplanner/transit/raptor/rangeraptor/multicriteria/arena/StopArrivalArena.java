@@ -0,0 +1,441 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena;
+
+import org.opentripplanner.transit.raptor.api.transit.RaptorTransfer;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.api.view.AccessLegView;
+import org.opentripplanner.transit.raptor.api.view.ArrivalView;
+import org.opentripplanner.transit.raptor.api.view.TransferLegView;
+import org.opentripplanner.transit.raptor.api.view.TransitLegView;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+
+
+/**
+ * Store all multi-criteria stop arrivals of a search in primitive arrays, instead of one object
+ * for each arrival. A stop arrival is identified by its index in the arena, and the previous
+ * arrival is referenced by index too.
+ * <p/>
+ * A multi-criteria search creates millions of candidate stop arrivals, most of them are rejected
+ * by the pareto sets at once, and many of the accepted ones are later dropped by a better
+ * arrival. The arena counts the references to each arrival: one for each arrival using it as its
+ * previous arrival, and one while it is in a pareto set, see {@link #retain(int)} and
+ * {@link #release(int)}. An arrival is freed when it is no longer referenced, together with the
+ * previous arrivals only referenced by it, and the slot is reused by the next candidate. The
+ * worker state {@link #free(int)}s rejected candidates, which are not referenced at all.
+ * <p/>
+ * A time-shifted access arrival, see {@link #timeShiftAccess(int, int)}, is only referenced by
+ * the transit arrivals boarding from it. If no transit arrival is added it is not freed before
+ * the arena is closed.
+ * <p/>
+ * The arrays are recycled between searches. Call {@link #open()} on the thread running the
+ * search to take the arrays cached for the current thread, and {@link #close()} to return them
+ * when the search is complete. The arrays are kept, so they only grow until they fit the largest
+ * search done by the thread. A worker is created on one thread and may run on another, this is
+ * why the arrays are not taken when the arena is created.
+ * <p/>
+ * The {@link ArrivalView}s returned by {@link #view(int)} read the values from the arena. They are
+ * used to map paths and for debugging, and are only valid until the arena is closed.
+ * <p/>
+ * THIS CLASS IS NOT THREAD-SAFE, each worker must have its own arena.
+ *
+ * @param <T> The TripSchedule type defined by the user of the raptor API.
+ */
+public final class StopArrivalArena<T extends RaptorTripSchedule> {
+
+    /** Used as the previous arrival of access arrivals. */
+    public static final int NOT_SET = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final byte ACCESS = 0;
+    private static final byte TRANSIT = 1;
+    private static final byte TRANSFER = 2;
+
+    /**
+     * The arrays returned by the last search done by a thread. They are soft referenced, so they
+     * do not prevent the memory from being reclaimed if the thread is idle and memory is low.
+     */
+    private static final ThreadLocal<SoftReference<Columns>> POOL = new ThreadLocal<>();
+
+    private int[] stop;
+    private int[] arrivalTime;
+    private int[] travelDuration;
+    private int[] cost;
+    /** See {@link #paretoRound(int)} */
+    private int[] paretoRound;
+    private int[] previous;
+    /** The number of arrivals and pareto sets referencing each arrival */
+    private int[] refCount;
+    private byte[] type;
+    /** The trip for transit arrivals and the access leg for access arrivals */
+    private Object[] leg;
+    private int size = 0;
+
+    private int[] free = new int[64];
+    private int nFree = 0;
+
+    public StopArrivalArena() {
+        setColumns(new Columns(0));
+    }
+
+    /**
+     * Take the arrays cached for the current thread, or create new arrays. This must be called
+     * before any arrivals are added.
+     */
+    public void open() {
+        SoftReference<Columns> ref = POOL.get();
+        Columns columns = ref == null ? null : ref.get();
+        if (columns == null) {
+            columns = new Columns(INITIAL_CAPACITY);
+        }
+        else {
+            POOL.remove();
+        }
+        setColumns(columns);
+        size = 0;
+        nFree = 0;
+    }
+
+    /**
+     * Clear the arena and cache the arrays for the next search on the current thread. Do not use
+     * the arena, or any views of it, after it is closed.
+     */
+    public void close() {
+        // Release the references to trips and access legs
+        Arrays.fill(leg, 0, size, null);
+        size = 0;
+        nFree = 0;
+
+        SoftReference<Columns> ref = POOL.get();
+        Columns pooled = ref == null ? null : ref.get();
+        if (pooled == null || pooled.stop.length < stop.length) {
+            POOL.set(new SoftReference<>(new Columns(this)));
+        }
+        setColumns(new Columns(0));
+    }
+
+    /** Return true if the arena is open, and arrivals can be added. */
+    public boolean isOpen() {
+        return stop.length > 0;
+    }
+
+    /** Add an access arrival, the arrival time is the departure time plus the access duration. */
+    public int addAccess(int departureTime, int initialCost, RaptorTransfer access) {
+        int i = allocate();
+        stop[i] = access.stop();
+        arrivalTime[i] = departureTime + access.durationInSeconds();
+        travelDuration[i] = access.durationInSeconds();
+        cost[i] = initialCost;
+        paretoRound[i] = 0;
+        previous[i] = NOT_SET;
+        refCount[i] = 0;
+        type[i] = ACCESS;
+        leg[i] = access;
+        return i;
+    }
+
+    public int addTransit(int prev, int toStop, int time, int additionalCost, T trip) {
+        // Transits dominate transfers, see paretoRound(int)
+        int i = add(prev, toStop, time, additionalCost, type[prev] == TRANSIT ? 2 : 1);
+        type[i] = TRANSIT;
+        leg[i] = trip;
+        return i;
+    }
+
+    public int addTransfer(int prev, int toStop, int time, int additionalCost) {
+        int i = add(prev, toStop, time, additionalCost, 1);
+        type[i] = TRANSFER;
+        leg[i] = null;
+        return i;
+    }
+
+    /**
+     * Time-shift an access arrival to arrive as late as possible before the given time. The
+     * cost is not changed. A new arrival is added, unless the access cannot be time-shifted.
+     */
+    public int timeShiftAccess(int access, int newRequestedArrivalTime) {
+        RaptorTransfer accessLeg = access(access);
+        int newArrivalTime = accessLeg.latestArrivalTime(newRequestedArrivalTime);
+
+        if(newArrivalTime == -1 || newArrivalTime == arrivalTime[access]) { return access; }
+
+        return addAccess(newArrivalTime - accessLeg.durationInSeconds(), cost[access], accessLeg);
+    }
+
+    /**
+     * Add a reference to the arrival, this is done by the pareto set the arrival is added to.
+     */
+    public void retain(int arrival) {
+        ++refCount[arrival];
+    }
+
+    /**
+     * Remove a reference added with {@link #retain(int)}, this is done by the pareto set the
+     * arrival is dropped from. The arrival is freed if it is no longer referenced.
+     */
+    public void release(int arrival) {
+        if (--refCount[arrival] == 0) {
+            free(arrival);
+        }
+    }
+
+    /**
+     * Return an arrival to the arena, the slot is reused for the next arrival added. The previous
+     * arrivals which are no longer referenced are freed too. Only arrivals that are not
+     * referenced by any other arrival, ride or pareto set can be freed.
+     */
+    public void free(int arrival) {
+        while (true) {
+            leg[arrival] = null;
+            if (nFree == free.length) {
+                free = Arrays.copyOf(free, free.length * 2);
+            }
+            free[nFree++] = arrival;
+
+            int prev = previous[arrival];
+            if (prev == NOT_SET || --refCount[prev] > 0) {
+                return;
+            }
+            arrival = prev;
+        }
+    }
+
+    public int stop(int arrival) {
+        return stop[arrival];
+    }
+
+    public int arrivalTime(int arrival) {
+        return arrivalTime[arrival];
+    }
+
+    public int travelDuration(int arrival) {
+        return travelDuration[arrival];
+    }
+
+    public int cost(int arrival) {
+        return cost[arrival];
+    }
+
+    /**
+     * We want transits to dominate transfers so we increment the round not only between RangeRaptor rounds,
+     * but for transits and transfers also. The access leg is paretoRound 0, the first transit leg is 1.
+     * The following transfer leg, if it exist, is paretoRound 2, and the next transit is 3, and so on.
+     */
+    public int paretoRound(int arrival) {
+        return paretoRound[arrival];
+    }
+
+    public int round(int arrival) {
+        return (paretoRound[arrival] + 1) / 2;
+    }
+
+    public int previous(int arrival) {
+        return previous[arrival];
+    }
+
+    public boolean arrivedByAccessLeg(int arrival) {
+        return type[arrival] == ACCESS;
+    }
+
+    public boolean arrivedByTransit(int arrival) {
+        return type[arrival] == TRANSIT;
+    }
+
+    public boolean arrivedByTransfer(int arrival) {
+        return type[arrival] == TRANSFER;
+    }
+
+    public T trip(int arrival) {
+        //noinspection unchecked
+        return (T) leg[arrival];
+    }
+
+    public RaptorTransfer access(int arrival) {
+        return (RaptorTransfer) leg[arrival];
+    }
+
+    /** The number of arrivals in the arena, including freed arrivals. */
+    public int size() {
+        return size;
+    }
+
+    /** Create a view of the given arrival, used to map paths and for debugging. */
+    public ArrivalView<T> view(int arrival) {
+        return new View(arrival);
+    }
+
+    /**
+     * Create a view that can be moved to another arrival, to avoid creating a new view for each
+     * arrival passed to the cost calculator.
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public String toString() {
+        return "StopArrivalArena{size: " + size + ", free: " + nFree + ", capacity: " + stop.length + "}";
+    }
+
+
+    /* private methods */
+
+    private int add(int prev, int toStop, int time, int additionalCost, int paretoRoundIncrement) {
+        int i = allocate();
+        stop[i] = toStop;
+        arrivalTime[i] = time;
+        travelDuration[i] = travelDuration[prev] + (time - arrivalTime[prev]);
+        cost[i] = cost[prev] + additionalCost;
+        paretoRound[i] = paretoRound[prev] + paretoRoundIncrement;
+        previous[i] = prev;
+        refCount[i] = 0;
+        ++refCount[prev];
+        return i;
+    }
+
+    private int allocate() {
+        if (nFree > 0) {
+            return free[--nFree];
+        }
+        if (size == stop.length) {
+            grow();
+        }
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(INITIAL_CAPACITY, stop.length * 2);
+        stop = Arrays.copyOf(stop, capacity);
+        arrivalTime = Arrays.copyOf(arrivalTime, capacity);
+        travelDuration = Arrays.copyOf(travelDuration, capacity);
+        cost = Arrays.copyOf(cost, capacity);
+        paretoRound = Arrays.copyOf(paretoRound, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        refCount = Arrays.copyOf(refCount, capacity);
+        type = Arrays.copyOf(type, capacity);
+        leg = Arrays.copyOf(leg, capacity);
+    }
+
+    private void setColumns(Columns c) {
+        this.stop = c.stop;
+        this.arrivalTime = c.arrivalTime;
+        this.travelDuration = c.travelDuration;
+        this.cost = c.cost;
+        this.paretoRound = c.paretoRound;
+        this.previous = c.previous;
+        this.refCount = c.refCount;
+        this.type = c.type;
+        this.leg = c.leg;
+    }
+
+    /** The arrays of an arena, cached between searches. */
+    private static final class Columns {
+        private final int[] stop;
+        private final int[] arrivalTime;
+        private final int[] travelDuration;
+        private final int[] cost;
+        private final int[] paretoRound;
+        private final int[] previous;
+        private final int[] refCount;
+        private final byte[] type;
+        private final Object[] leg;
+
+        private Columns(int capacity) {
+            this.stop = new int[capacity];
+            this.arrivalTime = new int[capacity];
+            this.travelDuration = new int[capacity];
+            this.cost = new int[capacity];
+            this.paretoRound = new int[capacity];
+            this.previous = new int[capacity];
+            this.refCount = new int[capacity];
+            this.type = new byte[capacity];
+            this.leg = new Object[capacity];
+        }
+
+        private Columns(StopArrivalArena<?> arena) {
+            this.stop = arena.stop;
+            this.arrivalTime = arena.arrivalTime;
+            this.travelDuration = arena.travelDuration;
+            this.cost = arena.cost;
+            this.paretoRound = arena.paretoRound;
+            this.previous = arena.previous;
+            this.refCount = arena.refCount;
+            this.type = arena.type;
+            this.leg = arena.leg;
+        }
+    }
+
+    /* views */
+
+    /**
+     * A view of one arrival in the arena. It implements all leg views, use the "arrivedByX"
+     * methods to find the type of arrival.
+     */
+    private class View implements ArrivalView<T>, AccessLegView, TransitLegView<T>, TransferLegView {
+        int index;
+
+        View(int index) {
+            this.index = index;
+        }
+
+        @Override public int stop() { return stop[index]; }
+        @Override public int round() { return StopArrivalArena.this.round(index); }
+        @Override public int arrivalTime() { return arrivalTime[index]; }
+        @Override public int cost() { return cost[index]; }
+
+        @Override
+        public ArrivalView<T> previous() {
+            return previous[index] == NOT_SET ? null : new View(previous[index]);
+        }
+
+        @Override public boolean arrivedByAccessLeg() { return type[index] == ACCESS; }
+        @Override public boolean arrivedByTransit() { return type[index] == TRANSIT; }
+        @Override public boolean arrivedByTransfer() { return type[index] == TRANSFER; }
+
+        @Override
+        public AccessLegView accessLeg() {
+            if (!arrivedByAccessLeg()) { throw new UnsupportedOperationException(); }
+            return this;
+        }
+
+        @Override
+        public TransitLegView<T> transitLeg() {
+            if (!arrivedByTransit()) { throw new UnsupportedOperationException(); }
+            return this;
+        }
+
+        @Override
+        public TransferLegView transferLeg() {
+            if (!arrivedByTransfer()) { throw new UnsupportedOperationException(); }
+            return this;
+        }
+
+        @Override public RaptorTransfer access() { return StopArrivalArena.this.access(index); }
+        @Override public T trip() { return StopArrivalArena.this.trip(index); }
+        @Override public int boardStop() { return stop[previous[index]]; }
+
+        @Override
+        public int durationInSeconds() {
+            // The transfer leg is not kept, so we compute the duration
+            return arrivalTime[index] - arrivalTime[previous[index]];
+        }
+
+        @Override
+        public String toString() {
+            return asString();
+        }
+    }
+
+    /** A view that can be moved to another arrival, see {@link #cursor()}. */
+    final class Cursor extends View {
+        private Cursor() {
+            super(NOT_SET);
+        }
+
+        Cursor moveTo(int arrival) {
+            this.index = arrival;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena;
+
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.api.view.ArrivalView;
+import org.opentripplanner.transit.raptor.util.paretoset.ParetoSetEventListener;
+
+import java.util.Arrays;
+
+
+/**
+ * A pareto optimal set of stop arrivals for a given stop, the arrivals are indexes in the
+ * {@link StopArrivalArena}. The criteria are arrival-time, pareto-round and cost - the same as
+ * {@code AbstractStopArrival#compareArrivalTimeRoundAndCost()}.
+ * <p/>
+ * This is a copy of the {@link org.opentripplanner.transit.raptor.util.paretoset.ParetoSetWithMarker}
+ * algorithm for int elements, so the elements are not boxed. The order of the elements and the
+ * marker behave the same way.
+ * <p/>
+ * The set holds a reference to each of its elements, see {@link StopArrivalArena#retain(int)}.
+ * A dropped element is released after the listener is notified, so it is freed if no other
+ * arrival references it.
+ *
+ * @param <T> The TripSchedule type defined by the user of the raptor API.
+ */
+final class StopArrivalIndexParetoSet<T extends RaptorTripSchedule> {
+    private final StopArrivalArena<T> arena;
+    private final ParetoSetEventListener<ArrivalView<T>> eventListener;
+    private int[] elements = new int[16];
+    private int size = 0;
+    private int marker = 0;
+
+    StopArrivalIndexParetoSet(
+            StopArrivalArena<T> arena,
+            ParetoSetEventListener<ArrivalView<T>> eventListener
+    ) {
+        this.arena = arena;
+        this.eventListener = eventListener;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return elements[index];
+    }
+
+    /** The index of the first element added after the marker was set. */
+    int marker() {
+        return marker;
+    }
+
+    /**
+     * Move the marker after the last element in the set.
+     */
+    void markAtEndOfSet() {
+        marker = size;
+    }
+
+    int internalArrayLength() {
+        return elements.length;
+    }
+
+    boolean add(int newValue) {
+        if (size == 0) {
+            acceptAndAppendValue(newValue);
+            return true;
+        }
+
+        boolean mutualDominanceExist = false;
+        boolean equivalentVectorExist = false;
+
+        for (int i = 0; i < size; ++i) {
+            int it = elements[i];
+
+            boolean leftDominance = leftDominanceExist(newValue, it);
+            boolean rightDominance = leftDominanceExist(it, newValue);
+
+            if (leftDominance && rightDominance) {
+                mutualDominanceExist = true;
+            }
+            else if (leftDominance) {
+                removeDominatedElementsFromRestOfSetAndAddNewElement(newValue, i);
+                return true;
+            }
+            else if (rightDominance) {
+                notifyElementRejected(newValue, it);
+                return false;
+            }
+            else {
+                equivalentVectorExist = true;
+            }
+        }
+
+        if (mutualDominanceExist && !equivalentVectorExist) {
+            assertEnoughSpaceInSet();
+            acceptAndAppendValue(newValue);
+            return true;
+        }
+
+        // No dominance found, newValue is equivalent with all values in the set
+        notifyElementRejected(newValue, elements[0]);
+        return false;
+    }
+
+
+    /* private methods */
+
+    private boolean leftDominanceExist(int l, int r) {
+        // This is important with respect to performance. Using the short-circuit logical OR(||) is
+        // faster than bitwise inclusive OR(|) (even between boolean expressions)
+        return arena.arrivalTime(l) < arena.arrivalTime(r)
+                || arena.paretoRound(l) < arena.paretoRound(r)
+                || arena.cost(l) < arena.cost(r);
+    }
+
+    /**
+     * Remove all elements dominated by the {@code newValue} starting from
+     * {@code index + 1}. The element at {@code index} is dropped.
+     */
+    private void removeDominatedElementsFromRestOfSetAndAddNewElement(final int newValue, final int index) {
+        // Let 'i' be the current element index for removal
+        int i = index;
+        // Let 'j' be the next element to compare
+        int j = index + 1;
+
+        dropElement(elements[i], newValue);
+
+        while (j < size) {
+            notifyElementMoved(j, i);
+            // Move next element(j) forward if it is not dominated by the new value
+            if (!leftVectorDominatesRightVector(newValue, elements[j])) {
+                elements[i] = elements[j];
+                ++i;
+            }
+            else {
+                dropElement(elements[j], newValue);
+            }
+            // Goto the next element
+            ++j;
+        }
+        notifyElementMoved(j, i);
+        notifyElementAccepted(newValue);
+        arena.retain(newValue);
+        elements[i] = newValue;
+        size = i+1;
+    }
+
+    private boolean leftVectorDominatesRightVector(int left, int right) {
+        return leftDominanceExist(left, right) && !leftDominanceExist(right, left);
+    }
+
+    private void acceptAndAppendValue(int newValue) {
+        notifyElementAccepted(newValue);
+        arena.retain(newValue);
+        elements[size++] = newValue;
+    }
+
+    private void dropElement(int element, int droppedByElement) {
+        notifyElementDropped(element, droppedByElement);
+        arena.release(element);
+    }
+
+    private void assertEnoughSpaceInSet() {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length * 2);
+        }
+    }
+
+    private void notifyElementMoved(int fromIndex, int toIndex) {
+        if(fromIndex == marker) {
+            marker = toIndex;
+        }
+    }
+
+    private void notifyElementAccepted(int newElement) {
+        if(eventListener != null) {
+            eventListener.notifyElementAccepted(arena.view(newElement));
+        }
+    }
+
+    private void notifyElementDropped(int element, int droppedByElement) {
+        if(eventListener != null) {
+            eventListener.notifyElementDropped(arena.view(element), arena.view(droppedByElement));
+        }
+    }
+
+    private void notifyElementRejected(int element, int rejectByElement) {
+        if(eventListener != null) {
+            eventListener.notifyElementRejected(arena.view(element), arena.view(rejectByElement));
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.opentripplanner.transit.raptor.rangeraptor.WorkerState;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.McRangeRaptorWorkerState;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.McTransitWorker;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.Stops;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena.ArenaMcRangeRaptorWorkerState;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena.ArenaMcTransitWorker;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.heuristic.HeuristicsProvider;
 import org.opentripplanner.transit.raptor.rangeraptor.path.DestinationArrivalPaths;
 import org.opentripplanner.transit.raptor.rangeraptor.path.configure.PathConfig;
@@ -39,6 +41,10 @@ public class McRangeRaptorConfig<T extends RaptorTripSchedule> {
             Heuristics heuristics,
             BiFunction<WorkerState<T>, RoutingStrategy<T>, Worker<T>> createWorker
     ) {
+        if(context.useStopArrivalArena()) {
+            ArenaMcRangeRaptorWorkerState<T> state = createArenaState(heuristics);
+            return createWorker.apply(state, createArenaTransitWorkerStrategy(state));
+        }
         McRangeRaptorWorkerState<T> state = createState(heuristics);
         return createWorker.apply(state, createTransitWorkerStrategy(state));
     }
@@ -46,6 +52,28 @@ public class McRangeRaptorConfig<T extends RaptorTripSchedule> {
 
     /* private factory methods */
 
+    private RoutingStrategy<T> createArenaTransitWorkerStrategy(ArenaMcRangeRaptorWorkerState<T> state) {
+        return new ArenaMcTransitWorker<>(
+                state,
+                context.slackProvider(),
+                context.calculator(),
+                context.costCalculator()
+        );
+    }
+
+    private ArenaMcRangeRaptorWorkerState<T> createArenaState(Heuristics heuristics) {
+        return new ArenaMcRangeRaptorWorkerState<>(
+                context.nStops(),
+                context.egressLegs(),
+                createDestinationArrivalPaths(),
+                createHeuristicsProvider(heuristics),
+                context.costCalculator(),
+                context.calculator(),
+                context.debugFactory(),
+                context.lifeCycle()
+        );
+    }
+
     private RoutingStrategy<T> createTransitWorkerStrategy(McRangeRaptorWorkerState<T> state) {
         return new McTransitWorker<>(
                 state,
@@ -1,9 +1,11 @@
 package org.opentripplanner.transit.raptor.rangeraptor.multicriteria.heuristic;
 
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.api.view.ArrivalView;
 import org.opentripplanner.transit.raptor.api.view.Heuristics;
 import org.opentripplanner.transit.raptor.rangeraptor.RoundProvider;
 import org.opentripplanner.transit.raptor.rangeraptor.debug.DebugHandlerFactory;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena.StopArrivalArena;
 import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arrivals.AbstractStopArrival;
 import org.opentripplanner.transit.raptor.rangeraptor.path.DestinationArrivalPaths;
 import org.opentripplanner.transit.raptor.api.transit.CostCalculator;
@@ -58,10 +60,31 @@ public final class HeuristicsProvider<T extends RaptorTripSchedule> {
         return rejected;
     }
 
+    /**
+     * Same as {@link #rejectDestinationArrivalBasedOnHeuristic(AbstractStopArrival)}, but for an
+     * arrival stored in a {@link StopArrivalArena}.
+     */
+    public boolean rejectDestinationArrivalBasedOnHeuristic(StopArrivalArena<T> arena, int arrival) {
+        if(heuristics == null || paths.isEmpty()) {
+            return false;
+        }
+        boolean rejected = !qualify(
+                arena.stop(arrival),
+                arena.arrivalTime(arrival),
+                arena.travelDuration(arrival),
+                arena.cost(arrival)
+        );
+
+        if(rejected && debugHandlerFactory.isDebugStopArrival(arena.stop(arrival))) {
+            debugRejectByOptimization(arena.view(arrival));
+        }
+        return rejected;
+    }
+
 
     /* private methods */
 
-    private void debugRejectByOptimization(AbstractStopArrival<T> arrival) {
+    private void debugRejectByOptimization(ArrivalView<T> arrival) {
         if (debugHandlerFactory.isDebugStopArrival(arrival.stop())) {
             String details = rejectErrorMessage(arrival.stop()) +
                     ", Existing paths: " + paths;
@@ -81,6 +81,16 @@ public class DestinationArrivalPaths<T extends RaptorTripSchedule> {
         }
     }
 
+    /**
+     * Add paths found by another search, like a search for another part of the search window.
+     * The paths are added to the pareto set; duplicates and dominated paths are dropped.
+     */
+    public void addPaths(Collection<Path<T>> otherPaths) {
+        for (Path<T> path : otherPaths) {
+            paths.add(path);
+        }
+    }
+
     /**
      * Check if destination was reached in the current round.
      */
@@ -169,6 +169,11 @@ public class SearchContext<T extends RaptorTripSchedule> {
         return tuningParameters.maxNumberOfTransfers() + 1;
     }
 
+    /** See {@link RaptorTuningParameters#useStopArrivalArena()}. */
+    public boolean useStopArrivalArena() {
+        return tuningParameters.useStopArrivalArena();
+    }
+
     public RoundProvider roundProvider() {
         return roundTracker;
     }
@@ -16,10 +16,16 @@ import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
  * The search use a binary search if the number of trip schedules is above a
  * given threshold. A linear search is slow when the number of schedules is very
  * large, let say more than 300 trip schedules.
+ * <p/>
+ * The search scan the arrival times in the time-table, the trip schedule is only
+ * fetched from the time-table for the trip found, when {@link #getCandidateTrip()}
+ * is called.
  *
  * @param <T> The TripSchedule type defined by the user of the raptor API.
  */
 public class TripScheduleAlightSearch<T extends RaptorTripSchedule> implements TripScheduleSearch<T> {
+    private static final int NOT_SET = -1;
+
     private final int nTripsBinarySearchThreshold;
     private final RaptorTimeTable<T> timeTable;
     private final int nTrips;
@@ -28,7 +34,8 @@ public class TripScheduleAlightSearch<T extends RaptorTripSchedule> implements T
     private int stopPositionInPattern;
 
     private T candidateTrip;
-    private int candidateTripIndex;
+    private int candidateTripIndex = NOT_SET;
+    private int candidateTripTime;
 
     TripScheduleAlightSearch(int scheduledTripBinarySearchThreshold, RaptorTimeTable<T> timeTable) {
         this.nTripsBinarySearchThreshold = scheduledTripBinarySearchThreshold;
@@ -38,6 +45,9 @@ public class TripScheduleAlightSearch<T extends RaptorTripSchedule> implements T
 
     @Override
     public T getCandidateTrip() {
+        if (candidateTrip == null && candidateTripIndex != NOT_SET) {
+            candidateTrip = timeTable.getTripSchedule(candidateTripIndex);
+        }
         return candidateTrip;
     }
 
@@ -48,7 +58,7 @@ public class TripScheduleAlightSearch<T extends RaptorTripSchedule> implements T
 
     @Override
     public int getCandidateTripTime() {
-        return candidateTrip.arrival(stopPositionInPattern);
+        return candidateTripTime;
     }
 
     /**
@@ -73,7 +83,7 @@ public class TripScheduleAlightSearch<T extends RaptorTripSchedule> implements T
         this.latestAlightTime = latestAlightTime;
         this.stopPositionInPattern = stopPositionInPattern;
         this.candidateTrip = null;
-        this.candidateTripIndex = -1;
+        this.candidateTripIndex = NOT_SET;
 
         // No previous trip is found
         if (tripIndexLowerBound < 0) {
@@ -118,21 +128,19 @@ public class TripScheduleAlightSearch<T extends RaptorTripSchedule> implements T
      */
     private boolean findBoardingSearchForwardInTime(int tripIndexLowerBound) {
         for (int i = tripIndexLowerBound; i < nTrips;  ++i) {
-            T trip = timeTable.getTripSchedule(i);
-
-            final int arrival = trip.arrival(stopPositionInPattern);
+            final int arrival = timeTable.arrivalTime(i, stopPositionInPattern);
 
             if (arrival <= latestAlightTime) {
-                candidateTrip = trip;
                 candidateTripIndex = i;
+                candidateTripTime = arrival;
             } else {
                 // this trip arrives too early. We can break out of the loop since
                 // trips are sorted by departure time (trips in given schedule)
                 // Trips passing another trip is not accounted for if both are in service.
-                return candidateTrip != null;
+                return candidateTripIndex != NOT_SET;
             }
         }
-        return candidateTrip != null;
+        return candidateTripIndex != NOT_SET;
     }
 
     /**
@@ -143,13 +151,11 @@ public class TripScheduleAlightSearch<T extends RaptorTripSchedule> implements T
      */
     private boolean findBoardingSearchBackwardsInTime(final int tripIndexUpperBound) {
         for (int i = tripIndexUpperBound-1; i >=0; --i) {
-            T trip = timeTable.getTripSchedule(i);
-
-            final int arrival = trip.arrival(stopPositionInPattern);
+            final int arrival = timeTable.arrivalTime(i, stopPositionInPattern);
 
             if (arrival <= latestAlightTime) {
-                candidateTrip = trip;
                 candidateTripIndex = i;
+                candidateTripTime = arrival;
                 return true;
             }
         }
@@ -173,9 +179,7 @@ public class TripScheduleAlightSearch<T extends RaptorTripSchedule> implements T
         while (upper - lower > nTripsBinarySearchThreshold) {
             int m = (lower + upper) / 2;
 
-            RaptorTripSchedule trip = timeTable.getTripSchedule(m);
-
-            int arrival = trip.arrival(stopPositionInPattern);
+            int arrival = timeTable.arrivalTime(m, stopPositionInPattern);
 
             if (arrival <= latestAlightTime) {
                 lower = m;
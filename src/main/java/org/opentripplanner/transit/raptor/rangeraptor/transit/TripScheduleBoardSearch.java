@@ -14,6 +14,10 @@ import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
  * The search use a binary search if the number of trip schedules is above a
  * given threshold. A linear search is slow when the number of schedules is very
  * large, let say more than 300 trip schedules.
+ * <p/>
+ * The search scan the departure times in the time-table, the trip schedule is only
+ * fetched from the time-table for the trip found, when {@link #getCandidateTrip()}
+ * is called.
  *
  * @param <T> The TripSchedule type defined by the user of the raptor API.
  */
@@ -28,6 +32,7 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
     private int stopPositionInPattern;
     private T candidateTrip;
     private int candidateTripIndex = NOT_SET;
+    private int candidateTripTime;
 
     TripScheduleBoardSearch(
             int scheduledTripBinarySearchThreshold,
@@ -40,6 +45,9 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
 
     @Override
     public T getCandidateTrip() {
+        if (candidateTrip == null && candidateTripIndex != NOT_SET) {
+            candidateTrip = timeTable.getTripSchedule(candidateTripIndex);
+        }
         return candidateTrip;
     }
 
@@ -50,7 +58,7 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
 
     @Override
     public int getCandidateTripTime() {
-        return candidateTrip.departure(stopPositionInPattern);
+        return candidateTripTime;
     }
 
     /**
@@ -124,20 +132,19 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
      */
     private boolean findBoardingBySteppingBackwardsInTime(int tripIndexUpperBound) {
         for (int i = tripIndexUpperBound-1; i >= 0; --i) {
-            T trip = timeTable.getTripSchedule(i);
-            final int boardTime = trip.departure(stopPositionInPattern);
+            final int boardTime = timeTable.departureTime(i, stopPositionInPattern);
 
             if (boardTime >= earliestBoardTime) {
-                candidateTrip = trip;
                 candidateTripIndex = i;
+                candidateTripTime = boardTime;
             } else {
                 // this trip arrives too early. We can break out of the loop since
                 // trips are sorted by departure time (trips in given schedule)
                 // Trips passing another trip is not accounted for if both are in service.
-                return candidateTrip != null;
+                return candidateTripIndex != NOT_SET;
             }
         }
-        return candidateTrip != null;
+        return candidateTripIndex != NOT_SET;
     }
 
     /**
@@ -148,12 +155,11 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
      */
     private boolean findBoardingBySteppingForwardInTime(final int tripIndexLowerBound) {
         for (int i = tripIndexLowerBound; i < nTrips; ++i) {
-            T trip = timeTable.getTripSchedule(i);
-            final int boardTime = trip.departure(stopPositionInPattern);
+            final int boardTime = timeTable.departureTime(i, stopPositionInPattern);
 
             if (boardTime >= earliestBoardTime) {
-                candidateTrip = trip;
                 candidateTripIndex = i;
+                candidateTripTime = boardTime;
                 return true;
             }
         }
@@ -175,9 +181,7 @@ public class TripScheduleBoardSearch<T extends RaptorTripSchedule> implements Tr
         while (upper - lower > nTripsBinarySearchThreshold) {
             int m = (lower + upper) / 2;
 
-            RaptorTripSchedule trip = timeTable.getTripSchedule(m);
-
-            int departure = trip.departure(stopPositionInPattern);
+            int departure = timeTable.departureTime(m, stopPositionInPattern);
 
             if (departure >= earliestBoardTime) {
                 upper = m;
@@ -0,0 +1,198 @@
+package org.opentripplanner.transit.raptor.service;
+
+import org.opentripplanner.transit.raptor.api.path.Path;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
+import org.opentripplanner.transit.raptor.api.request.SearchParams;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTransitDataProvider;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.api.view.Heuristics;
+import org.opentripplanner.transit.raptor.api.view.Worker;
+import org.opentripplanner.transit.raptor.rangeraptor.configure.RaptorConfig;
+import org.opentripplanner.transit.raptor.rangeraptor.debug.WorkerPerformanceTimers;
+import org.opentripplanner.transit.raptor.rangeraptor.path.DestinationArrivalPaths;
+import org.opentripplanner.util.OtpAppException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.opentripplanner.transit.raptor.api.request.RaptorProfile.MULTI_CRITERIA;
+
+
+/**
+ * Run a multi-criteria range raptor search by splitting the search window into sub-windows
+ * (partitions) and route each of them in parallel using the {@link RaptorConfig#threadPool()}.
+ * The paths found in each partition are merged into one pareto set using the same
+ * {@link DestinationArrivalPaths} as a single worker use.
+ * <p>
+ * Range raptor iterate over the departure times from the end of the search window towards
+ * the beginning, and the state of the later iterations is used to prune the earlier ones. To
+ * give each worker a head start, each partition include the last (latest) iteration of the
+ * next partition. This iteration seed the worker with the best times of its neighbour, and
+ * the duplicate paths found are removed when the results are merged.
+ * <p>
+ * Only FORWARD searches are split, the REVERSE search iterate over arrival times and is not
+ * used as a main search.
+ *
+ * @param <T> The TripSchedule type defined by the user of the raptor API.
+ */
+public class ParallelRangeRaptorSearch<T extends RaptorTripSchedule> {
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelRangeRaptorSearch.class);
+
+    /** Each partition should at least have this number of iterations, not counting the seed. */
+    static final int MIN_ITERATIONS_PER_PARTITION = 2;
+
+    private final RaptorConfig<T> config;
+    private final RaptorTransitDataProvider<T> transitData;
+    private final RaptorRequest<T> request;
+    private final Heuristics heuristics;
+    private final List<Partition> partitions;
+
+    public ParallelRangeRaptorSearch(
+            RaptorConfig<T> config,
+            RaptorTransitDataProvider<T> transitData,
+            RaptorRequest<T> request,
+            Heuristics heuristics
+    ) {
+        this.config = config;
+        this.transitData = transitData;
+        this.request = request;
+        this.heuristics = heuristics;
+        this.partitions = isEnabled(config, request)
+                ? partitions(
+                        request.searchParams(),
+                        config.iterationDepartureStepInSeconds(),
+                        config.searchWindowPartitions()
+                )
+                : List.of();
+    }
+
+    /**
+     * Return {@code true} if the config and request allow the search to be split, and the search
+     * window is long enough to create at least 2 partitions.
+     */
+    public boolean isParallelSearchPossible() {
+        return partitions.size() > 1;
+    }
+
+    public Collection<Path<T>> route() {
+        WorkerPerformanceTimers timers = config.timers(request);
+        return timers.timerRouteInParallel().timeAndReturn(() -> {
+            List<Collection<Path<T>>> results = routePartitions();
+            return timers.timerMergePaths().timeAndReturn(() -> mergePaths(results));
+        });
+    }
+
+    private List<Collection<Path<T>>> routePartitions() {
+        // Each worker gets the performance timers of its partition, the timers are not thread-safe
+        List<Worker<T>> workers = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); ++i) {
+            workers.add(config.createMcPartitionWorker(
+                    transitData, partitions.get(i).request(request), heuristics, i
+            ));
+        }
+
+        try {
+            List<Future<Collection<Path<T>>>> futures = new ArrayList<>();
+            for (Worker<T> worker : workers.subList(1, workers.size())) {
+                futures.add(config.threadPool().submit(worker::route));
+            }
+            // Route the first (latest) partition in this thread
+            List<Collection<Path<T>>> results = new ArrayList<>();
+            results.add(workers.get(0).route());
+
+            for (Future<Collection<Path<T>>> f : futures) {
+                results.add(f.get());
+            }
+            LOG.debug("Route using RangeRaptor - {} search window partitions routed in parallel.",
+                    partitions.size());
+            return results;
+        }
+        catch (ExecutionException | InterruptedException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            LOG.error(e.getMessage() + ". Request: " + request, e);
+            throw new OtpAppException(
+                    "Failed to run the search window partitions in parallel. Details: "
+                            + e.getMessage());
+        }
+    }
+
+    /** The paths are merged in partition order, so the result does not depend on timing. */
+    private Collection<Path<T>> mergePaths(List<Collection<Path<T>>> results) {
+        DestinationArrivalPaths<T> paths = config.createMcDestinationArrivalPaths(transitData, request);
+        for (Collection<Path<T>> it : results) {
+            paths.addPaths(it);
+        }
+        return paths.listPaths();
+    }
+
+    private static boolean isEnabled(RaptorConfig<?> config, RaptorRequest<?> request) {
+        return config.isMultiThreaded()
+                && config.searchWindowPartitions() > 1
+                && request.runInParallel()
+                && request.profile().is(MULTI_CRITERIA)
+                && request.searchDirection().isForward();
+    }
+
+    /**
+     * Split the search window into at most {@code nPartitions} partitions. The partitions are
+     * listed in the same order as range raptor iterate, with the latest departure times first.
+     */
+    static List<Partition> partitions(SearchParams s, int iterationStep, int nPartitions) {
+        int edt = s.earliestDepartureTime();
+        int searchWindow = s.searchWindowInSeconds();
+        int nIterations = searchWindow / iterationStep;
+
+        nPartitions = Math.min(nPartitions, nIterations / MIN_ITERATIONS_PER_PARTITION);
+
+        List<Partition> list = new ArrayList<>();
+        if (nPartitions < 2) {
+            return list;
+        }
+
+        // The k'th iteration of the original search departs at: edt + searchWindow - k * step
+        int end = edt + searchWindow;
+        int prevK = 0;
+        for (int i = 1; i <= nPartitions; ++i) {
+            int k = (int) ((long) nIterations * i / nPartitions);
+            int partitionEdt = end - k * iterationStep;
+            int partitionWindow = (k - prevK) * iterationStep;
+            // Include the latest iteration of the previous partition to seed the worker
+            if (prevK > 0) {
+                partitionWindow += iterationStep;
+            }
+            list.add(new Partition(partitionEdt, partitionWindow));
+            prevK = k;
+        }
+        return list;
+    }
+
+    /** The departure time window for one of the parallel searches. */
+    static final class Partition {
+        final int earliestDepartureTime;
+        final int searchWindowInSeconds;
+
+        Partition(int earliestDepartureTime, int searchWindowInSeconds) {
+            this.earliestDepartureTime = earliestDepartureTime;
+            this.searchWindowInSeconds = searchWindowInSeconds;
+        }
+
+        <S extends RaptorTripSchedule> RaptorRequest<S> request(RaptorRequest<S> request) {
+            return request.mutate().searchParams()
+                    .earliestDepartureTime(earliestDepartureTime)
+                    .searchWindowInSeconds(searchWindowInSeconds)
+                    .build();
+        }
+
+        @Override
+        public String toString() {
+            return "Partition{edt=" + earliestDepartureTime + ", sw=" + searchWindowInSeconds + "}";
+        }
+    }
+}
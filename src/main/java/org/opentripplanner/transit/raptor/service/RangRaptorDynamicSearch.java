@@ -120,7 +120,16 @@ public class RangRaptorDynamicSearch<T extends RaptorTripSchedule> {
 
         // Create worker
         if (mcRequest.profile().is(MULTI_CRITERIA)) {
-            worker = config.createMcWorker(transitData, mcRequest, getDestinationHeuristics());
+            Heuristics heuristics = getDestinationHeuristics();
+
+            // Split the search window and route it in parallel, if enabled
+            ParallelRangeRaptorSearch<T> parallelSearch = new ParallelRangeRaptorSearch<>(
+                    config, transitData, mcRequest, heuristics
+            );
+            if (parallelSearch.isParallelSearchPossible()) {
+                return new RaptorResponse<>(parallelSearch.route(), originalRequest, mcRequest);
+            }
+            worker = config.createMcWorker(transitData, mcRequest, heuristics);
         }
         else {
             worker = config.createStdWorker(transitData, mcRequest);
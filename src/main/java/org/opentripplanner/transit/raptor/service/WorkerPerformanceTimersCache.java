@@ -3,11 +3,15 @@ package org.opentripplanner.transit.raptor.service;
 import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
 import org.opentripplanner.transit.raptor.rangeraptor.debug.WorkerPerformanceTimers;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The performance timers of each kind of search. The cache is shared by all searches of a
+ * router, which may run at the same time, so it is thread-safe.
+ */
 public class WorkerPerformanceTimersCache {
-    private final Map<String, WorkerPerformanceTimers> timers = new HashMap<>();
+    private final Map<String, WorkerPerformanceTimers> timers = new ConcurrentHashMap<>();
     private final boolean multithreaded;
 
     public WorkerPerformanceTimersCache(boolean multithreaded) {
@@ -17,4 +21,13 @@ public class WorkerPerformanceTimersCache {
     public WorkerPerformanceTimers get(RaptorRequest<?> request) {
         return timers.computeIfAbsent(RequestAlias.alias(request, multithreaded), WorkerPerformanceTimers::new);
     }
+
+    /**
+     * Get the timers for one partition of a search run in parallel. The timers themselves are
+     * not thread-safe, so each partition must have its own set.
+     */
+    public WorkerPerformanceTimers get(RaptorRequest<?> request, int partition) {
+        String alias = RequestAlias.alias(request, multithreaded) + "-P" + partition;
+        return timers.computeIfAbsent(alias, WorkerPerformanceTimers::new);
+    }
 }
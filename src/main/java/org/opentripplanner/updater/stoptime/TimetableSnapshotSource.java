@@ -61,7 +61,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
     /**
      * If a timetable snapshot is requested less than this number of milliseconds after the previous
      * snapshot, just return the same one. Throttles the potentially resource-consuming task of
-     * duplicating a TripPattern → Timetable map and indexing the new Timetables.
+     * indexing the new Timetables and updating the realtime transit layer.
      */
     public int maxSnapshotFrequency = 1000; // msec
 
@@ -79,9 +79,22 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
     private final TimetableSnapshot buffer = new TimetableSnapshot();
 
     /**
-     * Lock to indicate that buffer is in use
+     * Lock to indicate that buffer is in use. Routing threads never wait for this lock, they read
+     * the last committed {@link #snapshot}.
      */
-    private final ReentrantLock bufferLock = new ReentrantLock(true);
+    private final ReentrantLock bufferLock = new ReentrantLock();
+
+    /**
+     * True if the buffer contains updates that are not committed yet, because the snapshot
+     * frequency was exceeded. A routing thread requesting a snapshot will then try to commit them.
+     */
+    private volatile boolean commitPending = false;
+
+    /** Epoch time in milliseconds at which the current snapshot was committed. */
+    private volatile long snapshotCommitTime = -1;
+
+    /** The time in milliseconds the last commit took, including updating the transit layer. */
+    private volatile long lastCommitDuration = -1;
 
     /**
      * A synchronized cache of trip patterns that are added to the graph due to GTFS-realtime messages.
@@ -94,7 +107,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
     protected ServiceDate lastPurgeDate = null;
 
     /** Epoch time in milliseconds at which the last snapshot was generated. */
-    protected long lastSnapshotTime = -1;
+    protected volatile long lastSnapshotTime = -1;
 
     private final TimeZone timeZone;
 
@@ -118,25 +131,42 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
      *         timetable objects it references are guaranteed to never change, so the requesting
      *         thread is provided a consistent view of all TripTimes. The routing thread need only
      *         release its reference to the snapshot to release resources.
+     *         <p>
+     *         This method never blocks. The updating thread commits a new snapshot after each
+     *         message. Only if that commit was skipped, because of the
+     *         {@link #maxSnapshotFrequency}, the calling thread commits the pending updates - if
+     *         the buffer is not in use.
      */
     public TimetableSnapshot getTimetableSnapshot() {
-        TimetableSnapshot snapshotToReturn;
-
-        // Try to get a lock on the buffer
-        if (bufferLock.tryLock()) {
-            // Make a new snapshot if necessary
+        if (
+            commitPending &&
+            System.currentTimeMillis() - lastSnapshotTime > maxSnapshotFrequency &&
+            bufferLock.tryLock()
+        ) {
             try {
-                snapshotToReturn = getTimetableSnapshot(false);
+                getTimetableSnapshot(false);
             } finally {
                 bufferLock.unlock();
             }
-        } else {
-            // No lock could be obtained because there is either a snapshot commit busy or updates
-            // are applied at this moment, just return the current snapshot
-            snapshotToReturn = snapshot;
         }
+        return snapshot;
+    }
+
+    /**
+     * The time in milliseconds the last commit of the timetable snapshot took, or -1 if no
+     * snapshot is committed yet.
+     */
+    public long getLastCommitDurationMillis() {
+        return lastCommitDuration;
+    }
 
-        return snapshotToReturn;
+    /**
+     * The time in milliseconds since the current timetable snapshot was committed, or -1 if no
+     * snapshot is committed yet.
+     */
+    public long getSnapshotAgeMillis() {
+        long commitTime = snapshotCommitTime;
+        return commitTime < 0 ? -1 : System.currentTimeMillis() - commitTime;
     }
 
     private TimetableSnapshot getTimetableSnapshot(final boolean force) {
@@ -145,6 +175,9 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
             if (force || buffer.isDirty()) {
                 LOG.debug("Committing {}", buffer.toString());
                 snapshot = buffer.commit(transitLayerUpdater, force);
+                snapshotCommitTime = System.currentTimeMillis();
+                lastCommitDuration = snapshotCommitTime - now;
+                LOG.debug("Committed snapshot in {} ms", lastCommitDuration);
             } else {
                 LOG.debug("Buffer was unchanged, keeping old snapshot.");
             }
@@ -152,6 +185,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
         } else {
             LOG.debug("Snapshot frequency exceeded. Reusing snapshot {}", snapshot);
         }
+        commitPending = buffer.isDirty();
         return snapshot;
     }
 
@@ -167,6 +167,7 @@ public abstract class WFSNotePollingGraphUpdater extends PollingGraphUpdater {
     private class WFSGraphWriter implements GraphWriterRunnable {
         public void run(Graph graph) {
             notesSource.setNotes(notesForEdge);
+            graph.streetsModified();
         }
     }
 
@@ -0,0 +1,466 @@
+package org.opentripplanner.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable hash map where {@link #plus(Object, Object)} and {@link #minus(Object)} return a
+ * new map, leaving this map unchanged. The new map shares all unchanged parts with the old one,
+ * so an update costs O(log32 n) time and memory - not O(n) as copying a {@link java.util.HashMap}.
+ * <p>
+ * This makes it possible to publish a new version of a large data structure, used by other
+ * threads, for every small change. Readers use the old version without any locking, and the
+ * versions do not share any mutable state.
+ * <p>
+ * The implementation is a hash array mapped trie (HAMT). Each node branches on 5 bits of the key
+ * hash, and only stores the children present, using a bitmap to find them. Keys with identical
+ * hash codes are kept in a collision node.
+ * <p>
+ * The {@link Map} interface is implemented for reading, all the mutating methods of the interface
+ * throw an {@link UnsupportedOperationException}. Null keys and values are not allowed.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(
+            new Node(0, new Object[0]), 0
+    );
+
+    private final Node root;
+
+    private final int size;
+
+    private Set<Map.Entry<K, V>> entrySet;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /** Create a new map with all the entries in the given map. */
+    public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap) {
+            @SuppressWarnings("unchecked")
+            PersistentHashMap<K, V> pMap = (PersistentHashMap<K, V>) map;
+            return pMap;
+        }
+        PersistentHashMap<K, V> result = empty();
+        for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+            result = result.plus(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Return a map with the given key mapped to the given value. If the key is already mapped to
+     * the same value instance, this map is returned.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        Change change = new Change();
+        Node newRoot = (Node) root.put(0, new Leaf(hash(key), key, value), change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, change.sizeChanged ? size + 1 : size);
+    }
+
+    /**
+     * Return a map without the given key. If the key is not in this map, this map is returned.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (key == null) {
+            return this;
+        }
+        Object newRoot = root.remove(0, hash(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        if (newRoot == null) {
+            return empty();
+        }
+        // The root is never collapsed, it is always a Node
+        return new PersistentHashMap<>((Node) newRoot, size - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Leaf leaf = root.find(0, hash(key), key);
+        return leaf == null ? null : (V) leaf.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && root.find(0, hash(key), key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        // Spread the bits, like java.util.HashMap, since the lowest bits are used at the top level
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /* NODES */
+
+    /** Used to report back if a put added a new key, or replaced the value of an existing one. */
+    private static final class Change {
+        boolean sizeChanged = false;
+    }
+
+    /** A key-value pair. Leaves are stored directly in the nodes. */
+    private static final class Leaf implements Map.Entry<Object, Object> {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean hasKey(int hash, Object key) {
+            return this.hash == hash && (this.key == key || this.key.equals(key));
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) { return false; }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * A trie node. The children are {@link Leaf}s, {@link Node}s or {@link Collision}s, and are
+     * stored in the order of the bits set in the bitmap.
+     */
+    private static final class Node {
+        final int bitmap;
+        final Object[] children;
+
+        Node(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Leaf find(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = children[index(bit)];
+            if (child instanceof Leaf) {
+                Leaf leaf = (Leaf) child;
+                return leaf.hasKey(hash, key) ? leaf : null;
+            }
+            if (child instanceof Node) {
+                return ((Node) child).find(shift + BITS, hash, key);
+            }
+            return ((Collision) child).find(hash, key);
+        }
+
+        Object put(int shift, Leaf leaf, Change change) {
+            int bit = bit(leaf.hash, shift);
+            int idx = index(bit);
+
+            if ((bitmap & bit) == 0) {
+                change.sizeChanged = true;
+                return new Node(bitmap | bit, insert(children, idx, leaf));
+            }
+
+            Object child = children[idx];
+            Object newChild;
+
+            if (child instanceof Leaf) {
+                Leaf old = (Leaf) child;
+                if (old.hasKey(leaf.hash, leaf.key)) {
+                    if (old.value == leaf.value) {
+                        return this;
+                    }
+                    newChild = leaf;
+                }
+                else {
+                    change.sizeChanged = true;
+                    newChild = old.hash == leaf.hash
+                            ? new Collision(old.hash, new Object[] { old, leaf })
+                            : merge(shift + BITS, old, old.hash, leaf);
+                }
+            }
+            else if (child instanceof Node) {
+                newChild = ((Node) child).put(shift + BITS, leaf, change);
+            }
+            else {
+                Collision collision = (Collision) child;
+                newChild = collision.hash == leaf.hash
+                        ? collision.put(leaf, change)
+                        : merge(shift + BITS, collision, collision.hash, leaf);
+                if (collision.hash != leaf.hash) {
+                    change.sizeChanged = true;
+                }
+            }
+
+            if (newChild == child) {
+                return this;
+            }
+            return new Node(bitmap, replace(children, idx, newChild));
+        }
+
+        /**
+         * Remove the key, return this node if the key is not found, null if the node becomes empty,
+         * or the only remaining Leaf/Collision if the node can be collapsed into its parent.
+         */
+        Object remove(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = index(bit);
+            Object child = children[idx];
+            Object newChild;
+
+            if (child instanceof Leaf) {
+                newChild = ((Leaf) child).hasKey(hash, key) ? null : child;
+            }
+            else if (child instanceof Node) {
+                newChild = ((Node) child).remove(shift + BITS, hash, key);
+            }
+            else {
+                newChild = ((Collision) child).remove(hash, key);
+            }
+
+            if (newChild == child) {
+                return this;
+            }
+            if (newChild == null) {
+                if (children.length == 1) {
+                    return null;
+                }
+                Node node = new Node(bitmap & ~bit, delete(children, idx));
+                // Collapse a node with a single leaf into the parent, but keep the root as a node
+                if (shift > 0 && node.children.length == 1 && !(node.children[0] instanceof Node)) {
+                    return node.children[0];
+                }
+                return node;
+            }
+            if (shift > 0 && children.length == 1 && !(newChild instanceof Node)) {
+                return newChild;
+            }
+            return new Node(bitmap, replace(children, idx, newChild));
+        }
+
+        /**
+         * Create a sub-tree with the existing child and the new leaf, the hashes must be different.
+         */
+        private static Object merge(int shift, Object existing, int existingHash, Leaf leaf) {
+            int existingBit = bit(existingHash, shift);
+            int leafBit = bit(leaf.hash, shift);
+            if (existingBit == leafBit) {
+                return new Node(existingBit, new Object[] { merge(shift + BITS, existing, existingHash, leaf) });
+            }
+            // Compare unsigned, the children are ordered by bit position and 1 << 31 is the last
+            Object[] children = Integer.compareUnsigned(existingBit, leafBit) < 0
+                    ? new Object[] { existing, leaf }
+                    : new Object[] { leaf, existing };
+            return new Node(existingBit | leafBit, children);
+        }
+    }
+
+    /** All leaves with the same (full) hash code, but different keys. */
+    private static final class Collision {
+        final int hash;
+        final Object[] children;
+
+        Collision(int hash, Object[] children) {
+            this.hash = hash;
+            this.children = children;
+        }
+
+        Leaf find(int hash, Object key) {
+            for (Object it : children) {
+                Leaf leaf = (Leaf) it;
+                if (leaf.hasKey(hash, key)) {
+                    return leaf;
+                }
+            }
+            return null;
+        }
+
+        Object put(Leaf leaf, Change change) {
+            for (int i = 0; i < children.length; ++i) {
+                Leaf old = (Leaf) children[i];
+                if (old.hasKey(leaf.hash, leaf.key)) {
+                    return old.value == leaf.value
+                            ? this
+                            : new Collision(hash, replace(children, i, leaf));
+                }
+            }
+            change.sizeChanged = true;
+            return new Collision(hash, insert(children, children.length, leaf));
+        }
+
+        Object remove(int hash, Object key) {
+            for (int i = 0; i < children.length; ++i) {
+                if (((Leaf) children[i]).hasKey(hash, key)) {
+                    if (children.length == 2) {
+                        return children[1 - i];
+                    }
+                    return new Collision(hash, delete(children, i));
+                }
+            }
+            return this;
+        }
+    }
+
+    /* ARRAY HELPERS - all return a new array */
+
+    private static Object[] insert(Object[] array, int index, Object value) {
+        Object[] result = new Object[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static Object[] replace(Object[] array, int index, Object value) {
+        Object[] result = array.clone();
+        result[index] = value;
+        return result;
+    }
+
+    private static Object[] delete(Object[] array, int index) {
+        Object[] result = new Object[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    /* ITERATION */
+
+    /** Depth first iteration over all leaves, without creating any intermediate collections. */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        // The max depth is 7 levels of 5 bits, plus a collision node
+        private final Object[][] stack = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth = 0;
+        private Leaf next;
+
+        EntryIterator(Node root) {
+            stack[0] = root.children;
+            positions[0] = 0;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] children = stack[depth];
+                if (positions[depth] >= children.length) {
+                    --depth;
+                    continue;
+                }
+                Object child = children[positions[depth]++];
+                if (child instanceof Leaf) {
+                    next = (Leaf) child;
+                    return;
+                }
+                ++depth;
+                stack[depth] = child instanceof Node
+                        ? ((Node) child).children
+                        : ((Collision) child).children;
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf result = next;
+            advance();
+            return (Map.Entry<K, V>) (Map.Entry<?, ?>) result;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.opentripplanner.graph_builder.linking;
+
+import org.junit.Test;
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.issues.StopUnlinked;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelLinkingTest {
+
+    private static final int GRID_SIZE = 10;
+    private static final double GRID_STEP = 0.002;
+    private static final int N_STOPS = 500;
+
+    /**
+     * Many stops are linked to the same streets, so most streets are split several times. The
+     * streets and links created must be the same with one and with several threads.
+     */
+    @Test
+    public void parallelLinkingGivesTheSameGraph() {
+        Graph sequential = buildGraph(randomStops());
+        link(sequential, 1);
+
+        Graph parallel = buildGraph(randomStops());
+        SimpleStreetSplitter splitter = link(parallel, 4);
+
+        assertSameGraph(sequential, parallel);
+        // The first stop linked to each street uses the edges found in parallel
+        assertTrue(splitter.getPlannedLinks() > N_STOPS / 4);
+    }
+
+    /**
+     * Each stop is linked to its own street, so the edges found in parallel are used for all
+     * stops, even though the streets around them are split.
+     */
+    @Test
+    public void edgesFoundInParallelAreUsed() {
+        Graph sequential = buildGraph(oneStopPerStreet());
+        link(sequential, 1);
+
+        Graph parallel = buildGraph(oneStopPerStreet());
+        SimpleStreetSplitter splitter = link(parallel, 4);
+
+        assertSameGraph(sequential, parallel);
+        assertEquals(oneStopPerStreet().size(), splitter.getPlannedLinks());
+    }
+
+    private static void assertSameGraph(Graph expected, Graph actual) {
+        assertEquals(expected.getVertices().size(), actual.getVertices().size());
+        assertEquals(expected.getEdges().size(), actual.getEdges().size());
+        assertEquals(describeEdges(expected), describeEdges(actual));
+        assertEquals(describeLinks(expected), describeLinks(actual));
+    }
+
+    private static SimpleStreetSplitter link(Graph graph, int nThreads) {
+        SimpleStreetSplitter splitter = new SimpleStreetSplitter(graph, new DataImportIssueStore(false));
+        splitter.setLinkingThreads(nThreads);
+        splitter.link(TransitStopVertex.class, StopUnlinked::new);
+        return splitter;
+    }
+
+    /** The same stops in the same order for both graphs, as {lat, lon}. */
+    private static List<double[]> randomStops() {
+        List<double[]> result = new ArrayList<>();
+        Random random = new Random(42);
+        double extent = (GRID_SIZE - 1) * GRID_STEP;
+        for (int i = 0; i < N_STOPS; ++i) {
+            result.add(new double[] { 60 + random.nextDouble() * extent, 10 + random.nextDouble() * extent });
+        }
+        return result;
+    }
+
+    /** A stop a few meters north of the middle of each street along the longitude axis. */
+    private static List<double[]> oneStopPerStreet() {
+        List<double[]> result = new ArrayList<>();
+        for (int i = 0; i + 1 < GRID_SIZE; ++i) {
+            for (int j = 0; j < GRID_SIZE; ++j) {
+                result.add(new double[] { 60 + j * GRID_STEP + 0.00005, 10 + (i + 0.5) * GRID_STEP });
+            }
+        }
+        return result;
+    }
+
+    private static Graph buildGraph(List<double[]> stops) {
+        Graph graph = new Graph();
+        IntersectionVertex[][] grid = new IntersectionVertex[GRID_SIZE][GRID_SIZE];
+        for (int i = 0; i < GRID_SIZE; ++i) {
+            for (int j = 0; j < GRID_SIZE; ++j) {
+                grid[i][j] = new IntersectionVertex(graph, "V" + i + "_" + j, 10 + i * GRID_STEP, 60 + j * GRID_STEP);
+            }
+        }
+        for (int i = 0; i < GRID_SIZE; ++i) {
+            for (int j = 0; j < GRID_SIZE; ++j) {
+                if (i + 1 < GRID_SIZE) {
+                    street(grid[i][j], grid[i + 1][j]);
+                }
+                if (j + 1 < GRID_SIZE) {
+                    street(grid[i][j], grid[i][j + 1]);
+                }
+            }
+        }
+        for (int i = 0; i < stops.size(); ++i) {
+            double[] stop = stops.get(i);
+            new TransitStopVertex(graph, Stop.stopForTest("S" + i, stop[0], stop[1]), null);
+        }
+        graph.hasStreets = true;
+        return graph;
+    }
+
+    private static void street(IntersectionVertex a, IntersectionVertex b) {
+        new StreetEdge(a, b, null, a.getLabel() + "-" + b.getLabel(), 200, StreetTraversalPermission.ALL, false);
+        new StreetEdge(b, a, null, b.getLabel() + "-" + a.getLabel(), 200, StreetTraversalPermission.ALL, false);
+    }
+
+    /** The coordinates of all edges, which do not depend on the order the edges are split in. */
+    private static List<String> describeEdges(Graph graph) {
+        List<String> result = new ArrayList<>();
+        for (Edge e : graph.getEdges()) {
+            result.add(e.getClass().getSimpleName() + " " + e.getGeometry());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /** The coordinates of the vertices each stop is linked to. */
+    private static List<String> describeLinks(Graph graph) {
+        List<String> result = new ArrayList<>();
+        for (Vertex stop : graph.getVertices()) {
+            if (!(stop instanceof TransitStopVertex)) {
+                continue;
+            }
+            List<String> targets = new ArrayList<>();
+            for (Edge e : stop.getOutgoing()) {
+                Vertex to = e.getToVertex();
+                targets.add(to.getLat() + "," + to.getLon());
+            }
+            Collections.sort(targets);
+            result.add(stop.getLabel() + " " + targets);
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
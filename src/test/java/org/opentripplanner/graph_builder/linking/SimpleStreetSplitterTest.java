@@ -23,7 +23,7 @@ public class SimpleStreetSplitterTest {
     @Before
     public void buildSpy(){
         Graph graph = new Graph();
-        SimpleStreetSplitter simpleStreetSplitter = new SimpleStreetSplitter(graph, null, null,false, new DataImportIssueStore(false));
+        SimpleStreetSplitter simpleStreetSplitter = new SimpleStreetSplitter(graph, null, false, new DataImportIssueStore(false));
         spySimpleStreetSplitter = spy(simpleStreetSplitter);
     }
 
@@ -0,0 +1,165 @@
+package org.opentripplanner.graph_builder.module;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.linking.SimpleStreetSplitter;
+import org.opentripplanner.model.Agency;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.model.Route;
+import org.opentripplanner.model.SimpleTransfer;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.StopPattern;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.model.TripPattern;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DirectTransferGeneratorTest {
+
+    private static final int N = 8;
+    private static final double STEP = 0.002;
+    private static final double RADIUS_METERS = 600;
+    private static final Agency AGENCY = new Agency(
+            new FeedScopedId("TEST", "A"), "Agency", "Europe/Oslo"
+    );
+
+    /**
+     * Each thread runs its own street searches, and the stops are shared between the threads in
+     * the order the threads ask for them. The transfers added to the graph must not depend on
+     * that: they must be the same, in the same order, as with a single thread.
+     */
+    @Test
+    public void transfersDoNotDependOnTheNumberOfThreads() {
+        Graph graph = graphWithStopsAndPatterns();
+
+        new DirectTransferGenerator(RADIUS_METERS, 1).buildGraph(graph, new HashMap<>());
+        List<String> expected = describeTransfers(graph);
+        assertTrue(expected.size() > N);
+
+        for (int nThreads : new int[] { 2, 4, 7 }) {
+            graph.transfersByStop.clear();
+            new DirectTransferGenerator(RADIUS_METERS, nThreads).buildGraph(graph, new HashMap<>());
+            assertEquals("Threads: " + nThreads, expected, describeTransfers(graph));
+        }
+    }
+
+    /** One line per transfer, with the stops in id order and the transfers in graph order. */
+    private static List<String> describeTransfers(Graph graph) {
+        List<Stop> stops = new ArrayList<>(graph.transfersByStop.keySet());
+        stops.sort(Comparator.comparing(Stop::getId));
+        List<String> result = new ArrayList<>();
+        for (Stop stop : stops) {
+            for (SimpleTransfer t : graph.transfersByStop.get(stop)) {
+                result.add(
+                        t.from.getId().getId() + " -> " + t.to.getId().getId() + " "
+                                + Math.round(t.getEffectiveWalkDistance()) + "m "
+                                + t.getEdges().stream()
+                                .map(Object::toString)
+                                .collect(Collectors.joining(", "))
+                );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A grid of N x N streets with a stop near every other intersection. A pattern runs along
+     * each row and each column of stops, so the closest stop on each pattern is not always the
+     * closest stop.
+     */
+    private static Graph graphWithStopsAndPatterns() {
+        Graph graph = new Graph();
+        IntersectionVertex[][] grid = new IntersectionVertex[N][N];
+        for (int x = 0; x < N; ++x) {
+            for (int y = 0; y < N; ++y) {
+                grid[x][y] = new IntersectionVertex(graph, x + "_" + y, 10 + x * STEP, 59 + y * STEP);
+            }
+        }
+        for (int x = 0; x < N; ++x) {
+            for (int y = 0; y < N; ++y) {
+                if (y + 1 < N) {
+                    street(grid[x][y], grid[x][y + 1]);
+                }
+                if (x + 1 < N) {
+                    street(grid[x][y], grid[x + 1][y]);
+                }
+            }
+        }
+        graph.hasStreets = true;
+
+        Stop[][] stops = new Stop[N / 2][N / 2];
+        SimpleStreetSplitter linker = new SimpleStreetSplitter(graph, new DataImportIssueStore(false));
+        for (int x = 0; x < N / 2; ++x) {
+            for (int y = 0; y < N / 2; ++y) {
+                // Just off the intersection, so the stops are linked to the streets
+                stops[x][y] = Stop.stopForTest(
+                        "S" + x + "_" + y,
+                        59 + 2 * y * STEP + STEP / 4,
+                        10 + 2 * x * STEP + STEP / 3
+                );
+                linker.link(new TransitStopVertex(graph, stops[x][y], null));
+            }
+        }
+
+        for (int i = 0; i < N / 2; ++i) {
+            List<Stop> row = new ArrayList<>();
+            List<Stop> column = new ArrayList<>();
+            for (int j = 0; j < N / 2; ++j) {
+                row.add(stops[j][i]);
+                column.add(stops[i][j]);
+            }
+            addPattern(graph, "Row" + i, row);
+            addPattern(graph, "Column" + i, column);
+        }
+        graph.index();
+        return graph;
+    }
+
+    private static void addPattern(Graph graph, String id, List<Stop> stops) {
+        List<StopTime> stopTimes = new ArrayList<>();
+        for (int i = 0; i < stops.size(); ++i) {
+            StopTime st = new StopTime();
+            st.setStop(stops.get(i));
+            st.setArrivalTime(i * 300);
+            st.setDepartureTime(i * 300);
+            st.setStopSequence(i);
+            stopTimes.add(st);
+        }
+        Route route = new Route();
+        route.setId(new FeedScopedId("TEST", id));
+        route.setAgency(AGENCY);
+        TripPattern pattern = new TripPattern(route, new StopPattern(stopTimes));
+        pattern.setId(new FeedScopedId("TEST", id));
+        graph.tripPatternForId.put(pattern.getId(), pattern);
+    }
+
+    private static void street(IntersectionVertex a, IntersectionVertex b) {
+        double length = SphericalDistanceLibrary.distance(a.getCoordinate(), b.getCoordinate());
+        new StreetEdge(a, b, line(a, b), a.getLabel() + "-" + b.getLabel(), length,
+                StreetTraversalPermission.ALL, false);
+        new StreetEdge(b, a, line(b, a), b.getLabel() + "-" + a.getLabel(), length,
+                StreetTraversalPermission.ALL, true);
+    }
+
+    private static LineString line(IntersectionVertex a, IntersectionVertex b) {
+        return GeometryUtils.getGeometryFactory().createLineString(
+                new Coordinate[] { a.getCoordinate(), b.getCoordinate() }
+        );
+    }
+}
@@ -2,6 +2,9 @@ package org.opentripplanner.graph_builder.module;
 
 import com.beust.jcommander.internal.Lists;
 import org.junit.Test;
+import org.opentripplanner.graph_builder.DataImportIssue;
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.issues.GtfsFeedNotLoaded;
 import org.opentripplanner.graph_builder.model.GtfsBundle;
 import org.opentripplanner.gtfs.MockGtfs;
 import org.opentripplanner.model.BikeAccess;
@@ -14,10 +17,14 @@ import org.opentripplanner.routing.graph.Graph;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class GtfsGraphBuilderModuleTest {
 
@@ -83,6 +90,97 @@ public class GtfsGraphBuilderModuleTest {
                 BikeAccess.fromTrip(withId(trips, new FeedScopedId(feedId.getId(), "t1"))));
     }
 
+    /**
+     * Feeds without a feed_id are numbered in bundle order, and the feeds are added to the graph
+     * in bundle order, so loading them in parallel gives the same feed ids and graph.
+     */
+    @Test
+    public void testParallelLoadingOfFeedsWithoutFeedId() throws IOException {
+        List<GtfsBundle> sequential = getBundlesWithoutFeedId(4);
+        Graph sequentialGraph = new Graph();
+        new GtfsModule(sequential, ServiceDateInterval.unbounded(), 1)
+                .buildGraph(sequentialGraph, _extra);
+
+        List<GtfsBundle> parallel = getBundlesWithoutFeedId(4);
+        Graph parallelGraph = new Graph();
+        new GtfsModule(parallel, ServiceDateInterval.unbounded(), 4)
+                .buildGraph(parallelGraph, _extra);
+
+        int firstFeedId = Integer.parseInt(parallel.get(0).getFeedId().getId());
+        for (int i = 0; i < parallel.size(); ++i) {
+            assertEquals(String.valueOf(firstFeedId + i), parallel.get(i).getFeedId().getId());
+        }
+        assertEquals(describeTrips(sequentialGraph, sequential), describeTrips(parallelGraph, parallel));
+    }
+
+    /** A feed which can not be loaded is reported, and the other feeds are still loaded. */
+    @Test
+    public void testFailedFeedIsReported() throws IOException {
+        List<GtfsBundle> bundles = new ArrayList<>();
+        bundles.add(getBundle(getSimpleGtfs(), "A"));
+        MockGtfs broken = getSimpleGtfs();
+        broken.putLines("stop_times.txt", "trip_id,stop_id,stop_sequence,arrival_time,departure_time",
+                "t0,s0,0,not a time,not a time");
+        bundles.add(getBundle(broken, "BROKEN"));
+        bundles.add(getBundle(getSimpleGtfs(), "C"));
+
+        DataImportIssueStore issueStore = new DataImportIssueStore(true);
+        try {
+            new GtfsModule(bundles, ServiceDateInterval.unbounded(), 2)
+                    .buildGraph(new Graph(), _extra, issueStore);
+            fail("The broken feed must fail the build");
+        }
+        catch (RuntimeException e) {
+            assertEquals("Failed to load the GTFS feeds: [BROKEN]", e.getMessage());
+        }
+
+        List<DataImportIssue> notLoaded = new ArrayList<>();
+        for (DataImportIssue issue : issueStore.getIssues()) {
+            if (issue instanceof GtfsFeedNotLoaded) {
+                notLoaded.add(issue);
+            }
+        }
+        assertEquals(1, notLoaded.size());
+        assertTrue(notLoaded.get(0).getMessage().contains(bundles.get(1).toString()));
+    }
+
+    /** Feeds with the same agency and stop ids, and a different number of trips. */
+    private List<GtfsBundle> getBundlesWithoutFeedId(int n) throws IOException {
+        List<GtfsBundle> list = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            MockGtfs gtfs = MockGtfs.create();
+            gtfs.putAgencies(1);
+            gtfs.putRoutes(1);
+            gtfs.putStops(2);
+            gtfs.putCalendars(1);
+            gtfs.putTrips(i + 1, "r0", "sid0");
+            StringBuilder trips = new StringBuilder("t0");
+            for (int j = 1; j <= i; ++j) {
+                trips.append(",t").append(j);
+            }
+            gtfs.putStopTimes(trips.toString(), "s0,s1");
+            list.add(new GtfsBundle(gtfs.getPath()));
+        }
+        return list;
+    }
+
+    /** The trips of each feed and their agency, with the feed given by its position in the list. */
+    private static List<String> describeTrips(Graph graph, List<GtfsBundle> bundles) {
+        graph.index();
+        List<String> result = new ArrayList<>();
+        for (Trip trip : graph.index.getTripForId().values()) {
+            int feed = -1;
+            for (int i = 0; i < bundles.size(); ++i) {
+                if (bundles.get(i).getFeedId().getId().equals(trip.getId().getFeedId())) {
+                    feed = i;
+                }
+            }
+            result.add(feed + " " + trip.getId().getId() + " " + trip.getRoute().getAgency().getId());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
     private MockGtfs getSimpleGtfs() throws IOException {
         MockGtfs gtfs = MockGtfs.create();
         gtfs.putAgencies(1);
@@ -94,6 +192,12 @@ public class GtfsGraphBuilderModuleTest {
         return gtfs;
     }
 
+    private static GtfsBundle getBundle(MockGtfs gtfs, String feedId) {
+        GtfsBundle bundle = new GtfsBundle(gtfs.getPath());
+        bundle.setFeedId(new GtfsFeedId.Builder().id(feedId).build());
+        return bundle;
+    }
+
     private static List<GtfsBundle> getGtfsAsBundleList (MockGtfs gtfs) {
         GtfsBundle bundle = new GtfsBundle(gtfs.getPath());
         bundle.setFeedId(new GtfsFeedId.Builder().id("FEED").build());
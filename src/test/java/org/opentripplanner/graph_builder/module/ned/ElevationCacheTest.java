@@ -0,0 +1,141 @@
+package org.opentripplanner.graph_builder.module.ned;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.common.geometry.PackedCoordinateSequence;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.edgetype.StreetWithElevationEdge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ElevationCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAndReadProfiles() throws IOException {
+        Graph graph = new Graph();
+        List<StreetWithElevationEdge> streets = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            streets.add(street(graph, i, new Coordinate[] {
+                    new Coordinate(0, 12.345 + i),
+                    new Coordinate(10, 13.5),
+                    new Coordinate(20, -2.25 * i),
+                    new Coordinate(27.891, 0.001)
+            }));
+        }
+        File file = folder.newFile("cached_elevations.bin");
+        ElevationCache.write(file, streets);
+
+        ElevationCache cache = ElevationCache.read(file);
+        assertEquals(streets.size(), cache.size());
+        for (StreetWithElevationEdge street : streets) {
+            PackedCoordinateSequence expected = street.getElevationProfile();
+            PackedCoordinateSequence profile = cache.get(street.getGeometry());
+            assertNotNull(profile);
+            assertEquals(expected.size(), profile.size());
+            for (int i = 0; i < expected.size(); ++i) {
+                assertEquals(expected.getX(i), profile.getX(i), 0.0005);
+                assertEquals(expected.getY(i), profile.getY(i), 0.0005);
+            }
+        }
+
+        LineString unknown = GeometryUtils.makeLineString(1.0, 1.0, 1.5, 1.5);
+        assertNull(cache.get(unknown));
+    }
+
+    @Test
+    public void concurrentLookups() throws IOException {
+        Graph graph = new Graph();
+        List<StreetWithElevationEdge> streets = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            streets.add(street(graph, i, new Coordinate[] {
+                    new Coordinate(0, i), new Coordinate(15, i + 0.5)
+            }));
+        }
+        File file = folder.newFile("cached_elevations.bin");
+        ElevationCache.write(file, streets);
+        ElevationCache cache = ElevationCache.read(file);
+
+        AtomicInteger found = new AtomicInteger();
+        IntStream.range(0, streets.size()).parallel().forEach(i -> {
+            PackedCoordinateSequence profile = cache.get(streets.get(i).getGeometry());
+            if (profile != null && profile.getY(1) == i + 0.5) {
+                found.incrementAndGet();
+            }
+        });
+        assertEquals(streets.size(), found.get());
+    }
+
+    /**
+     * The file read by a build is not changed by the same build, the new cache replaces it the
+     * next time it is read.
+     */
+    @Test
+    public void newCacheReplacesTheFileWhenItIsRead() throws IOException {
+        Graph graph = new Graph();
+        StreetWithElevationEdge street = street(graph, 0, new Coordinate[] {
+                new Coordinate(0, 1.0), new Coordinate(15, 2.0)
+        });
+        File file = new File(folder.getRoot(), "cached_elevations.bin");
+        File newFile = new File(folder.getRoot(), "cached_elevations.bin.new");
+        ElevationCache.write(file, List.of(street));
+        assertTrue(newFile.exists());
+        assertTrue(ElevationCache.exists(file));
+
+        ElevationCache cache = ElevationCache.read(file);
+        assertTrue(file.exists());
+        assertFalse(newFile.exists());
+
+        street.setElevationProfile(new PackedCoordinateSequence.Double(new Coordinate[] {
+                new Coordinate(0, 3.0), new Coordinate(15, 4.0)
+        }), false);
+        ElevationCache.write(file, List.of(street));
+
+        // The mapped file is not changed
+        assertEquals(2.0, cache.get(street.getGeometry()).getY(1), 0.0);
+        assertTrue(newFile.exists());
+
+        ElevationCache next = ElevationCache.read(file);
+        assertEquals(4.0, next.get(street.getGeometry()).getY(1), 0.0);
+        assertFalse(newFile.exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectOtherFiles() throws IOException {
+        File file = folder.newFile("cached_elevations.obj");
+        Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20 });
+        ElevationCache.read(file);
+    }
+
+    private static StreetWithElevationEdge street(Graph graph, int i, Coordinate[] profile) {
+        IntersectionVertex from = new IntersectionVertex(graph, "from" + i, 10.0 + i * 0.001, 60.0);
+        IntersectionVertex to = new IntersectionVertex(graph, "to" + i, 10.0 + i * 0.001, 60.001);
+        LineString geometry = GeometryUtils.makeLineString(
+                from.getLon(), from.getLat(), to.getLon(), to.getLat()
+        );
+        StreetWithElevationEdge street = new StreetWithElevationEdge(from, to, geometry, "street" + i,
+                100, StreetTraversalPermission.ALL, false);
+        street.setElevationProfile(new PackedCoordinateSequence.Double(profile), false);
+        return street;
+    }
+}
@@ -0,0 +1,85 @@
+package org.opentripplanner.graph_builder.module.osm;
+
+import org.junit.Test;
+import org.opentripplanner.openstreetmap.model.OSMNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OSMNodeStoreTest {
+
+    @Test
+    public void untaggedNodesAreStoredAsCoordinates() {
+        OSMNodeStore subject = new OSMNodeStore();
+        subject.put(node(10, 59.1, 10.1));
+        subject.put(node(20, 59.2, 10.2));
+
+        OSMNode node = subject.get(20);
+        assertEquals(20, node.getId());
+        assertEquals(59.2, node.lat, 0.0);
+        assertEquals(10.2, node.lon, 0.0);
+        assertNull(node.getTags());
+        assertEquals(node, subject.get(20));
+
+        assertNull(subject.get(15));
+        assertFalse(subject.contains(15));
+        assertEquals(2, subject.size());
+    }
+
+    @Test
+    public void taggedNodesAreKept() {
+        OSMNodeStore subject = new OSMNodeStore();
+        OSMNode stop = node(10, 59.1, 10.1);
+        stop.addTag("highway", "bus_stop");
+        subject.put(stop);
+
+        assertSame(stop, subject.get(10));
+        assertTrue(subject.contains(10));
+    }
+
+    @Test
+    public void nodesAddedOutOfOrderAreFound() {
+        OSMNodeStore subject = new OSMNodeStore();
+        for (long id = 1; id <= 2000; id++) {
+            subject.put(node(id * 2, id, -id));
+        }
+        // A second file, and a virtual node
+        subject.put(node(3, 3.0, -3.0));
+        subject.put(node(5000, 5000.0, -5000.0));
+        subject.put(node(-1, -1.0, 1.0));
+
+        assertEquals(3.0, subject.get(3).lat, 0.0);
+        assertEquals(-1.0, subject.get(-1).lat, 0.0);
+        assertEquals(2003, subject.size());
+
+        subject.compact();
+
+        assertEquals(2003, subject.size());
+        assertEquals(3.0, subject.get(3).lat, 0.0);
+        assertEquals(-5000.0, subject.get(5000).lon, 0.0);
+        assertEquals(-1.0, subject.get(-1).lat, 0.0);
+        assertEquals(1000.0, subject.get(2000).lat, 0.0);
+        assertFalse(subject.contains(1));
+    }
+
+    @Test
+    public void firstNodeWithAnIdIsKept() {
+        OSMNodeStore subject = new OSMNodeStore();
+        subject.put(node(10, 59.1, 10.1));
+        subject.put(node(10, 60.0, 11.0));
+
+        assertEquals(59.1, subject.get(10).lat, 0.0);
+        assertEquals(1, subject.size());
+    }
+
+    private static OSMNode node(long id, double lat, double lon) {
+        OSMNode node = new OSMNode();
+        node.setId(id);
+        node.lat = lat;
+        node.lon = lon;
+        return node;
+    }
+}
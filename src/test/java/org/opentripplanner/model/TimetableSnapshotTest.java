@@ -24,6 +24,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class TimetableSnapshotTest {
@@ -226,4 +227,40 @@ public class TimetableSnapshotTest {
         assertNull(resolver.commit());
         assertFalse(resolver.isDirty());
     }
+
+    @Test
+    public void testCommittedSnapshotIsNotChangedByPurgeOrClear() {
+        ServiceDate today = new ServiceDate();
+        ServiceDate yesterday = today.previous();
+        TripPattern pattern = patternIndex.get(new FeedScopedId("agency", "1.1"));
+
+        TripDescriptor.Builder tripDescriptorBuilder = TripDescriptor.newBuilder();
+
+        tripDescriptorBuilder.setTripId("1.1");
+        tripDescriptorBuilder.setScheduleRelationship(ScheduleRelationship.CANCELED);
+
+        TripUpdate.Builder tripUpdateBuilder = TripUpdate.newBuilder();
+
+        tripUpdateBuilder.setTrip(tripDescriptorBuilder);
+
+        TripUpdate tripUpdate = tripUpdateBuilder.build();
+
+        TimetableSnapshot resolver = new TimetableSnapshot();
+        updateResolver(resolver, pattern, tripUpdate, "agency", today);
+        updateResolver(resolver, pattern, tripUpdate, "agency", yesterday);
+        TimetableSnapshot snapshot = resolver.commit();
+
+        Timetable forToday = snapshot.resolve(pattern, today);
+        Timetable forYesterday = snapshot.resolve(pattern, yesterday);
+
+        // The snapshot shares its indexes with the buffer, changing the buffer must not change it
+        assertTrue(resolver.purgeExpiredData(yesterday));
+        resolver.clear(pattern.getFeedId());
+
+        assertEquals(pattern.scheduledTimetable, resolver.resolve(pattern, today));
+        assertSame(forToday, snapshot.resolve(pattern, today));
+        assertSame(forYesterday, snapshot.resolve(pattern, yesterday));
+        assertEquals(1, snapshot.getAllRealtimeTripPatterns().size());
+        assertTrue(snapshot.getPatternsForStop(pattern.getStops().get(0)).contains(pattern));
+    }
 }
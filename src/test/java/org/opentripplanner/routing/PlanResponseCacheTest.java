@@ -0,0 +1,171 @@
+package org.opentripplanner.routing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.model.GenericLocation;
+import org.opentripplanner.routing.PlanResponseCache.Api;
+import org.opentripplanner.routing.api.request.RequestModes;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.api.response.RoutingResponse;
+import org.opentripplanner.routing.framework.DebugAggregator;
+import org.opentripplanner.routing.graph.Graph;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PlanResponseCacheTest {
+
+    private static final int TIME_TO_LIVE = 60;
+    private static final int TIME_BUCKET = 60;
+    private static final long TIME = 1_600_000_020L;
+
+    private Graph graph;
+    private long now;
+    private int nSearches;
+    private final Supplier<RoutingResponse> routing = () -> {
+        ++nSearches;
+        return new RoutingResponse(null, null, List.of(), new DebugAggregator());
+    };
+
+    @Before
+    public void setUp() {
+        graph = new Graph();
+        now = 0;
+        nSearches = 0;
+    }
+
+    @Test
+    public void sameRequestIsCached() {
+        PlanResponseCache subject = cache(Set.of());
+
+        RoutingResponse first = subject.getOrRoute(request(59.0, TIME), Api.REST, routing);
+        RoutingResponse second = subject.getOrRoute(request(59.0, TIME), Api.REST, routing);
+
+        assertEquals(1, nSearches);
+        assertSame(first.getRoutingErrors(), second.getRoutingErrors());
+        // The cached response has its own timings
+        assertNotSame(first.getDebugAggregator(), second.getDebugAggregator());
+        assertEquals(1, subject.hits());
+        assertEquals(1, subject.misses());
+    }
+
+    @Test
+    public void coordinatesAndTimeAreRounded() {
+        PlanResponseCache subject = cache(Set.of());
+
+        subject.getOrRoute(request(59.0, TIME), Api.REST, routing);
+        subject.getOrRoute(request(59.000001, TIME + 30), Api.REST, routing);
+        assertEquals(1, nSearches);
+
+        subject.getOrRoute(request(59.0001, TIME), Api.REST, routing);
+        subject.getOrRoute(request(59.0, TIME + TIME_BUCKET), Api.REST, routing);
+        assertEquals(3, nSearches);
+    }
+
+    @Test
+    public void requestParametersArePartOfTheKey() {
+        PlanResponseCache subject = cache(Set.of());
+        RoutingRequest slow = request(59.0, TIME);
+        slow.walkSpeed = 0.5;
+
+        subject.getOrRoute(request(59.0, TIME), Api.REST, routing);
+        subject.getOrRoute(slow, Api.REST, routing);
+
+        assertEquals(2, nSearches);
+        assertEquals(2, subject.size());
+    }
+
+    @Test
+    public void realtimeUpdateEmptiesTheCache() {
+        PlanResponseCache subject = cache(Set.of());
+
+        subject.getOrRoute(request(59.0, TIME), Api.REST, routing);
+        graph.realtimeDataModified();
+        subject.getOrRoute(request(59.0, TIME), Api.REST, routing);
+
+        assertEquals(2, nSearches);
+        assertEquals(1, subject.size());
+    }
+
+    @Test
+    public void responseRoutedDuringRealtimeUpdateIsNotCached() {
+        PlanResponseCache subject = cache(Set.of());
+        Supplier<RoutingResponse> routingDuringUpdate = () -> {
+            graph.realtimeDataModified();
+            return routing.get();
+        };
+
+        subject.getOrRoute(request(59.0, TIME), Api.REST, routingDuringUpdate);
+
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void responsesExpire() {
+        PlanResponseCache subject = cache(Set.of());
+
+        subject.getOrRoute(request(59.0, TIME), Api.REST, routing);
+        now = TIME_TO_LIVE * 1000L;
+        subject.getOrRoute(request(59.0, TIME), Api.REST, routing);
+
+        assertEquals(2, nSearches);
+        assertEquals(1, subject.expirations());
+    }
+
+    @Test
+    public void disabledApiIsNotCached() {
+        PlanResponseCache subject = cache(Set.of(Api.TRANSMODEL));
+
+        subject.getOrRoute(request(59.0, TIME), Api.TRANSMODEL, routing);
+        subject.getOrRoute(request(59.0, TIME), Api.TRANSMODEL, routing);
+
+        assertEquals(2, nSearches);
+        assertEquals(0, subject.misses());
+    }
+
+    @Test
+    public void bikeRentalIsNotCached() {
+        PlanResponseCache subject = cache(Set.of());
+        RoutingRequest request = request(59.0, TIME);
+        request.modes = new RequestModes(
+                StreetMode.BIKE_RENTAL, StreetMode.WALK, StreetMode.BIKE_RENTAL, Set.of()
+        );
+
+        subject.getOrRoute(request, Api.REST, routing);
+
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void carParkAccessIsNotCached() {
+        PlanResponseCache subject = cache(Set.of());
+        RoutingRequest request = request(59.0, TIME);
+        request.modes = new RequestModes(
+                StreetMode.CAR_TO_PARK, StreetMode.WALK, StreetMode.WALK, Set.of()
+        );
+
+        subject.getOrRoute(request, Api.REST, routing);
+
+        assertEquals(0, subject.size());
+    }
+
+    private PlanResponseCache cache(Set<Api> disabledApis) {
+        return new PlanResponseCache(
+                graph, 10, TIME_TO_LIVE, TIME_BUCKET, disabledApis, () -> now
+        );
+    }
+
+    private static RoutingRequest request(double fromLat, long dateTime) {
+        RoutingRequest request = new RoutingRequest();
+        request.from = new GenericLocation(fromLat, 10.0);
+        request.to = new GenericLocation(59.1, 10.1);
+        request.dateTime = dateTime;
+        return request;
+    }
+}
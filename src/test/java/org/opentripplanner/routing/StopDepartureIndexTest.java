@@ -0,0 +1,165 @@
+package org.opentripplanner.routing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.model.Route;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.StopPattern;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.model.Timetable;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.model.TripPattern;
+import org.opentripplanner.model.calendar.CalendarServiceData;
+import org.opentripplanner.model.calendar.ServiceDate;
+import org.opentripplanner.model.calendar.impl.CalendarServiceImpl;
+import org.opentripplanner.routing.StopDepartureIndex.PatternDepartures;
+import org.opentripplanner.routing.core.ServiceDay;
+import org.opentripplanner.routing.trippattern.Deduplicator;
+import org.opentripplanner.routing.trippattern.TripTimes;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class StopDepartureIndexTest {
+
+  private static final String FEED_ID = "F";
+  private static final FeedScopedId AGENCY_ID = new FeedScopedId(FEED_ID, "A1");
+  private static final FeedScopedId SERVICE_RUNNING = new FeedScopedId(FEED_ID, "S1");
+  private static final FeedScopedId SERVICE_NOT_RUNNING = new FeedScopedId(FEED_ID, "S2");
+  private static final ServiceDate DATE = new ServiceDate(2020, 6, 1);
+
+  private static final Stop STOP_A = Stop.stopForTest("A", 60.0, 10.0);
+  private static final Stop STOP_B = Stop.stopForTest("B", 60.1, 10.0);
+
+  private TripPattern pattern;
+  private ServiceDay serviceDay;
+  private TripTimes t600;
+  private TripTimes t300;
+  private TripTimes t300Last;
+
+  @Before
+  public void setUp() {
+    // The pattern visits stop A twice: A -> B -> A
+    pattern = new TripPattern(new Route(), new StopPattern(stopTimes(0)));
+    pattern.setId(new FeedScopedId(FEED_ID, "P1"));
+
+    t600 = tripTimes("T600", 600, SERVICE_RUNNING);
+    t300 = tripTimes("T300", 300, SERVICE_RUNNING);
+    t300Last = tripTimes("T300Last", 300, SERVICE_RUNNING);
+
+    pattern.scheduledTimetable.addTripTimes(t600);
+    pattern.scheduledTimetable.addTripTimes(t300);
+    pattern.scheduledTimetable.addTripTimes(tripTimes("T100", 100, SERVICE_NOT_RUNNING));
+    pattern.scheduledTimetable.addTripTimes(t300Last);
+
+    CalendarServiceData data = new CalendarServiceData();
+    data.putServiceDatesForServiceId(SERVICE_RUNNING, List.of(DATE));
+    data.putServiceDatesForServiceId(SERVICE_NOT_RUNNING, List.of(DATE.next()));
+    data.putTimeZoneForAgencyId(AGENCY_ID, TimeZone.getTimeZone("UTC"));
+    serviceDay = new ServiceDay(
+        Map.of(SERVICE_RUNNING, 0, SERVICE_NOT_RUNNING, 1),
+        DATE,
+        new CalendarServiceImpl(data),
+        AGENCY_ID
+    );
+  }
+
+  @Test
+  public void departuresAreSortedForEachVisit() {
+    PatternDepartures subject = new StopDepartureIndex()
+        .departures(STOP_A, pattern, pattern.scheduledTimetable, serviceDay);
+
+    assertEquals(2, subject.nStopPositions());
+    assertEquals(0, subject.stopPosition(0));
+    assertEquals(2, subject.stopPosition(1));
+
+    // The trip not running is left out, trips departing at the same time keep the timetable order
+    assertEquals(3, subject.size(0));
+    assertSame(t300, subject.tripTimes(0, 0));
+    assertSame(t300Last, subject.tripTimes(0, 1));
+    assertSame(t600, subject.tripTimes(0, 2));
+    assertEquals(300, subject.departureTime(0, 0));
+    assertEquals(600, subject.departureTime(0, 2));
+
+    // The second visit is 20 minutes after the first
+    assertEquals(1500, subject.departureTime(1, 0));
+    assertEquals(1800, subject.departureTime(1, 2));
+  }
+
+  @Test
+  public void firstDepartureAtOrAfter() {
+    PatternDepartures subject = new StopDepartureIndex()
+        .departures(STOP_A, pattern, pattern.scheduledTimetable, serviceDay);
+
+    assertEquals(0, subject.firstDepartureAtOrAfter(0, 0));
+    assertEquals(0, subject.firstDepartureAtOrAfter(0, 300));
+    assertEquals(2, subject.firstDepartureAtOrAfter(0, 301));
+    assertEquals(2, subject.firstDepartureAtOrAfter(0, 600));
+    assertEquals(3, subject.firstDepartureAtOrAfter(0, 601));
+  }
+
+  @Test
+  public void departuresAreRecomputedForANewTimetable() {
+    StopDepartureIndex index = new StopDepartureIndex();
+    PatternDepartures scheduled = index
+        .departures(STOP_A, pattern, pattern.scheduledTimetable, serviceDay);
+
+    assertSame(scheduled, index.departures(STOP_A, pattern, pattern.scheduledTimetable, serviceDay));
+
+    // A realtime update replaces the timetable, the delayed trip now departs last
+    Timetable updated = new Timetable(pattern);
+    TripTimes delayed = tripTimes("T300", 900, SERVICE_RUNNING);
+    updated.addTripTimes(t600);
+    updated.addTripTimes(delayed);
+    updated.addTripTimes(t300Last);
+
+    PatternDepartures realtime = index.departures(STOP_A, pattern, updated, serviceDay);
+
+    assertNotSame(scheduled, realtime);
+    assertSame(t300Last, realtime.tripTimes(0, 0));
+    assertSame(delayed, realtime.tripTimes(0, 2));
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  public void leastRecentlyUsedStopIsDropped() {
+    StopDepartureIndex index = new StopDepartureIndex(1);
+    PatternDepartures a = index.departures(STOP_A, pattern, pattern.scheduledTimetable, serviceDay);
+    index.departures(STOP_B, pattern, pattern.scheduledTimetable, serviceDay);
+
+    assertEquals(1, index.size());
+    assertNotSame(a, index.departures(STOP_A, pattern, pattern.scheduledTimetable, serviceDay));
+  }
+
+  private static TripTimes tripTimes(String id, int departureTime, FeedScopedId serviceId) {
+    Trip trip = new Trip();
+    trip.setId(new FeedScopedId(FEED_ID, id));
+    trip.setServiceId(serviceId);
+    TripTimes tripTimes = new TripTimes(trip, stopTimes(departureTime), new Deduplicator());
+    tripTimes.serviceCode = serviceId == SERVICE_RUNNING ? 0 : 1;
+    return tripTimes;
+  }
+
+  private static List<StopTime> stopTimes(int departureTime) {
+    return List.of(
+        stopTime(STOP_A, departureTime, 0),
+        stopTime(STOP_B, departureTime + 600, 1),
+        stopTime(STOP_A, departureTime + 1200, 2)
+    );
+  }
+
+  private static StopTime stopTime(Stop stop, int time, int sequence) {
+    StopTime st = new StopTime();
+    st.setStop(stop);
+    st.setArrivalTime(time);
+    st.setDepartureTime(time);
+    st.setStopSequence(sequence);
+    return st;
+  }
+}
@@ -124,7 +124,7 @@ public class TestHalfEdges {
         // is up and over
 
         int nVertices = graph.getVertices().size();
-        int nEdges = graph.getEdges().size();
+        int nEdges = countEdges(graph);
 
         RoutingRequest options = new RoutingRequest();
 
@@ -194,9 +194,10 @@ public class TestHalfEdges {
         }
 
         // Number of vertices and edges should be the same as before after a cleanup.
+        assertTrue(countEdges(graph) > nEdges);
         options.cleanup();
         assertEquals(nVertices, graph.getVertices().size());
-        assertEquals(nEdges, graph.getEdges().size());
+        assertEquals(nEdges, countEdges(graph));
 
         /*
          * Now, the right edge is not bikeable. But the user can walk their bike. So here are some tests that prove (a) that walking bikes works, but
@@ -226,7 +227,7 @@ public class TestHalfEdges {
         // Number of vertices and edges should be the same as before after a cleanup.
         options.cleanup();
         assertEquals(nVertices, graph.getVertices().size());
-        assertEquals(nEdges, graph.getEdges().size());
+        assertEquals(nEdges, countEdges(graph));
 
         start = StreetVertexIndex.createTemporaryStreetLocation(graph, "start2", new NonLocalizedString("start2"),
                 filter(turns, StreetEdge.class),
@@ -250,7 +251,7 @@ public class TestHalfEdges {
         // Number of vertices and edges should be the same as before after a cleanup.
         options.cleanup();
         assertEquals(nVertices, graph.getVertices().size());
-        assertEquals(nEdges, graph.getEdges().size());
+        assertEquals(nEdges, countEdges(graph));
     }
 
     @Test
@@ -464,4 +465,15 @@ public class TestHalfEdges {
         assertTrue(Math.abs(station2point.getCoordinate().x - -74.002) < 0.00000001);
     }
 
+    /**
+     * The number of edges attached to the vertices of the graph. The temporary edges are not in
+     * {@link Graph#getEdges()}, but they are attached to the permanent vertices they link to.
+     */
+    private static int countEdges(Graph graph) {
+        int n = 0;
+        for (Vertex v : graph.getVertices()) {
+            n += v.getOutgoing().size() + v.getIncoming().size();
+        }
+        return n;
+    }
 }
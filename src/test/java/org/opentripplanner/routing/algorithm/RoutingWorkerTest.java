@@ -0,0 +1,136 @@
+package org.opentripplanner.routing.algorithm;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opentripplanner.ConstantsForTests;
+import org.opentripplanner.model.GenericLocation;
+import org.opentripplanner.model.plan.Itinerary;
+import org.opentripplanner.routing.algorithm.raptor.router.street.AccessEgressCache;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.graphfinder.StopAtDistance;
+import org.opentripplanner.standalone.config.ConfigLoader;
+import org.opentripplanner.standalone.config.RouterConfig;
+import org.opentripplanner.standalone.server.Router;
+import org.opentripplanner.util.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * The street searches of a request run in the request thread, or in parallel in the street
+ * routing thread pool of the router. Both must give the same result.
+ */
+public class RoutingWorkerTest {
+
+    private static final String PARALLEL_CONFIG = "{\"streetRoutingThreadPoolSize\": 3}";
+
+    private static Graph graph;
+    private static String feedId;
+    private static final List<Router> routers = new ArrayList<>();
+
+    @BeforeClass
+    public static void setup() {
+        graph = ConstantsForTests.getInstance().getPortlandGraph();
+        graph.index();
+        feedId = graph.getFeedIds().iterator().next();
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        routers.forEach(Router::shutdown);
+    }
+
+    @Test
+    public void parallelStreetSearchesGiveTheSameItineraries() {
+        Router sequential = router(RouterConfig.DEFAULT);
+        Router parallel = router(routerConfig(PARALLEL_CONFIG));
+
+        String[][] trips = { { "10579", "8371" }, { "8389", "1252" }, { "10428", "4231" } };
+        for (String[] trip : trips) {
+            String expected = Itinerary.toStr(route(sequential, trip[0], trip[1]));
+            String actual = Itinerary.toStr(route(parallel, trip[0], trip[1]));
+
+            assertFalse(expected.isEmpty());
+            assertEquals(trip[0] + " - " + trip[1], expected, actual);
+        }
+    }
+
+    @Test
+    public void streetSearchFailureIsPropagated() {
+        for (RouterConfig config : List.of(RouterConfig.DEFAULT, routerConfig(PARALLEL_CONFIG))) {
+            RuntimeException failure = new IllegalStateException("Access search failed");
+            Router router = failingRouter(config, failure);
+            try {
+                route(router, "10579", "8371");
+                fail("Expected the street search failure");
+            }
+            catch (IllegalStateException e) {
+                assertSame(failure, e);
+            }
+        }
+    }
+
+    private static List<Itinerary> route(Router router, String fromStop, String toStop) {
+        RoutingRequest request = new RoutingRequest();
+        request.dateTime = TestUtils.dateInSeconds("America/Los_Angeles", 2009, 11, 1, 12, 0, 0);
+        request.from = location(fromStop);
+        request.to = location(toStop);
+        return new RoutingWorker(router.raptorConfig, request)
+                .route(router)
+                .getTripPlan()
+                .itineraries;
+    }
+
+    private static GenericLocation location(String stopId) {
+        Vertex stop = graph.getVertex(feedId + ":" + stopId);
+        return new GenericLocation(stop.getLat(), stop.getLon());
+    }
+
+    private static Router router(RouterConfig config) {
+        Router router = new Router(graph, config);
+        router.startup();
+        routers.add(router);
+        return router;
+    }
+
+    /** A router where every access and egress street search throws the given failure. */
+    private static Router failingRouter(RouterConfig config, RuntimeException failure) {
+        AccessEgressCache cache = new AccessEgressCache(graph, 1) {
+            @Override
+            public List<StopAtDistance> getOrSearch(
+                    RoutingRequest streetRequest,
+                    Set<Vertex> origin,
+                    boolean egress,
+                    StreetMode mode,
+                    int distanceMeters,
+                    Supplier<List<StopAtDistance>> streetSearch
+            ) {
+                throw failure;
+            }
+        };
+        Router router = new Router(graph, config) {
+            @Override
+            public AccessEgressCache accessEgressCache() {
+                return cache;
+            }
+        };
+        router.startup();
+        routers.add(router);
+        return router;
+    }
+
+    private static RouterConfig routerConfig(String json) {
+        return new RouterConfig(ConfigLoader.nodeFromString(json, "Test"), "Test", false);
+    }
+}
@@ -0,0 +1,268 @@
+package org.opentripplanner.routing.algorithm.raptor.router.street;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.linking.SimpleStreetSplitter;
+import org.opentripplanner.graph_builder.module.NearbyStopFinder;
+import org.opentripplanner.model.GenericLocation;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.edgetype.TemporaryEdge;
+import org.opentripplanner.routing.edgetype.TemporaryPartialStreetEdge;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.graphfinder.StopAtDistance;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+
+public class AccessEgressCacheTest {
+
+    private static final int DISTANCE = 1000;
+
+    private Graph graph;
+    private Vertex a;
+    private Vertex b;
+    private RoutingRequest request;
+    private int nSearches;
+    private final Supplier<List<StopAtDistance>> search = () -> {
+        ++nSearches;
+        return List.of();
+    };
+
+    @Before
+    public void setUp() {
+        graph = new Graph();
+        a = new IntersectionVertex(graph, "A", 10.0, 59.0);
+        b = new IntersectionVertex(graph, "B", 10.1, 59.0);
+        request = new RoutingRequest();
+        nSearches = 0;
+    }
+
+    @Test
+    public void sameSearchIsCached() {
+        AccessEgressCache subject = new AccessEgressCache(graph, 10);
+
+        List<StopAtDistance> first = get(subject, Set.of(a), StreetMode.WALK);
+        List<StopAtDistance> second = get(subject, Set.of(a), StreetMode.WALK);
+
+        assertEquals(first, second);
+        assertEquals(1, nSearches);
+        assertEquals(1, subject.hits());
+        assertEquals(1, subject.misses());
+        assertEquals(0.5, subject.hitRate(), 0.0);
+    }
+
+    @Test
+    public void originsLinkedToTheSamePlaceHitTheCache() {
+        Graph graph = streetWithStop();
+        AccessEgressCache subject = new AccessEgressCache(graph, 10);
+
+        // On both sides of the street, linked to the same point
+        Vertex north = location(graph, 59.0002, 10.0005, "North");
+        Vertex south = location(graph, 58.9998, 10.0005, "South");
+        List<StopAtDistance> first = searchStops(graph, subject, north);
+        List<StopAtDistance> second = searchStops(graph, subject, south);
+
+        assertEquals(1, nSearches);
+        assertEquals(1, subject.hits());
+        assertEquals(1, second.size());
+        // The cached path is traversed again from the new origin
+        State root = second.get(0).state;
+        while (root.getBackState() != null) {
+            root = root.getBackState();
+        }
+        assertSame(south, root.getVertex());
+        assertEquals(first.get(0).state.getWeight(), second.get(0).state.getWeight(), 0.0);
+        assertEquals(first.get(0).distance, second.get(0).distance, 0.0);
+
+        // Linked to another point of the street
+        searchStops(graph, subject, location(graph, 59.0002, 10.0008, "North"));
+        assertEquals(2, nSearches);
+    }
+
+    @Test
+    public void cachedPathsAreTraversedWithTheNewRequest() {
+        Graph graph = streetWithStop();
+        AccessEgressCache subject = new AccessEgressCache(graph, 10);
+
+        Vertex north = location(graph, 59.0002, 10.0005, "North");
+        Vertex south = location(graph, 58.9998, 10.0005, "South");
+        searchStops(graph, subject, north, new RoutingRequest(TraverseMode.WALK));
+        RoutingRequest streetRequest = new RoutingRequest(TraverseMode.WALK);
+        List<StopAtDistance> second = searchStops(graph, subject, south, streetRequest);
+
+        assertEquals(1, subject.hits());
+        // Neither the request nor the temporary edges of the first search are used
+        Set<Edge> northEdges = temporaryEdges(north);
+        int nTemporaryEdges = 0;
+        for (State s = second.get(0).state; s.getBackState() != null; s = s.getBackState()) {
+            assertSame(streetRequest, s.getOptions());
+            assertFalse(northEdges.contains(s.getBackEdge()));
+            if (s.getBackEdge() instanceof TemporaryEdge) {
+                ++nTemporaryEdges;
+            }
+        }
+        assertTrue(nTemporaryEdges > 0);
+    }
+
+    @Test
+    public void pathsWhichCanNotBeTraversedAgainAreSearched() {
+        Graph graph = streetWithStop();
+        AccessEgressCache subject = new AccessEgressCache(graph, 10);
+
+        Vertex north = location(graph, 59.0002, 10.0005, "North");
+        Vertex south = location(graph, 58.9998, 10.0005, "South");
+        searchStops(graph, subject, north, new RoutingRequest(TraverseMode.WALK));
+
+        // Remove the edge of the south origin towards the stop, the origin key stays the same
+        for (Edge e : temporaryEdges(south)) {
+            if (e instanceof TemporaryPartialStreetEdge && e.getToVertex().getLon() > south.getLon()) {
+                e.getFromVertex().removeOutgoing(e);
+                e.getToVertex().removeIncoming(e);
+            }
+        }
+        searchStops(graph, subject, south, new RoutingRequest(TraverseMode.WALK));
+
+        assertEquals(0, subject.hits());
+        assertEquals(2, subject.misses());
+        assertEquals(2, nSearches);
+    }
+
+    @Test
+    public void differentSearchesAreNotShared() {
+        AccessEgressCache subject = new AccessEgressCache(graph, 10);
+
+        get(subject, Set.of(a), StreetMode.WALK);
+        get(subject, Set.of(b), StreetMode.WALK);
+        get(subject, Set.of(a), StreetMode.BIKE);
+        subject.getOrSearch(request, Set.of(a), true, StreetMode.WALK, DISTANCE, search);
+        subject.getOrSearch(request, Set.of(a), false, StreetMode.WALK, 2 * DISTANCE, search);
+        request.walkSpeed = 2.0;
+        get(subject, Set.of(a), StreetMode.WALK);
+
+        assertEquals(6, nSearches);
+        assertEquals(6, subject.size());
+    }
+
+    @Test
+    public void modesDependingOnTimeAreNotCached() {
+        AccessEgressCache subject = new AccessEgressCache(graph, 10);
+
+        get(subject, Set.of(a), StreetMode.BIKE_RENTAL);
+        get(subject, Set.of(a), StreetMode.BIKE_RENTAL);
+
+        assertEquals(2, nSearches);
+        assertEquals(0, subject.size());
+        assertEquals(0, subject.misses());
+    }
+
+    @Test
+    public void leastRecentlyUsedSearchIsEvicted() {
+        AccessEgressCache subject = new AccessEgressCache(graph, 2);
+
+        get(subject, Set.of(a), StreetMode.WALK);
+        get(subject, Set.of(b), StreetMode.WALK);
+        get(subject, Set.of(a), StreetMode.WALK);
+        get(subject, Set.of(a), StreetMode.BIKE);
+
+        // b is evicted, a is still cached
+        get(subject, Set.of(a), StreetMode.WALK);
+        assertEquals(3, nSearches);
+        get(subject, Set.of(b), StreetMode.WALK);
+        assertEquals(4, nSearches);
+        assertEquals(2, subject.evictions());
+    }
+
+    @Test
+    public void streetChangesInvalidateTheCache() {
+        AccessEgressCache subject = new AccessEgressCache(graph, 10);
+
+        get(subject, Set.of(a), StreetMode.WALK);
+        new IntersectionVertex(graph, "C", 10.2, 59.0);
+        get(subject, Set.of(a), StreetMode.WALK);
+        graph.streetsModified();
+        get(subject, Set.of(a), StreetMode.WALK);
+
+        assertEquals(3, nSearches);
+        assertEquals(1, subject.size());
+    }
+
+    private List<StopAtDistance> get(AccessEgressCache cache, Set<Vertex> origin, StreetMode mode) {
+        return cache.getOrSearch(request, origin, false, mode, DISTANCE, search);
+    }
+
+    private List<StopAtDistance> searchStops(Graph graph, AccessEgressCache cache, Vertex origin) {
+        return searchStops(graph, cache, origin, new RoutingRequest(TraverseMode.WALK));
+    }
+
+    private List<StopAtDistance> searchStops(
+        Graph graph,
+        AccessEgressCache cache,
+        Vertex origin,
+        RoutingRequest streetRequest
+    ) {
+        return cache.getOrSearch(streetRequest, Set.of(origin), false, StreetMode.WALK, DISTANCE, () -> {
+            ++nSearches;
+            return new NearbyStopFinder(graph, DISTANCE, true)
+                .findNearbyStopsViaStreets(Set.of(origin), false, false, streetRequest);
+        });
+    }
+
+    /** The edges linking a temporary origin to the streets. */
+    private static Set<Edge> temporaryEdges(Vertex origin) {
+        Set<Edge> result = new HashSet<>();
+        for (Edge e : origin.getOutgoing()) {
+            result.add(e);
+            Vertex split = e.getToVertex();
+            Stream.concat(split.getOutgoing().stream(), split.getIncoming().stream())
+                .filter(it -> it instanceof TemporaryEdge)
+                .forEach(result::add);
+        }
+        return result;
+    }
+
+    /** A street along the latitude 59.0, and a stop linked to it. */
+    private static Graph streetWithStop() {
+        Graph graph = new Graph();
+        IntersectionVertex from = new IntersectionVertex(graph, "from", 10.0, 59.0);
+        IntersectionVertex to = new IntersectionVertex(graph, "to", 10.002, 59.0);
+        LineString forward = GeometryUtils.makeLineString(10.0, 59.0, 10.002, 59.0);
+        LineString back = GeometryUtils.makeLineString(10.002, 59.0, 10.0, 59.0);
+        new StreetEdge(from, to, forward, "street", 114, StreetTraversalPermission.ALL, false);
+        new StreetEdge(to, from, back, "street", 114, StreetTraversalPermission.ALL, true);
+        TransitStopVertex stop = new TransitStopVertex(
+            graph, Stop.stopForTest("stop", 59.0001, 10.0015), null
+        );
+        new SimpleStreetSplitter(graph, new DataImportIssueStore(false)).link(stop);
+        graph.hasStreets = true;
+        graph.index();
+        return graph;
+    }
+
+    private static Vertex location(Graph graph, double lat, double lon, String label) {
+        return graph.streetIndex.getVertexForLocation(
+            new GenericLocation(label, null, lat, lon),
+            new RoutingRequest(),
+            false
+        );
+    }
+}
@@ -0,0 +1,65 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.request;
+
+import org.junit.Test;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternWithRaptorStopIndexes;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TripPatternForDatesCacheTest {
+
+    private static final LocalDate DATE = LocalDate.of(2020, 10, 1);
+
+    @Test
+    public void testPatternIndexesForStop() {
+        // Pattern 1 visits stop 1 twice, it should only be indexed once for that stop
+        TripPatternForDates pattern0 = createPattern("0", new int[] { 0, 1, 2 });
+        TripPatternForDates pattern1 = createPattern("1", new int[] { 2, 1, 3, 1 });
+
+        TripPatternForDatesIndex index = new TripPatternForDatesIndex(
+            List.of(pattern0, pattern1), 5
+        );
+
+        assertEquals(2, index.numberOfPatterns());
+        assertSame(pattern1, index.getPattern(1));
+        assertArrayEquals(new int[] { 0 }, index.patternIndexesForStop(0));
+        assertArrayEquals(new int[] { 0, 1 }, index.patternIndexesForStop(1));
+        assertArrayEquals(new int[] { 0, 1 }, index.patternIndexesForStop(2));
+        assertArrayEquals(new int[] { 1 }, index.patternIndexesForStop(3));
+        assertArrayEquals(new int[] { }, index.patternIndexesForStop(4));
+    }
+
+    @Test
+    public void testIndexIsCreatedOncePerDateWindow() {
+        TripPatternForDatesCache cache = new TripPatternForDatesCache();
+        TripPatternForDatesIndex index = new TripPatternForDatesIndex(List.of(), 0);
+
+        assertSame(index, cache.get(DATE, 1, 1, () -> index));
+        assertSame(index, cache.get(DATE, 1, 1, this::failIfCalled));
+        assertEquals(1, cache.size());
+
+        // A different date window is cached separately
+        TripPatternForDatesIndex otherIndex = new TripPatternForDatesIndex(List.of(), 0);
+        assertSame(otherIndex, cache.get(DATE.plusDays(1), 1, 1, () -> otherIndex));
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    private TripPatternForDatesIndex failIfCalled() {
+        throw new AssertionError("The index should be cached");
+    }
+
+    private static TripPatternForDates createPattern(String id, int[] stopIndexes) {
+        TripPatternWithRaptorStopIndexes pattern = new TripPatternWithId(
+            new FeedScopedId("F", id), stopIndexes, null
+        );
+        return new TripPatternForDates(pattern, List.of(), List.of());
+    }
+}
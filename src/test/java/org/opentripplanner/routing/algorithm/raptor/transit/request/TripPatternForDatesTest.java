@@ -0,0 +1,255 @@
+package org.opentripplanner.routing.algorithm.raptor.transit.request;
+
+import org.junit.Test;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.model.Trip;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternForDate;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripPatternWithRaptorStopIndexes;
+import org.opentripplanner.routing.algorithm.raptor.transit.TripSchedule;
+import org.opentripplanner.routing.trippattern.Deduplicator;
+import org.opentripplanner.routing.trippattern.TripTimes;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTimeTable;
+import org.opentripplanner.transit.raptor.rangeraptor.transit.TransitCalculator;
+import org.opentripplanner.transit.raptor.rangeraptor.transit.TripScheduleSearch;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TripPatternForDatesTest {
+
+    private static final String FEED_ID = "F";
+    private static final int DAY = 24 * 60 * 60;
+    private static final LocalDate DATE = LocalDate.of(2020, 10, 1);
+
+    private static final Stop STOP_A = Stop.stopForTest("A", 60.0, 10.0);
+    private static final Stop STOP_B = Stop.stopForTest("B", 60.1, 10.0);
+    private static final Stop STOP_C = Stop.stopForTest("C", 60.2, 10.0);
+
+    private static final int STOP_POS_A = 0;
+    private static final int STOP_POS_B = 1;
+    private static final int STOP_POS_C = 2;
+
+    /*
+     * Yesterday, today and tomorrow with 2, 12 and 1 trips. Today has more trips than the binary
+     * search threshold (10) of the test calculators, so both the linear and the binary trip
+     * search are used. Each trip stops 5 minutes at stop B.
+     *
+     * Trip index | Day       | First departure (service day time)
+     * 0 - 1      | yesterday | 22:00, 23:30
+     * 2 - 13     | today     | 06:00, 06:20, ... 09:40
+     * 14         | tomorrow  | 01:00
+     */
+    private final TripPatternForDates subject = createSubject();
+
+    @Test
+    public void timesAreIndexedByTripAndStopPosition() {
+        assertEquals(15, subject.numberOfTripSchedules());
+
+        // First trip, yesterday 22:00
+        assertEquals(hm(22, 0) - DAY, subject.departureTime(0, STOP_POS_A));
+        assertEquals(hm(22, 10) - DAY, subject.arrivalTime(0, STOP_POS_B));
+        assertEquals(hm(22, 15) - DAY, subject.departureTime(0, STOP_POS_B));
+        assertEquals(hm(22, 30) - DAY, subject.arrivalTime(0, STOP_POS_C));
+
+        // Second trip yesterday, crossing midnight
+        assertEquals(hm(23, 30) - DAY, subject.departureTime(1, STOP_POS_A));
+        assertEquals(hm(24, 0) - DAY, subject.arrivalTime(1, STOP_POS_C));
+
+        // First and last trip today
+        assertEquals(hm(6, 0), subject.departureTime(2, STOP_POS_A));
+        assertEquals(hm(6, 15), subject.departureTime(2, STOP_POS_B));
+        assertEquals(hm(9, 40), subject.departureTime(13, STOP_POS_A));
+        assertEquals(hm(10, 10), subject.arrivalTime(13, STOP_POS_C));
+
+        // Last trip, tomorrow 01:00
+        assertEquals(hm(1, 0) + DAY, subject.departureTime(14, STOP_POS_A));
+        assertEquals(hm(1, 10) + DAY, subject.arrivalTime(14, STOP_POS_B));
+        assertEquals(hm(1, 30) + DAY, subject.arrivalTime(14, STOP_POS_C));
+    }
+
+    @Test
+    public void timesAreTheSameAsTheTripScheduleTimes() {
+        for (int trip = 0; trip < subject.numberOfTripSchedules(); ++trip) {
+            TripSchedule schedule = subject.getTripSchedule(trip);
+            for (int stopPos = 0; stopPos < subject.numberOfStopsInPattern(); ++stopPos) {
+                String msg = "Trip " + trip + ", stop position " + stopPos;
+                assertEquals(msg, schedule.departure(stopPos), subject.departureTime(trip, stopPos));
+                assertEquals(msg, schedule.arrival(stopPos), subject.arrivalTime(trip, stopPos));
+            }
+        }
+    }
+
+    @Test
+    public void boardSearchBoundaries() {
+        TripScheduleSearch<TripSchedule> search = boardSearch(subject);
+
+        // Before the first trip: board the first trip
+        assertTrue(search.search(hm(20, 0) - DAY, STOP_POS_A));
+        assertEquals(0, search.getCandidateTripIndex());
+        assertEquals(hm(22, 0) - DAY, search.getCandidateTripTime());
+
+        // Exactly at the last departure: board the last trip
+        assertTrue(search.search(hm(1, 15) + DAY, STOP_POS_B));
+        assertEquals(14, search.getCandidateTripIndex());
+        assertEquals(hm(1, 0) + DAY, search.getCandidateTrip().departure(STOP_POS_A));
+
+        // After the last departure: no trip
+        assertFalse(search.search(hm(1, 16) + DAY, STOP_POS_B));
+    }
+
+    @Test
+    public void alightSearchBoundaries() {
+        TripScheduleSearch<TripSchedule> search = alightSearch(subject);
+
+        // Exactly at the first arrival: alight the first trip
+        assertTrue(search.search(hm(22, 30) - DAY, STOP_POS_C));
+        assertEquals(0, search.getCandidateTripIndex());
+
+        // Before the first arrival: no trip
+        assertFalse(search.search(hm(22, 29) - DAY, STOP_POS_C));
+
+        // After the last trip: alight the last trip
+        assertTrue(search.search(hm(12, 0) + DAY, STOP_POS_C));
+        assertEquals(14, search.getCandidateTripIndex());
+        assertEquals(hm(1, 30) + DAY, search.getCandidateTripTime());
+    }
+
+    /**
+     * The trip search must find the same trips scanning the flat arrays as it did scanning the
+     * trip schedules, see {@link ScheduleTimeTable}.
+     */
+    @Test
+    public void searchFindsTheSameTripsAsTheTripScheduleSearch() {
+        RaptorTimeTable<TripSchedule> schedules = new ScheduleTimeTable(subject);
+
+        for (int time = hm(21, 0) - DAY; time <= hm(2, 0) + DAY; time += 5 * 60) {
+            for (int stopPos = 0; stopPos < subject.numberOfStopsInPattern(); ++stopPos) {
+                String msg = "Time " + time + ", stop position " + stopPos;
+                assertSameResult(msg, boardSearch(schedules), boardSearch(subject), time, stopPos, -1);
+                assertSameResult(msg, alightSearch(schedules), alightSearch(subject), time, stopPos, -1);
+                // Bounded by a trip found in a previous search
+                assertSameResult(msg, boardSearch(schedules), boardSearch(subject), time, stopPos, 8);
+                assertSameResult(msg, alightSearch(schedules), alightSearch(subject), time, stopPos, 8);
+            }
+        }
+    }
+
+    private static void assertSameResult(
+            String msg,
+            TripScheduleSearch<TripSchedule> expected,
+            TripScheduleSearch<TripSchedule> actual,
+            int time,
+            int stopPos,
+            int tripIndexBound
+    ) {
+        boolean found = expected.search(time, stopPos, tripIndexBound);
+        assertEquals(msg, found, actual.search(time, stopPos, tripIndexBound));
+        if (found) {
+            assertEquals(msg, expected.getCandidateTripIndex(), actual.getCandidateTripIndex());
+            assertEquals(msg, expected.getCandidateTripTime(), actual.getCandidateTripTime());
+            assertEquals(
+                    msg,
+                    expected.getCandidateTrip().getOriginalTripTimes(),
+                    actual.getCandidateTrip().getOriginalTripTimes()
+            );
+        }
+    }
+
+    private static TripScheduleSearch<TripSchedule> boardSearch(RaptorTimeTable<TripSchedule> timeTable) {
+        return TransitCalculator.testDummyCalculator(true).createTripSearch(timeTable);
+    }
+
+    private static TripScheduleSearch<TripSchedule> alightSearch(RaptorTimeTable<TripSchedule> timeTable) {
+        return TransitCalculator.testDummyCalculator(false).createTripSearch(timeTable);
+    }
+
+    private static TripPatternForDates createSubject() {
+        TripPatternWithRaptorStopIndexes pattern = new TripPatternWithId(
+                new FeedScopedId(FEED_ID, "P1"), new int[] { 0, 1, 2 }, null
+        );
+
+        List<TripTimes> today = new ArrayList<>();
+        for (int i = 0; i < 12; ++i) {
+            today.add(tripTimes("Today-" + i, hm(6, 20 * i)));
+        }
+
+        return new TripPatternForDates(
+                pattern,
+                List.of(
+                        new TripPatternForDate(
+                                pattern,
+                                new TripTimes[] {
+                                        tripTimes("Yesterday-1", hm(22, 0)),
+                                        tripTimes("Yesterday-2", hm(23, 30))
+                                },
+                                DATE.minusDays(1)
+                        ),
+                        new TripPatternForDate(pattern, today.toArray(new TripTimes[0]), DATE),
+                        new TripPatternForDate(
+                                pattern,
+                                new TripTimes[] { tripTimes("Tomorrow-1", hm(1, 0)) },
+                                DATE.plusDays(1)
+                        )
+                ),
+                List.of(-DAY, 0, DAY)
+        );
+    }
+
+    private static TripTimes tripTimes(String id, int departureTime) {
+        Trip trip = new Trip();
+        trip.setId(new FeedScopedId(FEED_ID, id));
+        return new TripTimes(
+                trip,
+                List.of(
+                        stopTime(STOP_A, departureTime, departureTime, 0),
+                        stopTime(STOP_B, departureTime + 600, departureTime + 900, 1),
+                        stopTime(STOP_C, departureTime + 1800, departureTime + 1800, 2)
+                ),
+                new Deduplicator()
+        );
+    }
+
+    private static StopTime stopTime(Stop stop, int arrivalTime, int departureTime, int sequence) {
+        StopTime st = new StopTime();
+        st.setStop(stop);
+        st.setArrivalTime(arrivalTime);
+        st.setDepartureTime(departureTime);
+        st.setStopSequence(sequence);
+        return st;
+    }
+
+    private static int hm(int hours, int minutes) {
+        return hours * 3600 + minutes * 60;
+    }
+
+    /**
+     * A time-table with only the trip schedules, the trip search then uses the default
+     * {@link RaptorTimeTable#departureTime(int, int)} and {@link RaptorTimeTable#arrivalTime(int, int)}
+     * methods and reads the times from a trip schedule for each trip visited. This is how the
+     * search worked before the flat arrays.
+     */
+    private static class ScheduleTimeTable implements RaptorTimeTable<TripSchedule> {
+        private final TripPatternForDates delegate;
+
+        private ScheduleTimeTable(TripPatternForDates delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TripSchedule getTripSchedule(int index) {
+            return delegate.getTripSchedule(index);
+        }
+
+        @Override
+        public int numberOfTripSchedules() {
+            return delegate.numberOfTripSchedules();
+        }
+    }
+}
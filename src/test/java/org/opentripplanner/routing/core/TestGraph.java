@@ -1,6 +1,7 @@
 package org.opentripplanner.routing.core;
 
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -11,11 +12,14 @@ import org.opentripplanner.common.geometry.GeometryUtils;
 import org.opentripplanner.routing.edgetype.FreeEdge;
 import org.opentripplanner.routing.edgetype.StreetEdge;
 import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.edgetype.TemporaryFreeEdge;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.location.TemporaryStreetLocation;
 import org.opentripplanner.routing.vertextype.IntersectionVertex;
 import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.util.NonLocalizedString;
 
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.LineString;
@@ -121,6 +125,69 @@ public class TestGraph extends TestCase {
         allEdges.add(edge(c, a, 1.0));
     }
 
+    public void testEdgesFollowRemovalAndSplitting() {
+        Graph g = new Graph();
+        StreetVertex a = new IntersectionVertex(g, "A", 5, 5);
+        StreetVertex b = new IntersectionVertex(g, "B", 6, 6);
+        StreetVertex c = new IntersectionVertex(g, "C", 3, 2);
+
+        StreetEdge ab = edge(a, b, 1.0);
+        StreetEdge bc = edge(b, c, 1.0);
+        FreeEdge ca = new FreeEdge(c, a);
+        assertEquals(3, g.countEdges());
+        assertEquals(2, g.getStreetEdges().size());
+        assertEquals(1, g.getEdgesOfType(FreeEdge.class).size());
+
+        g.removeEdge(bc);
+        assertEquals(new HashSet<Edge>(List.of(ab, ca)), new HashSet<Edge>(g.getEdges()));
+        assertFalse(g.getEdges().contains(bc));
+
+        // Removing an edge from the outgoing edges of its vertex removes it from the graph
+        a.removeOutgoing(ab);
+        assertEquals(List.of(ca), new ArrayList<Edge>(g.getEdges()));
+
+        g.removeVertexAndEdges(c);
+        assertEquals(0, g.countEdges());
+        assertTrue(g.getEdges().isEmpty());
+    }
+
+    public void testTemporaryEdgesAreNotGraphEdges() {
+        Graph g = new Graph();
+        StreetVertex a = new IntersectionVertex(g, "A", 5, 5);
+        StreetVertex b = new IntersectionVertex(g, "B", 6, 6);
+        StreetEdge ab = edge(a, b, 1.0);
+
+        // A temporary edge added to the outgoing edges of a graph vertex
+        TemporaryStreetLocation to = new TemporaryStreetLocation(
+                "to", new Coordinate(5.5, 5.5), new NonLocalizedString("to"), true
+        );
+        new TemporaryFreeEdge(a, to);
+        assertEquals(2, a.getDegreeOut());
+        assertEquals(List.of(ab), new ArrayList<Edge>(g.getEdges()));
+    }
+
+    public void testEdgesCanNotBeChangedWhileIterating() {
+        Graph g = new Graph();
+        StreetVertex a = new IntersectionVertex(g, "A", 5, 5);
+        StreetVertex b = new IntersectionVertex(g, "B", 6, 6);
+        edge(a, b, 1.0);
+        edge(b, a, 1.0);
+
+        try {
+            for (Edge e : g.getEdges()) {
+                g.removeEdge(e);
+            }
+            fail();
+        }
+        catch (ConcurrentModificationException e) {
+            // expected
+        }
+        for (Edge e : new ArrayList<>(g.getEdges())) {
+            g.removeEdge(e);
+        }
+        assertEquals(0, g.countEdges());
+    }
+
     /**
      * Create an edge. If twoWay, create two edges (back and forth).
      * 
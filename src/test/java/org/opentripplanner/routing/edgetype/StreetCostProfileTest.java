@@ -0,0 +1,153 @@
+package org.opentripplanner.routing.edgetype;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.common.geometry.PackedCoordinateSequence;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.OptimizeType;
+import org.opentripplanner.routing.core.RoutingContext;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class StreetCostProfileTest {
+
+    private static final double LENGTH = 650.0;
+
+    private static final double GREENWAY_SAFETY_FACTOR = 0.1;
+
+    private Graph graph;
+    private IntersectionVertex v1, v2;
+    private StreetWithElevationEdge street;
+
+    @Before
+    public void before() {
+        graph = new Graph();
+        v1 = new IntersectionVertex(graph, "v1", -122.575033, 45.456773);
+        v2 = new IntersectionVertex(graph, "v2", -122.576668, 45.451426);
+        LineString geometry = GeometryUtils.makeLineString(
+                v1.getLon(), v1.getLat(), v2.getLon(), v2.getLat()
+        );
+        street = new StreetWithElevationEdge(v1, v2, geometry, "street", LENGTH,
+                StreetTraversalPermission.ALL, false);
+        Coordinate[] profile = new Coordinate[] {
+                new Coordinate(0, 0),
+                // A slope gentle enough to be traversed in a wheelchair
+                new Coordinate(LENGTH / 2, LENGTH / 50.0),
+                new Coordinate(LENGTH, 0)
+        };
+        street.setElevationProfile(new PackedCoordinateSequence.Double(profile), false);
+        street.setCarSpeed(12.5f);
+    }
+
+    /** The weights must be the same as the ones computed from the request for each street. */
+    @Test
+    public void weightsAreTheSameAsWithoutProfile() {
+        for (TraverseMode mode : new TraverseMode[] { TraverseMode.WALK, TraverseMode.BICYCLE, TraverseMode.CAR }) {
+            for (OptimizeType optimize : OptimizeType.values()) {
+                for (boolean wheelchair : new boolean[] { false, true }) {
+                    for (boolean stairs : new boolean[] { false, true }) {
+                        if (wheelchair && stairs) {
+                            continue;
+                        }
+                        for (float safety : new float[] { 0.05f, 1.5f }) {
+                            street.setStairs(stairs);
+                            street.setBicycleSafetyFactor(safety);
+                            RoutingRequest options = request(mode, optimize, wheelchair);
+                            State s1 = street.traverse(new State(options));
+                            String message = mode + " " + optimize + " wheelchair: " + wheelchair
+                                    + " stairs: " + stairs + " safety: " + safety;
+                            assertEquals(message, expectedWeight(options, mode), s1.getWeight(), 0.0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void profileIsCompiledOncePerRequest() {
+        RoutingRequest options = request(TraverseMode.BICYCLE, OptimizeType.SAFE, false);
+        RoutingContext rctx = options.rctx;
+
+        StreetCostProfile bike = StreetCostProfile.of(rctx, options, TraverseMode.BICYCLE);
+        assertSame(bike, StreetCostProfile.of(rctx, options, TraverseMode.BICYCLE));
+
+        StreetCostProfile walk = StreetCostProfile.of(rctx, options, TraverseMode.WALK);
+        assertNotSame(bike, walk);
+
+        StreetCostProfile walkBike = StreetCostProfile.of(rctx, options.bikeWalkingOptions, TraverseMode.WALK);
+        assertNotSame(walk, walkBike);
+        assertEquals(options.bikeWalkingOptions.walkSpeed, walkBike.speed, 0.0);
+        assertSame(walkBike, StreetCostProfile.of(rctx, options.bikeWalkingOptions, TraverseMode.WALK));
+
+        // Another request used with the same context gets its own profile
+        RoutingRequest other = options.clone();
+        other.bikeSpeed = 3.0;
+        StreetCostProfile otherBike = StreetCostProfile.of(rctx, other, TraverseMode.BICYCLE);
+        assertEquals(3.0, otherBike.speed, 0.0);
+    }
+
+    private RoutingRequest request(TraverseMode mode, OptimizeType optimize, boolean wheelchair) {
+        RoutingRequest options = new RoutingRequest(mode);
+        options.optimize = optimize;
+        options.wheelchairAccessible = wheelchair;
+        options.bikeSpeed = 6.0;
+        options.walkSpeed = 1.3;
+        options.setWalkReluctance(2.5);
+        options.stairsReluctance = 3.0;
+        options.bikeSwitchCost = 0;
+        options.setBikeTriangleSafetyFactor(0.2);
+        options.setBikeTriangleSlopeFactor(0.3);
+        options.setBikeTriangleTimeFactor(0.5);
+        options.setRoutingContext(graph, v1, v2);
+        return options;
+    }
+
+    /** The weight of the street, computed from the request as it was before the profiles. */
+    private double expectedWeight(RoutingRequest options, TraverseMode mode) {
+        double speed = mode.isDriving() ? street.getCarSpeed() : options.getSpeed(mode);
+        double weight;
+        if (options.wheelchairAccessible) {
+            weight = street.getEffectiveBikeDistance() / speed;
+        } else if (mode == TraverseMode.BICYCLE) {
+            double safety = street.getBicycleSafetyFactor();
+            switch (options.optimize) {
+            case SAFE:
+                weight = safety * street.getDistanceMeters() / speed;
+                break;
+            case GREENWAYS:
+                weight = safety * street.getDistanceMeters() / speed;
+                if (safety <= GREENWAY_SAFETY_FACTOR) {
+                    weight *= 0.66;
+                }
+                break;
+            case FLAT:
+                weight = street.getDistanceMeters() / speed + street.getEffectiveBikeWorkCost();
+                break;
+            case QUICK:
+                weight = street.getEffectiveBikeDistance() / speed;
+                break;
+            case TRIANGLE:
+                weight = street.getEffectiveBikeDistance() * options.bikeTriangleTimeFactor
+                        + street.getEffectiveBikeWorkCost() * options.bikeTriangleSlopeFactor
+                        + safety * street.getDistanceMeters() * options.bikeTriangleSafetyFactor;
+                weight /= speed;
+                break;
+            default:
+                weight = street.getDistanceMeters() / speed;
+            }
+        } else {
+            weight = street.getEffectiveWalkDistance() / speed;
+        }
+        return weight * (street.isStairs() ? options.stairsReluctance : options.walkReluctance);
+    }
+}
@@ -145,7 +145,7 @@ public class GraphSerializationTest {
     private static void assertNoDifferences (Graph g1, Graph g2) {
         // Make some exclusions because some classes are inherently transient or contain unordered lists we can't yet compare.
         ObjectDiffer objectDiffer = new ObjectDiffer();
-        // Skip incoming and outgoing edge lists. These are unordered lists which will not compare properly.
+        // Skip incoming and outgoing edge lists, and the edge registry. These are unordered lists which will not compare properly.
         // The edges themselves will be compared via another field, and the edge lists are reconstructed after deserialization.
         // Some tests re-build the graph which will result in build times different by as little as a few milliseconds.
         // Some transient fields are not relevant to routing, so are not restored after reloading the graph.
@@ -159,7 +159,9 @@ public class GraphSerializationTest {
                 "tripPatternForId",
                 "transitLayer",
                 "realtimeTransitLayer",
-                "dateTime"
+                "dateTime",
+                "edgeRegistry",
+                "registryIndex"
 
         );
         // Edges have very detailed String representation including lat/lon coordinates and OSM IDs. They should be unique.
@@ -0,0 +1,166 @@
+package org.opentripplanner.routing.graph;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.CompactLineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.datastore.FileType;
+import org.opentripplanner.datastore.file.FileDataSource;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.standalone.config.BuildConfig;
+import org.opentripplanner.standalone.config.RouterConfig;
+import org.opentripplanner.standalone.config.ConfigLoader;
+import org.opentripplanner.util.OtpAppException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreetGeometryFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAndMap() throws IOException {
+        File file = folder.newFile("streets.geometry");
+        List<byte[]> geometries = Arrays.asList(
+                new byte[] { 1, 2, 3 },
+                null,
+                new byte[0],
+                new byte[] { -1 },
+                new byte[] { 4, 5, 6, 7, 8 }
+        );
+        StreetGeometryFile.write(file, 42, geometries);
+
+        StreetGeometryFile subject = StreetGeometryFile.map(file, 42, geometries.size());
+
+        assertEquals(5, subject.size());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, subject.get(0));
+        assertSame(CompactLineString.STRAIGHT_LINE_PACKED, subject.get(1));
+        assertSame(CompactLineString.STRAIGHT_LINE_PACKED, subject.get(2));
+        assertArrayEquals(new byte[] { -1 }, subject.get(3));
+        assertArrayEquals(new byte[] { 4, 5, 6, 7, 8 }, subject.get(4));
+    }
+
+    @Test
+    public void rejectFileOfAnotherGraph() throws IOException {
+        File file = folder.newFile("streets.geometry");
+        StreetGeometryFile.write(file, 42, Arrays.asList(new byte[] { 1 }, new byte[] { 2 }));
+
+        assertMapFails(file, 43, 2);
+        assertMapFails(file, 42, 3);
+    }
+
+    @Test
+    public void saveAndLoadGraphWithMappedGeometries() throws IOException {
+        Graph graph = streets();
+        Map<String, LineString> expected = geometries(graph);
+        File graphFile = new File(folder.getRoot(), "graph.obj");
+
+        new SerializedGraphObject(graph, mapStreetGeometries(), RouterConfig.DEFAULT)
+                .save(new FileDataSource(graphFile, FileType.GRAPH));
+
+        assertTrue(new File(folder.getRoot(), "graph.obj.geometry").exists());
+        // The saved graph reads its geometries from the new file too
+        assertEquals(expected, geometries(graph));
+
+        SerializedGraphObject loaded = SerializedGraphObject.load(
+                new FileDataSource(graphFile, FileType.GRAPH)
+        );
+        assertEquals(expected, geometries(loaded.graph));
+
+        // Saving the loaded graph without the parameter puts the geometries back in graph.obj
+        File copyFile = new File(folder.getRoot(), "copy.obj");
+        new SerializedGraphObject(loaded.graph, BuildConfig.DEFAULT, RouterConfig.DEFAULT)
+                .save(new FileDataSource(copyFile, FileType.GRAPH));
+        assertFalse(new File(folder.getRoot(), "copy.obj.geometry").exists());
+        assertEquals(expected, geometries(SerializedGraphObject.load(copyFile)));
+    }
+
+    @Test(expected = OtpAppException.class)
+    public void failToLoadGraphWithoutGeometryFile() throws IOException {
+        File graphFile = new File(folder.getRoot(), "graph.obj");
+        new SerializedGraphObject(streets(), mapStreetGeometries(), RouterConfig.DEFAULT)
+                .save(new FileDataSource(graphFile, FileType.GRAPH));
+
+        assertTrue(new File(folder.getRoot(), "graph.obj.geometry").delete());
+
+        SerializedGraphObject.load(new FileDataSource(graphFile, FileType.GRAPH));
+    }
+
+    private static void assertMapFails(File file, long id, int size) {
+        try {
+            StreetGeometryFile.map(file, id, size);
+            fail("Expected the file to be rejected");
+        }
+        catch (IOException expected) {
+            // expected
+        }
+    }
+
+    private static BuildConfig mapStreetGeometries() {
+        return new BuildConfig(
+                ConfigLoader.nodeFromString("{\"mapStreetGeometries\": true}", "Test"),
+                "Test",
+                false
+        );
+    }
+
+    /** A few streets, with both straight and curved geometries, in both directions. */
+    private static Graph streets() {
+        Graph graph = new Graph();
+        List<IntersectionVertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            vertices.add(new IntersectionVertex(graph, "V" + i, 10 + 0.001 * i, 59));
+        }
+        for (int i = 0; i + 1 < vertices.size(); ++i) {
+            IntersectionVertex a = vertices.get(i);
+            IntersectionVertex b = vertices.get(i + 1);
+            // Bend every other street north
+            double bend = i % 2 == 0 ? 0.0005 : 0;
+            street(a, b, line(a, b, bend), false);
+            street(b, a, line(b, a, bend), true);
+        }
+        return graph;
+    }
+
+    private static void street(IntersectionVertex a, IntersectionVertex b, LineString line, boolean back) {
+        new StreetEdge(a, b, line, a.getLabel() + "-" + b.getLabel(), 100,
+                StreetTraversalPermission.ALL, back);
+    }
+
+    private static LineString line(Vertex a, Vertex b, double bend) {
+        Coordinate mid = new Coordinate(
+                (a.getLon() + b.getLon()) / 2,
+                (a.getLat() + b.getLat()) / 2 + bend
+        );
+        return GeometryUtils.getGeometryFactory().createLineString(
+                new Coordinate[] { a.getCoordinate(), mid, b.getCoordinate() }
+        );
+    }
+
+    private static Map<String, LineString> geometries(Graph graph) {
+        Map<String, LineString> result = new TreeMap<>();
+        for (StreetEdge e : graph.getStreetEdges()) {
+            result.put(e.getName(), e.getGeometry());
+        }
+        return result;
+    }
+}
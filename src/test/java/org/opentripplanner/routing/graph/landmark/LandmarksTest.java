@@ -0,0 +1,170 @@
+package org.opentripplanner.routing.graph.landmark;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.GeometryUtils;
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+import org.opentripplanner.routing.algorithm.astar.AStar;
+import org.opentripplanner.routing.algorithm.astar.strategies.EuclideanRemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.astar.strategies.LandmarkRemainingWeightHeuristic;
+import org.opentripplanner.routing.algorithm.astar.strategies.RemainingWeightHeuristic;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.GraphPath;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LandmarksTest {
+
+    private static final int N = 6;
+    private static final double STEP = 0.001;
+
+    private Graph graph;
+    private IntersectionVertex[][] grid;
+
+    /**
+     * A grid of N x N intersections, with a "river" between column 2 and 3 crossed by a single
+     * bridge in the top row.
+     */
+    @Before
+    public void setup() {
+        graph = new Graph();
+        grid = new IntersectionVertex[N][N];
+        for (int x = 0; x < N; ++x) {
+            for (int y = 0; y < N; ++y) {
+                grid[x][y] = new IntersectionVertex(graph, x + "_" + y, 10 + x * STEP, 59 + y * STEP);
+            }
+        }
+        for (int x = 0; x < N; ++x) {
+            for (int y = 0; y < N; ++y) {
+                if (y + 1 < N) {
+                    street(grid[x][y], grid[x][y + 1]);
+                }
+                if (x + 1 < N && (x != 2 || y == N - 1)) {
+                    street(grid[x][y], grid[x + 1][y]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void buildTables() {
+        Landmarks subject = new LandmarksBuilder(graph).build(4);
+
+        assertEquals(4, subject.nLandmarks());
+        assertTrue(subject.memoryUsageInBytes() > 4 * N * N * 16);
+
+        for (int l = 0; l < subject.nLandmarks(); ++l) {
+            int pos = subject.position(subject.landmark(l));
+            for (LandmarkMode mode : LandmarkMode.values()) {
+                assertEquals(0f, subject.fromLandmark(mode, l, pos), 0f);
+                assertEquals(0f, subject.toLandmark(mode, l, pos), 0f);
+            }
+        }
+
+        // The streets are two-way, so the tables are symmetric
+        int a = subject.position(grid[0][0]);
+        int b = subject.position(grid[N - 1][0]);
+        assertEquals(
+                subject.fromLandmark(LandmarkMode.WALK_AND_BICYCLE, 0, a),
+                subject.toLandmark(LandmarkMode.WALK_AND_BICYCLE, 0, a),
+                0.01f
+        );
+        // The second landmark is the farthest from the first
+        assertTrue(subject.fromLandmark(LandmarkMode.WALK_AND_BICYCLE, 0, b) > 0);
+
+        // Vertices not in the graph are not in the tables
+        assertEquals(-1, subject.position(new IntersectionVertex(null, "temp", 10, 59)));
+    }
+
+    @Test
+    public void indexAfterVertexIndexesChange() {
+        Landmarks subject = new LandmarksBuilder(graph).build(2);
+        graph.putService(Landmarks.class, subject);
+        float expected = distanceFromFirstLandmark(subject, grid[4][4]);
+
+        // The vertex indexes are reassigned when the graph is indexed
+        graph.remove(grid[1][1]);
+        graph.index();
+
+        assertEquals(-1, subject.position(grid[1][1]));
+        assertEquals(expected, distanceFromFirstLandmark(subject, grid[4][4]), 0f);
+    }
+
+    @Test
+    public void sameResultAsEuclideanHeuristicWithBetterEstimates() {
+        Landmarks landmarks = new LandmarksBuilder(graph).build(4);
+        Vertex from = grid[0][0];
+        Vertex to = grid[N - 1][0];
+
+        for (boolean arriveBy : new boolean[] { false, true }) {
+            GraphPath euclidean = route(from, to, arriveBy, new EuclideanRemainingWeightHeuristic());
+            LandmarkRemainingWeightHeuristic heuristic = new LandmarkRemainingWeightHeuristic(landmarks);
+            GraphPath alt = route(from, to, arriveBy, heuristic);
+
+            assertEquals(euclidean.getWeight(), alt.getWeight(), 0.001);
+
+            // The estimate from the origin is a lower bound, and better than the straight line
+            State origin = alt.states.getFirst();
+            State target = alt.states.getLast();
+            double estimate = heuristic.estimateRemainingWeight(arriveBy ? target : origin);
+            assertTrue(estimate <= alt.getWeight() + 0.001);
+            double straightLine = SphericalDistanceLibrary.distance(from.getCoordinate(), to.getCoordinate());
+            assertTrue(estimate > 2 * straightLine / options().getStreetSpeedUpperBound());
+        }
+    }
+
+    @Test
+    public void unsupportedModesUseTheEuclideanHeuristic() {
+        TraverseModeSet carAndWalk = new TraverseModeSet(TraverseMode.CAR, TraverseMode.WALK);
+        assertNull(LandmarkMode.forModes(carAndWalk));
+        assertEquals(LandmarkMode.CAR, LandmarkMode.forModes(new TraverseModeSet(TraverseMode.CAR)));
+        assertEquals(
+                LandmarkMode.WALK_AND_BICYCLE,
+                LandmarkMode.forModes(new TraverseModeSet(TraverseMode.BICYCLE, TraverseMode.WALK))
+        );
+    }
+
+    private static float distanceFromFirstLandmark(Landmarks landmarks, Vertex v) {
+        return landmarks.fromLandmark(LandmarkMode.WALK_AND_BICYCLE, 0, landmarks.position(v));
+    }
+
+    private GraphPath route(Vertex from, Vertex to, boolean arriveBy, RemainingWeightHeuristic h) {
+        RoutingRequest options = options();
+        options.setArriveBy(arriveBy);
+        options.setRoutingContext(graph, from, to);
+        options.rctx.remainingWeightHeuristic = h;
+        ShortestPathTree tree = new AStar().getShortestPathTree(options);
+        return tree.getPath(arriveBy ? from : to, false);
+    }
+
+    private static RoutingRequest options() {
+        return new RoutingRequest(TraverseMode.WALK);
+    }
+
+    private static void street(IntersectionVertex a, IntersectionVertex b) {
+        double length = SphericalDistanceLibrary.distance(a.getCoordinate(), b.getCoordinate());
+        new StreetEdge(a, b, line(a, b), a.getLabel() + "-" + b.getLabel(), length,
+                StreetTraversalPermission.ALL, false);
+        new StreetEdge(b, a, line(b, a), b.getLabel() + "-" + a.getLabel(), length,
+                StreetTraversalPermission.ALL, true);
+    }
+
+    private static LineString line(Vertex a, Vertex b) {
+        return GeometryUtils.getGeometryFactory().createLineString(
+                new Coordinate[] { a.getCoordinate(), b.getCoordinate() }
+        );
+    }
+}
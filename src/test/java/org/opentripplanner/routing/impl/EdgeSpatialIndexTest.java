@@ -0,0 +1,78 @@
+package org.opentripplanner.routing.impl;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.opentripplanner.common.model.P2;
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.linking.SimpleStreetSplitter;
+import org.opentripplanner.model.Stop;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Edge;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.SplitterVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.routing.vertextype.TransitStopVertex;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EdgeSpatialIndexTest {
+
+    private static final Envelope AREA = new Envelope(9.9, 10.3, 9.9, 10.3);
+
+    @Test
+    public void replaceSplitEdge() {
+        Graph graph = new Graph();
+        StreetVertex a = new IntersectionVertex(graph, "A", 10.0, 10.0);
+        StreetVertex b = new IntersectionVertex(graph, "B", 10.2, 10.2);
+        StreetEdge ab = new StreetEdge(a, b, null, "AB", 10, StreetTraversalPermission.ALL, false);
+
+        EdgeSpatialIndex index = graph.getEdgeSpatialIndex();
+        assertEquals(List.of(ab), index.query(AREA));
+        long version = index.getVersion();
+
+        SplitterVertex v = new SplitterVertex(graph, "V", 10.1, 10.1, ab);
+        P2<StreetEdge> edges = ab.split(v, true);
+        index.replace(ab, edges.first, edges.second);
+
+        List<Edge> result = index.query(AREA);
+        assertEquals(2, result.size());
+        assertTrue(result.contains(edges.first));
+        assertTrue(result.contains(edges.second));
+        assertFalse(result.contains(ab));
+        assertEquals(version + 1, index.getVersion());
+    }
+
+    @Test
+    public void splitIsSeenByTheStreetIndex() {
+        Graph graph = new Graph();
+        StreetVertex a = new IntersectionVertex(graph, "A", 10.0, 10.0);
+        StreetVertex b = new IntersectionVertex(graph, "B", 10.2, 10.2);
+        StreetEdge ab = new StreetEdge(a, b, null, "AB", 10, StreetTraversalPermission.ALL, false);
+        graph.index();
+        long version = graph.getEdgeSpatialIndex().getVersion();
+
+        // A splitter created after the street index, like the one of a graph updater
+        SimpleStreetSplitter splitter = new SimpleStreetSplitter(
+                graph,
+                null,
+                true,
+                new DataImportIssueStore(false)
+        );
+        Stop stop = Stop.stopForTest("stop", 10.1, 10.1);
+        TransitStopVertex stopVertex = new TransitStopVertex(graph, stop, null);
+        assertTrue(splitter.link(stopVertex));
+
+        Collection<Edge> edges = graph.streetIndex.getEdgesForEnvelope(AREA);
+        assertFalse(edges.contains(ab));
+        assertTrue(graph.getEdgeSpatialIndex().getVersion() > version);
+        assertSame(graph.getEdgeSpatialIndex(), graph.getEdgeSpatialIndex());
+    }
+}
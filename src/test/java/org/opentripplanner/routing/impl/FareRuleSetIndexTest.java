@@ -0,0 +1,102 @@
+package org.opentripplanner.routing.impl;
+
+import org.junit.Test;
+import org.opentripplanner.model.FareAttribute;
+import org.opentripplanner.model.FeedScopedId;
+import org.opentripplanner.routing.core.FareRuleSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FareRuleSetIndexTest {
+
+    private static final String FEED_ID = "F";
+    private static final FeedScopedId ROUTE_1 = new FeedScopedId(FEED_ID, "R1");
+    private static final FeedScopedId ROUTE_2 = new FeedScopedId(FEED_ID, "R2");
+    private static final FeedScopedId TRIP_1 = new FeedScopedId(FEED_ID, "T1");
+
+    private final FareRuleSet unrestricted = rule("unrestricted");
+    private final FareRuleSet aToB = rule("aToB");
+    private final FareRuleSet fromA = rule("fromA");
+    private final FareRuleSet containsAB = rule("containsAB");
+    private final FareRuleSet route1 = rule("route1");
+    private final FareRuleSet trip1 = rule("trip1");
+    private final FareRuleSet otherFeed = new FareRuleSet(attribute(new FeedScopedId("G", "x")));
+
+    private final List<FareRuleSet> rules = List.of(
+        trip1, route1, containsAB, fromA, aToB, unrestricted, otherFeed
+    );
+
+    {
+        aToB.addOriginDestination("A", "B");
+        aToB.addOriginDestination("A", "C");
+        fromA.addOriginDestination("A", null);
+        containsAB.addContains("A");
+        containsAB.addContains("B");
+        route1.addRoute(ROUTE_1);
+        route1.addRoute(ROUTE_2);
+        trip1.addTrip(TRIP_1);
+    }
+
+    @Test
+    public void candidatesAreInTheOrderOfTheRules() {
+        FareRuleSetIndex subject = new FareRuleSetIndex(rules);
+
+        assertTrue(subject.isIndexOf(rules));
+        assertFalse(subject.isIndexOf(new ArrayList<>(rules)));
+        assertEquals(
+            List.of(trip1, route1, containsAB, fromA, aToB, unrestricted),
+            subject.candidates(FEED_ID, "A", "B", Set.of("A", "B"), ROUTE_1, TRIP_1)
+        );
+    }
+
+    @Test
+    public void allRulesThatMightMatchAreCandidates() {
+        FareRuleSetIndex subject = new FareRuleSetIndex(rules);
+        FeedScopedId otherRoute = new FeedScopedId(FEED_ID, "R3");
+        FeedScopedId otherTrip = new FeedScopedId(FEED_ID, "T3");
+
+        for (String start : List.of("A", "B", "C")) {
+            for (String end : List.of("A", "B", "C")) {
+                for (Set<String> zones : List.of(Set.of(start), Set.of("A", "B"))) {
+                    for (FeedScopedId route : List.of(ROUTE_1, ROUTE_2, otherRoute)) {
+                        for (FeedScopedId trip : List.of(TRIP_1, otherTrip)) {
+                            List<FareRuleSet> candidates = subject.candidates(
+                                FEED_ID, start, end, zones, route, trip
+                            );
+                            for (FareRuleSet it : rules) {
+                                boolean matches = it != otherFeed && it.matches(
+                                    start, end, zones, Set.of(route), Set.of(trip)
+                                );
+                                assertEquals(matches, matches && candidates.contains(it));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rulesOfOtherFeedsAreNotCandidates() {
+        FareRuleSetIndex subject = new FareRuleSetIndex(rules);
+
+        assertEquals(List.of(otherFeed), subject.candidates("G", "A", "B", Set.of(), null, null));
+        assertEquals(List.of(), subject.candidates("H", "A", "B", Set.of(), null, null));
+    }
+
+    private static FareRuleSet rule(String id) {
+        return new FareRuleSet(attribute(new FeedScopedId(FEED_ID, id)));
+    }
+
+    private static FareAttribute attribute(FeedScopedId id) {
+        FareAttribute attribute = new FareAttribute();
+        attribute.setId(id);
+        return attribute;
+    }
+}
@@ -0,0 +1,109 @@
+package org.opentripplanner.routing.spt;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.routing.api.request.RoutingRequest;
+import org.opentripplanner.routing.core.State;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.SimpleConcreteEdge;
+import org.opentripplanner.routing.graph.SimpleConcreteVertex;
+import org.opentripplanner.routing.graph.Vertex;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ShortestPathTreeTest {
+
+    private Graph graph;
+    private Vertex a;
+    private Vertex b;
+    private Vertex c;
+    /** A temporary vertex, not part of the graph */
+    private Vertex t;
+    private RoutingRequest options;
+
+    @Before
+    public void setUp() {
+        graph = new Graph();
+        a = new SimpleConcreteVertex(graph, "A", 47.670, -122.390);
+        b = new SimpleConcreteVertex(graph, "B", 47.671, -122.390);
+        c = new SimpleConcreteVertex(graph, "C", 47.672, -122.390);
+        t = new SimpleConcreteVertex(null, "T", 47.675, -122.390);
+        options = new RoutingRequest();
+        options.setRoutingContext(graph, a, c);
+    }
+
+    @Test
+    public void testVertexIndexes() {
+        assertEquals(3, graph.getVertexIndexSize());
+        assertNotEquals(a.getIndex(), b.getIndex());
+        assertNotEquals(b.getIndex(), c.getIndex());
+        assertTrue(c.getIndex() < graph.getVertexIndexSize());
+        assertEquals(Vertex.NO_INDEX, t.getIndex());
+    }
+
+    @Test
+    public void testSingleStatePerVertex() {
+        ShortestPathTree spt = new ShortestPathTree(options, new DominanceFunction.MinimumWeight());
+
+        State s0 = new State(a, options);
+        State direct = new SimpleConcreteEdge(a, c).traverse(s0);
+        State detour = new SimpleConcreteEdge(t, c).traverse(
+                new SimpleConcreteEdge(a, t).traverse(s0)
+        );
+
+        assertTrue(spt.add(s0));
+        assertTrue(spt.add(detour));
+        assertTrue(spt.visit(detour));
+
+        // The direct path is better, and replaces the detour
+        assertTrue(spt.add(direct));
+        assertFalse(spt.visit(detour));
+        assertTrue(spt.visit(direct));
+        assertSame(direct, spt.getState(c));
+        assertEquals(List.of(direct), spt.getStates(c));
+
+        // The detour is dominated and rejected
+        assertFalse(spt.add(detour));
+        assertEquals(2, spt.getVertexCount());
+        assertEquals(Set.of(a, c), spt.getVertices());
+        assertNull(spt.getStates(b));
+    }
+
+    @Test
+    public void testTemporaryVertex() {
+        ShortestPathTree spt = new ShortestPathTree(options, new DominanceFunction.MinimumWeight());
+
+        State s0 = new State(a, options);
+        State atTemporaryVertex = new SimpleConcreteEdge(a, t).traverse(s0);
+
+        assertTrue(spt.add(s0));
+        assertTrue(spt.add(atTemporaryVertex));
+        assertSame(atTemporaryVertex, spt.getState(t));
+        assertEquals(2, spt.getAllStates().size());
+    }
+
+    @Test
+    public void testRelease() {
+        ShortestPathTree spt = new ShortestPathTree(options, new DominanceFunction.MinimumWeight());
+        State s0 = new State(a, options);
+        spt.add(s0);
+        spt.add(new SimpleConcreteEdge(a, t).traverse(s0));
+        spt.release();
+
+        assertEquals(0, spt.getVertexCount());
+        assertNull(spt.getStates(a));
+
+        // A new tree reuses the released memory, and must start empty
+        ShortestPathTree next = new ShortestPathTree(options, new DominanceFunction.MinimumWeight());
+        assertNull(next.getStates(a));
+        assertEquals(0, next.getAllStates().size());
+    }
+}
@@ -0,0 +1,107 @@
+package org.opentripplanner.transit.raptor._shared;
+
+import org.opentripplanner.transit.raptor.api.transit.IntIterator;
+import org.opentripplanner.transit.raptor.api.transit.RaptorRoute;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTransfer;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTransitDataProvider;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A random transit network for unit-testing complete Raptor searches. The same seed gives the
+ * same network.
+ */
+public class TestTransitData implements RaptorTransitDataProvider<TestRaptorTripSchedule> {
+
+    private final int nStops;
+    private final List<TestRoute> routes = new ArrayList<>();
+    private final List<List<RaptorTransfer>> transfers = new ArrayList<>();
+
+    /**
+     * Create a network of {@code nRoutes} routes visiting {@code stopsPerRoute} of
+     * {@code nStops} stops, with a trip every {@code headway} seconds from {@code firstDeparture}
+     * to {@code lastDeparture}, and a few walking transfers between the stops.
+     */
+    public TestTransitData(
+            long seed,
+            int nStops,
+            int nRoutes,
+            int stopsPerRoute,
+            int firstDeparture,
+            int lastDeparture,
+            int headway
+    ) {
+        this.nStops = nStops;
+        Random random = new Random(seed);
+
+        for (int r = 0; r < nRoutes; ++r) {
+            int[] stops = random.ints(0, nStops).distinct().limit(stopsPerRoute).toArray();
+            int[] hopTimes = new int[stopsPerRoute];
+            for (int i = 1; i < stopsPerRoute; ++i) {
+                hopTimes[i] = hopTimes[i - 1] + 60 * (2 + random.nextInt(8));
+            }
+            // Start the routes at different times, so they do not all depart at the same time
+            int offset = 60 * random.nextInt(headway / 60);
+            List<TestRaptorTripSchedule> trips = new ArrayList<>();
+            for (int t = firstDeparture + offset; t <= lastDeparture; t += headway) {
+                int[] times = new int[stopsPerRoute];
+                for (int i = 0; i < stopsPerRoute; ++i) {
+                    times[i] = t + hopTimes[i];
+                }
+                trips.add(TestRaptorTripSchedule.create("R" + r)
+                        .withAlightTimes(times)
+                        .withStopIndexes(stops)
+                        .build());
+            }
+            routes.add(new TestRoute(trips));
+        }
+
+        for (int s = 0; s < nStops; ++s) {
+            List<RaptorTransfer> list = new ArrayList<>();
+            for (int i = 0; i < 2; ++i) {
+                int to = random.nextInt(nStops);
+                if (to != s) {
+                    list.add(new TestRaptorTransfer(to, 60 + random.nextInt(600)));
+                }
+            }
+            transfers.add(list);
+        }
+    }
+
+    @Override
+    public Iterator<? extends RaptorTransfer> getTransfers(int fromStop) {
+        return transfers.get(fromStop).iterator();
+    }
+
+    @Override
+    public Iterator<? extends RaptorRoute<TestRaptorTripSchedule>> routeIterator(IntIterator stops) {
+        BitSet touched = new BitSet(nStops);
+        while (stops.hasNext()) {
+            touched.set(stops.next());
+        }
+        List<TestRoute> result = new ArrayList<>();
+        for (TestRoute route : routes) {
+            for (int i = 0; i < route.pattern().numberOfStopsInPattern(); ++i) {
+                if (touched.get(route.pattern().stopIndex(i))) {
+                    result.add(route);
+                    break;
+                }
+            }
+        }
+        return result.iterator();
+    }
+
+    @Override
+    public int numberOfStops() {
+        return nStops;
+    }
+
+    @Override
+    public int[] stopBoarAlightCost() {
+        return null;
+    }
+}
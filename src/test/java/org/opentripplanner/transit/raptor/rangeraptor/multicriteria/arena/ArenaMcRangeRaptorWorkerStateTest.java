@@ -0,0 +1,79 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena;
+
+import org.junit.Test;
+import org.opentripplanner.transit.raptor.RaptorService;
+import org.opentripplanner.transit.raptor._shared.TestRaptorTransfer;
+import org.opentripplanner.transit.raptor._shared.TestRaptorTripSchedule;
+import org.opentripplanner.transit.raptor._shared.TestTransitData;
+import org.opentripplanner.transit.raptor.api.path.Path;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequestBuilder;
+import org.opentripplanner.transit.raptor.api.request.RaptorTuningParameters;
+import org.opentripplanner.transit.raptor.rangeraptor.configure.RaptorConfig;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ArenaMcRangeRaptorWorkerStateTest {
+
+    /**
+     * The arena must give the same paths as the object based worker state. Each search with the
+     * arena reuses the arrays of the previous one, so stale arrivals would change the result.
+     */
+    @Test
+    public void arenaFindsTheSamePaths() {
+        RaptorService<TestRaptorTripSchedule> objects = new RaptorService<>(config(false));
+        RaptorService<TestRaptorTripSchedule> arena = new RaptorService<>(config(true));
+
+        for (int seed = 1; seed <= 5; ++seed) {
+            TestTransitData transitData = new TestTransitData(seed, 40, 12, 6, 7 * 3600, 11 * 3600, 900);
+            for (boolean timetable : new boolean[] { false, true }) {
+                RaptorRequest<TestRaptorTripSchedule> request = mcRequest(timetable);
+
+                Set<String> expected = describe(objects.route(request, transitData).paths());
+                Set<String> actual = describe(arena.route(request, transitData).paths());
+
+                assertFalse(expected.isEmpty());
+                assertEquals("Seed " + seed + ", timetable " + timetable, expected, actual);
+            }
+        }
+    }
+
+    private static RaptorRequest<TestRaptorTripSchedule> mcRequest(boolean timetable) {
+        RaptorRequestBuilder<TestRaptorTripSchedule> builder = new RaptorRequestBuilder<>();
+        builder.profile(RaptorProfile.MULTI_CRITERIA)
+                .searchParams()
+                .earliestDepartureTime(8 * 3600)
+                .searchWindowInSeconds(3600)
+                .latestArrivalTime(11 * 3600)
+                .timetableEnabled(timetable)
+                .addAccessStop(new TestRaptorTransfer(0, 120))
+                .addAccessStop(new TestRaptorTransfer(1, 300))
+                .addAccessStop(new TestRaptorTransfer(2, 600))
+                .addEgressStop(new TestRaptorTransfer(37, 60))
+                .addEgressStop(new TestRaptorTransfer(38, 240))
+                .addEgressStop(new TestRaptorTransfer(39, 480));
+        return builder.build();
+    }
+
+    private static RaptorConfig<TestRaptorTripSchedule> config(boolean useStopArrivalArena) {
+        return new RaptorConfig<>(new RaptorTuningParameters() {
+            @Override
+            public boolean useStopArrivalArena() {
+                return useStopArrivalArena;
+            }
+        });
+    }
+
+    private static Set<String> describe(Iterable<Path<TestRaptorTripSchedule>> paths) {
+        Set<String> result = new TreeSet<>();
+        for (Path<TestRaptorTripSchedule> path : paths) {
+            result.add(path.toString());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,235 @@
+package org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arena;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opentripplanner.transit.raptor._shared.TestRaptorTransfer;
+import org.opentripplanner.transit.raptor._shared.TestRaptorTripSchedule;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
+import org.opentripplanner.transit.raptor.api.view.ArrivalView;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arrivals.AbstractStopArrival;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arrivals.AccessStopArrival;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arrivals.TransferStopArrival;
+import org.opentripplanner.transit.raptor.rangeraptor.multicriteria.arrivals.TransitStopArrival;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StopArrivalArenaTest {
+
+    private static final int BOARD_SLACK = 80;
+
+    private static final int ACCESS_TO_STOP = 100;
+    private static final int ACCESS_DEPARTURE_TIME = 8 * 60 * 60;
+    private static final int ACCESS_DURATION = 300;
+    private static final int ACCESS_COST = 500;
+    private static final TestRaptorTransfer ACCESS = new TestRaptorTransfer(ACCESS_TO_STOP, ACCESS_DURATION);
+
+    private static final int TRANSIT_TO_STOP = 101;
+    private static final int TRANSIT_BOARD_TIME = 9 * 60 * 60;
+    private static final int TRANSIT_ALIGHT_TIME = TRANSIT_BOARD_TIME + 1200;
+    private static final int TRANSIT_COST = 200;
+    private static final RaptorTripSchedule TRANSIT_TRIP = TestRaptorTripSchedule
+            .create("T1")
+            .withAlightTimes(TRANSIT_ALIGHT_TIME)
+            .build();
+
+    private static final int TRANSFER_TO_STOP = 102;
+    private static final int TRANSFER_DURATION = 200;
+    private static final int TRANSFER_COST = 300;
+
+    private final StopArrivalArena<RaptorTripSchedule> subject = new StopArrivalArena<>();
+
+    @Before
+    public void setup() {
+        subject.open();
+    }
+
+    @After
+    public void tearDown() {
+        subject.close();
+    }
+
+    @Test
+    public void sameValuesAsStopArrivalObjects() {
+        AbstractStopArrival<RaptorTripSchedule> expAccess = new AccessStopArrival<>(
+                ACCESS_DEPARTURE_TIME, ACCESS_COST, ACCESS
+        );
+        expAccess = expAccess.timeShiftNewArrivalTime(TRANSIT_BOARD_TIME - BOARD_SLACK);
+        TransitStopArrival<RaptorTripSchedule> expTransit = new TransitStopArrival<>(
+                expAccess, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME, TRANSIT_COST, TRANSIT_TRIP
+        );
+        TransferStopArrival<RaptorTripSchedule> expTransfer = new TransferStopArrival<>(
+                expTransit,
+                new TestRaptorTransfer(TRANSFER_TO_STOP, TRANSFER_DURATION),
+                TRANSIT_ALIGHT_TIME + TRANSFER_DURATION,
+                TRANSFER_COST
+        );
+
+        int access = subject.addAccess(ACCESS_DEPARTURE_TIME, ACCESS_COST, ACCESS);
+        access = subject.timeShiftAccess(access, TRANSIT_BOARD_TIME - BOARD_SLACK);
+        int transit = subject.addTransit(
+                access, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME, TRANSIT_COST, TRANSIT_TRIP
+        );
+        int transfer = subject.addTransfer(
+                transit, TRANSFER_TO_STOP, TRANSIT_ALIGHT_TIME + TRANSFER_DURATION, TRANSFER_COST
+        );
+
+        assertSameArrival(expAccess, subject, access);
+        assertSameArrival(expTransit, subject, transit);
+        assertSameArrival(expTransfer, subject, transfer);
+
+        assertTrue(subject.arrivedByAccessLeg(access));
+        assertTrue(subject.arrivedByTransit(transit));
+        assertTrue(subject.arrivedByTransfer(transfer));
+        assertSame(ACCESS, subject.access(access));
+        assertSame(TRANSIT_TRIP, subject.trip(transit));
+        assertEquals(StopArrivalArena.NOT_SET, subject.previous(access));
+        assertEquals(access, subject.previous(transit));
+    }
+
+    @Test
+    public void views() {
+        int access = subject.addAccess(ACCESS_DEPARTURE_TIME, ACCESS_COST, ACCESS);
+        int transit = subject.addTransit(
+                access, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME, TRANSIT_COST, TRANSIT_TRIP
+        );
+        int transfer = subject.addTransfer(
+                transit, TRANSFER_TO_STOP, TRANSIT_ALIGHT_TIME + TRANSFER_DURATION, TRANSFER_COST
+        );
+
+        ArrivalView<RaptorTripSchedule> view = subject.view(transfer);
+        assertTrue(view.arrivedByTransfer());
+        assertEquals(TRANSFER_DURATION, view.transferLeg().durationInSeconds());
+
+        view = view.previous();
+        assertTrue(view.arrivedByTransit());
+        assertEquals(ACCESS_TO_STOP, view.transitLeg().boardStop());
+        assertSame(TRANSIT_TRIP, view.transitLeg().trip());
+
+        view = view.previous();
+        assertTrue(view.arrivedByAccessLeg());
+        assertSame(ACCESS, view.accessLeg().access());
+        assertNull(view.previous());
+
+        assertEquals(
+                "Transit { round: 1, stop: 101, pattern: BUS T1, arrival-time: 9:20, cost: 700 }",
+                subject.view(transit).toString()
+        );
+    }
+
+    @Test
+    public void freedArrivalsAreReused() {
+        int access = subject.addAccess(ACCESS_DEPARTURE_TIME, ACCESS_COST, ACCESS);
+        // Referenced by the pareto set of its stop
+        subject.retain(access);
+        int transit = subject.addTransit(
+                access, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME, TRANSIT_COST, TRANSIT_TRIP
+        );
+        subject.free(transit);
+
+        int transfer = subject.addTransfer(
+                access, TRANSFER_TO_STOP, ACCESS_DEPARTURE_TIME + ACCESS_DURATION + 60, TRANSFER_COST
+        );
+        assertEquals(transit, transfer);
+        assertEquals(2, subject.size());
+        assertTrue(subject.arrivedByTransfer(transfer));
+        assertEquals(TRANSFER_TO_STOP, subject.stop(transfer));
+    }
+
+    @Test
+    public void droppedArrivalsAreFreedWhenNotReferenced() {
+        StopArrivalIndexParetoSet<RaptorTripSchedule> accessSet = new StopArrivalIndexParetoSet<>(subject, null);
+        StopArrivalIndexParetoSet<RaptorTripSchedule> set = new StopArrivalIndexParetoSet<>(subject, null);
+        int a = subject.addAccess(ACCESS_DEPARTURE_TIME, ACCESS_COST, ACCESS);
+        assertTrue(accessSet.add(a));
+        int early = subject.addTransit(a, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME, TRANSIT_COST, TRANSIT_TRIP);
+        assertTrue(set.add(early));
+        int transfer = subject.addTransfer(
+                early, TRANSFER_TO_STOP, TRANSIT_ALIGHT_TIME + TRANSFER_DURATION, TRANSFER_COST
+        );
+
+        // Dropped, but still referenced by the transfer
+        int best = subject.addTransit(a, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME, 0, TRANSIT_TRIP);
+        assertTrue(set.add(best));
+        assertEquals(4, subject.size());
+        int other = subject.addTransfer(a, TRANSFER_TO_STOP, TRANSIT_ALIGHT_TIME, TRANSFER_COST);
+        assertEquals(5, subject.size());
+        subject.free(other);
+
+        // Freeing the transfer frees the dropped arrival, but not the access in its set
+        subject.free(transfer);
+        assertEquals(early, subject.addTransfer(a, TRANSFER_TO_STOP, TRANSIT_ALIGHT_TIME, 1));
+        assertEquals(transfer, subject.addTransfer(a, TRANSFER_TO_STOP, TRANSIT_ALIGHT_TIME, 2));
+        assertEquals(other, subject.addTransfer(a, TRANSFER_TO_STOP, TRANSIT_ALIGHT_TIME, 3));
+        assertEquals(5, subject.size());
+        int next = subject.addTransfer(a, TRANSFER_TO_STOP, TRANSIT_ALIGHT_TIME, 4);
+        assertEquals(6, subject.size());
+        assertEquals(5, next);
+        assertEquals(ACCESS_COST + 4, subject.cost(next));
+    }
+
+    @Test
+    public void growBeyondInitialCapacity() {
+        int access = subject.addAccess(ACCESS_DEPARTURE_TIME, ACCESS_COST, ACCESS);
+        int last = access;
+        for (int i = 0; i < 5000; ++i) {
+            last = subject.addTransfer(last, i, ACCESS_DEPARTURE_TIME + ACCESS_DURATION + i, 1);
+        }
+        assertEquals(5001, subject.size());
+        assertEquals(ACCESS_COST + 5000, subject.cost(last));
+        assertEquals(4999, subject.stop(last));
+    }
+
+    @Test
+    public void closeAndOpen() {
+        subject.addAccess(ACCESS_DEPARTURE_TIME, ACCESS_COST, ACCESS);
+        subject.close();
+        assertFalse(subject.isOpen());
+
+        subject.open();
+        assertTrue(subject.isOpen());
+        assertEquals(0, subject.size());
+    }
+
+    @Test
+    public void paretoSet() {
+        StopArrivalIndexParetoSet<RaptorTripSchedule> set = new StopArrivalIndexParetoSet<>(subject, null);
+        int a = subject.addAccess(ACCESS_DEPARTURE_TIME, ACCESS_COST, ACCESS);
+        int early = subject.addTransit(a, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME, TRANSIT_COST, TRANSIT_TRIP);
+        int cheap = subject.addTransit(a, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME + 60, 0, TRANSIT_TRIP);
+        int worse = subject.addTransit(a, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME + 60, TRANSIT_COST, TRANSIT_TRIP);
+
+        assertTrue(set.add(early));
+        set.markAtEndOfSet();
+        assertTrue(set.add(cheap));
+        assertFalse(set.add(worse));
+
+        assertEquals(2, set.size());
+        assertEquals(1, set.marker());
+        assertEquals(cheap, set.get(set.marker()));
+
+        // Dominates both, the marker is moved to the new element
+        int best = subject.addTransit(a, TRANSIT_TO_STOP, TRANSIT_ALIGHT_TIME, 0, TRANSIT_TRIP);
+        assertTrue(set.add(best));
+        assertEquals(1, set.size());
+        assertEquals(0, set.marker());
+        assertEquals(best, set.get(0));
+    }
+
+    private static void assertSameArrival(
+            AbstractStopArrival<RaptorTripSchedule> expected,
+            StopArrivalArena<RaptorTripSchedule> arena,
+            int arrival
+    ) {
+        assertEquals(expected.stop(), arena.stop(arrival));
+        assertEquals(expected.arrivalTime(), arena.arrivalTime(arrival));
+        assertEquals(expected.travelDuration(), arena.travelDuration(arrival));
+        assertEquals(expected.cost(), arena.cost(arrival));
+        assertEquals(expected.round(), arena.round(arrival));
+        assertEquals(expected.toString(), arena.view(arrival).toString());
+    }
+}
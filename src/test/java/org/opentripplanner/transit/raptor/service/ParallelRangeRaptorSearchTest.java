@@ -0,0 +1,150 @@
+package org.opentripplanner.transit.raptor.service;
+
+import org.junit.Test;
+import org.opentripplanner.transit.raptor.RaptorService;
+import org.opentripplanner.transit.raptor._shared.TestRaptorTransfer;
+import org.opentripplanner.transit.raptor._shared.TestRaptorTripSchedule;
+import org.opentripplanner.transit.raptor._shared.TestTransitData;
+import org.opentripplanner.transit.raptor.api.path.Path;
+import org.opentripplanner.transit.raptor.api.request.Optimization;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequestBuilder;
+import org.opentripplanner.transit.raptor.api.request.RaptorTuningParameters;
+import org.opentripplanner.transit.raptor.api.request.SearchParams;
+import org.opentripplanner.transit.raptor.rangeraptor.configure.RaptorConfig;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelRangeRaptorSearchTest {
+
+    private static final int STEP = 60;
+    private static final int EDT = 10_000;
+
+    @Test
+    public void splitSearchWindow() {
+        // 10 iterations: EDT+540, EDT+480, ... EDT
+        List<ParallelRangeRaptorSearch.Partition> partitions = ParallelRangeRaptorSearch.partitions(
+                searchParams(600), STEP, 3
+        );
+
+        // 10 iterations in 3 partitions: 3, 3 and 4 iterations. The 2nd and 3rd partitions
+        // include the last iteration of the previous partition.
+        assertEquals(
+                "[Partition{edt=10420, sw=180}, "
+                        + "Partition{edt=10240, sw=240}, "
+                        + "Partition{edt=10000, sw=300}]",
+                partitions.toString()
+        );
+    }
+
+    @Test
+    public void partitionsCoverAllIterations() {
+        List<ParallelRangeRaptorSearch.Partition> partitions = ParallelRangeRaptorSearch.partitions(
+                searchParams(3600), STEP, 4
+        );
+        assertEquals(4, partitions.size());
+
+        // The latest iteration of the first partition is the latest of the whole window
+        ParallelRangeRaptorSearch.Partition first = partitions.get(0);
+        assertEquals(EDT + 3600 - STEP, first.earliestDepartureTime + first.searchWindowInSeconds - STEP);
+
+        // Each partition start with the last iteration of the previous partition
+        for (int i = 1; i < partitions.size(); ++i) {
+            ParallelRangeRaptorSearch.Partition prev = partitions.get(i - 1);
+            ParallelRangeRaptorSearch.Partition it = partitions.get(i);
+            assertEquals(
+                    prev.earliestDepartureTime,
+                    it.earliestDepartureTime + it.searchWindowInSeconds - STEP
+            );
+        }
+        assertEquals(EDT, partitions.get(partitions.size() - 1).earliestDepartureTime);
+    }
+
+    @Test
+    public void doNotSplitShortSearchWindows() {
+        // 3 iterations is too few to split in 2
+        assertTrue(ParallelRangeRaptorSearch.partitions(searchParams(180), STEP, 2).isEmpty());
+        // 4 iterations is split in 2, not 4
+        assertEquals(2, ParallelRangeRaptorSearch.partitions(searchParams(240), STEP, 4).size());
+        // Partitioning disabled
+        assertTrue(ParallelRangeRaptorSearch.partitions(searchParams(3600), STEP, 1).isEmpty());
+    }
+
+    /**
+     * The paths found by searching the partitions in parallel must be the same as the ones found
+     * by one worker searching the whole search window.
+     */
+    @Test
+    public void partitionedSearchFindsTheSamePaths() {
+        TestTransitData transitData = new TestTransitData(3, 40, 12, 6, 7 * 3600, 11 * 3600, 900);
+        RaptorRequest<TestRaptorTripSchedule> request = mcRequest();
+
+        RaptorService<TestRaptorTripSchedule> sequential = new RaptorService<>(config(0, 0));
+        RaptorService<TestRaptorTripSchedule> partitioned = new RaptorService<>(config(4, 4));
+        try {
+            Set<String> expected = describe(sequential.route(request, transitData).paths());
+            Set<String> actual = describe(partitioned.route(request, transitData).paths());
+
+            assertTrue(expected.size() > 10);
+            assertEquals(expected, actual);
+        }
+        finally {
+            sequential.shutdown();
+            partitioned.shutdown();
+        }
+    }
+
+    private static RaptorRequest<TestRaptorTripSchedule> mcRequest() {
+        RaptorRequestBuilder<TestRaptorTripSchedule> builder = new RaptorRequestBuilder<>();
+        builder.profile(RaptorProfile.MULTI_CRITERIA)
+                .enableOptimization(Optimization.PARALLEL)
+                .searchParams()
+                .earliestDepartureTime(8 * 3600)
+                .searchWindowInSeconds(3600)
+                .latestArrivalTime(11 * 3600)
+                .timetableEnabled(true)
+                .addAccessStop(new TestRaptorTransfer(0, 120))
+                .addAccessStop(new TestRaptorTransfer(1, 300))
+                .addAccessStop(new TestRaptorTransfer(2, 600))
+                .addEgressStop(new TestRaptorTransfer(37, 60))
+                .addEgressStop(new TestRaptorTransfer(38, 240))
+                .addEgressStop(new TestRaptorTransfer(39, 480));
+        return builder.build();
+    }
+
+    private static RaptorConfig<TestRaptorTripSchedule> config(int threads, int partitions) {
+        return new RaptorConfig<>(new RaptorTuningParameters() {
+            @Override
+            public int searchThreadPoolSize() {
+                return threads;
+            }
+
+            @Override
+            public int searchWindowPartitions() {
+                return partitions;
+            }
+        });
+    }
+
+    private static Set<String> describe(Iterable<Path<TestRaptorTripSchedule>> paths) {
+        Set<String> result = new TreeSet<>();
+        for (Path<TestRaptorTripSchedule> path : paths) {
+            result.add(path.toString());
+        }
+        return result;
+    }
+
+    private static SearchParams searchParams(int searchWindow) {
+        return new RaptorRequestBuilder<TestRaptorTripSchedule>()
+                .searchParams()
+                .earliestDepartureTime(EDT)
+                .searchWindowInSeconds(searchWindow)
+                .buildSearchParam();
+    }
+}
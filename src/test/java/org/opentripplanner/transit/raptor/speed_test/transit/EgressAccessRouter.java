@@ -26,7 +26,6 @@ public class EgressAccessRouter {
         this.splitter = new SimpleStreetSplitter(
                 graph,
                 null,
-                null,
                 false,
                 new DataImportIssueStore(false)
         );
@@ -0,0 +1,98 @@
+package org.opentripplanner.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void plusAndMinusDoNotChangeTheOriginalMap() {
+        PersistentHashMap<String, Integer> empty = PersistentHashMap.empty();
+        PersistentHashMap<String, Integer> one = empty.plus("A", 1);
+        PersistentHashMap<String, Integer> two = one.plus("B", 2);
+        PersistentHashMap<String, Integer> replaced = two.plus("A", 3);
+        PersistentHashMap<String, Integer> removed = replaced.minus("B");
+
+        assertTrue(empty.isEmpty());
+        assertEquals(Map.of("A", 1), one);
+        assertEquals(Map.of("A", 1, "B", 2), two);
+        assertEquals(Map.of("A", 3, "B", 2), replaced);
+        assertEquals(Map.of("A", 3), removed);
+        assertNull(removed.get("B"));
+        assertFalse(removed.containsKey("B"));
+    }
+
+    @Test
+    public void unchangedMapIsReturnedIfNothingChanges() {
+        Integer value = 1;
+        PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer>empty()
+                .plus("A", value);
+
+        assertSame(map, map.plus("A", value));
+        assertSame(map, map.minus("X"));
+        assertSame(map, map.minus(null));
+    }
+
+    @Test
+    public void keysWithSameHashCode() {
+        // "Aa" and "BB" have the same hash code
+        PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer>empty()
+                .plus("Aa", 1)
+                .plus("BB", 2)
+                .plus("C", 3);
+
+        assertEquals(3, map.size());
+        assertEquals(Integer.valueOf(1), map.get("Aa"));
+        assertEquals(Integer.valueOf(2), map.get("BB"));
+        assertEquals(Map.of("Aa", 4, "BB", 2, "C", 3), map.plus("Aa", 4));
+        assertEquals(Map.of("BB", 2, "C", 3), map.minus("Aa"));
+        assertEquals(Map.of("C", 3), map.minus("Aa").minus("BB"));
+    }
+
+    @Test
+    public void compareWithHashMap() {
+        Random rnd = new Random(42);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+
+        for (int i = 0; i < 20_000; ++i) {
+            // Use a mix of small and large keys, to get both shallow and deep tries
+            int key = i % 3 == 0 ? rnd.nextInt() : rnd.nextInt(2000);
+            if (rnd.nextInt(4) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            }
+            else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.entrySet().stream().count());
+
+        for (Integer key : expected.keySet()) {
+            map = map.minus(key);
+        }
+        assertTrue(map.isEmpty());
+        assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    public void copyOf() {
+        Map<String, Integer> source = Map.of("A", 1, "B", 2);
+        PersistentHashMap<String, Integer> map = PersistentHashMap.copyOf(source);
+
+        assertEquals(source, map);
+        assertSame(map, PersistentHashMap.copyOf(map));
+    }
+}